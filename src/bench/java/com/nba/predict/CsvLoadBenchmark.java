@@ -0,0 +1,64 @@
+package com.nba.predict;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mapped byte-scanning CSV ingest vs. the reflective opencsv bean path, on a synthetic
+ * game.csv with the real 55-column layout.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class CsvLoadBenchmark {
+
+    @Param({"2000000"})
+    public int games;
+
+    private Path csv;
+
+    @Setup(Level.Trial)
+    public void writeCsv() throws IOException {
+        csv = Files.createTempFile("bench-game", ".csv");
+        SyntheticGames.writeCsv(csv, games);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteCsv() throws IOException {
+        Files.deleteIfExists(csv);
+    }
+
+    @Benchmark
+    public GameTable openCsvBeans() throws IOException {
+        return new DataLoader().loadFromCsvBeans(csv.toString());
+    }
+
+    @Benchmark
+    public GameTable mappedParallel() throws IOException {
+        return new MappedCsvReader().read(csv.toString());
+    }
+
+    @Benchmark
+    public GameTable mappedSingleThread() throws IOException {
+        return new MappedCsvReader(1).read(csv.toString());
+    }
+}
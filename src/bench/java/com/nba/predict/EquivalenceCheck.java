@@ -0,0 +1,221 @@
+package com.nba.predict;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.DoubleBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+
+/**
+ * Checks that the fast paths the benchmarks time produce exactly what their reference paths
+ * do, so the speedups are not bought with different results:
+ *
+ * <ul>
+ *   <li>{@link MappedCsvReader}, parallel and single-threaded, against the opencsv bean path;</li>
+ *   <li>{@link FeaturePipeline#extractFeaturesParallel} against the sequential loop, rows and
+ *       final league state;</li>
+ *   <li>extraction resumed from a saved {@link FeatureSnapshot} with rows appended to the
+ *       {@link FeatureCache} entry in place, twice, against one full extraction.</li>
+ * </ul>
+ *
+ * Not a JMH benchmark; run it from the bench jar and it exits non-zero on the first mismatch:
+ * {@code java -cp target/benchmarks.jar com.nba.predict.EquivalenceCheck [games | game.csv]}.
+ * With a CSV path the checks run on that file instead of a synthetic schedule.
+ */
+public final class EquivalenceCheck {
+    private static final int DEFAULT_GAMES = 20_000;
+
+    private EquivalenceCheck() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Path dir = Files.createTempDirectory("equivalence-check");
+        try {
+            Path csv;
+            if (args.length > 0 && !args[0].chars().allMatch(Character::isDigit)) {
+                csv = Path.of(args[0]);
+            } else {
+                csv = dir.resolve("game.csv");
+                SyntheticGames.writeCsv(csv, args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_GAMES);
+            }
+            GameTable games = checkCsvReaders(csv);
+            FeaturePipeline pipeline = new FeaturePipeline();
+            checkParallelExtraction(pipeline, games);
+            checkResume(pipeline, games, dir.resolve("feature-cache"));
+            System.out.println("All paths agree on " + games.size() + " games");
+        } finally {
+            try (Stream<Path> files = Files.walk(dir)) {
+                for (Path p : files.sorted(Comparator.reverseOrder()).toArray(Path[]::new)) {
+                    Files.deleteIfExists(p);
+                }
+            }
+        }
+    }
+
+    private static GameTable checkCsvReaders(Path csv) throws IOException {
+        GameTable reference = new DataLoader().loadFromCsvBeans(csv.toString());
+        GameTable parallel = new MappedCsvReader().read(csv.toString());
+        GameTable single = new MappedCsvReader(1).read(csv.toString());
+        expect(sameGames(reference, parallel), "parallel MappedCsvReader differs from opencsv");
+        expect(sameGames(reference, single), "single-threaded MappedCsvReader differs from opencsv");
+        System.out.println("MappedCsvReader matches opencsv: " + reference.size() + " games");
+        return parallel;
+    }
+
+    private static void checkParallelExtraction(FeaturePipeline pipeline, GameTable games) throws IOException {
+        LeagueState sequentialState = pipeline.newState();
+        FeaturePipeline.FeatureData sequential = pipeline.extractFeatures(games, sequentialState);
+        for (int parallelism : new int[] {1, 2, 4, 8}) {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                LeagueState parallelState = pipeline.newState();
+                FeaturePipeline.FeatureData parallel = pipeline.extractFeaturesParallel(games, pool, parallelState);
+                expect(sameRows(sequential, parallel),
+                        "parallel extraction on " + parallelism + " threads produced different rows");
+                expect(sameState(sequentialState, parallelState),
+                        "parallel extraction on " + parallelism + " threads left a different league state");
+            } finally {
+                pool.shutdown();
+            }
+        }
+        System.out.println("Parallel extraction matches sequential: " + rows(sequential) + " rows");
+    }
+
+    /**
+     * Extracts the first half, snapshots the state, then resumes twice from the reloaded
+     * snapshot, each time appending the new rows to the cached entry, and compares the
+     * final rows, both as returned and as reloaded from the cache file, with a full run.
+     */
+    private static void checkResume(FeaturePipeline pipeline, GameTable games, Path cacheDir) throws IOException {
+        FeatureCache cache = new FeatureCache(cacheDir);
+        long pipelineKey = pipeline.getConfigurationKey();
+        Path snapshotFile = FeatureSnapshot.pathFor(cacheDir, "check", pipelineKey);
+        FeaturePipeline.FeatureData full = pipeline.extractFeatures(games);
+
+        int[] cuts = {games.size() / 2, games.size() * 3 / 4, games.size()};
+        LeagueState state = pipeline.newState();
+        GameTable first = prefix(games, cuts[0]);
+        long key = FeatureCache.key(1, pipelineKey);
+        cache.store(key, pipeline.extractFeatures(first, state));
+        new FeatureSnapshot(1, first.digest(0, 0, first.size()), state, null)
+                .save(snapshotFile, "check", pipelineKey);
+
+        FeaturePipeline.FeatureData resumed = null;
+        for (int step = 1; step < cuts.length; step++) {
+            GameTable covered = prefix(games, cuts[step]);
+            FeatureSnapshot snapshot = FeatureSnapshot.load(snapshotFile, "check", pipelineKey);
+            int seen = (int) snapshot.getState().getGamesProcessed();
+            expect(seen == cuts[step - 1], "snapshot covers " + seen + " games, expected " + cuts[step - 1]);
+            expect(covered.digest(0, 0, seen) == snapshot.getGamesDigest(), "snapshot digest does not match its games");
+            long oldKey = FeatureCache.key(snapshot.getSourceFingerprint(), pipelineKey);
+            long newKey = FeatureCache.key(step + 1, pipelineKey);
+            resumed = pipeline.resume(snapshot.getState(), covered.slice(seen), cache, oldKey, newKey);
+            expect(resumed != null, "cached rows could not be extended at step " + step);
+            snapshot.advance(step + 1, covered.digest(0, 0, covered.size()), null);
+            snapshot.save(snapshotFile, "check", pipelineKey);
+        }
+        expect(sameRows(full, resumed), "resumed extraction differs from a full extraction");
+        expect(sameRows(full, cache.load(FeatureCache.key(cuts.length, pipelineKey))),
+                "appended cache entry differs from a full extraction");
+        System.out.println("Resume and append match full extraction: " + rows(full) + " rows");
+    }
+
+    /** The first {@code n} games, as a reader stopping there would have produced them. */
+    private static GameTable prefix(GameTable games, int n) {
+        if (n == games.size()) {
+            return games;
+        }
+        GameTable.Builder b = new GameTable.Builder(n);
+        for (int r = 0; r < n; r++) {
+            b.addGame(games.getGameId(r), games.getGameDay(r),
+                    b.internTeam(games.getTeamId(games.getHomeTeam(r))),
+                    b.internTeam(games.getTeamId(games.getAwayTeam(r))),
+                    games.getPtsHome(r), games.getPtsAway(r), games.isHomeWin(r),
+                    games.getFgPctHome(r), games.getFgPctAway(r), games.getRebHome(r), games.getRebAway(r),
+                    games.getAstHome(r), games.getAstAway(r), games.getTovHome(r), games.getTovAway(r));
+        }
+        return b.build();
+    }
+
+    private static boolean sameGames(GameTable a, GameTable b) {
+        return a.size() == b.size() && a.digest(0, 0, a.size()) == b.digest(0, 0, b.size());
+    }
+
+    private static boolean sameRows(FeaturePipeline.FeatureData a, FeaturePipeline.FeatureData b) {
+        return Arrays.equals(a.getFeatureNames(), b.getFeatureNames())
+                && a.getTrainSize() == b.getTrainSize() && a.getTestSize() == b.getTestSize()
+                && sameValues(a.getTrainMatrix(), b.getTrainMatrix())
+                && sameValues(a.getTestMatrix(), b.getTestMatrix())
+                && a.hasGameDays() == b.hasGameDays()
+                && (!a.hasGameDays() || Arrays.equals(a.getGameDays(), b.getGameDays()));
+    }
+
+    /** Bitwise, so NaN features compare equal and any rounding difference shows. */
+    private static boolean sameValues(DoubleBuffer a, DoubleBuffer b) {
+        if (a.limit() != b.limit()) {
+            return false;
+        }
+        for (int i = 0; i < a.limit(); i++) {
+            if (Double.doubleToLongBits(a.get(i)) != Double.doubleToLongBits(b.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Same teams, histories, rest days and head-to-head records. Compared by content, since
+     * the head-to-head table's capacity depends on how it grew and shows in its snapshot.
+     */
+    private static boolean sameState(LeagueState a, LeagueState b) throws IOException {
+        if (a.getTeamCount() != b.getTeamCount() || a.getGamesProcessed() != b.getGamesProcessed()
+                || a.getLastProcessedDay() != b.getLastProcessedDay()) {
+            return false;
+        }
+        HeadToHeadTracker h2hA = a.getHeadToHead();
+        HeadToHeadTracker h2hB = b.getHeadToHead();
+        if ((h2hA == null) != (h2hB == null)) {
+            return false;
+        }
+        for (int t = 0; t < a.getTeamCount(); t++) {
+            if (!a.getTeamId(t).equals(b.getTeamId(t)) || a.getLastGameDay(t) != b.getLastGameDay(t)
+                    || !Arrays.equals(bytes(a.getHistory(t)), bytes(b.getHistory(t)))) {
+                return false;
+            }
+            for (int u = 0; h2hA != null && u < a.getTeamCount(); u++) {
+                if (h2hA.getMeetings(t, u) != h2hB.getMeetings(t, u)
+                        || h2hA.getWinRate(t, u) != h2hB.getWinRate(t, u)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static byte[] bytes(TeamHistory history) throws IOException {
+        if (history == null) {
+            return new byte[0];
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            history.writeTo(out);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static int rows(FeaturePipeline.FeatureData data) {
+        return data.getTrainSize() + data.getTestSize();
+    }
+
+    private static void expect(boolean condition, String failure) {
+        if (!condition) {
+            System.err.println("MISMATCH: " + failure);
+            System.exit(1);
+        }
+    }
+}
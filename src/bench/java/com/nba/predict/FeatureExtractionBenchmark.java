@@ -0,0 +1,64 @@
+package com.nba.predict;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scaling of the two-phase parallel feature extraction across schedule and pool sizes,
+ * with the sequential loop as the baseline. Pool sizes above the machine's core count
+ * simply show the oversubscription cost.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class FeatureExtractionBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    public int games;
+
+    @Param({"1", "2", "4", "8", "16", "32"})
+    public int parallelism;
+
+    private GameTable table;
+    private ForkJoinPool pool;
+    private FeaturePipeline pipeline;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        table = SyntheticGames.table(games);
+        pool = new ForkJoinPool(parallelism);
+        pipeline = new FeaturePipeline();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public FeaturePipeline.FeatureData sequential() {
+        return pipeline.extractFeatures(table);
+    }
+
+    @Benchmark
+    public FeaturePipeline.FeatureData parallel() {
+        return pipeline.extractFeaturesParallel(table, pool);
+    }
+}
@@ -0,0 +1,60 @@
+package com.nba.predict;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end {@link DataLoader#loadGames} from a synthetic CSV export or SQLite database
+ * holding the same schedule.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class LoadGamesBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    public int games;
+
+    @Param({"csv", "sqlite"})
+    public String format;
+
+    private Path source;
+
+    @Setup(Level.Trial)
+    public void writeSource() throws Exception {
+        source = Files.createTempFile("bench-game", "." + format);
+        if ("csv".equals(format)) {
+            SyntheticGames.writeCsv(source, games);
+        } else {
+            SyntheticGames.writeSqlite(source, games);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteSource() throws Exception {
+        Files.deleteIfExists(source);
+    }
+
+    @Benchmark
+    public GameTable loadGames() throws Exception {
+        return new DataLoader().loadGames(source.toString());
+    }
+}
@@ -0,0 +1,106 @@
+package com.nba.predict;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import weka.classifiers.trees.RandomForest;
+import weka.core.Instances;
+
+import java.nio.DoubleBuffer;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The modelling stages on features from a synthetic schedule: Weka Instances
+ * construction, one Weka RandomForest fit and one HistogramRandomForest fit (no CV), and
+ * scoring a single row or a batch of rows with a forest fitted once per trial.
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class ModelBenchmark {
+    private static final int BATCH_ROWS = 256;
+
+    @Param({"10000", "100000", "1000000"})
+    public int games;
+
+    private double[][] features;
+    private DoubleBuffer matrix;
+    private Instances data;
+    private ModelStore.StoredModel model;
+    private double[][] batch;
+    private String[] names;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        FeaturePipeline pipeline = new FeaturePipeline();
+        FeaturePipeline.FeatureData fd = pipeline.extractFeatures(SyntheticGames.table(games));
+        // Train rows only, as the CV and the final fit see them.
+        features = fd.getTrainFeatures();
+        matrix = fd.getTrainMatrix();
+        names = fd.getFeatureNames();
+        data = FeatureInstances.fromMatrix(matrix, names);
+
+        RandomForest rf = new RandomForest();
+        rf.buildClassifier(data);
+        model = new ModelStore.StoredModel(null, FeaturePipeline.PIPELINE_VERSION, 0L, 0L,
+                new ModelResult("bench", rf, null, 0L), pipeline.getFeatureNames());
+        batch = Arrays.copyOf(features, BATCH_ROWS);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 5)
+    public Instances buildInstances() {
+        return FeatureInstances.fromMatrix(matrix, names);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 1)
+    @Measurement(iterations = 3)
+    public RandomForest fitForest() throws Exception {
+        RandomForest rf = new RandomForest();
+        rf.buildClassifier(data);
+        return rf;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 1)
+    @Measurement(iterations = 3)
+    public HistogramRandomForest fitHistogramForest() {
+        HistogramRandomForest forest = new HistogramRandomForest();
+        forest.fit(matrix, features[0].length);
+        return forest;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Warmup(iterations = 3, time = 2)
+    @Measurement(iterations = 5, time = 2)
+    public double predictRow() throws Exception {
+        return model.predictHomeWin(features[next++ % features.length]);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Warmup(iterations = 3, time = 2)
+    @Measurement(iterations = 5, time = 2)
+    public double[] predictBatch() throws Exception {
+        return model.predictHomeWin(batch);
+    }
+}
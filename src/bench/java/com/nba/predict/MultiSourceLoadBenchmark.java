@@ -0,0 +1,76 @@
+package com.nba.predict;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link DataLoader#loadGames(List)} over one synthetic schedule split into consecutive
+ * CSV shards, as per-season exports would be. With spare cores the time should stay near
+ * that of the largest shard as the shard count grows.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class MultiSourceLoadBenchmark {
+
+    @Param({"100000", "1000000"})
+    public int games;
+
+    @Param({"1", "4", "8"})
+    public int sources;
+
+    private Path directory;
+    private List<String> shards;
+
+    @Setup(Level.Trial)
+    public void writeShards() throws Exception {
+        directory = Files.createTempDirectory("bench-sources");
+        Path full = directory.resolve("all.csv");
+        SyntheticGames.writeCsv(full, games);
+        List<String> lines = Files.readAllLines(full);
+        Files.delete(full);
+        int rows = lines.size() - 1;
+        shards = new ArrayList<>(sources);
+        for (int s = 0; s < sources; s++) {
+            List<String> part = new ArrayList<>();
+            part.add(lines.get(0));
+            part.addAll(lines.subList(1 + (int) ((long) rows * s / sources), 1 + (int) ((long) rows * (s + 1) / sources)));
+            Path shard = directory.resolve("part-" + s + ".csv");
+            Files.write(shard, part);
+            shards.add(shard.toString());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteShards() throws Exception {
+        for (String shard : shards) {
+            Files.deleteIfExists(Path.of(shard));
+        }
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public GameTable loadSources() throws Exception {
+        return new DataLoader().loadGames(shards);
+    }
+}
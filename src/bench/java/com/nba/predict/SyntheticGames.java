@@ -0,0 +1,192 @@
+package com.nba.predict;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.SplittableRandom;
+
+/**
+ * Deterministic synthetic schedules for benchmarks. A fixed seed drives a 30-team league
+ * playing 5-12 games a night, so every run at a given size sees identical data.
+ */
+final class SyntheticGames {
+    static final int TEAMS = 30;
+    private static final long SEED = 42L;
+    private static final LocalDate FIRST_DAY = LocalDate.of(1946, 11, 1);
+
+    // Same 55-column layout as the Kaggle game.csv export.
+    private static final String CSV_HEADER = "season_id,team_id_home,team_abbreviation_home,team_name_home,"
+            + "game_id,game_date,matchup_home,wl_home,min,fgm_home,fga_home,fg_pct_home,fg3m_home,fg3a_home,"
+            + "fg3_pct_home,ftm_home,fta_home,ft_pct_home,oreb_home,dreb_home,reb_home,ast_home,stl_home,"
+            + "blk_home,tov_home,pf_home,pts_home,plus_minus_home,video_available_home,team_id_away,"
+            + "team_abbreviation_away,team_name_away,matchup_away,wl_away,fgm_away,fga_away,fg_pct_away,"
+            + "fg3m_away,fg3a_away,fg3_pct_away,ftm_away,fta_away,ft_pct_away,oreb_away,dreb_away,reb_away,"
+            + "ast_away,stl_away,blk_away,tov_away,pf_away,pts_away,plus_minus_away,video_available_away,"
+            + "season_type";
+
+    private SyntheticGames() {
+    }
+
+    /** Callback receiving one synthetic game at a time, in chronological order. */
+    interface GameSink {
+        void accept(int index, LocalDate date, int home, int away, int ptsHome, int ptsAway,
+                    double fgPctHome, double fgPctAway, int rebHome, int rebAway,
+                    int astHome, int astAway, int tovHome, int tovAway);
+    }
+
+    static String teamId(int team) {
+        return Integer.toString(1610612737 + team);
+    }
+
+    static void generate(int games, GameSink sink) {
+        SplittableRandom rnd = new SplittableRandom(SEED);
+        int[] order = new int[TEAMS];
+        for (int t = 0; t < TEAMS; t++) {
+            order[t] = t;
+        }
+        LocalDate date = FIRST_DAY;
+        int produced = 0;
+        while (produced < games) {
+            // Shuffle, then pair off the first 2k teams for tonight's slate.
+            for (int t = TEAMS - 1; t > 0; t--) {
+                int j = rnd.nextInt(t + 1);
+                int tmp = order[t];
+                order[t] = order[j];
+                order[j] = tmp;
+            }
+            int slate = Math.min(5 + rnd.nextInt(8), games - produced);
+            for (int g = 0; g < slate; g++) {
+                int home = order[2 * g];
+                int away = order[2 * g + 1];
+                // Mild home edge and per-team strength so features carry some signal.
+                int ptsHome = 95 + rnd.nextInt(30) + (home % 7);
+                int ptsAway = 93 + rnd.nextInt(30) + (away % 7);
+                if (ptsHome == ptsAway) {
+                    ptsHome++;
+                }
+                sink.accept(produced++, date, home, away, ptsHome, ptsAway,
+                        0.38 + rnd.nextInt(170) / 1000.0, 0.38 + rnd.nextInt(170) / 1000.0,
+                        32 + rnd.nextInt(25), 32 + rnd.nextInt(25),
+                        15 + rnd.nextInt(20), 15 + rnd.nextInt(20),
+                        8 + rnd.nextInt(12), 8 + rnd.nextInt(12));
+            }
+            date = date.plusDays(1 + (rnd.nextInt(10) == 0 ? 1 : 0));
+        }
+    }
+
+    static GameTable table(int games) {
+        GameTable.Builder builder = new GameTable.Builder(games);
+        generate(games, (i, date, home, away, ptsHome, ptsAway, fgH, fgA, rebH, rebA, astH, astA, tovH, tovA) ->
+                builder.addGame((int) date.toEpochDay(), teamId(home), teamId(away), ptsHome, ptsAway,
+                        ptsHome > ptsAway, fgH, fgA, rebH, rebA, astH, astA, tovH, tovA));
+        return builder.build();
+    }
+
+    static void writeCsv(Path path, int games) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            out.write(CSV_HEADER);
+            out.write('\n');
+            StringBuilder row = new StringBuilder(512);
+            IOException[] failure = new IOException[1];
+            generate(games, (i, date, home, away, ptsHome, ptsAway, fgH, fgA, rebH, rebA, astH, astA, tovH, tovA) -> {
+                if (failure[0] != null) {
+                    return;
+                }
+                boolean homeWin = ptsHome > ptsAway;
+                row.setLength(0);
+                row.append("2").append(date.getYear()).append(',')
+                   .append(teamId(home)).append(",H").append(home).append(",Home ").append(home).append(',')
+                   .append(String.format("%010d", i)).append(',')
+                   .append(date).append(" 00:00:00,")
+                   .append("H").append(home).append(" vs. A").append(away).append(',')
+                   .append(homeWin ? 'W' : 'L').append(",240,");
+                appendBox(row, fgH, rebH, astH, tovH, ptsHome, ptsHome - ptsAway);
+                row.append(teamId(away)).append(",A").append(away).append(",Away ").append(away).append(',')
+                   .append("A").append(away).append(" @ H").append(home).append(',')
+                   .append(homeWin ? 'L' : 'W').append(',');
+                appendBox(row, fgA, rebA, astA, tovA, ptsAway, ptsAway - ptsHome);
+                row.append("Regular Season\n");
+                try {
+                    out.append(row);
+                } catch (IOException e) {
+                    failure[0] = e;
+                }
+            });
+            if (failure[0] != null) {
+                throw failure[0];
+            }
+        }
+    }
+
+    /** Writes a {@code game} table with the columns SqliteGameReader reads. */
+    static void writeSqlite(Path path, int games) throws SQLException {
+        try (Connection conn = DriverManager.getConnection("jdbc:sqlite:" + path)) {
+            try (Statement st = conn.createStatement()) {
+                st.executeUpdate("DROP TABLE IF EXISTS game");
+                st.executeUpdate("CREATE TABLE game (game_id TEXT, game_date TEXT, team_id_home TEXT, "
+                        + "team_id_away TEXT, pts_home REAL, pts_away REAL, wl_home TEXT, fg_pct_home REAL, "
+                        + "fg_pct_away REAL, reb_home REAL, reb_away REAL, ast_home REAL, ast_away REAL, "
+                        + "tov_home REAL, tov_away REAL)");
+            }
+            conn.setAutoCommit(false);
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "INSERT INTO game VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)")) {
+                SQLException[] failure = new SQLException[1];
+                generate(games, (i, date, home, away, ptsHome, ptsAway, fgH, fgA, rebH, rebA, astH, astA, tovH, tovA) -> {
+                    if (failure[0] != null) {
+                        return;
+                    }
+                    try {
+                        ps.setString(1, String.format("%010d", i));
+                        ps.setString(2, date + " 00:00:00");
+                        ps.setString(3, teamId(home));
+                        ps.setString(4, teamId(away));
+                        ps.setDouble(5, ptsHome);
+                        ps.setDouble(6, ptsAway);
+                        ps.setString(7, ptsHome > ptsAway ? "W" : "L");
+                        ps.setDouble(8, fgH);
+                        ps.setDouble(9, fgA);
+                        ps.setDouble(10, rebH);
+                        ps.setDouble(11, rebA);
+                        ps.setDouble(12, astH);
+                        ps.setDouble(13, astA);
+                        ps.setDouble(14, tovH);
+                        ps.setDouble(15, tovA);
+                        ps.addBatch();
+                        if ((i & 4095) == 4095) {
+                            ps.executeBatch();
+                        }
+                    } catch (SQLException e) {
+                        failure[0] = e;
+                    }
+                });
+                if (failure[0] != null) {
+                    throw failure[0];
+                }
+                ps.executeBatch();
+            }
+            conn.commit();
+        }
+    }
+
+    // fgm..video_available for one side (20 columns), each followed by a comma.
+    private static void appendBox(StringBuilder row, double fgPct, int reb, int ast, int tov,
+                                  int pts, int plusMinus) {
+        int fga = 85;
+        int fgm = (int) Math.round(fgPct * fga);
+        row.append(fgm).append(".0,").append(fga).append(".0,").append(fgPct).append(',')
+           .append("10.0,30.0,0.333,")
+           .append("18.0,24.0,0.75,")
+           .append(reb / 4).append(".0,").append(reb - reb / 4).append(".0,").append(reb).append(".0,")
+           .append(ast).append(".0,7.0,5.0,").append(tov).append(".0,20.0,")
+           .append(pts).append(".0,").append(plusMinus).append(",1,");
+    }
+}
@@ -0,0 +1,116 @@
+package com.nba.predict;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One feature-extraction step as FeaturePipeline performs it per team: read every
+ * windowed and season getter, then record the game. Ring buffer vs. the old deques, and
+ * the same window read from whole-history prefix sums, whose cost should not depend on it.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TeamHistoryBenchmark {
+    private static final int GAMES = 1024;
+
+    @Param({"5", "20", "82"})
+    public int window;
+
+    private TeamHistory ring;
+    private TeamHistory prefix; // created on the first call
+    private DequeTeamHistory deque;
+    private int[] points;
+    private int[] allowed;
+    private double[] fgPct;
+    private double[] reb;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        ring = new TeamHistory(window);
+        deque = new DequeTeamHistory(window);
+        SplittableRandom rnd = new SplittableRandom(7);
+        points = new int[GAMES];
+        allowed = new int[GAMES];
+        fgPct = new double[GAMES];
+        reb = new double[GAMES];
+        for (int i = 0; i < GAMES; i++) {
+            points[i] = 90 + rnd.nextInt(40);
+            allowed[i] = 90 + rnd.nextInt(40);
+            fgPct[i] = 0.38 + rnd.nextInt(170) / 1000.0;
+            reb[i] = 32 + rnd.nextInt(25);
+        }
+    }
+
+    @Benchmark
+    public void ringBuffer(Blackhole bh) {
+        int i = next++ & (GAMES - 1);
+        TeamHistory h = ring;
+        bh.consume(h.getAvgPoints());
+        bh.consume(h.getWinRate());
+        bh.consume(h.getAvgFgPct());
+        bh.consume(h.getAvgReb());
+        bh.consume(h.getAvgAst());
+        bh.consume(h.getAvgTov());
+        bh.consume(h.getAvgPointDiffWindow());
+        bh.consume(h.getSeasonWinRate());
+        bh.consume(h.getSeasonAvgPointDiff());
+        bh.consume(h.getCurrentWinStreak());
+        h.recordMatch(points[i], allowed[i], points[i] > allowed[i], fgPct[i], reb[i], 24.0, 13.0);
+    }
+
+    @Benchmark
+    public void prefixSums(Blackhole bh) {
+        int i = next++ & (GAMES - 1);
+        if (i == 0) {
+            // Restart every GAMES games so the prefix arrays stay franchise-sized, not unbounded.
+            prefix = new TeamHistory(window, TeamHistory.TRACK_SEASON | TeamHistory.TRACK_PREFIX_SUMS);
+        }
+        TeamHistory h = prefix;
+        bh.consume(h.getWindowAverage(TeamHistory.POINTS, window));
+        bh.consume(h.getWindowAverage(TeamHistory.WINS, window));
+        bh.consume(h.getWindowAverage(TeamHistory.FG_PCT, window));
+        bh.consume(h.getWindowAverage(TeamHistory.REB, window));
+        bh.consume(h.getWindowAverage(TeamHistory.AST, window));
+        bh.consume(h.getWindowAverage(TeamHistory.TOV, window));
+        bh.consume(h.getWindowAverage(TeamHistory.POINT_DIFF, window));
+        bh.consume(h.getSeasonWinRate());
+        bh.consume(h.getSeasonAvgPointDiff());
+        bh.consume(h.getCurrentWinStreak());
+        h.recordMatch(points[i], allowed[i], points[i] > allowed[i], fgPct[i], reb[i], 24.0, 13.0);
+    }
+
+    @Benchmark
+    public void boxedDeques(Blackhole bh) {
+        int i = next++ & (GAMES - 1);
+        DequeTeamHistory h = deque;
+        bh.consume(h.getAvgPoints());
+        bh.consume(h.getWinRate());
+        bh.consume(h.getAvgFgPct());
+        bh.consume(h.getAvgReb());
+        bh.consume(h.getAvgAst());
+        bh.consume(h.getAvgTov());
+        bh.consume(h.getAvgPointDiffWindow());
+        bh.consume(h.getSeasonWinRate());
+        bh.consume(h.getSeasonAvgPointDiff());
+        bh.consume(h.getCurrentWinStreak());
+        h.recordMatch(points[i], allowed[i], points[i] > allowed[i], fgPct[i], reb[i], 24.0, 13.0);
+    }
+}
@@ -6,77 +6,183 @@ import com.opencsv.bean.CsvToBeanBuilder;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.Reader;
-import java.sql.Connection;
-import java.sql.DriverManager;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
-import java.time.LocalDate;
-import java.util.ArrayList;
-import java.util.Comparator;
+import java.nio.file.Path;
 import java.util.List;
-import java.util.stream.Collectors;
 
 public class DataLoader {
     
-    public List<RawGame> loadGames(String filePath) throws Exception {
-        if (filePath.endsWith(".sqlite") || filePath.endsWith(".db")) {
-            return loadFromSqlite(filePath);
+    /**
+     * Loads one CSV or SQLite file, or several at once when {@code filePath} is a
+     * comma-separated list or glob (see {@link MultiSourceLoader}).
+     */
+    public GameTable loadGames(String filePath) throws Exception {
+        if (MultiSourceLoader.isMultiSource(filePath)) {
+            return loadGames(MultiSourceLoader.resolve(filePath));
         }
-        return loadFromCsv(filePath);
+        try (PipelineMetrics.Phase load = PipelineMetrics.get().phase("load")) {
+            GameTable games = isSqlite(filePath) ? loadFromSqlite(filePath) : loadFromCsv(filePath);
+            load.setRows(games.size());
+            return games;
+        }
+    }
+
+    /** Every source read concurrently and merged by date, dropping repeated game ids. */
+    public GameTable loadGames(List<String> sources) throws Exception {
+        return new MultiSourceLoader(this).load(sources);
+    }
+
+    /**
+     * Content fingerprint of a data source, used to key the feature cache: a hash of the
+     * file bytes for CSV, a digest of the game table (and of the play_by_play events of its
+     * games, if the database has them) for SQLite, and a combination of the sources'
+     * fingerprints, in order, for a multi-source spec.
+     */
+    public long fingerprint(String filePath) throws Exception {
+        if (MultiSourceLoader.isMultiSource(filePath)) {
+            long h = 0;
+            for (String source : MultiSourceLoader.resolve(filePath)) {
+                h = combine(h, fingerprint(source));
+            }
+            return h;
+        }
+        if (isSqlite(filePath)) {
+            PlayByPlayReader playByPlay = new PlayByPlayReader(filePath);
+            long h = new SqliteGameReader(filePath).fingerprint();
+            return playByPlay.hasTable() ? combine(h, playByPlay.fingerprint()) : h;
+        }
+        return MappedCsvReader.fingerprint(filePath);
+    }
+
+    private static long combine(long h, long more) {
+        h = (h ^ more) * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 31);
+    }
+
+    /** Whether {@code filePath} names at least one SQLite database with a play_by_play table. */
+    public boolean hasPlayByPlay(String filePath) throws Exception {
+        List<String> sources = MultiSourceLoader.isMultiSource(filePath)
+                ? MultiSourceLoader.resolve(filePath) : List.of(filePath);
+        for (String source : sources) {
+            if (isSqlite(source) && new PlayByPlayReader(source).hasTable()) {
+                return true;
+            }
+        }
+        return false;
     }
 
-    private List<RawGame> loadFromCsv(String filePath) throws IOException {
+    /**
+     * Play-by-play stage: streams the play_by_play table of a SQLite source and returns
+     * {@code games} with each game's aggregates joined in (see {@link PlayByPlayReader}).
+     * Of a multi-source spec, every database with the table is streamed in turn, and a game
+     * takes its aggregates from the first one that has it. CSV sources and databases without
+     * the table return {@code games} unchanged.
+     */
+    public GameTable joinPlayByPlay(GameTable games, String filePath) throws Exception {
+        List<String> sources = MultiSourceLoader.isMultiSource(filePath)
+                ? MultiSourceLoader.resolve(filePath) : List.of(filePath);
+        PlayByPlayStats stats = null;
+        for (String source : sources) {
+            if (!isSqlite(source)) {
+                continue;
+            }
+            PlayByPlayReader reader = new PlayByPlayReader(source);
+            if (reader.hasTable()) {
+                stats = reader.aggregate(games, stats == null ? new PlayByPlayStats(games.size()) : stats);
+            }
+        }
+        return stats == null ? games : games.withPlayByPlay(stats);
+    }
+
+    /**
+     * {@link #joinPlayByPlay} for the result of a {@link #loadNewGames} delta that started
+     * after {@code since}: streams only the events of those games.
+     */
+    public GameTable joinNewPlayByPlay(GameTable newGames, String filePath, SqliteGameReader.Watermark since)
+            throws Exception {
+        if (since == null) {
+            return joinPlayByPlay(newGames, filePath);
+        }
+        PlayByPlayReader reader = new PlayByPlayReader(filePath);
+        return reader.hasTable() ? newGames.withPlayByPlay(reader.aggregateSince(newGames, since)) : newGames;
+    }
+
+    private static boolean isSqlite(String filePath) {
+        return filePath.endsWith(".sqlite") || filePath.endsWith(".db");
+    }
+
+    private GameTable loadFromCsv(String filePath) throws IOException {
+        return new MappedCsvReader().read(filePath);
+    }
+
+    /**
+     * Reflective opencsv bean path. Kept as the reference implementation the mapped
+     * reader is checked and benchmarked against.
+     */
+    GameTable loadFromCsvBeans(String filePath) throws IOException {
         try (Reader reader = new FileReader(filePath)) {
             CsvToBean<RawGame> csvToBean = new CsvToBeanBuilder<RawGame>(reader)
                     .withType(RawGame.class)
                     .withIgnoreLeadingWhiteSpace(true)
                     .build();
             
-            List<RawGame> games = csvToBean.parse();
-            
-            // Filter out games with invalid dates and sort chronologically
-            return games.stream()
-                    .filter(game -> game.getGameDate() != null)
-                    .sorted(Comparator.comparing(RawGame::getGameDate))
-                    .collect(Collectors.toList());
+            // Parse each row once into columns; rows with invalid dates are dropped
+            // and the builder sorts chronologically.
+            GameTable.Builder builder = new GameTable.Builder();
+            try (PipelineMetrics.Phase parse = PipelineMetrics.get().phase("parse")) {
+                for (RawGame game : csvToBean) {
+                    if (!builder.addGame(game)) {
+                        PipelineMetrics.get().increment(PipelineMetrics.ROWS_WITHOUT_DATE);
+                    }
+                }
+                parse.setRows(builder.size());
+            }
+            try (PipelineMetrics.Phase sort = PipelineMetrics.get().phase("sort")) {
+                sort.setRows(builder.size());
+                return builder.build();
+            }
         }
     }
 
-    private List<RawGame> loadFromSqlite(String filePath) throws Exception {
-        List<RawGame> games = new ArrayList<>();
-        String url = "jdbc:sqlite:" + filePath;
-        String sql = "SELECT game_date, team_id_home, team_id_away, pts_home, pts_away, wl_home, " +
-                "fg_pct_home, fg_pct_away, reb_home, reb_away, ast_home, ast_away, tov_home, tov_away " +
-                "FROM game ORDER BY game_date ASC";
-
-        try (Connection conn = DriverManager.getConnection(url);
-             PreparedStatement ps = conn.prepareStatement(sql);
-             ResultSet rs = ps.executeQuery()) {
-
-            while (rs.next()) {
-                RawGame g = new RawGame();
-                g.setGameDateStr(rs.getString("game_date"));
-                g.setTeamIdHome(rs.getString("team_id_home"));
-                g.setTeamIdAway(rs.getString("team_id_away"));
-                g.setPtsHomeStr(String.valueOf(rs.getDouble("pts_home")));
-                g.setPtsAwayStr(String.valueOf(rs.getDouble("pts_away")));
-                g.setWlHome(rs.getString("wl_home"));
-                g.setFgPctHomeStr(String.valueOf(rs.getDouble("fg_pct_home")));
-                g.setFgPctAwayStr(String.valueOf(rs.getDouble("fg_pct_away")));
-                g.setRebHomeStr(String.valueOf(rs.getDouble("reb_home")));
-                g.setRebAwayStr(String.valueOf(rs.getDouble("reb_away")));
-                g.setAstHomeStr(String.valueOf(rs.getDouble("ast_home")));
-                g.setAstAwayStr(String.valueOf(rs.getDouble("ast_away")));
-                g.setTovHomeStr(String.valueOf(rs.getDouble("tov_home")));
-                g.setTovAwayStr(String.valueOf(rs.getDouble("tov_away")));
-                games.add(g);
+    private GameTable loadFromSqlite(String filePath) throws Exception {
+        return new SqliteGameReader(filePath).readAll();
+    }
+
+    /** Whether {@link #loadNewGames} can read {@code filePath}: a single SQLite source. */
+    public boolean supportsDeltaLoad(String filePath) {
+        return !MultiSourceLoader.isMultiSource(filePath) && isSqlite(filePath);
+    }
+
+    /**
+     * Delta load for SQLite sources: returns only games after the watermark stored in
+     * {@code watermarkFile} (all games on the first run) and advances the watermark.
+     *
+     * The watermark file is advanced as soon as the games are read, before anything built
+     * from them is saved. A caller that keeps its own copy of the watermark alongside derived
+     * state (as the {@link FeatureSnapshot} does) must therefore treat a file that disagrees
+     * with its copy as a run that died in between, and rebuild from a full read rather than
+     * trust either side.
+     */
+    public GameTable loadNewGames(String filePath, Path watermarkFile) throws Exception {
+        try (PipelineMetrics.Phase load = PipelineMetrics.get().phase("load")) {
+            SqliteGameReader reader = new SqliteGameReader(filePath);
+            SqliteGameReader.Watermark since = SqliteGameReader.Watermark.load(watermarkFile);
+            GameTable games = reader.readSince(since);
+            if (reader.getLastWatermark() != null && reader.getLastWatermark() != since) {
+                reader.getLastWatermark().save(watermarkFile);
             }
+            load.setRows(games.size());
+            return games;
         }
+    }
 
-        return games.stream()
-                .filter(game -> game.getGameDate() != null)
-                .sorted(Comparator.comparing(RawGame::getGameDate))
-                .collect(Collectors.toList());
+    /**
+     * Fingerprint of a SQLite source's rows up to and including {@code through}, and of their
+     * play_by_play events; equal to the {@link #fingerprint} taken when {@code through} was
+     * the last row, unless those rows or their events have since been edited, added or removed.
+     */
+    public long fingerprint(String filePath, SqliteGameReader.Watermark through) throws Exception {
+        PlayByPlayReader playByPlay = new PlayByPlayReader(filePath);
+        long h = new SqliteGameReader(filePath).fingerprint(through);
+        return playByPlay.hasTable() ? combine(h, playByPlay.fingerprint(through)) : h;
     }
 }
-
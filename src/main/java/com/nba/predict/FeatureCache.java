@@ -0,0 +1,339 @@
+package com.nba.predict;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * On-disk cache of extracted feature matrices, one file per key. A key combines the
+ * source fingerprint with the pipeline configuration, so a hit is always safe to reuse.
+ *
+ * File layout (little-endian): magic, format version, key, feature count, train rows,
+ * test rows, flags, row capacity, the feature names as length-prefixed UTF-8, zero padding
+ * to an 8-byte boundary, then room for {@code capacity} rows of row-major doubles with the
+ * label in the last column (train rows first, test rows straight after them), and, when
+ * {@link #FLAG_GAME_DAYS} is set, room for {@code capacity} int epoch days. Loading maps the
+ * file and hands the filled part of each region to {@link FeaturePipeline.FeatureData} as
+ * views, without copying.
+ *
+ * Spare capacity lets {@link #append} write a resumed run's new rows onto the end of the
+ * file in place; only when it runs out is the file rewritten, with room to grow by half
+ * again, so appending costs amortised time proportional to the new rows.
+ */
+public class FeatureCache {
+    private static final int MAGIC = 0x4346424E; // "NBFC"
+    private static final int VERSION = 3;
+    private static final int HEADER_BYTES = 36;
+    private static final int KEY_OFFSET = 8;
+    private static final int COUNTS_OFFSET = 20;
+    private static final int FLAG_GAME_DAYS = 1;
+    private static final int WRITE_BUFFER_BYTES = 1 << 20;
+
+    private final Path directory;
+
+    public FeatureCache(Path directory) {
+        this.directory = directory;
+    }
+
+    public static long key(long sourceFingerprint, long pipelineKey) {
+        long h = sourceFingerprint * 0x9E3779B97F4A7C15L + pipelineKey;
+        return h ^ (h >>> 31);
+    }
+
+    public Path pathFor(long key) {
+        return directory.resolve(String.format("features-%016x.bin", key));
+    }
+
+    /** Cached features for {@code key}, or null if there is no usable entry. */
+    public FeaturePipeline.FeatureData load(long key) throws IOException {
+        Path file = pathFor(key);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        MappedByteBuffer buf = map(file);
+        Layout layout = Layout.read(buf, key);
+        if (layout == null) {
+            return null; // older format or foreign file: rebuild rather than fail
+        }
+        if (layout.fileBytes() != buf.capacity()) {
+            throw new IOException("Truncated feature cache file: " + file);
+        }
+        return layout.view(buf);
+    }
+
+    public void store(long key, FeaturePipeline.FeatureData data) throws IOException {
+        Files.createDirectories(directory);
+        write(pathFor(key), key, data.getFeatureNames(), data.hasGameDays(),
+                data.getTrainSize() + data.getTestSize(), data);
+    }
+
+    /**
+     * Adds {@code more}, the rows of games played after those already cached under
+     * {@code key}, to the end of that entry and re-files it under {@code newKey}. The new
+     * rows are written into the file's spare capacity when they fit, and otherwise the file
+     * is rewritten once with room to spare.
+     *
+     * @return the combined features, or null if there is no usable entry under {@code key}
+     *         or {@code more} cannot follow it (different features or game-date flag, or
+     *         training rows after existing test rows); the entry is left untouched then
+     */
+    public FeaturePipeline.FeatureData append(long key, long newKey, FeaturePipeline.FeatureData more)
+            throws IOException {
+        Path file = pathFor(key);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        MappedByteBuffer buf = map(file);
+        Layout layout = Layout.read(buf, key);
+        if (layout == null || layout.fileBytes() != buf.capacity()
+                || !Arrays.equals(layout.names, more.getFeatureNames())
+                || layout.hasGameDays() != more.hasGameDays()
+                || (layout.testRows > 0 && more.getTrainSize() > 0)) {
+            return null;
+        }
+        int rows = layout.trainRows + layout.testRows + more.getTrainSize() + more.getTestSize();
+        Path target = pathFor(newKey);
+        if (rows > layout.capacity) {
+            // Out of room: rewrite once, growing by half so later appends fit in place again.
+            int capacity = (int) Math.min(Integer.MAX_VALUE, Math.max(rows, layout.capacity + (long) layout.capacity / 2));
+            write(target, newKey, layout.names, layout.hasGameDays(), capacity, layout.view(buf), more);
+            if (!target.equals(file)) {
+                Files.deleteIfExists(file);
+            }
+            return load(newKey);
+        }
+        int filled = layout.trainRows + layout.testRows;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            ByteBuffer out = ByteBuffer.allocate(WRITE_BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            channel.position(layout.dataStart + (long) filled * layout.width() * Double.BYTES);
+            writeDoubles(channel, out, more.getTrainMatrix());
+            writeDoubles(channel, out, more.getTestMatrix());
+            flush(channel, out);
+            if (layout.hasGameDays()) {
+                channel.position(layout.daysStart() + (long) filled * Integer.BYTES);
+                writeInts(channel, out, more.getGameDays());
+                flush(channel, out);
+            }
+            channel.force(false);
+            // The header goes last, so a run that dies mid-append leaves the old rows intact.
+            ByteBuffer header = ByteBuffer.allocate(Long.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(layout.trainRows + more.getTrainSize());
+            header.putInt(layout.testRows + more.getTestSize());
+            header.flip();
+            writeAt(channel, header, COUNTS_OFFSET);
+            header.clear();
+            header.putLong(newKey);
+            header.flip();
+            writeAt(channel, header, KEY_OFFSET);
+            channel.force(false);
+        }
+        if (!target.equals(file)) {
+            Files.move(file, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        return load(newKey);
+    }
+
+    /**
+     * Writes {@code parts} as one entry with room for {@code capacity} rows: the training rows
+     * of every part in order, then the test rows of every part.
+     */
+    private void write(Path file, long key, String[] names, boolean gameDays, int capacity,
+                       FeaturePipeline.FeatureData... parts) throws IOException {
+        int trainRows = 0;
+        int testRows = 0;
+        for (FeaturePipeline.FeatureData part : parts) {
+            trainRows += part.getTrainSize();
+            testRows += part.getTestSize();
+        }
+        int width = names.length + 1;
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer out = ByteBuffer.allocate(WRITE_BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            out.putInt(MAGIC);
+            out.putInt(VERSION);
+            out.putLong(key);
+            out.putInt(names.length);
+            out.putInt(trainRows);
+            out.putInt(testRows);
+            out.putInt(gameDays ? FLAG_GAME_DAYS : 0);
+            out.putInt(capacity);
+            for (String name : names) {
+                byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+                out.putInt(bytes.length);
+                out.put(bytes);
+            }
+            while ((out.position() & 7) != 0) {
+                out.put((byte) 0);
+            }
+            for (FeaturePipeline.FeatureData part : parts) {
+                writeDoubles(channel, out, part.getTrainMatrix());
+            }
+            for (FeaturePipeline.FeatureData part : parts) {
+                writeDoubles(channel, out, part.getTestMatrix());
+            }
+            int spare = capacity - trainRows - testRows;
+            writeZeros(channel, out, (long) spare * width * Double.BYTES);
+            if (gameDays) {
+                for (FeaturePipeline.FeatureData part : parts) {
+                    writeInts(channel, out, Arrays.copyOf(part.getGameDays(), part.getTrainSize()));
+                }
+                for (FeaturePipeline.FeatureData part : parts) {
+                    writeInts(channel, out, Arrays.copyOfRange(part.getGameDays(), part.getTrainSize(),
+                            part.getTrainSize() + part.getTestSize()));
+                }
+                writeZeros(channel, out, (long) spare * Integer.BYTES);
+            }
+            flush(channel, out);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static MappedByteBuffer map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Feature cache file too large to map: " + file);
+            }
+            MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buf.order(ByteOrder.LITTLE_ENDIAN);
+            return buf;
+        }
+    }
+
+    private static DoubleBuffer block(MappedByteBuffer buf, int offset, long bytes) {
+        return slice(buf, offset, bytes).asDoubleBuffer();
+    }
+
+    private static ByteBuffer slice(MappedByteBuffer buf, int offset, long bytes) {
+        ByteBuffer view = buf.duplicate();
+        view.position(offset).limit((int) (offset + bytes));
+        return view.slice().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static void writeDoubles(FileChannel channel, ByteBuffer out, DoubleBuffer values)
+            throws IOException {
+        while (values.hasRemaining()) {
+            if (out.remaining() < Double.BYTES) {
+                flush(channel, out);
+            }
+            out.putDouble(values.get());
+        }
+    }
+
+    private static void writeInts(FileChannel channel, ByteBuffer out, int[] values) throws IOException {
+        for (int value : values) {
+            if (out.remaining() < Integer.BYTES) {
+                flush(channel, out);
+            }
+            out.putInt(value);
+        }
+    }
+
+    private static void writeZeros(FileChannel channel, ByteBuffer out, long bytes) throws IOException {
+        while (bytes > 0) {
+            if (!out.hasRemaining()) {
+                flush(channel, out);
+            }
+            int n = (int) Math.min(bytes, out.remaining());
+            out.put(new byte[n]);
+            bytes -= n;
+        }
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer out) throws IOException {
+        out.flip();
+        while (out.hasRemaining()) {
+            channel.write(out);
+        }
+        out.clear();
+    }
+
+    private static void writeAt(FileChannel channel, ByteBuffer bytes, long position) throws IOException {
+        while (bytes.hasRemaining()) {
+            position += channel.write(bytes, position);
+        }
+    }
+
+    private static int align8(int position) {
+        return (position + 7) & ~7;
+    }
+
+    /** Header fields of an entry and where its regions start. */
+    private static final class Layout {
+        final String[] names;
+        final int trainRows;
+        final int testRows;
+        final int flags;
+        final int capacity;
+        final int dataStart;
+
+        private Layout(String[] names, int trainRows, int testRows, int flags, int capacity, int dataStart) {
+            this.names = names;
+            this.trainRows = trainRows;
+            this.testRows = testRows;
+            this.flags = flags;
+            this.capacity = capacity;
+            this.dataStart = dataStart;
+        }
+
+        /** The header at the start of {@code buf}, or null if it is not a current entry for {@code key}. */
+        static Layout read(MappedByteBuffer buf, long key) {
+            ByteBuffer in = buf.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+            if (in.remaining() < HEADER_BYTES || in.getInt() != MAGIC || in.getInt() != VERSION
+                    || in.getLong() != key) {
+                return null;
+            }
+            int numFeatures = in.getInt();
+            int trainRows = in.getInt();
+            int testRows = in.getInt();
+            int flags = in.getInt();
+            int capacity = in.getInt();
+            String[] names = new String[numFeatures];
+            for (int j = 0; j < numFeatures; j++) {
+                byte[] bytes = new byte[in.getInt()];
+                in.get(bytes);
+                names[j] = new String(bytes, StandardCharsets.UTF_8);
+            }
+            return new Layout(names, trainRows, testRows, flags, capacity, align8(in.position()));
+        }
+
+        int width() {
+            return names.length + 1;
+        }
+
+        boolean hasGameDays() {
+            return (flags & FLAG_GAME_DAYS) != 0;
+        }
+
+        long daysStart() {
+            return dataStart + (long) capacity * width() * Double.BYTES;
+        }
+
+        long fileBytes() {
+            return daysStart() + (hasGameDays() ? (long) capacity * Integer.BYTES : 0);
+        }
+
+        FeaturePipeline.FeatureData view(MappedByteBuffer buf) {
+            long trainBytes = (long) trainRows * width() * Double.BYTES;
+            long testBytes = (long) testRows * width() * Double.BYTES;
+            IntBuffer gameDays = null;
+            if (hasGameDays()) {
+                gameDays = slice(buf, (int) daysStart(), (long) (trainRows + testRows) * Integer.BYTES).asIntBuffer();
+            }
+            return new FeaturePipeline.FeatureData(names,
+                    block(buf, dataStart, trainBytes),
+                    block(buf, (int) (dataStart + trainBytes), testBytes),
+                    gameDays);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.nba.predict;
+
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instances;
+
+import java.nio.DoubleBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Builds Weka {@link Instances} from feature matrices. The flat row-major layout of
+ * {@link FeaturePipeline.FeatureData} already matches a Weka row (features, then the class
+ * value with LOSS = 0 and WIN = 1), so each row is copied exactly once, straight into the
+ * value array its {@link DenseInstance} keeps. Attributes are named after the features;
+ * rows given without names get {@code f0, f1, ...}.
+ */
+public final class FeatureInstances {
+    public static final String RELATION = "NBA_GAMES";
+
+    private FeatureInstances() {
+    }
+
+    /** Empty dataset with one numeric attribute per feature name and a LOSS/WIN class. */
+    public static Instances header(String[] featureNames, int capacity) {
+        ArrayList<Attribute> attrs = new ArrayList<>(featureNames.length + 1);
+        for (String name : featureNames) {
+            attrs.add(new Attribute(name));
+        }
+        attrs.add(new Attribute("class", new ArrayList<>(Arrays.asList("LOSS", "WIN"))));
+        Instances data = new Instances(RELATION, attrs, capacity);
+        data.setClassIndex(featureNames.length);
+        return data;
+    }
+
+    /** Empty dataset with {@code numFeatures} numeric attributes named f0, f1, ... */
+    public static Instances header(int numFeatures, int capacity) {
+        return header(defaultNames(numFeatures), capacity);
+    }
+
+    /** The training rows of {@code features}. */
+    public static Instances train(FeaturePipeline.FeatureData features) {
+        return fromMatrix(features.getTrainMatrix(), features.getFeatureNames());
+    }
+
+    /** The test rows of {@code features}. */
+    public static Instances test(FeaturePipeline.FeatureData features) {
+        return fromMatrix(features.getTestMatrix(), features.getFeatureNames());
+    }
+
+    /** Training rows followed by test rows, i.e. every row in date order. */
+    public static Instances all(FeaturePipeline.FeatureData features) {
+        int numFeatures = features.getNumFeatures();
+        Instances data = header(features.getFeatureNames(), features.getTrainSize() + features.getTestSize());
+        addRows(data, features.getTrainMatrix(), numFeatures + 1);
+        addRows(data, features.getTestMatrix(), numFeatures + 1);
+        return data;
+    }
+
+    /** Rows of a row-major matrix with the named features plus a trailing label column. */
+    public static Instances fromMatrix(DoubleBuffer matrix, String[] featureNames) {
+        int width = featureNames.length + 1;
+        Instances data = header(featureNames, matrix.limit() / width);
+        addRows(data, matrix, width);
+        return data;
+    }
+
+    /** Rows of a row-major matrix with {@code numFeatures} unnamed features plus a trailing label column. */
+    public static Instances fromMatrix(DoubleBuffer matrix, int numFeatures) {
+        return fromMatrix(matrix, defaultNames(numFeatures));
+    }
+
+    /** Rows given as separate feature arrays and 0/1 labels. */
+    public static Instances fromRows(double[][] features, int[] labels) {
+        int n = features.length;
+        int d = n > 0 ? features[0].length : 0;
+        Instances data = header(d, n);
+        for (int i = 0; i < n; i++) {
+            double[] vals = Arrays.copyOf(features[i], d + 1);
+            vals[d] = labels[i] == 1 ? 1.0 : 0.0;
+            data.add(new DenseInstance(1.0, vals));
+        }
+        return data;
+    }
+
+    private static String[] defaultNames(int numFeatures) {
+        String[] names = new String[numFeatures];
+        for (int j = 0; j < numFeatures; j++) {
+            names[j] = "f" + j;
+        }
+        return names;
+    }
+
+    private static void addRows(Instances data, DoubleBuffer matrix, int width) {
+        int n = matrix.limit() / width;
+        for (int i = 0; i < n; i++) {
+            double[] vals = new double[width];
+            matrix.get(i * width, vals);
+            // Instances.add shallow-copies a DenseInstance, so vals is the only copy of the row.
+            data.add(new DenseInstance(1.0, vals));
+        }
+    }
+}
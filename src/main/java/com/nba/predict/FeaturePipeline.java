@@ -1,221 +1,701 @@
 package com.nba.predict;
 
 
+import java.io.IOException;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
 import java.time.LocalDate;
-import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
-import java.util.Deque;
-import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
 
 public class FeaturePipeline {
-    private static final LocalDate TRAIN_TEST_SPLIT_DATE = LocalDate.of(2020, 1, 1);
+    /**
+     * Bump whenever feature semantics or layout change; it is part of the feature cache key,
+     * so stale cached matrices are never reused.
+     */
+    public static final int PIPELINE_VERSION = 1;
+
+    static final LocalDate TRAIN_TEST_SPLIT_DATE = LocalDate.of(2020, 1, 1);
+    private static final int NO_GAME = LeagueState.NO_GAME;
+
+    private final int windowSize;
+    private final boolean symmetricHeadToHead;
+    private final FeatureSet features;
+    // Flat output row: the features followed by the label (1.0 = WIN, 0.0 = LOSS).
+    private final int numFeatures;
+    private final int rowWidth;
+
+    public FeaturePipeline() {
+        this(TeamHistory.DEFAULT_WINDOW_SIZE);
+    }
+
+    public FeaturePipeline(int windowSize) {
+        this(windowSize, false);
+    }
+
+    /**
+     * @param symmetricHeadToHead merge both venue directions of a matchup into one
+     *                            head-to-head history instead of tracking home/away separately
+     */
+    public FeaturePipeline(int windowSize, boolean symmetricHeadToHead) {
+        this(windowSize, symmetricHeadToHead, FeatureSet.standard());
+    }
+
+    /**
+     * @param features the features to extract; only the state they read is maintained
+     */
+    public FeaturePipeline(int windowSize, boolean symmetricHeadToHead, FeatureSet features) {
+        this.windowSize = windowSize;
+        this.symmetricHeadToHead = symmetricHeadToHead;
+        this.features = features;
+        this.numFeatures = features.size();
+        this.rowWidth = numFeatures + 1;
+    }
     
-    public FeatureData extractFeatures(List<RawGame> games) {
-        Map<String, TeamHistory> leagueMemory = new HashMap<>();
-        Map<String, LocalDate> lastGameDate = new HashMap<>();
-        Map<String, Deque<Boolean>> h2hHistory = new HashMap<>();
-        List<double[]> trainFeatures = new ArrayList<>();
-        List<Integer> trainLabels = new ArrayList<>();
-        List<double[]> testFeatures = new ArrayList<>();
-        List<Integer> testLabels = new ArrayList<>();
-        
+    public FeatureData extractFeatures(GameTable games) {
+        return extractFeatures(games, newState());
+    }
+
+    /**
+     * Empty league state matching this pipeline's window and head-to-head settings, keeping
+     * only the state its features read.
+     */
+    public LeagueState newState() {
+        HeadToHeadTracker headToHead = features.requires(FeatureSet.State.HEAD_TO_HEAD)
+                ? new HeadToHeadTracker(0, HeadToHeadTracker.DEFAULT_MEETINGS, symmetricHeadToHead)
+                : null;
+        return new LeagueState(windowSize, features.teamHistoryTracking(), features.halfLives(), headToHead);
+    }
+
+    /**
+     * Resumes from a snapshot: folds only {@code newGames} into {@code state} and appends
+     * their feature rows to the rows cached under {@code key}, re-filing them under
+     * {@code newKey} (see {@link FeatureCache#append}). Cost is proportional to the new games.
+     *
+     * @return all feature rows, or null if the cached rows could not be extended; {@code state}
+     *         has advanced past {@code newGames} either way, so the caller must then rebuild
+     *         from a fresh state
+     */
+    public FeatureData resume(LeagueState state, GameTable newGames, FeatureCache cache, long key, long newKey)
+            throws IOException {
+        return cache.append(key, newKey, extractFeatures(newGames, state));
+    }
+
+    /**
+     * Extracts features for {@code games}, continuing from (and advancing) {@code state}.
+     * The games must not predate what the state has already seen.
+     */
+    public FeatureData extractFeatures(GameTable games, LeagueState state) {
+        try (PipelineMetrics.Phase phase = PipelineMetrics.get().phase("features")) {
+            FeatureData data = extractSequential(games, state);
+            phase.setRows(data.getTrainSize() + data.getTestSize());
+            return data;
+        }
+    }
+
+    private FeatureData extractSequential(GameTable games, LeagueState state) {
+        checkCompatible(state);
+        checkChronological(games, state);
+        int[] teams = state.mapTeams(games);
+        HeadToHeadTracker h2hHistory = state.getHeadToHead();
+        // Presized for every game; skipped games just leave unused capacity at the end.
+        double[] matrix = new double[games.size() * rowWidth];
+        int[] gameDays = new int[games.size()];
+        int trainRows = 0;
+        int splitDay = (int) TRAIN_TEST_SPLIT_DATE.toEpochDay();
         int skippedGames = 0;
         int processedGames = 0;
         
-        for (RawGame game : games) {
-            String homeTeamId = game.getTeamIdHome();
-            String awayTeamId = game.getTeamIdAway();
-            LocalDate gameDate = game.getGameDate();
+        for (int row = 0; row < games.size(); row++) {
+            int homeTeam = teams[games.getHomeTeam(row)];
+            int awayTeam = teams[games.getAwayTeam(row)];
+            int gameDay = games.getGameDay(row);
             
-            TeamHistory homeHistory = leagueMemory.computeIfAbsent(homeTeamId, k -> new TeamHistory());
-            TeamHistory awayHistory = leagueMemory.computeIfAbsent(awayTeamId, k -> new TeamHistory());
+            TeamHistory homeHistory = state.history(homeTeam);
+            TeamHistory awayHistory = state.history(awayTeam);
             
-            // Compute rest days (team-level schedule features)
-            double homeRestDays = lastGameDate.containsKey(homeTeamId)
-                    ? ChronoUnit.DAYS.between(lastGameDate.get(homeTeamId), gameDate)
-                    : 10.0; // treat first game as well-rested
-            double awayRestDays = lastGameDate.containsKey(awayTeamId)
-                    ? ChronoUnit.DAYS.between(lastGameDate.get(awayTeamId), gameDate)
-                    : 10.0;
-            double homeBackToBack = homeRestDays <= 1.0 ? 1.0 : 0.0;
-            double awayBackToBack = awayRestDays <= 1.0 ? 1.0 : 0.0;
-
-            // Head-to-head history (home perspective)
-            String h2hKey = homeTeamId + "|" + awayTeamId;
-            Deque<Boolean> h2hDeque = h2hHistory.computeIfAbsent(h2hKey, k -> new LinkedList<>());
-            double h2hWinRate = 0.0;
-            if (!h2hDeque.isEmpty()) {
-                int wins = 0;
-                for (Boolean w : h2hDeque) {
-                    if (w) wins++;
+            // Games where a team lacks a full window produce no row but still update state below
+            if (homeHistory.isReady() && awayHistory.isReady()) {
+                // Extract features BEFORE updating history (time-travel safe)
+                int off = processedGames * rowWidth;
+                features.writeHome(homeHistory, restDays(state, homeTeam, gameDay), matrix, off);
+                features.writeAway(awayHistory, restDays(state, awayTeam, gameDay), matrix, off);
+                features.writePair(h2hHistory, homeTeam, awayTeam, matrix, off);
+                matrix[off + numFeatures] = games.isHomeWin(row) ? 1.0 : 0.0; // 1 = WIN, 0 = LOSS
+                gameDays[processedGames] = gameDay;
+                
+                // Games are in date order, so all training rows come before the first test row
+                if (gameDay < splitDay) {
+                    trainRows++;
                 }
-                h2hWinRate = (double) wins / h2hDeque.size();
+                processedGames++;
+            } else {
+                skippedGames++;
             }
+            
+            recordGame(state, games, row, homeTeam, awayTeam);
+        }
+        if (games.size() > 0) {
+            state.markProcessed(games.getGameDay(games.size() - 1), games.size());
+        }
+        
+        return finish(matrix, gameDays, trainRows, processedGames, skippedGames);
+    }
 
-            // Skip if teams don't have enough history (but still update memories below)
-            if (!homeHistory.isReady() || !awayHistory.isReady()) {
-                skippedGames++;
-                // Still update history for future games
-                homeHistory.recordMatch(
-                    game.getPtsHome(),
-                    game.getPtsAway(),
-                    game.isHomeWin(),
-                    game.getFgPctHome(),
-                    game.getRebHome(),
-                    game.getAstHome(),
-                    game.getTovHome()
-                );
-                awayHistory.recordMatch(
-                    game.getPtsAway(),
-                    game.getPtsHome(),
-                    !game.isHomeWin(),
-                    game.getFgPctAway(),
-                    game.getRebAway(),
-                    game.getAstAway(),
-                    game.getTovAway()
-                );
-
-                // Update rest date and head-to-head after game
-                lastGameDate.put(homeTeamId, gameDate);
-                lastGameDate.put(awayTeamId, gameDate);
-                // Update H2H deque (limit to last 10 meetings)
-                h2hDeque.addLast(game.isHomeWin());
-                if (h2hDeque.size() > 10) {
-                    h2hDeque.removeFirst();
+    /**
+     * Folds {@code games} into {@code state} without producing feature rows, e.g. to warm
+     * up a serving state or apply final scores as they come in.
+     */
+    public void advance(GameTable games, LeagueState state) {
+        checkCompatible(state);
+        checkChronological(games, state);
+        int[] teams = state.mapTeams(games);
+        for (int row = 0; row < games.size(); row++) {
+            recordGame(state, games, row, teams[games.getHomeTeam(row)], teams[games.getAwayTeam(row)]);
+        }
+        if (games.size() > 0) {
+            state.markProcessed(games.getGameDay(games.size() - 1), games.size());
+        }
+    }
+
+    /** Receives the rows of {@link #extractRows} one at a time. */
+    public interface RowConsumer {
+        /**
+         * @param row     feature values followed by the label (1.0 = WIN), as in {@link FeatureData};
+         *                the array is reused for the next row, so copy what must outlive the call
+         * @param gameDay epoch day of the game
+         */
+        void accept(double[] row, int gameDay) throws Exception;
+    }
+
+    /**
+     * Extracts games {@code from} (inclusive) to {@code to} of {@code games}, continuing from
+     * (and advancing) {@code state}, and hands each feature row to {@code consumer} as it is
+     * produced instead of collecting them, so memory does not grow with the number of games.
+     * The rows and their order are those of {@link #extractFeatures}.
+     *
+     * @return the number of rows produced
+     */
+    public long extractRows(GameTable games, int from, int to, LeagueState state, RowConsumer consumer)
+            throws Exception {
+        checkCompatible(state);
+        if (from < to) {
+            checkChronological(games, from, state);
+        }
+        int[] teams = state.mapTeams(games);
+        double[] row = new double[rowWidth];
+        long rows = 0;
+        for (int g = from; g < to; g++) {
+            int homeTeam = teams[games.getHomeTeam(g)];
+            int awayTeam = teams[games.getAwayTeam(g)];
+            int gameDay = games.getGameDay(g);
+            TeamHistory homeHistory = state.history(homeTeam);
+            TeamHistory awayHistory = state.history(awayTeam);
+            if (homeHistory.isReady() && awayHistory.isReady()) {
+                features.writeHome(homeHistory, restDays(state, homeTeam, gameDay), row, 0);
+                features.writeAway(awayHistory, restDays(state, awayTeam, gameDay), row, 0);
+                features.writePair(state.getHeadToHead(), homeTeam, awayTeam, row, 0);
+                row[numFeatures] = games.isHomeWin(g) ? 1.0 : 0.0;
+                consumer.accept(row, gameDay);
+                rows++;
+            }
+            recordGame(state, games, g, homeTeam, awayTeam);
+        }
+        if (from < to) {
+            state.markProcessed(games.getGameDay(to - 1), to - from);
+        }
+        PipelineMetrics.get().increment(PipelineMetrics.SKIPPED_GAMES, to - from - rows);
+        PipelineMetrics.get().increment(PipelineMetrics.FEATURE_ROWS, rows);
+        return rows;
+    }
+
+    /**
+     * Feature row for an upcoming game on {@code gameDay}, computed from {@code state} as it
+     * stands. Reads only, so it is safe against a state no thread is modifying.
+     *
+     * @throws IllegalArgumentException if either team has never played
+     */
+    public double[] featuresFor(LeagueState state, String homeId, String awayId, int gameDay) {
+        checkCompatible(state);
+        int homeTeam = state.indexOf(homeId);
+        int awayTeam = state.indexOf(awayId);
+        if (homeTeam < 0 || state.getHistory(homeTeam) == null) {
+            throw new IllegalArgumentException("Unknown team: " + homeId);
+        }
+        if (awayTeam < 0 || state.getHistory(awayTeam) == null) {
+            throw new IllegalArgumentException("Unknown team: " + awayId);
+        }
+        double[] row = new double[rowWidth]; // the label column only absorbs unused stats
+        features.writeHome(state.getHistory(homeTeam), restDays(state, homeTeam, gameDay), row, 0);
+        features.writeAway(state.getHistory(awayTeam), restDays(state, awayTeam, gameDay), row, 0);
+        features.writePair(state.getHeadToHead(), homeTeam, awayTeam, row, 0);
+        return Arrays.copyOf(row, numFeatures);
+    }
+
+    public String[] getFeatureNames() {
+        return features.getNames();
+    }
+
+    public FeatureSet getFeatureSet() {
+        return features;
+    }
+
+    /** A pipeline with the same window and head-to-head settings extracting {@code features}. */
+    public FeaturePipeline withFeatures(FeatureSet features) {
+        return new FeaturePipeline(windowSize, symmetricHeadToHead, features);
+    }
+
+    /** This pipeline plus the play-by-play features (see {@link FeatureSet#withPlayByPlay()}). */
+    public FeaturePipeline withPlayByPlay() {
+        return usesPlayByPlay() ? this : withFeatures(features.withPlayByPlay());
+    }
+
+    /**
+     * Whether some feature reads play-by-play aggregates, which the games passed in must then
+     * carry (see {@link DataLoader#joinPlayByPlay}); games without them read as missing.
+     */
+    public boolean usesPlayByPlay() {
+        return features.requires(FeatureSet.State.PLAY_BY_PLAY);
+    }
+
+    private static double restDays(LeagueState state, int team, int gameDay) {
+        return state.getLastGameDay(team) != NO_GAME
+                ? gameDay - state.getLastGameDay(team)
+                : 10.0; // treat first game as well-rested
+    }
+
+    /**
+     * Post-game update of both teams' histories, rest dates and, if the state keeps one, the
+     * head-to-head window. Histories update only the statistics they track.
+     */
+    private static void recordGame(LeagueState state, GameTable games, int row, int homeTeam, int awayTeam) {
+        state.history(homeTeam).recordMatch(
+            games.getPtsHome(row),
+            games.getPtsAway(row),
+            games.isHomeWin(row),
+            games.getFgPctHome(row),
+            games.getRebHome(row),
+            games.getAstHome(row),
+            games.getTovHome(row)
+        );
+        state.history(awayTeam).recordMatch(
+            games.getPtsAway(row),
+            games.getPtsHome(row),
+            !games.isHomeWin(row),
+            games.getFgPctAway(row),
+            games.getRebAway(row),
+            games.getAstAway(row),
+            games.getTovAway(row)
+        );
+        recordPlayByPlay(state.history(homeTeam), games, row, true);
+        recordPlayByPlay(state.history(awayTeam), games, row, false);
+        state.setLastGameDay(homeTeam, games.getGameDay(row));
+        state.setLastGameDay(awayTeam, games.getGameDay(row));
+        // Update H2H window (last 10 meetings)
+        if (state.getHeadToHead() != null) {
+            state.getHeadToHead().recordMeeting(homeTeam, awayTeam, games.isHomeWin(row));
+        }
+    }
+
+    /**
+     * Adds a covered game's play-by-play aggregates to one side's history. Uncovered games
+     * are left out, so they do not dilute the window with zeros.
+     */
+    private static void recordPlayByPlay(TeamHistory history, GameTable games, int row, boolean home) {
+        PlayByPlayStats pbp = games.getPlayByPlay();
+        if (pbp == null || !pbp.has(row)) {
+            return;
+        }
+        history.recordPlayByPlay(pbp.getPace(row),
+                home ? pbp.getClutchPointsHome(row) : pbp.getClutchPointsAway(row),
+                pbp.getLeadChanges(row),
+                home ? pbp.getLargestLeadHome(row) : pbp.getLargestLeadAway(row));
+    }
+
+    private static void checkChronological(GameTable games, LeagueState state) {
+        if (games.size() > 0) {
+            checkChronological(games, 0, state);
+        }
+    }
+
+    private static void checkChronological(GameTable games, int from, LeagueState state) {
+        if (games.getGameDay(from) < state.getLastProcessedDay()) {
+            throw new IllegalArgumentException("Games from " + games.getGameDate(from)
+                    + " predate the league state, which already covers up to "
+                    + LocalDate.ofEpochDay(state.getLastProcessedDay()));
+        }
+    }
+
+    /** Identifies this pipeline's configuration for cache keys. */
+    public long getConfigurationKey() {
+        long key = PIPELINE_VERSION;
+        key = key * 31 + windowSize;
+        key = key * 31 + (symmetricHeadToHead ? 1 : 0);
+        key = key * 31 + HeadToHeadTracker.DEFAULT_MEETINGS;
+        // Rows with and without joined play-by-play data must never share a cache entry.
+        key = key * 31 + (usesPlayByPlay() ? 1 : 0);
+        key = key * 31 + features.getKey();
+        return key;
+    }
+
+    /** The state must have this pipeline's settings and keep at least what its features read. */
+    private void checkCompatible(LeagueState state) {
+        HeadToHeadTracker h2h = state.getHeadToHead();
+        boolean h2hMatches = h2h == null
+                ? !features.requires(FeatureSet.State.HEAD_TO_HEAD)
+                : h2h.isSymmetric() == symmetricHeadToHead && h2h.getMaxMeetings() == HeadToHeadTracker.DEFAULT_MEETINGS;
+        int tracking = features.teamHistoryTracking();
+        // Decayed averages are read by position, so the half-lives must match exactly.
+        double[] halfLives = features.halfLives();
+        boolean decaysMatch = halfLives.length == 0 || Arrays.equals(state.getHalfLives(), halfLives);
+        if (state.getWindowSize() != windowSize || !h2hMatches || (state.getTeamTracking() & tracking) != tracking
+                || !decaysMatch) {
+            throw new IllegalArgumentException("League state (window " + state.getWindowSize()
+                    + ", symmetric h2h " + (h2h != null && h2h.isSymmetric()) + ", tracking " + state.getTeamTracking()
+                    + ", half-lives " + Arrays.toString(state.getHalfLives())
+                    + ") does not match this pipeline (window " + windowSize + ", symmetric h2h "
+                    + symmetricHeadToHead + ", tracking " + tracking + ", half-lives " + Arrays.toString(halfLives) + ")");
+        }
+    }
+
+    /**
+     * Parallel two-phase variant of {@link #extractFeatures}. Each team's pre-game state
+     * depends only on its own earlier games, so phase 1 replays every team's schedule as
+     * an independent task and records a pre-game snapshot per (game, side). Head-to-head
+     * histories are replayed by the team that owns the pair. Phase 2 then joins home and
+     * away snapshots into feature rows in parallel. Output is bit-for-bit identical to the
+     * sequential path because both use the same snapshot and assembly code.
+     */
+    public FeatureData extractFeaturesParallel(GameTable games) {
+        return extractFeaturesParallel(games, ForkJoinPool.commonPool());
+    }
+
+    public FeatureData extractFeaturesParallel(GameTable games, ForkJoinPool pool) {
+        return extractFeaturesParallel(games, pool, newState());
+    }
+
+    /**
+     * Parallel extraction that also leaves the final league state in {@code state}, which
+     * must be empty (the parallel replay always starts from the first game).
+     */
+    public FeatureData extractFeaturesParallel(GameTable games, ForkJoinPool pool, LeagueState state) {
+        try (PipelineMetrics.Phase phase = PipelineMetrics.get().phase("features")) {
+            FeatureData data = extractParallel(games, pool, state);
+            phase.setRows(data.getTrainSize() + data.getTestSize());
+            return data;
+        }
+    }
+
+    private FeatureData extractParallel(GameTable games, ForkJoinPool pool, LeagueState state) {
+        checkCompatible(state);
+        if (state.getTeamCount() > 0) {
+            throw new IllegalArgumentException("Parallel extraction needs an empty league state");
+        }
+        int n = games.size();
+        int teamCount = games.getTeamCount();
+        state.mapTeams(games); // fresh state: state index == table index
+        HeadToHeadTracker h2h = state.getHeadToHead();
+        if (h2h != null) {
+            h2h.reserve(teamCount);
+        }
+
+        // Per-team schedules as CSR row lists, each in chronological order.
+        int[] teamStart = new int[teamCount + 1];
+        for (int row = 0; row < n; row++) {
+            teamStart[games.getHomeTeam(row) + 1]++;
+            teamStart[games.getAwayTeam(row) + 1]++;
+        }
+        for (int t = 0; t < teamCount; t++) {
+            teamStart[t + 1] += teamStart[t];
+        }
+        int[] teamRows = new int[2 * n];
+        int[] fill = Arrays.copyOf(teamStart, teamCount);
+        for (int row = 0; row < n; row++) {
+            teamRows[fill[games.getHomeTeam(row)]++] = row;
+            teamRows[fill[games.getAwayTeam(row)]++] = row;
+        }
+
+        // Phase 1: one task per team. Every (row, side) slot is written by exactly one task.
+        // Home, away and pair parts of a game's snapshot are written by different tasks.
+        int snapshotWidth = features.snapshotWidth();
+        double[] snapshots = new double[n * snapshotWidth];
+        boolean[] homeReady = new boolean[n];
+        boolean[] awayReady = new boolean[n];
+        List<Callable<Void>> replays = new ArrayList<>(teamCount);
+        for (int t = 0; t < teamCount; t++) {
+            int team = t;
+            replays.add(() -> {
+                replayTeam(games, team, teamRows, teamStart[team], teamStart[team + 1], state, h2h,
+                        snapshots, homeReady, awayReady);
+                return null;
+            });
+        }
+        for (Future<Void> f : pool.invokeAll(replays)) {
+            join(f);
+        }
+
+        // Output slot of each game that produces a row, in game order; -1 for skipped games.
+        int splitDay = (int) TRAIN_TEST_SPLIT_DATE.toEpochDay();
+        int[] slots = new int[n];
+        int processedGames = 0;
+        int trainRows = 0;
+        for (int row = 0; row < n; row++) {
+            if (homeReady[row] && awayReady[row]) {
+                slots[row] = processedGames++;
+                if (games.getGameDay(row) < splitDay) {
+                    trainRows++;
                 }
-                continue;
+            } else {
+                slots[row] = -1;
             }
-            
-            // Extract features BEFORE updating history (time-travel safe)
-            // 0-11: existing rolling window stats
-            // 12-13: rolling point differential
-            // 14-15: season-to-date win rate
-            // 16-17: season-to-date average point differential
-            // 18-19: rest days
-            // 20-21: back-to-back flags
-            // 22-23: current win streak
-            // 24: head-to-head win rate (home vs away)
-            double[] features = new double[25];
-            features[0] = homeHistory.getAvgPoints();
-            features[1] = awayHistory.getAvgPoints();
-            features[2] = homeHistory.getWinRate();
-            features[3] = awayHistory.getWinRate();
-            features[4] = homeHistory.getAvgFgPct();
-            features[5] = awayHistory.getAvgFgPct();
-            features[6] = homeHistory.getAvgReb();
-            features[7] = awayHistory.getAvgReb();
-            features[8] = homeHistory.getAvgAst();
-            features[9] = awayHistory.getAvgAst();
-            features[10] = homeHistory.getAvgTov();
-            features[11] = awayHistory.getAvgTov();
-            // New rolling point differential features
-            features[12] = homeHistory.getAvgPointDiffWindow();
-            features[13] = awayHistory.getAvgPointDiffWindow();
-            // Season-to-date win rate
-            features[14] = homeHistory.getSeasonWinRate();
-            features[15] = awayHistory.getSeasonWinRate();
-            // Season-to-date average point differential
-            features[16] = homeHistory.getSeasonAvgPointDiff();
-            features[17] = awayHistory.getSeasonAvgPointDiff();
-            // Rest days
-            features[18] = homeRestDays;
-            features[19] = awayRestDays;
-            // Back-to-back indicators
-            features[20] = homeBackToBack;
-            features[21] = awayBackToBack;
-            // Current win streak
-            features[22] = homeHistory.getCurrentWinStreak();
-            features[23] = awayHistory.getCurrentWinStreak();
-            // Head-to-head win rate (home perspective)
-            features[24] = h2hWinRate;
-            
-            int label = game.isHomeWin() ? 1 : 0; // 1 = WIN, 0 = LOSS
-            
-            // Add to train or test based on date
-            if (game.getGameDate().isBefore(TRAIN_TEST_SPLIT_DATE)) {
-                trainFeatures.add(features);
-                trainLabels.add(label);
+        }
+
+        // Phase 2: join snapshots straight into the flat matrix.
+        double[] matrix = new double[n * rowWidth];
+        int[] gameDays = new int[n];
+        join(pool.submit(() -> IntStream.range(0, n).parallel().forEach(row -> {
+            if (slots[row] >= 0) {
+                int off = slots[row] * rowWidth;
+                features.assemble(snapshots, row * snapshotWidth, matrix, off);
+                matrix[off + numFeatures] = games.isHomeWin(row) ? 1.0 : 0.0;
+                gameDays[slots[row]] = games.getGameDay(row);
+            }
+        })));
+
+        if (n > 0) {
+            state.markProcessed(games.getGameDay(n - 1), n);
+        }
+        return finish(matrix, gameDays, trainRows, processedGames, n - processedGames);
+    }
+
+    private void replayTeam(GameTable games, int team, int[] teamRows, int from, int to,
+                            LeagueState state, HeadToHeadTracker h2h,
+                            double[] snapshots, boolean[] homeReady, boolean[] awayReady) {
+        TeamHistory history = new TeamHistory(windowSize, state.getTeamTracking(), state.getHalfLives());
+        int snapshotWidth = features.snapshotWidth();
+        int lastDay = NO_GAME;
+        for (int i = from; i < to; i++) {
+            int row = teamRows[i];
+            int homeTeam = games.getHomeTeam(row);
+            int awayTeam = games.getAwayTeam(row);
+            boolean home = homeTeam == team;
+            int gameDay = games.getGameDay(row);
+            double restDays = lastDay != NO_GAME ? gameDay - lastDay : 10.0;
+
+            if (home) {
+                homeReady[row] = history.isReady();
+                features.snapshotHome(history, restDays, snapshots, row * snapshotWidth);
             } else {
-                testFeatures.add(features);
-                testLabels.add(label);
+                awayReady[row] = history.isReady();
+                features.snapshotAway(history, restDays, snapshots, row * snapshotWidth);
             }
-            
-            processedGames++;
-            
-            // NOW update history after features are extracted
-            homeHistory.recordMatch(
-                game.getPtsHome(),
-                game.getPtsAway(),
-                game.isHomeWin(),
-                game.getFgPctHome(),
-                game.getRebHome(),
-                game.getAstHome(),
-                game.getTovHome()
-            );
-            awayHistory.recordMatch(
-                game.getPtsAway(),
-                game.getPtsHome(),
-                !game.isHomeWin(),
-                game.getFgPctAway(),
-                game.getRebAway(),
-                game.getAstAway(),
-                game.getTovAway()
-            );
-
-            // Update rest date and head-to-head after game
-            lastGameDate.put(homeTeamId, gameDate);
-            lastGameDate.put(awayTeamId, gameDate);
-            h2hDeque.addLast(game.isHomeWin());
-            if (h2hDeque.size() > 10) {
-                h2hDeque.removeFirst();
+
+            // The pair's slot belongs to the home team, or to the lower index when symmetric,
+            // so the shared tracker is only ever touched by one task per slot.
+            int owner = symmetricHeadToHead ? Math.min(homeTeam, awayTeam) : homeTeam;
+            if (h2h != null && owner == team) {
+                features.snapshotPair(h2h, homeTeam, awayTeam, snapshots, row * snapshotWidth);
+                h2h.recordMeeting(homeTeam, awayTeam, games.isHomeWin(row));
             }
+
+            if (home) {
+                history.recordMatch(games.getPtsHome(row), games.getPtsAway(row), games.isHomeWin(row),
+                        games.getFgPctHome(row), games.getRebHome(row), games.getAstHome(row), games.getTovHome(row));
+            } else {
+                history.recordMatch(games.getPtsAway(row), games.getPtsHome(row), !games.isHomeWin(row),
+                        games.getFgPctAway(row), games.getRebAway(row), games.getAstAway(row), games.getTovAway(row));
+            }
+            recordPlayByPlay(history, games, row, home);
+            lastDay = gameDay;
         }
-        
+        // Each task owns its team's slots in the state arrays.
+        if (from < to) {
+            state.setHistory(team, history);
+            state.setLastGameDay(team, lastDay);
+        }
+    }
+
+    private static void join(Future<?> future) {
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Feature extraction interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Feature extraction failed", e.getCause());
+        }
+    }
+
+    /**
+     * Wraps the first {@code processedGames} rows of {@code matrix} (and their dates in
+     * {@code gameDays}) as train and test blocks without copying; train rows are the leading
+     * {@code trainRows}.
+     */
+    private FeatureData finish(double[] matrix, int[] gameDays, int trainRows,
+                                      int processedGames, int skippedGames) {
         System.out.println("Feature extraction complete:");
         System.out.println("  Processed games: " + processedGames);
         System.out.println("  Skipped games (insufficient history): " + skippedGames);
-        System.out.println("  Training examples: " + trainFeatures.size());
-        System.out.println("  Test examples: " + testFeatures.size());
+        System.out.println("  Training examples: " + trainRows);
+        System.out.println("  Test examples: " + (processedGames - trainRows));
+        PipelineMetrics.get().increment(PipelineMetrics.SKIPPED_GAMES, skippedGames);
+        PipelineMetrics.get().increment(PipelineMetrics.FEATURE_ROWS, processedGames);
         
+        int trainLength = trainRows * rowWidth;
         return new FeatureData(
-            trainFeatures.toArray(new double[0][]),
-            trainLabels.stream().mapToInt(i -> i).toArray(),
-            testFeatures.toArray(new double[0][]),
-            testLabels.stream().mapToInt(i -> i).toArray()
+            features.getNames(),
+            DoubleBuffer.wrap(matrix, 0, trainLength).slice(),
+            DoubleBuffer.wrap(matrix, trainLength, (processedGames - trainRows) * rowWidth).slice(),
+            IntBuffer.wrap(gameDays, 0, processedGames).slice()
         );
     }
     
+    /**
+     * Train/test feature rows. Storage is flat and row-major: each row holds the feature
+     * values followed by the label (1.0 = WIN, 0.0 = LOSS) in a final class column. The
+     * buffers are either on the heap or a read-only mapping of a {@link FeatureCache} file;
+     * the {@code double[][]}/{@code int[]} getters materialise copies for callers that still
+     * want arrays. Rows produced by the pipeline also carry their game date; rows built from
+     * arrays do not.
+     */
     public static class FeatureData {
-        private final double[][] trainFeatures;
-        private final int[] trainLabels;
-        private final double[][] testFeatures;
-        private final int[] testLabels;
+        private final String[] featureNames;
+        private final int numFeatures;
+        private final int rowWidth;
+        private final DoubleBuffer train;
+        private final DoubleBuffer test;
+        private final IntBuffer gameDays; // train rows then test rows; null if unknown
         
         public FeatureData(double[][] trainFeatures, int[] trainLabels,
                           double[][] testFeatures, int[] testLabels) {
-            this.trainFeatures = trainFeatures;
-            this.trainLabels = trainLabels;
-            this.testFeatures = testFeatures;
-            this.testLabels = testLabels;
+            this(defaultNames(trainFeatures.length > 0 ? trainFeatures[0].length
+                            : testFeatures.length > 0 ? testFeatures[0].length : 0),
+                    trainFeatures, trainLabels, testFeatures, testLabels);
+        }
+
+        public FeatureData(String[] featureNames, double[][] trainFeatures, int[] trainLabels,
+                           double[][] testFeatures, int[] testLabels) {
+            this(featureNames, flatten(trainFeatures, trainLabels, featureNames.length),
+                    flatten(testFeatures, testLabels, featureNames.length));
+        }
+
+        FeatureData(String[] featureNames, DoubleBuffer train, DoubleBuffer test) {
+            this(featureNames, train, test, null);
+        }
+
+        FeatureData(String[] featureNames, DoubleBuffer train, DoubleBuffer test, IntBuffer gameDays) {
+            this.featureNames = featureNames.clone();
+            this.numFeatures = featureNames.length;
+            this.rowWidth = numFeatures + 1;
+            this.train = train;
+            this.test = test;
+            this.gameDays = gameDays;
+            if (gameDays != null && gameDays.limit() != getTrainSize() + getTestSize()) {
+                throw new IllegalArgumentException("Expected " + (getTrainSize() + getTestSize())
+                        + " game dates, got " + gameDays.limit());
+            }
         }
         
         public double[][] getTrainFeatures() {
-            return trainFeatures;
+            return rows(train);
         }
         
         public int[] getTrainLabels() {
-            return trainLabels;
+            return labels(train);
         }
         
         public double[][] getTestFeatures() {
-            return testFeatures;
+            return rows(test);
         }
         
         public int[] getTestLabels() {
-            return testLabels;
+            return labels(test);
+        }
+
+        public String[] getFeatureNames() {
+            return featureNames.clone();
+        }
+
+        public int getNumFeatures() {
+            return numFeatures;
+        }
+
+        public int getTrainSize() {
+            return train.limit() / rowWidth;
+        }
+
+        public int getTestSize() {
+            return test.limit() / rowWidth;
+        }
+
+        /** Read-only row-major view of the training rows, label in the last column. */
+        public DoubleBuffer getTrainMatrix() {
+            return train.asReadOnlyBuffer();
+        }
+
+        /** Read-only row-major view of the test rows, label in the last column. */
+        public DoubleBuffer getTestMatrix() {
+            return test.asReadOnlyBuffer();
+        }
+
+        public boolean hasGameDays() {
+            return gameDays != null;
+        }
+
+        /**
+         * Epoch day of every row, training rows first and then test rows, so the index matches
+         * a row's position across both blocks.
+         *
+         * @throws IllegalStateException if the rows were not produced by the pipeline
+         */
+        public int[] getGameDays() {
+            if (gameDays == null) {
+                throw new IllegalStateException("Feature rows carry no game dates");
+            }
+            int[] out = new int[gameDays.limit()];
+            gameDays.get(0, out);
+            return out;
+        }
+
+        private static String[] defaultNames(int d) {
+            String[] names = new String[d];
+            for (int j = 0; j < d; j++) {
+                names[j] = "f" + j;
+            }
+            return names;
+        }
+
+        private static DoubleBuffer flatten(double[][] features, int[] labels, int d) {
+            double[] flat = new double[features.length * (d + 1)];
+            for (int i = 0; i < features.length; i++) {
+                System.arraycopy(features[i], 0, flat, i * (d + 1), d);
+                flat[i * (d + 1) + d] = labels[i];
+            }
+            return DoubleBuffer.wrap(flat);
+        }
+
+        private double[][] rows(DoubleBuffer block) {
+            int n = block.limit() / rowWidth;
+            double[][] out = new double[n][numFeatures];
+            for (int i = 0; i < n; i++) {
+                block.get(i * rowWidth, out[i]);
+            }
+            return out;
+        }
+
+        private int[] labels(DoubleBuffer block) {
+            int n = block.limit() / rowWidth;
+            int[] out = new int[n];
+            for (int i = 0; i < n; i++) {
+                out[i] = (int) block.get(i * rowWidth + numFeatures);
+            }
+            return out;
         }
     }
 }
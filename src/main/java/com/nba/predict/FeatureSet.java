@@ -0,0 +1,637 @@
+package com.nba.predict;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The features {@link FeaturePipeline} extracts, declared rather than hard-coded. Every
+ * feature is a named read of one {@link TeamStat} for the home or away team, or of one
+ * {@link PairStat} for the matchup, and every stat declares the {@link State} it reads.
+ * Window averages default to the pipeline's window; a feature may instead average over any
+ * number of games, or decay exponentially with a given half-life.
+ *
+ * A set is compiled once into a flat layout: team stats are read group by group in
+ * straight-line code, one group per team state the features need, and every stat read
+ * has a fixed destination, either its column in the output row or its slot in a stored
+ * per-game snapshot that is later gathered into a row. The pipeline's single pass reads
+ * only those stats and maintains only the state they need, so dropping features drops the
+ * bookkeeping behind them.
+ */
+public final class FeatureSet {
+
+    /** State the pipeline keeps between games; each part is updated only if some feature reads it. */
+    public enum State {
+        /** Rolling window of points, point differential and wins. */
+        WINDOW_SCORING(TeamHistory.TRACK_SCORING),
+        /** Rolling window of FG%, rebounds, assists and turnovers. */
+        WINDOW_BOX_SCORE(TeamHistory.TRACK_BOX_SCORE),
+        /** Season-to-date record, point differential and current win streak. */
+        SEASON(TeamHistory.TRACK_SEASON),
+        /** Day of each team's last game. */
+        REST(0),
+        /** Rolling window of play-by-play aggregates over each team's last covered games. */
+        PLAY_BY_PLAY(TeamHistory.TRACK_PLAY_BY_PLAY),
+        /** Prefix sums over every game played, for averages over windows of any length. */
+        LONG_WINDOWS(TeamHistory.TRACK_PREFIX_SUMS),
+        /** Exponentially decayed averages, one set per requested half-life. */
+        DECAYED(0),
+        /** Last-N results of every matchup. */
+        HEAD_TO_HEAD(0);
+
+        private final int teamHistoryFlag;
+
+        State(int teamHistoryFlag) {
+            this.teamHistoryFlag = teamHistoryFlag;
+        }
+    }
+
+    /** A value read from one team's state before the game. */
+    public enum TeamStat {
+        AVG_PTS("avg_pts", State.WINDOW_SCORING, TeamHistory.POINTS),
+        WIN_RATE("win_rate", State.WINDOW_SCORING, TeamHistory.WINS),
+        AVG_FG_PCT("avg_fg_pct", State.WINDOW_BOX_SCORE, TeamHistory.FG_PCT),
+        AVG_REB("avg_reb", State.WINDOW_BOX_SCORE, TeamHistory.REB),
+        AVG_AST("avg_ast", State.WINDOW_BOX_SCORE, TeamHistory.AST),
+        AVG_TOV("avg_tov", State.WINDOW_BOX_SCORE, TeamHistory.TOV),
+        AVG_PT_DIFF("avg_pt_diff", State.WINDOW_SCORING, TeamHistory.POINT_DIFF),
+        SEASON_WIN_RATE("season_win_rate", State.SEASON),
+        SEASON_PT_DIFF("season_pt_diff", State.SEASON),
+        REST_DAYS("rest_days", State.REST),
+        BACK_TO_BACK("back_to_back", State.REST),
+        WIN_STREAK("win_streak", State.SEASON),
+        /** Possessions per 48 minutes. Play-by-play stats are NaN until a team's first covered game. */
+        AVG_PACE("avg_pace", State.PLAY_BY_PLAY),
+        /** Points the team scored in clutch time. */
+        AVG_CLUTCH_PTS("avg_clutch_pts", State.PLAY_BY_PLAY),
+        AVG_LEAD_CHANGES("avg_lead_changes", State.PLAY_BY_PLAY),
+        /** The team's own largest lead. */
+        AVG_LARGEST_LEAD("avg_largest_lead", State.PLAY_BY_PLAY);
+
+        private final String suffix;
+        private final State state;
+        private final int series; // TeamHistory series averaged, or -1
+
+        TeamStat(String suffix, State state) {
+            this(suffix, state, -1);
+        }
+
+        TeamStat(String suffix, State state, int series) {
+            this.suffix = suffix;
+            this.state = state;
+            this.series = series;
+        }
+
+        public State getState() {
+            return state;
+        }
+
+        /** Whether this is an average over recent games, so other windows and decays apply. */
+        public boolean isAverage() {
+            return series >= 0;
+        }
+    }
+
+    /** A value read from the state of a home/away pairing before the game. */
+    public enum PairStat {
+        /** Share of recent meetings won by the home team. */
+        H2H_WIN_RATE("h2h_win_rate", State.HEAD_TO_HEAD);
+
+        private final String name;
+        private final State state;
+
+        PairStat(String name, State state) {
+            this.name = name;
+            this.state = state;
+        }
+
+        public State getState() {
+            return state;
+        }
+
+        double read(HeadToHeadTracker h2h, int home, int away) {
+            return h2h.getWinRate(home, away);
+        }
+    }
+
+    /** Which row of state a feature reads. */
+    public enum Side { HOME, AWAY, MATCHUP }
+
+    /** One named feature. */
+    public static final class Feature {
+        private final String name;
+        private final Side side;
+        private final TeamStat teamStat;
+        private final PairStat pairStat;
+        private final int window;        // games averaged over, or 0 for the pipeline's window
+        private final double halfLife;   // decay half-life in games, or 0 for none
+
+        private Feature(String name, Side side, TeamStat teamStat, PairStat pairStat,
+                        int window, double halfLife) {
+            this.name = name;
+            this.side = side;
+            this.teamStat = teamStat;
+            this.pairStat = pairStat;
+            this.window = window;
+            this.halfLife = halfLife;
+        }
+
+        public static Feature home(TeamStat stat) {
+            return new Feature("home_" + stat.suffix, Side.HOME, stat, null, 0, 0.0);
+        }
+
+        public static Feature away(TeamStat stat) {
+            return new Feature("away_" + stat.suffix, Side.AWAY, stat, null, 0, 0.0);
+        }
+
+        /** The home team's {@code stat} averaged over its last {@code games} games. */
+        public static Feature home(TeamStat stat, int games) {
+            return windowed(Side.HOME, stat, games);
+        }
+
+        public static Feature away(TeamStat stat, int games) {
+            return windowed(Side.AWAY, stat, games);
+        }
+
+        /** The home team's {@code stat} decayed so a game's weight halves every {@code halfLife} games. */
+        public static Feature homeDecayed(TeamStat stat, double halfLife) {
+            return decayed(Side.HOME, stat, halfLife);
+        }
+
+        public static Feature awayDecayed(TeamStat stat, double halfLife) {
+            return decayed(Side.AWAY, stat, halfLife);
+        }
+
+        public static Feature matchup(PairStat stat) {
+            return new Feature(stat.name, Side.MATCHUP, null, stat, 0, 0.0);
+        }
+
+        private static Feature windowed(Side side, TeamStat stat, int games) {
+            checkAverage(stat);
+            if (games <= 0) {
+                throw new IllegalArgumentException("Window must be positive: " + games);
+            }
+            return new Feature(prefix(side) + stat.suffix + "_last" + games, side, stat, null, games, 0.0);
+        }
+
+        private static Feature decayed(Side side, TeamStat stat, double halfLife) {
+            checkAverage(stat);
+            if (!(halfLife > 0.0) || Double.isInfinite(halfLife)) {
+                throw new IllegalArgumentException("Half-life must be positive: " + halfLife);
+            }
+            String span = BigDecimal.valueOf(halfLife).stripTrailingZeros().toPlainString();
+            return new Feature(prefix(side) + stat.suffix + "_ewm" + span, side, stat, null, 0, halfLife);
+        }
+
+        private static void checkAverage(TeamStat stat) {
+            if (!stat.isAverage()) {
+                throw new IllegalArgumentException(stat + " is not an average over recent games");
+            }
+        }
+
+        private static String prefix(Side side) {
+            return side == Side.HOME ? "home_" : "away_";
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Side getSide() {
+            return side;
+        }
+
+        /** Games averaged over, or 0 for the pipeline's window. */
+        public int getWindow() {
+            return window;
+        }
+
+        /** Decay half-life in games, or 0 if the feature does not decay. */
+        public double getHalfLife() {
+            return halfLife;
+        }
+
+        public State getState() {
+            if (side == Side.MATCHUP) {
+                return pairStat.state;
+            }
+            if (window > 0) {
+                return State.LONG_WINDOWS;
+            }
+            return halfLife > 0.0 ? State.DECAYED : teamStat.state;
+        }
+    }
+
+    private static final FeatureSet STANDARD = standardSet();
+
+    private final List<Feature> features;
+    private final String[] names;
+    private final EnumSet<State> required;
+
+    // Compiled layout. Team stats are read group by group (a group per required fixed team
+    // state, its stats in TeamStat order), then the other windows and the decayed averages;
+    // each read stat has a snapshot slot and a row column.
+    private final boolean scoring;
+    private final boolean boxScore;
+    private final boolean season;
+    private final boolean rest;
+    private final boolean playByPlay;
+    private final int[] windowSeries;
+    private final int[] windowGames;
+    private final double[] halfLives;
+    private final int[] decaySeries;
+    private final int[] decayIndex;
+    private final int teamWidth;
+    private final PairStat[] pairStats;
+    private final int[] homeSlots;
+    private final int[] awaySlots;
+    private final int[] pairSlots;
+    // Row columns; a stat no feature uses goes to the label column, which is written last.
+    private final int[] homeColumns;
+    private final int[] awayColumns;
+    private final int[] pairColumns;
+    // Snapshot slot of each feature, for assembling rows from stored snapshots.
+    private final int[] sources;
+
+    public FeatureSet(List<Feature> features) {
+        if (features.isEmpty()) {
+            throw new IllegalArgumentException("A feature set needs at least one feature");
+        }
+        this.features = Collections.unmodifiableList(new ArrayList<>(features));
+        this.names = new String[features.size()];
+        Set<String> seen = new HashSet<>();
+        EnumSet<PairStat> usedPair = EnumSet.noneOf(PairStat.class);
+        // Distinct (series, window) and (series, half-life) reads, shared by home and away.
+        List<int[]> windowReads = new ArrayList<>();
+        List<Double> halfLifeList = new ArrayList<>();
+        List<int[]> decayReads = new ArrayList<>();
+        this.required = EnumSet.noneOf(State.class);
+        for (int j = 0; j < features.size(); j++) {
+            Feature feature = features.get(j);
+            if (!seen.add(feature.name)) {
+                throw new IllegalArgumentException("Duplicate feature: " + feature.name);
+            }
+            names[j] = feature.name;
+            required.add(feature.getState());
+            if (feature.side == Side.MATCHUP) {
+                usedPair.add(feature.pairStat);
+            } else if (feature.window > 0) {
+                indexOf(windowReads, feature.teamStat.series, feature.window);
+            } else if (feature.halfLife > 0.0) {
+                if (!halfLifeList.contains(feature.halfLife)) {
+                    halfLifeList.add(feature.halfLife);
+                }
+                indexOf(decayReads, feature.teamStat.series, halfLifeList.indexOf(feature.halfLife));
+            }
+        }
+        this.scoring = required.contains(State.WINDOW_SCORING);
+        this.boxScore = required.contains(State.WINDOW_BOX_SCORE);
+        this.season = required.contains(State.SEASON);
+        this.rest = required.contains(State.REST);
+        this.playByPlay = required.contains(State.PLAY_BY_PLAY);
+        this.pairStats = usedPair.toArray(new PairStat[0]);
+        this.windowSeries = new int[windowReads.size()];
+        this.windowGames = new int[windowReads.size()];
+        for (int r = 0; r < windowSeries.length; r++) {
+            windowSeries[r] = windowReads.get(r)[0];
+            windowGames[r] = windowReads.get(r)[1];
+        }
+        this.halfLives = new double[halfLifeList.size()];
+        for (int d = 0; d < halfLives.length; d++) {
+            halfLives[d] = halfLifeList.get(d);
+        }
+        this.decaySeries = new int[decayReads.size()];
+        this.decayIndex = new int[decayReads.size()];
+        for (int r = 0; r < decaySeries.length; r++) {
+            decaySeries[r] = decayReads.get(r)[0];
+            decayIndex[r] = decayReads.get(r)[1];
+        }
+
+        int[] groupOffset = new int[State.values().length];
+        int width = 0;
+        for (State state : State.values()) {
+            groupOffset[state.ordinal()] = width;
+            if (required.contains(state)) {
+                for (TeamStat stat : TeamStat.values()) {
+                    if (stat.state == state) {
+                        width++;
+                    }
+                }
+            }
+        }
+        int fixedWidth = width;
+        this.teamWidth = fixedWidth + windowSeries.length + decaySeries.length;
+        this.homeSlots = new int[teamWidth];
+        this.awaySlots = new int[teamWidth];
+        this.pairSlots = new int[pairStats.length];
+        for (int k = 0; k < teamWidth; k++) {
+            homeSlots[k] = k;
+            awaySlots[k] = teamWidth + k;
+        }
+        for (int k = 0; k < pairStats.length; k++) {
+            pairSlots[k] = 2 * teamWidth + k;
+        }
+        this.homeColumns = new int[teamWidth];
+        this.awayColumns = new int[teamWidth];
+        this.pairColumns = new int[pairStats.length];
+        Arrays.fill(homeColumns, names.length);
+        Arrays.fill(awayColumns, names.length);
+        this.sources = new int[names.length];
+        for (int j = 0; j < names.length; j++) {
+            Feature feature = features.get(j);
+            if (feature.side == Side.MATCHUP) {
+                int index = Arrays.asList(pairStats).indexOf(feature.pairStat);
+                pairColumns[index] = j;
+                sources[j] = pairSlots[index];
+                continue;
+            }
+            int index;
+            if (feature.window > 0) {
+                index = fixedWidth + indexOf(windowReads, feature.teamStat.series, feature.window);
+            } else if (feature.halfLife > 0.0) {
+                index = fixedWidth + windowSeries.length
+                        + indexOf(decayReads, feature.teamStat.series, halfLifeList.indexOf(feature.halfLife));
+            } else {
+                index = groupOffset[feature.teamStat.state.ordinal()];
+                for (TeamStat stat : TeamStat.values()) {
+                    if (stat == feature.teamStat) {
+                        break;
+                    }
+                    if (stat.state == feature.teamStat.state) {
+                        index++;
+                    }
+                }
+            }
+            if (feature.side == Side.HOME) {
+                homeColumns[index] = j;
+                sources[j] = homeSlots[index];
+            } else {
+                awayColumns[index] = j;
+                sources[j] = awaySlots[index];
+            }
+        }
+    }
+
+    /** Index of the pair (a, b) in {@code pairs}, appending it if absent. */
+    private static int indexOf(List<int[]> pairs, int a, int b) {
+        for (int i = 0; i < pairs.size(); i++) {
+            if (pairs.get(i)[0] == a && pairs.get(i)[1] == b) {
+                return i;
+            }
+        }
+        pairs.add(new int[] {a, b});
+        return pairs.size() - 1;
+    }
+
+    /**
+     * The 25 original features: every team stat except the play-by-play ones for home then
+     * away, stat by stat, then the head-to-head win rate.
+     */
+    public static FeatureSet standard() {
+        return STANDARD;
+    }
+
+    private static FeatureSet standardSet() {
+        List<Feature> features = new ArrayList<>();
+        for (TeamStat stat : TeamStat.values()) {
+            if (stat.state != State.PLAY_BY_PLAY) {
+                features.add(Feature.home(stat));
+                features.add(Feature.away(stat));
+            }
+        }
+        features.add(Feature.matchup(PairStat.H2H_WIN_RATE));
+        return new FeatureSet(features);
+    }
+
+    /** Only the named features, in this set's order. */
+    public FeatureSet select(String... featureNames) {
+        Set<String> keep = checkedNames(featureNames);
+        List<Feature> kept = new ArrayList<>();
+        for (Feature feature : features) {
+            if (keep.contains(feature.name)) {
+                kept.add(feature);
+            }
+        }
+        return new FeatureSet(kept);
+    }
+
+    /**
+     * This set plus, for each of {@code windows}, the home and away average of every
+     * {@linkplain TeamStat#isAverage() averaged} stat over that many games.
+     */
+    public FeatureSet withWindows(int... windows) {
+        List<Feature> more = new ArrayList<>(features);
+        for (int games : windows) {
+            for (TeamStat stat : TeamStat.values()) {
+                if (stat.isAverage()) {
+                    more.add(Feature.home(stat, games));
+                    more.add(Feature.away(stat, games));
+                }
+            }
+        }
+        return new FeatureSet(more);
+    }
+
+    /** As {@link #withWindows}, with exponentially decayed averages for each half-life in games. */
+    public FeatureSet withHalfLives(double... halfLives) {
+        List<Feature> more = new ArrayList<>(features);
+        for (double halfLife : halfLives) {
+            for (TeamStat stat : TeamStat.values()) {
+                if (stat.isAverage()) {
+                    more.add(Feature.homeDecayed(stat, halfLife));
+                    more.add(Feature.awayDecayed(stat, halfLife));
+                }
+            }
+        }
+        return new FeatureSet(more);
+    }
+
+    /**
+     * This set plus the home and away value of every play-by-play stat, for sources whose
+     * games carry play_by_play aggregates (see {@link GameTable#getPlayByPlay()}).
+     */
+    public FeatureSet withPlayByPlay() {
+        List<Feature> more = new ArrayList<>(features);
+        for (TeamStat stat : TeamStat.values()) {
+            if (stat.state == State.PLAY_BY_PLAY) {
+                more.add(Feature.home(stat));
+                more.add(Feature.away(stat));
+            }
+        }
+        return new FeatureSet(more);
+    }
+
+    /** This set minus the named features. */
+    public FeatureSet without(String... featureNames) {
+        Set<String> drop = checkedNames(featureNames);
+        List<Feature> kept = new ArrayList<>();
+        for (Feature feature : features) {
+            if (!drop.contains(feature.name)) {
+                kept.add(feature);
+            }
+        }
+        return new FeatureSet(kept);
+    }
+
+    /** This set minus every feature reading {@code state}, so that state is no longer kept. */
+    public FeatureSet without(State state) {
+        List<Feature> kept = new ArrayList<>();
+        for (Feature feature : features) {
+            if (feature.getState() != state) {
+                kept.add(feature);
+            }
+        }
+        return new FeatureSet(kept);
+    }
+
+    private Set<String> checkedNames(String... featureNames) {
+        List<String> known = Arrays.asList(names);
+        Set<String> out = new HashSet<>();
+        for (String name : featureNames) {
+            if (!known.contains(name)) {
+                throw new IllegalArgumentException("Unknown feature: " + name);
+            }
+            out.add(name);
+        }
+        return out;
+    }
+
+    public List<Feature> getFeatures() {
+        return features;
+    }
+
+    public String[] getNames() {
+        return names.clone();
+    }
+
+    public int size() {
+        return names.length;
+    }
+
+    /** State the pipeline must maintain for these features. */
+    public Set<State> getRequiredState() {
+        return Collections.unmodifiableSet(required);
+    }
+
+    public boolean requires(State state) {
+        return required.contains(state);
+    }
+
+    /** {@link TeamHistory} tracking flags covering the required state. */
+    int teamHistoryTracking() {
+        int flags = 0;
+        for (State state : required) {
+            flags |= state.teamHistoryFlag;
+        }
+        return flags;
+    }
+
+    /** Half-lives of the decayed averages team histories must keep, in the order features index them. */
+    double[] halfLives() {
+        return halfLives.clone();
+    }
+
+    /** Values in one game's snapshot: home stats, away stats, pair stats. */
+    int snapshotWidth() {
+        return 2 * teamWidth + pairStats.length;
+    }
+
+    /**
+     * Writes the home team's features straight into the row at {@code f}. The row must have
+     * room for the label column and the label must be written afterwards.
+     */
+    void writeHome(TeamHistory h, double restDays, double[] row, int f) {
+        readTeam(h, restDays, row, f, homeColumns);
+    }
+
+    /** As {@link #writeHome}, for the away team. */
+    void writeAway(TeamHistory h, double restDays, double[] row, int f) {
+        readTeam(h, restDays, row, f, awayColumns);
+    }
+
+    /** As {@link #writeHome}, for the matchup. */
+    void writePair(HeadToHeadTracker h2h, int home, int away, double[] row, int f) {
+        readPair(h2h, home, away, row, f, pairColumns);
+    }
+
+    /** Stores the home team's stats in the game snapshot at {@code s}, for {@link #assemble}. */
+    void snapshotHome(TeamHistory h, double restDays, double[] snapshots, int s) {
+        readTeam(h, restDays, snapshots, s, homeSlots);
+    }
+
+    void snapshotAway(TeamHistory h, double restDays, double[] snapshots, int s) {
+        readTeam(h, restDays, snapshots, s, awaySlots);
+    }
+
+    void snapshotPair(HeadToHeadTracker h2h, int home, int away, double[] snapshots, int s) {
+        readPair(h2h, home, away, snapshots, s, pairSlots);
+    }
+
+    /** Gathers a row's features from the game snapshot at {@code s} into {@code row} at {@code f}. */
+    void assemble(double[] snapshots, int s, double[] row, int f) {
+        for (int j = 0; j < sources.length; j++) {
+            row[f + j] = snapshots[s + sources[j]];
+        }
+    }
+
+    /**
+     * Reads the stats of every required team state, writing the k-th to {@code out[off + to[k]]}.
+     * Each group's order here must match its stats' order in {@link TeamStat}.
+     */
+    private void readTeam(TeamHistory h, double restDays, double[] out, int off, int[] to) {
+        int k = 0;
+        if (scoring) {
+            out[off + to[k++]] = h.getAvgPoints();
+            out[off + to[k++]] = h.getWinRate();
+            out[off + to[k++]] = h.getAvgPointDiffWindow();
+        }
+        if (boxScore) {
+            out[off + to[k++]] = h.getAvgFgPct();
+            out[off + to[k++]] = h.getAvgReb();
+            out[off + to[k++]] = h.getAvgAst();
+            out[off + to[k++]] = h.getAvgTov();
+        }
+        if (season) {
+            out[off + to[k++]] = h.getSeasonWinRate();
+            out[off + to[k++]] = h.getSeasonAvgPointDiff();
+            out[off + to[k++]] = h.getCurrentWinStreak();
+        }
+        if (rest) {
+            out[off + to[k++]] = restDays;
+            out[off + to[k++]] = restDays <= 1.0 ? 1.0 : 0.0;
+        }
+        if (playByPlay) {
+            out[off + to[k++]] = h.getAvgPace();
+            out[off + to[k++]] = h.getAvgClutchPoints();
+            out[off + to[k++]] = h.getAvgLeadChanges();
+            out[off + to[k++]] = h.getAvgLargestLead();
+        }
+        // Prefix-sum windows and decayed averages cost the same whatever their length.
+        for (int r = 0; r < windowSeries.length; r++) {
+            out[off + to[k++]] = h.getWindowAverage(windowSeries[r], windowGames[r]);
+        }
+        for (int r = 0; r < decaySeries.length; r++) {
+            out[off + to[k++]] = h.getDecayedAverage(decaySeries[r], decayIndex[r]);
+        }
+    }
+
+    private void readPair(HeadToHeadTracker h2h, int home, int away, double[] out, int off, int[] to) {
+        for (int k = 0; k < pairStats.length; k++) {
+            out[off + to[k]] = pairStats[k].read(h2h, home, away);
+        }
+    }
+
+    /** Identifies the selected features, in order, for cache keys. */
+    long getKey() {
+        long key = 1125899906842597L;
+        for (String name : names) {
+            key = 31 * key + name.hashCode();
+        }
+        return key;
+    }
+}
@@ -0,0 +1,127 @@
+package com.nba.predict;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Where the last feature extraction of a data source stopped: the {@link LeagueState} after
+ * its final game, the fingerprint of the source it read (whose {@link FeatureCache} entry
+ * holds the rows) and a {@link GameTable#digest} of the games it covered. A later run over
+ * the same source and pipeline checks that those games are still the prefix of the source,
+ * extracts only the games after them and appends their rows to the cached entry.
+ *
+ * For a SQLite source the snapshot also keeps the watermark of the last row it covered,
+ * which must match the watermark file {@link DataLoader#loadNewGames} advances. The file
+ * moves forward before the snapshot is saved, so if they disagree a run died in between
+ * (or the file was edited), and the caller reads and extracts everything again.
+ *
+ * File layout: magic, format version, data path, pipeline configuration key, source
+ * fingerprint, games digest, whether a watermark follows and its game date and id, then
+ * the league state (see {@link LeagueState#save}).
+ */
+public class FeatureSnapshot {
+    private static final int MAGIC = 0x4E425353; // "NBSS"
+    private static final int VERSION = 3;
+
+    private final LeagueState state;
+    private long sourceFingerprint;
+    private long gamesDigest;
+    private SqliteGameReader.Watermark watermark; // null unless the source is read in deltas
+
+    public FeatureSnapshot(long sourceFingerprint, long gamesDigest, LeagueState state,
+                           SqliteGameReader.Watermark watermark) {
+        this.sourceFingerprint = sourceFingerprint;
+        this.gamesDigest = gamesDigest;
+        this.state = state;
+        this.watermark = watermark;
+    }
+
+    /**
+     * Records that the state has been advanced through more games, now covering a source
+     * with {@code sourceFingerprint} whose games so far digest to {@code gamesDigest} and
+     * whose last row is at {@code watermark} (null if the source is not read in deltas).
+     */
+    public void advance(long sourceFingerprint, long gamesDigest, SqliteGameReader.Watermark watermark) {
+        this.sourceFingerprint = sourceFingerprint;
+        this.gamesDigest = gamesDigest;
+        this.watermark = watermark;
+    }
+
+    /** Snapshot file for {@code dataPath} read by a pipeline with {@code pipelineKey}. */
+    public static Path pathFor(Path directory, String dataPath, long pipelineKey) {
+        long h = dataPath.hashCode() * 0x9E3779B97F4A7C15L + pipelineKey;
+        return directory.resolve(String.format("state-%016x.bin", h ^ (h >>> 31)));
+    }
+
+    /** Watermark file the delta loads feeding the snapshot at {@link #pathFor} advance. */
+    public static Path watermarkPathFor(Path directory, String dataPath, long pipelineKey) {
+        String state = pathFor(directory, dataPath, pipelineKey).getFileName().toString();
+        return directory.resolve(state.replace("state-", "watermark-").replace(".bin", ".properties"));
+    }
+
+    /**
+     * The snapshot stored for this source and pipeline, or null if there is none or it was
+     * written by another format version or for another source or configuration.
+     */
+    public static FeatureSnapshot load(Path file, String dataPath, long pipelineKey) throws IOException {
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || !in.readUTF().equals(dataPath)
+                    || in.readLong() != pipelineKey) {
+                return null; // older format or a hash collision: extract from scratch
+            }
+            long sourceFingerprint = in.readLong();
+            long gamesDigest = in.readLong();
+            SqliteGameReader.Watermark watermark = in.readBoolean()
+                    ? new SqliteGameReader.Watermark(in.readUTF(), in.readUTF()) : null;
+            return new FeatureSnapshot(sourceFingerprint, gamesDigest, LeagueState.readFrom(in), watermark);
+        }
+    }
+
+    public void save(Path file, String dataPath, long pipelineKey) throws IOException {
+        Files.createDirectories(file.getParent());
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(dataPath);
+            out.writeLong(pipelineKey);
+            out.writeLong(sourceFingerprint);
+            out.writeLong(gamesDigest);
+            out.writeBoolean(watermark != null);
+            if (watermark != null) {
+                out.writeUTF(watermark.getGameDate());
+                out.writeUTF(watermark.getGameId() == null ? "" : watermark.getGameId());
+            }
+            state.writeTo(out);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /** Fingerprint of the source when the snapshot was taken; its rows are cached under it. */
+    public long getSourceFingerprint() {
+        return sourceFingerprint;
+    }
+
+    /** {@link GameTable#digest} of the first {@code getState().getGamesProcessed()} games. */
+    public long getGamesDigest() {
+        return gamesDigest;
+    }
+
+    public LeagueState getState() {
+        return state;
+    }
+
+    /** Last row covered, for a source read in deltas; null otherwise. */
+    public SqliteGameReader.Watermark getWatermark() {
+        return watermark;
+    }
+}
@@ -0,0 +1,574 @@
+package com.nba.predict;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Columnar, parse-once store of the box-score columns the pipeline consumes.
+ * Every value is parsed exactly once at load time into primitive arrays; team ids
+ * are interned into dense indices in order of first appearance. Rows are kept in
+ * chronological order (stable with respect to load order for equal dates).
+ *
+ * Per-game aggregates of the play_by_play table can be joined in afterwards with
+ * {@link #withPlayByPlay}; until then {@link #getPlayByPlay()} is null.
+ */
+public class GameTable {
+    static final int NO_DATE = Integer.MIN_VALUE;
+    /** Game id of rows whose source had none, or a non-numeric one. */
+    public static final long NO_GAME_ID = -1L;
+
+    private final int size;
+    private final long[] gameId;          // numeric game_id, leading zeros dropped
+    private final int[] gameDay;          // epoch days
+    private final int[] homeTeam;         // interned team indices
+    private final int[] awayTeam;
+    private final short[] ptsHome;
+    private final short[] ptsAway;
+    private final BitSet homeWin;         // wl_home == 'W'
+    private final float[] fgPctHome;
+    private final float[] fgPctAway;
+    private final float[] rebHome;
+    private final float[] rebAway;
+    private final float[] astHome;
+    private final float[] astAway;
+    private final float[] tovHome;
+    private final float[] tovAway;
+    private final String[] teamIds;       // team index -> source team id
+    private final PlayByPlayStats playByPlay; // null until joined
+
+    private GameTable(Builder b, int[] order) {
+        this.size = b.size;
+        this.gameId = permute(b.gameId, order);
+        this.gameDay = permute(b.gameDay, order);
+        this.homeTeam = permute(b.homeTeam, order);
+        this.awayTeam = permute(b.awayTeam, order);
+        this.ptsHome = permute(b.ptsHome, order);
+        this.ptsAway = permute(b.ptsAway, order);
+        this.fgPctHome = permute(b.fgPctHome, order);
+        this.fgPctAway = permute(b.fgPctAway, order);
+        this.rebHome = permute(b.rebHome, order);
+        this.rebAway = permute(b.rebAway, order);
+        this.astHome = permute(b.astHome, order);
+        this.astAway = permute(b.astAway, order);
+        this.tovHome = permute(b.tovHome, order);
+        this.tovAway = permute(b.tovAway, order);
+        this.homeWin = new BitSet(size);
+        for (int i = 0; i < size; i++) {
+            if (b.homeWin.get(order == null ? i : order[i])) {
+                homeWin.set(i);
+            }
+        }
+        this.teamIds = b.teamIds.toArray(new String[0]);
+        this.playByPlay = null;
+    }
+
+    /** Shares every column of {@code base}, adding the joined play-by-play aggregates. */
+    private GameTable(GameTable base, PlayByPlayStats playByPlay) {
+        this.size = base.size;
+        this.gameId = base.gameId;
+        this.gameDay = base.gameDay;
+        this.homeTeam = base.homeTeam;
+        this.awayTeam = base.awayTeam;
+        this.ptsHome = base.ptsHome;
+        this.ptsAway = base.ptsAway;
+        this.homeWin = base.homeWin;
+        this.fgPctHome = base.fgPctHome;
+        this.fgPctAway = base.fgPctAway;
+        this.rebHome = base.rebHome;
+        this.rebAway = base.rebAway;
+        this.astHome = base.astHome;
+        this.astAway = base.astAway;
+        this.tovHome = base.tovHome;
+        this.tovAway = base.tovAway;
+        this.teamIds = base.teamIds;
+        this.playByPlay = playByPlay;
+    }
+
+    /** This table with {@code stats}, which must be aligned to its rows, joined in. */
+    public GameTable withPlayByPlay(PlayByPlayStats stats) {
+        if (stats.size() != size) {
+            throw new IllegalArgumentException("Play-by-play stats for " + stats.size()
+                    + " rows cannot join a table of " + size);
+        }
+        return new GameTable(this, stats);
+    }
+
+    /** Per-game play-by-play aggregates aligned to the rows, or null if none were joined. */
+    public PlayByPlayStats getPlayByPlay() {
+        return playByPlay;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Rows {@code from} to the end as a table of their own, teams re-interned in order of
+     * first appearance and any joined play-by-play aggregates kept. Costs time proportional
+     * to the rows taken.
+     */
+    public GameTable slice(int from) {
+        Builder b = new Builder(size - from);
+        for (int row = from; row < size; row++) {
+            b.addGame(gameId[row], gameDay[row], b.internTeam(teamIds[homeTeam[row]]),
+                    b.internTeam(teamIds[awayTeam[row]]), ptsHome[row], ptsAway[row], homeWin.get(row),
+                    fgPctHome[row], fgPctAway[row], rebHome[row], rebAway[row],
+                    astHome[row], astAway[row], tovHome[row], tovAway[row]);
+        }
+        GameTable slice = b.build();
+        return playByPlay == null ? slice : slice.withPlayByPlay(playByPlay.slice(from, size));
+    }
+
+    /**
+     * Order-sensitive hash of rows {@code from} (inclusive) to {@code to}, continuing from
+     * {@code seed}: digest(digest(s, 0, k), k, n) == digest(s, 0, n), so a digest of the rows
+     * seen so far can be extended with new rows alone. Teams are hashed by source id, so
+     * tables that intern them differently still agree. Joined play-by-play aggregates are
+     * part of a row.
+     */
+    public long digest(long seed, int from, int to) {
+        long h = seed;
+        for (int row = from; row < to; row++) {
+            long r = gameId[row];
+            r = r * 31 + gameDay[row];
+            r = r * 31 + teamIds[homeTeam[row]].hashCode();
+            r = r * 31 + teamIds[awayTeam[row]].hashCode();
+            r = r * 31 + ptsHome[row];
+            r = r * 31 + ptsAway[row];
+            r = r * 31 + (homeWin.get(row) ? 1 : 0);
+            r = r * 31 + Float.floatToIntBits(fgPctHome[row]);
+            r = r * 31 + Float.floatToIntBits(fgPctAway[row]);
+            r = r * 31 + Float.floatToIntBits(rebHome[row]);
+            r = r * 31 + Float.floatToIntBits(rebAway[row]);
+            r = r * 31 + Float.floatToIntBits(astHome[row]);
+            r = r * 31 + Float.floatToIntBits(astAway[row]);
+            r = r * 31 + Float.floatToIntBits(tovHome[row]);
+            r = r * 31 + Float.floatToIntBits(tovAway[row]);
+            if (playByPlay != null && playByPlay.has(row)) {
+                r = r * 31 + Double.hashCode(playByPlay.getPace(row));
+                r = r * 31 + Double.hashCode(playByPlay.getClutchPointsHome(row));
+                r = r * 31 + Double.hashCode(playByPlay.getClutchPointsAway(row));
+                r = r * 31 + playByPlay.getLeadChanges(row);
+                r = r * 31 + Double.hashCode(playByPlay.getLargestLeadHome(row));
+                r = r * 31 + Double.hashCode(playByPlay.getLargestLeadAway(row));
+            }
+            h = (h ^ r) * 0x9E3779B97F4A7C15L;
+            h ^= h >>> 29;
+        }
+        return h;
+    }
+
+    public int getTeamCount() {
+        return teamIds.length;
+    }
+
+    public String getTeamId(int teamIndex) {
+        return teamIds[teamIndex];
+    }
+
+    /** Numeric game_id of a row, or {@link #NO_GAME_ID}. */
+    public long getGameId(int row) {
+        return gameId[row];
+    }
+
+    public int getGameDay(int row) {
+        return gameDay[row];
+    }
+
+    public LocalDate getGameDate(int row) {
+        return LocalDate.ofEpochDay(gameDay[row]);
+    }
+
+    public int getHomeTeam(int row) {
+        return homeTeam[row];
+    }
+
+    public int getAwayTeam(int row) {
+        return awayTeam[row];
+    }
+
+    public int getPtsHome(int row) {
+        return ptsHome[row];
+    }
+
+    public int getPtsAway(int row) {
+        return ptsAway[row];
+    }
+
+    public boolean isHomeWin(int row) {
+        return homeWin.get(row);
+    }
+
+    public double getFgPctHome(int row) {
+        return fgPctHome[row];
+    }
+
+    public double getFgPctAway(int row) {
+        return fgPctAway[row];
+    }
+
+    public double getRebHome(int row) {
+        return rebHome[row];
+    }
+
+    public double getRebAway(int row) {
+        return rebAway[row];
+    }
+
+    public double getAstHome(int row) {
+        return astHome[row];
+    }
+
+    public double getAstAway(int row) {
+        return astAway[row];
+    }
+
+    public double getTovHome(int row) {
+        return tovHome[row];
+    }
+
+    public double getTovAway(int row) {
+        return tovAway[row];
+    }
+
+    /**
+     * Parses the leading "yyyy-MM-dd" of a game_date value (optionally followed by a space
+     * and a time) into epoch days, or returns {@link #NO_DATE} if it is not a valid date.
+     */
+    static int parseEpochDay(String value) {
+        if (value == null || value.length() < 10 || (value.length() > 10 && value.charAt(10) != ' ')
+                || value.charAt(4) != '-' || value.charAt(7) != '-') {
+            return NO_DATE;
+        }
+        int year = digits(value, 0, 4);
+        int month = digits(value, 5, 2);
+        int dayOfMonth = digits(value, 8, 2);
+        if (year < 0 || month < 1 || month > 12 || dayOfMonth < 1 || dayOfMonth > daysInMonth(year, month)) {
+            return NO_DATE;
+        }
+        return epochDay(year, month, dayOfMonth);
+    }
+
+    /**
+     * Numeric value of a game_id such as "0021900001", or {@link #NO_GAME_ID} if it is
+     * missing or not all digits. Ids of equal width order the same as their strings.
+     */
+    static long parseGameId(String value) {
+        if (value == null || value.isEmpty() || value.length() > 18) {
+            return NO_GAME_ID;
+        }
+        long id = 0;
+        for (int i = 0; i < value.length(); i++) {
+            int d = value.charAt(i) - '0';
+            if (d < 0 || d > 9) {
+                return NO_GAME_ID;
+            }
+            id = id * 10 + d;
+        }
+        return id;
+    }
+
+    private static int digits(String value, int start, int count) {
+        int result = 0;
+        for (int i = start; i < start + count; i++) {
+            int d = value.charAt(i) - '0';
+            if (d < 0 || d > 9) {
+                return -1;
+            }
+            result = result * 10 + d;
+        }
+        return result;
+    }
+
+    static int daysInMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                boolean leap = (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+                return leap ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    // Days-from-civil (proleptic Gregorian), equal to LocalDate.of(y, m, d).toEpochDay().
+    static int epochDay(int year, int month, int dayOfMonth) {
+        int y = month <= 2 ? year - 1 : year;
+        int era = y / 400;
+        int yoe = y - era * 400;
+        int doy = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + dayOfMonth - 1;
+        int doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+        return era * 146097 + doe - 719468;
+    }
+
+    private static long[] permute(long[] src, int[] order) {
+        if (order == null) {
+            return src;
+        }
+        long[] dst = new long[order.length];
+        for (int i = 0; i < order.length; i++) {
+            dst[i] = src[order[i]];
+        }
+        return dst;
+    }
+
+    private static int[] permute(int[] src, int[] order) {
+        if (order == null) {
+            return src;
+        }
+        int[] dst = new int[order.length];
+        for (int i = 0; i < order.length; i++) {
+            dst[i] = src[order[i]];
+        }
+        return dst;
+    }
+
+    private static short[] permute(short[] src, int[] order) {
+        if (order == null) {
+            return src;
+        }
+        short[] dst = new short[order.length];
+        for (int i = 0; i < order.length; i++) {
+            dst[i] = src[order[i]];
+        }
+        return dst;
+    }
+
+    private static float[] permute(float[] src, int[] order) {
+        if (order == null) {
+            return src;
+        }
+        float[] dst = new float[order.length];
+        for (int i = 0; i < order.length; i++) {
+            dst[i] = src[order[i]];
+        }
+        return dst;
+    }
+
+    /**
+     * Accumulates rows in load order and produces a chronologically sorted table.
+     * Columns grow geometrically, so the expected row count is only a hint.
+     */
+    public static class Builder {
+        private int size;
+        private long[] gameId;
+        private int[] gameDay;
+        private int[] homeTeam;
+        private int[] awayTeam;
+        private short[] ptsHome;
+        private short[] ptsAway;
+        private final BitSet homeWin = new BitSet();
+        private float[] fgPctHome;
+        private float[] fgPctAway;
+        private float[] rebHome;
+        private float[] rebAway;
+        private float[] astHome;
+        private float[] astAway;
+        private float[] tovHome;
+        private float[] tovAway;
+        private final Map<String, Integer> teamIndex = new HashMap<>();
+        private final List<String> teamIds = new ArrayList<>();
+
+        public Builder() {
+            this(1024);
+        }
+
+        public Builder(int expectedRows) {
+            int capacity = Math.max(16, expectedRows);
+            gameId = new long[capacity];
+            gameDay = new int[capacity];
+            homeTeam = new int[capacity];
+            awayTeam = new int[capacity];
+            ptsHome = new short[capacity];
+            ptsAway = new short[capacity];
+            fgPctHome = new float[capacity];
+            fgPctAway = new float[capacity];
+            rebHome = new float[capacity];
+            rebAway = new float[capacity];
+            astHome = new float[capacity];
+            astAway = new float[capacity];
+            tovHome = new float[capacity];
+            tovAway = new float[capacity];
+        }
+
+        /**
+         * Parses a CSV-bound row once. Rows without a parseable game date are dropped,
+         * matching the filter the loader has always applied.
+         */
+        public boolean addGame(RawGame game) {
+            LocalDate date = game.getGameDate();
+            if (date == null) {
+                return false;
+            }
+            addGame(game.getGameId(), (int) date.toEpochDay(),
+                    internTeam(game.getTeamIdHome()), internTeam(game.getTeamIdAway()),
+                    game.getPtsHome(), game.getPtsAway(), game.isHomeWin(),
+                    game.getFgPctHome(), game.getFgPctAway(),
+                    game.getRebHome(), game.getRebAway(),
+                    game.getAstHome(), game.getAstAway(),
+                    game.getTovHome(), game.getTovAway());
+            return true;
+        }
+
+        public void addGame(int day, String teamIdHome, String teamIdAway,
+                            int ptsH, int ptsA, boolean won,
+                            double fgPctH, double fgPctA, double rebH, double rebA,
+                            double astH, double astA, double tovH, double tovA) {
+            addGame(day, internTeam(teamIdHome), internTeam(teamIdAway), ptsH, ptsA, won,
+                    fgPctH, fgPctA, rebH, rebA, astH, astA, tovH, tovA);
+        }
+
+        /** Appends a row whose teams were already interned via {@link #internTeam}. */
+        void addGame(int day, int homeIdx, int awayIdx,
+                     int ptsH, int ptsA, boolean won,
+                     double fgPctH, double fgPctA, double rebH, double rebA,
+                     double astH, double astA, double tovH, double tovA) {
+            addGame(NO_GAME_ID, day, homeIdx, awayIdx, ptsH, ptsA, won,
+                    fgPctH, fgPctA, rebH, rebA, astH, astA, tovH, tovA);
+        }
+
+        /** As above, for a source that carries game ids. */
+        void addGame(long id, int day, int homeIdx, int awayIdx,
+                     int ptsH, int ptsA, boolean won,
+                     double fgPctH, double fgPctA, double rebH, double rebA,
+                     double astH, double astA, double tovH, double tovA) {
+            ensureCapacity(size + 1);
+            int row = size++;
+            gameId[row] = id;
+            gameDay[row] = day;
+            homeTeam[row] = homeIdx;
+            awayTeam[row] = awayIdx;
+            ptsHome[row] = (short) ptsH;
+            ptsAway[row] = (short) ptsA;
+            if (won) {
+                homeWin.set(row);
+            }
+            fgPctHome[row] = (float) fgPctH;
+            fgPctAway[row] = (float) fgPctA;
+            rebHome[row] = (float) rebH;
+            rebAway[row] = (float) rebA;
+            astHome[row] = (float) astH;
+            astAway[row] = (float) astA;
+            tovHome[row] = (float) tovH;
+            tovAway[row] = (float) tovA;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        /**
+         * Appends every row of {@code other} after the rows of this builder, remapping its
+         * team indices into this builder's dictionary. Used to stitch together chunks that
+         * were parsed independently.
+         */
+        public void appendAll(Builder other) {
+            int[] remap = new int[other.teamIds.size()];
+            for (int t = 0; t < remap.length; t++) {
+                remap[t] = internTeam(other.teamIds.get(t));
+            }
+            ensureCapacity(size + other.size);
+            int base = size;
+            System.arraycopy(other.gameId, 0, gameId, base, other.size);
+            for (int i = 0; i < other.size; i++) {
+                gameDay[base + i] = other.gameDay[i];
+                homeTeam[base + i] = remap[other.homeTeam[i]];
+                awayTeam[base + i] = remap[other.awayTeam[i]];
+            }
+            System.arraycopy(other.ptsHome, 0, ptsHome, base, other.size);
+            System.arraycopy(other.ptsAway, 0, ptsAway, base, other.size);
+            System.arraycopy(other.fgPctHome, 0, fgPctHome, base, other.size);
+            System.arraycopy(other.fgPctAway, 0, fgPctAway, base, other.size);
+            System.arraycopy(other.rebHome, 0, rebHome, base, other.size);
+            System.arraycopy(other.rebAway, 0, rebAway, base, other.size);
+            System.arraycopy(other.astHome, 0, astHome, base, other.size);
+            System.arraycopy(other.astAway, 0, astAway, base, other.size);
+            System.arraycopy(other.tovHome, 0, tovHome, base, other.size);
+            System.arraycopy(other.tovAway, 0, tovAway, base, other.size);
+            for (int i = other.homeWin.nextSetBit(0); i >= 0 && i < other.size; i = other.homeWin.nextSetBit(i + 1)) {
+                homeWin.set(base + i);
+            }
+            size += other.size;
+        }
+
+        public int internTeam(String teamId) {
+            Integer idx = teamIndex.get(teamId);
+            if (idx == null) {
+                idx = teamIds.size();
+                teamIndex.put(teamId, idx);
+                teamIds.add(teamId);
+            }
+            return idx;
+        }
+
+        /**
+         * Builds the table, sorting rows by game day. The sort is skipped entirely when
+         * rows already arrived in chronological order (e.g. SQL ORDER BY game_date).
+         */
+        public GameTable build() {
+            trim();
+            int[] order = null;
+            if (!isChronological()) {
+                // Pack (day, row) into one long so a primitive sort is also stable.
+                long[] keys = new long[size];
+                for (int i = 0; i < size; i++) {
+                    keys[i] = ((long) gameDay[i] << 32) | i;
+                }
+                Arrays.sort(keys);
+                order = new int[size];
+                for (int i = 0; i < size; i++) {
+                    order[i] = (int) keys[i];
+                }
+            }
+            return new GameTable(this, order);
+        }
+
+        private boolean isChronological() {
+            for (int i = 1; i < size; i++) {
+                if (gameDay[i] < gameDay[i - 1]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void ensureCapacity(int required) {
+            if (required <= gameDay.length) {
+                return;
+            }
+            resize(Math.max(required, gameDay.length + (gameDay.length >> 1)));
+        }
+
+        private void trim() {
+            if (size != gameDay.length) {
+                resize(size);
+            }
+        }
+
+        private void resize(int capacity) {
+            gameId = Arrays.copyOf(gameId, capacity);
+            gameDay = Arrays.copyOf(gameDay, capacity);
+            homeTeam = Arrays.copyOf(homeTeam, capacity);
+            awayTeam = Arrays.copyOf(awayTeam, capacity);
+            ptsHome = Arrays.copyOf(ptsHome, capacity);
+            ptsAway = Arrays.copyOf(ptsAway, capacity);
+            fgPctHome = Arrays.copyOf(fgPctHome, capacity);
+            fgPctAway = Arrays.copyOf(fgPctAway, capacity);
+            rebHome = Arrays.copyOf(rebHome, capacity);
+            rebAway = Arrays.copyOf(rebAway, capacity);
+            astHome = Arrays.copyOf(astHome, capacity);
+            astAway = Arrays.copyOf(astAway, capacity);
+            tovHome = Arrays.copyOf(tovHome, capacity);
+            tovAway = Arrays.copyOf(tovAway, capacity);
+        }
+    }
+}
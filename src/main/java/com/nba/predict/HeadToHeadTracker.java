@@ -0,0 +1,222 @@
+package com.nba.predict;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Last-N meeting results for every pair of teams, indexed by dense team indices in a
+ * 2-D slot table with one array per row. Each pair's history is a bit-packed shift
+ * register with a running win count, so reads and updates are O(1) and allocate nothing.
+ *
+ * By default the home and away directions are tracked separately (A hosting B is a
+ * different pair from B hosting A). In symmetric mode both venues share one history and
+ * rates are reported from the perspective of the team asked about.
+ *
+ * A {@link #sharingRows} copy starts out sharing every row with its source and copies a
+ * row the first time it records a meeting in it, so a writer can advance a copy of a
+ * tracker that readers still use while copying only the rows it touches.
+ */
+public class HeadToHeadTracker {
+    public static final int DEFAULT_MEETINGS = 10;
+
+    private final int maxMeetings;
+    private final long windowMask;
+    private final boolean symmetric;
+    private int teamCapacity;
+    // Per row (the pair's first team) and column (the other team): bit 0 is the most recent
+    // meeting, set when the first team won.
+    private long[][] outcomes;
+    private byte[][] meetings;
+    private byte[][] wins;
+    private boolean[] sharedRows; // rows still owned by the tracker this was copied from; null if none
+
+    public HeadToHeadTracker(int teamCount) {
+        this(teamCount, DEFAULT_MEETINGS, false);
+    }
+
+    public HeadToHeadTracker(int teamCount, int maxMeetings, boolean symmetric) {
+        if (maxMeetings < 1 || maxMeetings > Long.SIZE) {
+            throw new IllegalArgumentException("maxMeetings must be in [1, 64]: " + maxMeetings);
+        }
+        this.maxMeetings = maxMeetings;
+        this.windowMask = maxMeetings == Long.SIZE ? -1L : (1L << maxMeetings) - 1;
+        this.symmetric = symmetric;
+        this.teamCapacity = Math.max(1, teamCount);
+        this.outcomes = new long[teamCapacity][teamCapacity];
+        this.meetings = new byte[teamCapacity][teamCapacity];
+        this.wins = new byte[teamCapacity][teamCapacity];
+    }
+
+    /** Independent copy of {@code other}. */
+    public HeadToHeadTracker(HeadToHeadTracker other) {
+        this(other, false);
+        for (int row = 0; row < teamCapacity; row++) {
+            outcomes[row] = outcomes[row].clone();
+            meetings[row] = meetings[row].clone();
+            wins[row] = wins[row].clone();
+        }
+    }
+
+    private HeadToHeadTracker(HeadToHeadTracker other, boolean shareRows) {
+        this.maxMeetings = other.maxMeetings;
+        this.windowMask = other.windowMask;
+        this.symmetric = other.symmetric;
+        this.teamCapacity = other.teamCapacity;
+        this.outcomes = other.outcomes.clone();
+        this.meetings = other.meetings.clone();
+        this.wins = other.wins.clone();
+        if (shareRows) {
+            this.sharedRows = new boolean[teamCapacity];
+            Arrays.fill(sharedRows, true);
+        }
+    }
+
+    /**
+     * Copy that shares its rows with this tracker until it records a meeting in them. This
+     * tracker must not record any more meetings while the copy is in use.
+     */
+    HeadToHeadTracker sharingRows() {
+        return new HeadToHeadTracker(this, true);
+    }
+
+    /** Fraction of the recorded meetings won by {@code home}; 0.0 if they have never met. */
+    public double getWinRate(int home, int away) {
+        if (home >= teamCapacity || away >= teamCapacity) {
+            return 0.0;
+        }
+        int row = row(home, away);
+        int column = column(home, away);
+        int n = meetings[row][column];
+        if (n == 0) {
+            return 0.0;
+        }
+        int firstTeamWins = wins[row][column];
+        int homeWins = isFirstTeam(home, away) ? firstTeamWins : n - firstTeamWins;
+        return (double) homeWins / n;
+    }
+
+    public int getMeetings(int home, int away) {
+        if (home >= teamCapacity || away >= teamCapacity) {
+            return 0;
+        }
+        return meetings[row(home, away)][column(home, away)];
+    }
+
+    public void recordMeeting(int home, int away, boolean homeWon) {
+        ensureCapacity(Math.max(home, away) + 1);
+        int row = row(home, away);
+        int column = column(home, away);
+        if (sharedRows != null && sharedRows[row]) {
+            outcomes[row] = outcomes[row].clone();
+            meetings[row] = meetings[row].clone();
+            wins[row] = wins[row].clone();
+            sharedRows[row] = false;
+        }
+        boolean firstTeamWon = isFirstTeam(home, away) == homeWon;
+        long history = outcomes[row][column];
+        if (meetings[row][column] == maxMeetings) {
+            // The oldest result drops off the end of the window.
+            wins[row][column] -= (byte) ((history >>> (maxMeetings - 1)) & 1L);
+        } else {
+            meetings[row][column]++;
+        }
+        outcomes[row][column] = ((history << 1) | (firstTeamWon ? 1L : 0L)) & windowMask;
+        if (firstTeamWon) {
+            wins[row][column]++;
+        }
+    }
+
+    public boolean isSymmetric() {
+        return symmetric;
+    }
+
+    public int getMaxMeetings() {
+        return maxMeetings;
+    }
+
+    private int row(int home, int away) {
+        return symmetric && home > away ? away : home;
+    }
+
+    private int column(int home, int away) {
+        return symmetric && home > away ? home : away;
+    }
+
+    private boolean isFirstTeam(int home, int away) {
+        return !symmetric || home <= away;
+    }
+
+    /**
+     * Pre-sizes the slot table for team indices below {@code teams}. Once reserved, updates
+     * to distinct pairs touch disjoint slots and never reallocate, so pairs may be replayed
+     * concurrently as long as each pair is owned by a single thread.
+     */
+    void reserve(int teams) {
+        ensureCapacity(teams);
+    }
+
+    private void ensureCapacity(int teams) {
+        if (teams <= teamCapacity) {
+            return;
+        }
+        int newCapacity = Math.max(teams, teamCapacity + (teamCapacity >> 1));
+        long[][] newOutcomes = new long[newCapacity][];
+        byte[][] newMeetings = new byte[newCapacity][];
+        byte[][] newWins = new byte[newCapacity][];
+        // Every row is reallocated, so none stays shared.
+        for (int row = 0; row < newCapacity; row++) {
+            newOutcomes[row] = row < teamCapacity ? Arrays.copyOf(outcomes[row], newCapacity) : new long[newCapacity];
+            newMeetings[row] = row < teamCapacity ? Arrays.copyOf(meetings[row], newCapacity) : new byte[newCapacity];
+            newWins[row] = row < teamCapacity ? Arrays.copyOf(wins[row], newCapacity) : new byte[newCapacity];
+        }
+        teamCapacity = newCapacity;
+        outcomes = newOutcomes;
+        meetings = newMeetings;
+        wins = newWins;
+        sharedRows = null;
+    }
+
+    /** Writes only the pairs that have met, so sparse franchise history stays small. */
+    void writeTo(DataOutput out) throws IOException {
+        out.writeInt(maxMeetings);
+        out.writeBoolean(symmetric);
+        out.writeInt(teamCapacity);
+        int used = 0;
+        for (byte[] row : meetings) {
+            for (byte m : row) {
+                if (m != 0) {
+                    used++;
+                }
+            }
+        }
+        out.writeInt(used);
+        for (int row = 0; row < teamCapacity; row++) {
+            for (int column = 0; column < teamCapacity; column++) {
+                if (meetings[row][column] != 0) {
+                    out.writeInt(row * teamCapacity + column);
+                    out.writeLong(outcomes[row][column]);
+                    out.writeByte(meetings[row][column]);
+                    out.writeByte(wins[row][column]);
+                }
+            }
+        }
+    }
+
+    static HeadToHeadTracker readFrom(DataInput in) throws IOException {
+        int maxMeetings = in.readInt();
+        boolean symmetric = in.readBoolean();
+        HeadToHeadTracker tracker = new HeadToHeadTracker(in.readInt(), maxMeetings, symmetric);
+        int used = in.readInt();
+        for (int i = 0; i < used; i++) {
+            int slot = in.readInt();
+            int row = slot / tracker.teamCapacity;
+            int column = slot % tracker.teamCapacity;
+            tracker.outcomes[row][column] = in.readLong();
+            tracker.meetings[row][column] = in.readByte();
+            tracker.wins[row][column] = in.readByte();
+        }
+        return tracker;
+    }
+}
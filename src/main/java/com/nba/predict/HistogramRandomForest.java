@@ -0,0 +1,589 @@
+package com.nba.predict;
+
+import weka.classifiers.AbstractClassifier;
+import weka.core.Capabilities;
+import weka.core.Instance;
+import weka.core.Instances;
+
+import java.io.Serializable;
+import java.nio.DoubleBuffer;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.stream.IntStream;
+
+/**
+ * Random forest for a binary LOSS/WIN class over numeric features, trained on primitive
+ * arrays rather than Weka instances.
+ *
+ * Each feature column is quantized once per fit into at most {@link #MAX_BINS} byte bins
+ * (cut points between distinct values, or at quantiles when there are more values than
+ * bins). Split search then builds a per-bin histogram of the node's rows and sweeps it,
+ * instead of sorting. Every tree draws its bootstrap sample as per-row counts from its own
+ * {@link SplittableRandom}, so no rows are copied, and trees grow in parallel on a
+ * {@link ForkJoinPool}; large nodes can optionally fork their subtrees too. Random streams
+ * are split at fixed points, so the fitted forest depends only on the seed, never on the
+ * thread count or on node parallelism.
+ *
+ * Interrupting the thread that called fit stops the fit before the next tree starts, with a
+ * {@link CancellationException}; the interrupt status is left set.
+ *
+ * Defaults mirror Weka's RandomForest: 100 fully grown trees, log2(features) + 1 candidate
+ * features per split. Being a Weka classifier, it drops into {@link ParallelCrossValidator},
+ * {@link ModelStore} and the prediction server unchanged.
+ */
+public class HistogramRandomForest extends AbstractClassifier {
+    private static final long serialVersionUID = 1L;
+
+    public static final int MAX_BINS = 256;
+    /** Nodes smaller than this grow their subtrees on the current thread. */
+    private static final int PARALLEL_NODE_ROWS = 4096;
+    private static final double MIN_GAIN = 1e-12;
+
+    private int numTrees = 100;
+    private int numFeaturesPerSplit = 0;
+    private int maxBins = MAX_BINS;
+    private int minLeafWeight = 1;
+    private int maxDepth = 0;
+    private int bagSizePercent = 100;
+    private long seed = 1;
+    private int numThreads = 1;
+    private boolean parallelNodes = false;
+
+    private int[] featureAttributes;
+    private int winIndex;
+    private Tree[] trees;
+
+    public int getNumTrees() {
+        return numTrees;
+    }
+
+    public void setNumTrees(int numTrees) {
+        this.numTrees = numTrees;
+    }
+
+    /** Candidate features per split; 0 means log2(features) + 1. */
+    public int getNumFeaturesPerSplit() {
+        return numFeaturesPerSplit;
+    }
+
+    public void setNumFeaturesPerSplit(int numFeaturesPerSplit) {
+        this.numFeaturesPerSplit = numFeaturesPerSplit;
+    }
+
+    public int getMaxBins() {
+        return maxBins;
+    }
+
+    public void setMaxBins(int maxBins) {
+        if (maxBins < 2 || maxBins > MAX_BINS) {
+            throw new IllegalArgumentException("maxBins must be between 2 and " + MAX_BINS + ": " + maxBins);
+        }
+        this.maxBins = maxBins;
+    }
+
+    /** Smallest bootstrap weight allowed on either side of a split. */
+    public int getMinLeafWeight() {
+        return minLeafWeight;
+    }
+
+    public void setMinLeafWeight(int minLeafWeight) {
+        this.minLeafWeight = Math.max(1, minLeafWeight);
+    }
+
+    /** Maximum tree depth; 0 grows trees until leaves are pure. */
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    public void setMaxDepth(int maxDepth) {
+        this.maxDepth = maxDepth;
+    }
+
+    /** Bootstrap sample size as a percentage of the training rows. */
+    public int getBagSizePercent() {
+        return bagSizePercent;
+    }
+
+    public void setBagSizePercent(int bagSizePercent) {
+        if (bagSizePercent < 1) {
+            throw new IllegalArgumentException("bagSizePercent must be positive: " + bagSizePercent);
+        }
+        this.bagSizePercent = bagSizePercent;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    public int getNumThreads() {
+        return numThreads;
+    }
+
+    public void setNumThreads(int numThreads) {
+        this.numThreads = Math.max(1, numThreads);
+    }
+
+    public boolean isParallelNodes() {
+        return parallelNodes;
+    }
+
+    /** Also fork the subtrees of large nodes, for forests with fewer trees than threads. */
+    public void setParallelNodes(boolean parallelNodes) {
+        this.parallelNodes = parallelNodes;
+    }
+
+    @Override
+    public Capabilities getCapabilities() {
+        Capabilities result = super.getCapabilities();
+        result.disableAll();
+        result.enable(Capabilities.Capability.NUMERIC_ATTRIBUTES);
+        result.enable(Capabilities.Capability.MISSING_VALUES);
+        result.enable(Capabilities.Capability.BINARY_CLASS);
+        return result;
+    }
+
+    @Override
+    public void buildClassifier(Instances data) throws Exception {
+        getCapabilities().testWithFail(data);
+        int n = data.numInstances();
+        int classIndex = data.classIndex();
+        winIndex = data.classAttribute().indexOfValue("WIN");
+        if (winIndex < 0) {
+            throw new IllegalArgumentException("Class attribute has no WIN value");
+        }
+        featureAttributes = new int[data.numAttributes() - 1];
+        for (int a = 0, j = 0; a < data.numAttributes(); a++) {
+            if (a != classIndex) {
+                featureAttributes[j++] = a;
+            }
+        }
+        double[][] columns = new double[featureAttributes.length][n];
+        boolean[] wins = new boolean[n];
+        for (int i = 0; i < n; i++) {
+            Instance instance = data.instance(i);
+            for (int j = 0; j < featureAttributes.length; j++) {
+                columns[j][i] = instance.value(featureAttributes[j]);
+            }
+            wins[i] = !instance.classIsMissing() && (int) instance.classValue() == winIndex;
+        }
+        fit(columns, wins);
+    }
+
+    /**
+     * Fits on a row-major matrix with {@code numFeatures} features and a trailing 0/1 label
+     * column, such as {@link FeaturePipeline.FeatureData#getTrainMatrix()}.
+     */
+    public void fit(DoubleBuffer matrix, int numFeatures) {
+        int width = numFeatures + 1;
+        int n = matrix.limit() / width;
+        double[][] columns = new double[numFeatures][n];
+        boolean[] wins = new boolean[n];
+        for (int i = 0; i < n; i++) {
+            int off = i * width;
+            for (int j = 0; j < numFeatures; j++) {
+                columns[j][i] = matrix.get(off + j);
+            }
+            wins[i] = matrix.get(off + numFeatures) == 1.0;
+        }
+        featureAttributes = new int[numFeatures];
+        for (int j = 0; j < numFeatures; j++) {
+            featureAttributes[j] = j;
+        }
+        winIndex = 1;
+        fit(columns, wins);
+    }
+
+    private void fit(double[][] columns, boolean[] wins) {
+        int d = columns.length;
+        int n = wins.length;
+        if (n == 0) {
+            throw new IllegalArgumentException("No training rows");
+        }
+        double[][] thresholds = new double[d][];
+        byte[][] bins = new byte[d][];
+        for (int j = 0; j < d; j++) {
+            thresholds[j] = cutPoints(columns[j], maxBins);
+            bins[j] = quantize(columns[j], thresholds[j]);
+        }
+        int k = numFeaturesPerSplit > 0 ? Math.min(numFeaturesPerSplit, d)
+                : Math.min(d, (int) (Math.log(d) / Math.log(2)) + 1);
+        Grower grower = new Grower(bins, thresholds, wins, k);
+
+        // One stream per tree, split off up front in tree order.
+        SplittableRandom master = new SplittableRandom(seed);
+        SplittableRandom[] randoms = new SplittableRandom[numTrees];
+        for (int t = 0; t < numTrees; t++) {
+            randoms[t] = master.split();
+        }
+        Tree[] grown = new Tree[numTrees];
+        // Workers poll the caller's flag, since an interrupt reaches only the caller.
+        Thread caller = Thread.currentThread();
+        if (numThreads == 1) {
+            for (int t = 0; t < numTrees && !caller.isInterrupted(); t++) {
+                grown[t] = grower.grow(randoms[t], false);
+            }
+        } else {
+            ForkJoinPool pool = new ForkJoinPool(numThreads);
+            try {
+                pool.submit(() -> IntStream.range(0, numTrees).parallel().forEach(t -> {
+                    if (!caller.isInterrupted()) {
+                        grown[t] = grower.grow(randoms[t], parallelNodes);
+                    }
+                })).join();
+            } finally {
+                pool.shutdown();
+            }
+        }
+        if (caller.isInterrupted()) {
+            throw new CancellationException("Forest training interrupted");
+        }
+        trees = grown;
+    }
+
+    /** Averaged leaf probability of WIN over all trees, for features in training order. */
+    public double predictHomeWin(double[] features) {
+        if (trees == null) {
+            throw new IllegalStateException("Forest has not been trained");
+        }
+        double sum = 0;
+        for (Tree tree : trees) {
+            sum += tree.predict(features);
+        }
+        return sum / trees.length;
+    }
+
+    @Override
+    public double[] distributionForInstance(Instance instance) {
+        double[] features = new double[featureAttributes.length];
+        for (int j = 0; j < features.length; j++) {
+            features[j] = instance.value(featureAttributes[j]);
+        }
+        double p = predictHomeWin(features);
+        double[] dist = new double[2];
+        dist[winIndex] = p;
+        dist[1 - winIndex] = 1 - p;
+        return dist;
+    }
+
+    @Override
+    public String toString() {
+        return trees == null ? "HistogramRandomForest: not trained"
+                : "HistogramRandomForest: " + trees.length + " trees, " + featureAttributes.length + " features";
+    }
+
+    /**
+     * Split candidates for one column: midpoints between consecutive distinct values, or
+     * values at evenly spaced quantiles when there are more distinct values than bins.
+     * A value goes to bin {@code b} when it is above cut {@code b - 1} and at most cut
+     * {@code b}; NaN goes to the last bin.
+     */
+    static double[] cutPoints(double[] column, int maxBins) {
+        double[] sorted = column.clone();
+        Arrays.sort(sorted);
+        int n = sorted.length;
+        while (n > 0 && Double.isNaN(sorted[n - 1])) {
+            n--;
+        }
+        int distinct = 0;
+        for (int i = 0; i < n; i++) {
+            if (i == 0 || sorted[i] != sorted[i - 1]) {
+                sorted[distinct++] = sorted[i];
+            }
+        }
+        if (distinct <= maxBins) {
+            double[] cuts = new double[Math.max(0, distinct - 1)];
+            for (int i = 0; i < cuts.length; i++) {
+                cuts[i] = (sorted[i] + sorted[i + 1]) / 2;
+            }
+            return cuts;
+        }
+        // Quantiles over all values, so dense regions get more cuts.
+        double[] values = column.clone();
+        Arrays.sort(values);
+        double[] cuts = new double[maxBins - 1];
+        int count = 0;
+        for (int b = 1; b < maxBins; b++) {
+            double cut = values[(int) ((long) b * n / maxBins)];
+            if (count == 0 || cut > cuts[count - 1]) {
+                cuts[count++] = cut;
+            }
+        }
+        return Arrays.copyOf(cuts, count);
+    }
+
+    private static byte[] quantize(double[] column, double[] cuts) {
+        byte[] out = new byte[column.length];
+        for (int i = 0; i < column.length; i++) {
+            out[i] = (byte) bin(column[i], cuts);
+        }
+        return out;
+    }
+
+    /** Index of the first cut {@code >= x}, or the number of cuts if there is none. */
+    private static int bin(double x, double[] cuts) {
+        int lo = 0;
+        int hi = cuts.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (x <= cuts[mid]) {
+                hi = mid;
+            } else {
+                lo = mid + 1;
+            }
+        }
+        return lo;
+    }
+
+    /** Training state shared by all trees of one fit; read-only once built. */
+    private final class Grower {
+        final byte[][] bins;
+        final double[][] thresholds;
+        final boolean[] wins;
+        final int candidates;
+
+        Grower(byte[][] bins, double[][] thresholds, boolean[] wins, int candidates) {
+            this.bins = bins;
+            this.thresholds = thresholds;
+            this.wins = wins;
+            this.candidates = candidates;
+        }
+
+        Tree grow(SplittableRandom random, boolean forkNodes) {
+            int n = wins.length;
+            int[] weights = new int[n];
+            int draws = (int) Math.max(1, (long) n * bagSizePercent / 100);
+            for (int i = 0; i < draws; i++) {
+                weights[random.nextInt(n)]++;
+            }
+            // Bootstrap weight of each row that is a WIN, so histograms need no label branch.
+            int[] winWeights = new int[n];
+            int[] rows = new int[n];
+            int inBag = 0;
+            long positive = 0;
+            for (int i = 0; i < n; i++) {
+                if (weights[i] > 0) {
+                    rows[inBag++] = i;
+                    winWeights[i] = wins[i] ? weights[i] : 0;
+                    positive += winWeights[i];
+                }
+            }
+            NodeTask root = new NodeTask(rows, weights, winWeights, 0, inBag, draws, positive, 0, random, forkNodes);
+            Node node = forkNodes ? root.invoke() : root.compute();
+            return Tree.flatten(node);
+        }
+
+        /** Grows the subtree over {@code rows[from, to)}, partitioning that range in place. */
+        final class NodeTask extends RecursiveTask<Node> {
+            private static final long serialVersionUID = 1L;
+            final int[] rows;
+            final int[] weights;
+            final int[] winWeights;
+            final int from;
+            final int to;
+            final long total;
+            final long positive;
+            final int depth;
+            final SplittableRandom random;
+            final boolean forkNodes;
+
+            NodeTask(int[] rows, int[] weights, int[] winWeights, int from, int to, long total, long positive,
+                     int depth, SplittableRandom random, boolean forkNodes) {
+                this.rows = rows;
+                this.weights = weights;
+                this.winWeights = winWeights;
+                this.from = from;
+                this.to = to;
+                this.total = total;
+                this.positive = positive;
+                this.depth = depth;
+                this.random = random;
+                this.forkNodes = forkNodes;
+            }
+
+            @Override
+            protected Node compute() {
+                // hist is kept all-zero between uses; each feature clears what it touched.
+                return grow(new int[2 * MAX_BINS], new int[bins.length], from, to, total, positive, depth, random);
+            }
+
+            /** {@code total} and {@code positive} are the node's bootstrap weight and WIN weight. */
+            private Node grow(int[] hist, int[] order, int from, int to, long total, long positive,
+                              int depth, SplittableRandom random) {
+                double p = (double) positive / total;
+                if (positive == 0 || positive == total || total < 2L * minLeafWeight
+                        || (maxDepth > 0 && depth >= maxDepth)) {
+                    return Node.leaf(p);
+                }
+
+                // Try features in random order; like Weka's RandomTree, keep looking past
+                // the first k candidates until one of them gives a usable split.
+                int d = bins.length;
+                for (int j = 0; j < d; j++) {
+                    order[j] = j;
+                }
+                double parentImpurity = giniSum(positive, total);
+                double bestScore = parentImpurity - MIN_GAIN;
+                int bestFeature = -1;
+                int bestBin = -1;
+                long bestLeftTotal = 0;
+                long bestLeftPositive = 0;
+                for (int tried = 0; tried < d && (tried < candidates || bestFeature < 0); tried++) {
+                    int pick = tried + random.nextInt(d - tried);
+                    int f = order[pick];
+                    order[pick] = order[tried];
+                    order[tried] = f;
+
+                    // Only the bins this node's rows occupy are filled, swept and cleared, so
+                    // small deep nodes cost a few bins rather than the full histogram.
+                    byte[] column = bins[f];
+                    int lo = MAX_BINS;
+                    int hi = -1;
+                    for (int i = from; i < to; i++) {
+                        int row = rows[i];
+                        int b = column[row] & 0xFF;
+                        lo = Math.min(lo, b);
+                        hi = Math.max(hi, b);
+                        hist[2 * b] += weights[row];
+                        hist[2 * b + 1] += winWeights[row];
+                    }
+                    long leftTotal = 0;
+                    long leftPositive = 0;
+                    for (int b = lo; b < hi; b++) {
+                        leftTotal += hist[2 * b];
+                        leftPositive += hist[2 * b + 1];
+                        long rightTotal = total - leftTotal;
+                        if (leftTotal < minLeafWeight || hist[2 * b] == 0) {
+                            continue;
+                        }
+                        if (rightTotal < minLeafWeight) {
+                            break;
+                        }
+                        double score = giniSum(leftPositive, leftTotal)
+                                + giniSum(positive - leftPositive, rightTotal);
+                        if (score < bestScore) {
+                            bestScore = score;
+                            bestFeature = f;
+                            bestBin = b;
+                            bestLeftTotal = leftTotal;
+                            bestLeftPositive = leftPositive;
+                        }
+                    }
+                    Arrays.fill(hist, 2 * lo, 2 * hi + 2, 0);
+                }
+                if (bestFeature < 0) {
+                    return Node.leaf(p);
+                }
+
+                // Branch-free partition: every row is swapped, and mid only advances past rows
+                // that go left, so [from, mid) is left and [mid, i) is right throughout.
+                byte[] column = bins[bestFeature];
+                int mid = from;
+                for (int i = from; i < to; i++) {
+                    int row = rows[i];
+                    rows[i] = rows[mid];
+                    rows[mid] = row;
+                    mid += ((column[row] & 0xFF) - bestBin - 1) >>> 31;
+                }
+                long rightTotal = total - bestLeftTotal;
+                long rightPositive = positive - bestLeftPositive;
+                // The left child always gets a split-off stream, whichever thread grows it.
+                SplittableRandom leftRandom = random.split();
+                Node left;
+                Node right;
+                if (forkNodes && to - from >= PARALLEL_NODE_ROWS) {
+                    NodeTask leftTask = new NodeTask(rows, weights, winWeights, from, mid,
+                            bestLeftTotal, bestLeftPositive, depth + 1, leftRandom, true);
+                    leftTask.fork();
+                    right = grow(hist, order, mid, to, rightTotal, rightPositive, depth + 1, random);
+                    left = leftTask.join();
+                } else {
+                    left = grow(hist, order, from, mid, bestLeftTotal, bestLeftPositive, depth + 1, leftRandom);
+                    right = grow(hist, order, mid, to, rightTotal, rightPositive, depth + 1, random);
+                }
+                return Node.split(bestFeature, thresholds[bestFeature][bestBin], left, right);
+            }
+        }
+    }
+
+    /** Total Gini impurity of a node, weighted by its size: 2 * positive * negative / total. */
+    private static double giniSum(long positive, long total) {
+        return 2.0 * positive * (total - positive) / total;
+    }
+
+    /** Tree under construction; flattened into a {@link Tree} once grown. */
+    private static final class Node {
+        final int feature;
+        final double value;
+        final Node left;
+        final Node right;
+
+        private Node(int feature, double value, Node left, Node right) {
+            this.feature = feature;
+            this.value = value;
+            this.left = left;
+            this.right = right;
+        }
+
+        static Node leaf(double probability) {
+            return new Node(-1, probability, null, null);
+        }
+
+        static Node split(int feature, double threshold, Node left, Node right) {
+            return new Node(feature, threshold, left, right);
+        }
+
+        int size() {
+            return feature < 0 ? 1 : 1 + left.size() + right.size();
+        }
+    }
+
+    /**
+     * A grown tree in parallel arrays, nodes in preorder. Internal nodes send values at or
+     * below their threshold left; leaves hold the WIN probability in {@code value}.
+     */
+    private static final class Tree implements Serializable {
+        private static final long serialVersionUID = 1L;
+        final int[] feature;
+        final double[] value;
+        final int[] right; // the left child is always the next node
+
+        private Tree(int size) {
+            feature = new int[size];
+            value = new double[size];
+            right = new int[size];
+        }
+
+        static Tree flatten(Node root) {
+            Tree tree = new Tree(root.size());
+            tree.fill(root, 0);
+            return tree;
+        }
+
+        /** Writes the subtree at {@code index} and returns the next free index. */
+        private int fill(Node node, int index) {
+            feature[index] = node.feature;
+            value[index] = node.value;
+            if (node.feature < 0) {
+                return index + 1;
+            }
+            int next = fill(node.left, index + 1);
+            right[index] = next;
+            return fill(node.right, next);
+        }
+
+        double predict(double[] x) {
+            int node = 0;
+            while (feature[node] >= 0) {
+                node = x[feature[node]] <= value[node] ? node + 1 : right[node];
+            }
+            return value[node];
+        }
+    }
+}
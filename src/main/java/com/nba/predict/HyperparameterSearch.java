@@ -0,0 +1,377 @@
+package com.nba.predict;
+
+import weka.classifiers.Classifier;
+import weka.classifiers.Evaluation;
+import weka.classifiers.trees.RandomForest;
+import weka.classifiers.trees.RandomTree;
+import weka.core.Instances;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Grid or random search over random forest hyperparameters (trees, features per split,
+ * maximum depth, bag size and minimum leaf size), scored with the same 10-fold CV folds as
+ * {@link WekaRandomForestEvaluator}.
+ *
+ * Search runs by successive halving: every configuration is first scored on a few folds,
+ * only the best 1/eta of them go on to eta times as many folds, and so on until the
+ * survivors have been scored on all of them. Each rung's missing (configuration, fold)
+ * evaluations are scheduled on one pool under a global thread budget, split between
+ * concurrent evaluations and each forest's own threads as in {@link ParallelCrossValidator}.
+ *
+ * Every fold result is written to a {@link SearchResultCache} keyed by the feature data
+ * and the parameters, so a repeated or widened sweep only evaluates what is new.
+ */
+public class HyperparameterSearch {
+    private static final int NUM_FOLDS = 10;
+    private static final long CV_SEED = 42L;
+
+    /** The forest implementation a search tunes. */
+    public enum Engine {
+        WEKA, HISTOGRAM;
+
+        Classifier create(Config config) {
+            if (this == WEKA) {
+                RandomForest rf = new RandomForest();
+                rf.setNumIterations(config.numTrees);
+                rf.setNumFeatures(config.numFeatures);
+                rf.setMaxDepth(config.maxDepth);
+                rf.setBagSizePercent(config.bagSizePercent);
+                ((RandomTree) rf.getClassifier()).setMinNum(config.minLeaf);
+                return rf;
+            }
+            HistogramRandomForest forest = new HistogramRandomForest();
+            forest.setNumTrees(config.numTrees);
+            forest.setNumFeaturesPerSplit(config.numFeatures);
+            forest.setMaxDepth(config.maxDepth);
+            forest.setBagSizePercent(config.bagSizePercent);
+            forest.setMinLeafWeight(config.minLeaf);
+            return forest;
+        }
+
+        public static Engine parse(String name) {
+            try {
+                return valueOf(name.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown engine: " + name + " (use weka or histogram)");
+            }
+        }
+    }
+
+    /** One point in the search space. 0 means the engine default for features and depth. */
+    public static final class Config {
+        private final int numTrees;
+        private final int numFeatures;
+        private final int maxDepth;
+        private final int bagSizePercent;
+        private final int minLeaf;
+
+        public Config(int numTrees, int numFeatures, int maxDepth, int bagSizePercent, int minLeaf) {
+            this.numTrees = numTrees;
+            this.numFeatures = numFeatures;
+            this.maxDepth = maxDepth;
+            this.bagSizePercent = bagSizePercent;
+            this.minLeaf = minLeaf;
+        }
+
+        public int getNumTrees() {
+            return numTrees;
+        }
+
+        public int getNumFeatures() {
+            return numFeatures;
+        }
+
+        public int getMaxDepth() {
+            return maxDepth;
+        }
+
+        public int getBagSizePercent() {
+            return bagSizePercent;
+        }
+
+        public int getMinLeaf() {
+            return minLeaf;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Config && toString().equals(o.toString());
+        }
+
+        @Override
+        public int hashCode() {
+            return toString().hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return "trees=" + numTrees + " features=" + numFeatures + " depth=" + maxDepth
+                    + " bag=" + bagSizePercent + " leaf=" + minLeaf;
+        }
+    }
+
+    /** Candidate values per hyperparameter. */
+    public static final class Space {
+        private final int[] numTrees;
+        private final int[] numFeatures;
+        private final int[] maxDepth;
+        private final int[] bagSizePercent;
+        private final int[] minLeaf;
+
+        public Space(int[] numTrees, int[] numFeatures, int[] maxDepth, int[] bagSizePercent, int[] minLeaf) {
+            this.numTrees = numTrees.clone();
+            this.numFeatures = numFeatures.clone();
+            this.maxDepth = maxDepth.clone();
+            this.bagSizePercent = bagSizePercent.clone();
+            this.minLeaf = minLeaf.clone();
+        }
+
+        /** 162 configurations around the Weka defaults. */
+        public static Space defaults() {
+            return new Space(new int[] {50, 100, 200}, new int[] {0, 3, 8}, new int[] {0, 12, 24},
+                    new int[] {60, 100}, new int[] {1, 5, 20});
+        }
+
+        /** Every combination, in a fixed order. */
+        public List<Config> grid() {
+            List<Config> configs = new ArrayList<>();
+            for (int trees : numTrees) {
+                for (int features : numFeatures) {
+                    for (int depth : maxDepth) {
+                        for (int bag : bagSizePercent) {
+                            for (int leaf : minLeaf) {
+                                configs.add(new Config(trees, features, depth, bag, leaf));
+                            }
+                        }
+                    }
+                }
+            }
+            return configs;
+        }
+
+        /**
+         * {@code count} distinct combinations drawn at random. A given seed always draws the
+         * same configurations, and a larger count extends a smaller one, so growing a random
+         * sweep reuses every cached trial.
+         */
+        public List<Config> sample(int count, long seed) {
+            List<Config> all = grid();
+            Collections.shuffle(all, new Random(seed));
+            return new ArrayList<>(all.subList(0, Math.min(count, all.size())));
+        }
+    }
+
+    /** Fold results gathered for one configuration so far. */
+    public static final class Trial {
+        private final Config config;
+        private final SearchResultCache.FoldResult[] folds;
+        private int cachedFolds;
+
+        Trial(Config config, SearchResultCache.FoldResult[] folds) {
+            this.config = config;
+            this.folds = folds;
+            for (SearchResultCache.FoldResult fold : folds) {
+                if (fold != null) {
+                    cachedFolds++;
+                }
+            }
+        }
+
+        public Config getConfig() {
+            return config;
+        }
+
+        /** Folds scored, whether evaluated now or taken from the cache. */
+        public int getFoldsEvaluated() {
+            int n = 0;
+            for (SearchResultCache.FoldResult fold : folds) {
+                if (fold != null) {
+                    n++;
+                }
+            }
+            return n;
+        }
+
+        /** Folds that were already in the result cache when the search started. */
+        public int getCachedFolds() {
+            return cachedFolds;
+        }
+
+        public long getTrainingTimeMs() {
+            long ms = 0;
+            for (SearchResultCache.FoldResult fold : folds) {
+                if (fold != null) {
+                    ms += fold.getTrainingTimeMs();
+                }
+            }
+            return ms;
+        }
+
+        /** Pooled accuracy over the scored folds. */
+        public double getAccuracy() {
+            return getEvaluation().getAccuracy();
+        }
+
+        /** Metrics pooled over the scored folds, in the same form as the CV results. */
+        public ModelEvaluation getEvaluation() {
+            int[][] cm = new int[2][2];
+            for (SearchResultCache.FoldResult fold : folds) {
+                if (fold != null) {
+                    for (int a = 0; a < 2; a++) {
+                        for (int p = 0; p < 2; p++) {
+                            cm[a][p] += fold.getConfusionMatrix()[a][p];
+                        }
+                    }
+                }
+            }
+            return ModelEvaluation.fromConfusionMatrix(cm);
+        }
+
+        private synchronized void record(int fold, SearchResultCache.FoldResult result) {
+            folds[fold] = result;
+        }
+    }
+
+    private final Engine engine;
+    private final SearchResultCache cache;
+    private final long featureKey;
+    private final int threadBudget;
+    private final int minFolds;
+    private final int eta;
+
+    /** Halving from 1 fold with eta = 3, using all cores. */
+    public HyperparameterSearch(Engine engine, SearchResultCache cache, long featureKey) {
+        this(engine, cache, featureKey, Runtime.getRuntime().availableProcessors(), 1, 3);
+    }
+
+    /**
+     * @param featureKey {@link FeatureCache} key of the data being tuned on
+     * @param minFolds   folds every configuration is scored on in the first rung
+     * @param eta        fraction kept (1/eta) and fold multiplier between rungs
+     */
+    public HyperparameterSearch(Engine engine, SearchResultCache cache, long featureKey,
+                                int threadBudget, int minFolds, int eta) {
+        if (eta < 2) {
+            throw new IllegalArgumentException("eta must be at least 2: " + eta);
+        }
+        this.engine = engine;
+        this.cache = cache;
+        this.featureKey = featureKey;
+        this.threadBudget = Math.max(1, threadBudget);
+        this.minFolds = Math.max(1, Math.min(minFolds, NUM_FOLDS));
+        this.eta = eta;
+    }
+
+    /**
+     * Runs successive halving over {@code configs} and returns every trial, those scored on
+     * the most folds first and then by accuracy; the first one is the best configuration.
+     */
+    public List<Trial> run(List<Config> configs, Instances data) throws Exception {
+        ParallelCrossValidator cv = new ParallelCrossValidator(NUM_FOLDS, CV_SEED, threadBudget);
+        ParallelCrossValidator.Folds folds = cv.prepare(data);
+        List<Trial> trials = new ArrayList<>(configs.size());
+        for (Config config : configs) {
+            trials.add(new Trial(config, cache.load(featureKey, describe(config), NUM_FOLDS)));
+        }
+
+        List<Trial> alive = new ArrayList<>(trials);
+        int rungFolds = minFolds;
+        while (true) {
+            evaluate(alive, rungFolds, folds);
+            if (rungFolds == NUM_FOLDS) {
+                break;
+            }
+            alive.sort(Comparator.comparingDouble(Trial::getAccuracy).reversed());
+            alive = new ArrayList<>(alive.subList(0, Math.max(1, (alive.size() + eta - 1) / eta)));
+            rungFolds = Math.min(NUM_FOLDS, rungFolds * eta);
+        }
+
+        List<Trial> ranked = new ArrayList<>(trials);
+        ranked.sort(Comparator.comparingInt(Trial::getFoldsEvaluated).reversed()
+                .thenComparing(Comparator.comparingDouble(Trial::getAccuracy).reversed()));
+        return ranked;
+    }
+
+    /** Scores every trial on folds 0..numFolds-1 that it has not been scored on yet. */
+    private void evaluate(List<Trial> trials, int numFolds, ParallelCrossValidator.Folds folds)
+            throws Exception {
+        List<Trial> taskTrials = new ArrayList<>();
+        List<Integer> taskFolds = new ArrayList<>();
+        for (Trial trial : trials) {
+            for (int fold = 0; fold < numFolds; fold++) {
+                if (trial.folds[fold] == null) {
+                    taskTrials.add(trial);
+                    taskFolds.add(fold);
+                }
+            }
+        }
+        if (taskTrials.isEmpty()) {
+            return;
+        }
+        int poolThreads = Math.min(taskTrials.size(), threadBudget);
+        int slots = Math.max(1, threadBudget / poolThreads);
+        ExecutorService pool = Executors.newFixedThreadPool(poolThreads, r -> {
+            Thread t = new Thread(r, "search");
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            List<Future<?>> futures = new ArrayList<>(taskTrials.size());
+            for (int i = 0; i < taskTrials.size(); i++) {
+                Trial trial = taskTrials.get(i);
+                int fold = taskFolds.get(i);
+                futures.add(pool.submit(() -> {
+                    long start = System.currentTimeMillis();
+                    Evaluation eval = folds.evaluate(engine.create(trial.config), fold, slots);
+                    trial.record(fold, new SearchResultCache.FoldResult(confusionMatrix(eval),
+                            System.currentTimeMillis() - start));
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof Exception ? (Exception) cause : e;
+        } finally {
+            pool.shutdownNow();
+            // Keep whatever finished, even if another evaluation failed.
+            for (Trial trial : trials) {
+                store(trial);
+            }
+        }
+    }
+
+    private void store(Trial trial) throws IOException {
+        synchronized (trial) {
+            cache.store(featureKey, describe(trial.config), trial.folds);
+        }
+    }
+
+    private String describe(Config config) {
+        return engine.name().toLowerCase(Locale.ROOT) + " " + config + " cv=" + NUM_FOLDS + "/" + CV_SEED;
+    }
+
+    private static int[][] confusionMatrix(Evaluation eval) {
+        double[][] cm = eval.confusionMatrix();
+        int[][] out = new int[2][2];
+        for (int a = 0; a < 2; a++) {
+            for (int p = 0; p < 2; p++) {
+                out[a][p] = (int) Math.round(cm[a][p]);
+            }
+        }
+        return out;
+    }
+}
@@ -0,0 +1,296 @@
+package com.nba.predict;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Everything FeaturePipeline remembers between games: each team's TeamHistory, the day of
+ * its last game (for rest days) and the head-to-head histories. Teams are keyed by their
+ * source id, so a state built from one GameTable can be resumed with another whose team
+ * indices differ. The whole state round-trips through a compact binary snapshot.
+ *
+ * Only the state a {@link FeatureSet} reads is kept: histories track the statistics in
+ * {@link #getTeamTracking()} and the decayed averages in {@link #getHalfLives()}, and there
+ * is no head-to-head tracker when no feature uses it.
+ */
+public class LeagueState {
+    private static final int MAGIC = 0x4E424C53; // "NBLS"
+    private static final int VERSION = 4;
+    static final int NO_GAME = Integer.MIN_VALUE;
+
+    private final int windowSize;
+    private final int teamTracking;
+    private final double[] halfLives;
+    private final HeadToHeadTracker headToHead; // null if not tracked
+    private final Map<String, Integer> teamIndex = new HashMap<>();
+    private final List<String> teamIds = new ArrayList<>();
+    private TeamHistory[] histories = new TeamHistory[0];
+    private int[] lastGameDay = new int[0];
+    private int lastProcessedDay = NO_GAME;
+    private long gamesProcessed;
+
+    public LeagueState(int windowSize, int headToHeadMeetings, boolean symmetricHeadToHead) {
+        this(windowSize, TeamHistory.TRACK_STANDARD, new double[0],
+                new HeadToHeadTracker(0, headToHeadMeetings, symmetricHeadToHead));
+    }
+
+    /**
+     * @param teamTracking TeamHistory TRACK_ flags for every team
+     * @param halfLives    half-lives of the decayed averages every team history keeps
+     * @param headToHead   empty tracker, or null to keep no head-to-head state
+     */
+    LeagueState(int windowSize, int teamTracking, double[] halfLives, HeadToHeadTracker headToHead) {
+        this.windowSize = windowSize;
+        this.teamTracking = teamTracking;
+        this.halfLives = halfLives.clone();
+        this.headToHead = headToHead;
+    }
+
+    /**
+     * Deep copy, so one thread can advance the copy while others keep reading this state.
+     */
+    public LeagueState copy() {
+        LeagueState copy = new LeagueState(windowSize, teamTracking, halfLives,
+                headToHead == null ? null : new HeadToHeadTracker(headToHead));
+        copy.teamIndex.putAll(teamIndex);
+        copy.teamIds.addAll(teamIds);
+        copy.histories = new TeamHistory[histories.length];
+        for (int t = 0; t < histories.length; t++) {
+            copy.histories[t] = histories[t] == null ? null : new TeamHistory(histories[t]);
+        }
+        copy.lastGameDay = lastGameDay.clone();
+        copy.lastProcessedDay = lastProcessedDay;
+        copy.gamesProcessed = gamesProcessed;
+        return copy;
+    }
+
+    /**
+     * Copy to fold {@code games} into while readers keep using this state. Only the
+     * histories of the teams playing in them and the head-to-head rows of their pairings
+     * are copied (the rows when first written); everything else is shared, so this state
+     * must not change again.
+     */
+    LeagueState copyFor(GameTable games) {
+        LeagueState copy = new LeagueState(windowSize, teamTracking, halfLives,
+                headToHead == null ? null : headToHead.sharingRows());
+        copy.teamIndex.putAll(teamIndex);
+        copy.teamIds.addAll(teamIds);
+        copy.histories = histories.clone();
+        copy.lastGameDay = lastGameDay.clone();
+        copy.lastProcessedDay = lastProcessedDay;
+        copy.gamesProcessed = gamesProcessed;
+        int[] teams = copy.mapTeams(games);
+        boolean[] copied = new boolean[copy.histories.length];
+        for (int row = 0; row < games.size(); row++) {
+            copy.ownHistory(teams[games.getHomeTeam(row)], copied);
+            copy.ownHistory(teams[games.getAwayTeam(row)], copied);
+        }
+        return copy;
+    }
+
+    private void ownHistory(int team, boolean[] copied) {
+        if (!copied[team] && histories[team] != null) {
+            histories[team] = new TeamHistory(histories[team]);
+        }
+        copied[team] = true;
+    }
+
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    /** TeamHistory TRACK_ flags every team history is created with. */
+    public int getTeamTracking() {
+        return teamTracking;
+    }
+
+    /** Half-lives of the decayed averages every team history keeps. */
+    public double[] getHalfLives() {
+        return halfLives.clone();
+    }
+
+    /** Head-to-head histories, or null if this state keeps none. */
+    public HeadToHeadTracker getHeadToHead() {
+        return headToHead;
+    }
+
+    public int getTeamCount() {
+        return teamIds.size();
+    }
+
+    public String getTeamId(int team) {
+        return teamIds.get(team);
+    }
+
+    /** State index of a team id, or -1 if the team has never played. */
+    public int indexOf(String teamId) {
+        Integer idx = teamIndex.get(teamId);
+        return idx == null ? -1 : idx;
+    }
+
+    /** Day of the latest game folded into this state (epoch days), or NO_GAME if none. */
+    public int getLastProcessedDay() {
+        return lastProcessedDay;
+    }
+
+    public long getGamesProcessed() {
+        return gamesProcessed;
+    }
+
+    /**
+     * Maps every team index of {@code games} to this state's index, registering teams seen
+     * for the first time.
+     */
+    int[] mapTeams(GameTable games) {
+        int[] map = new int[games.getTeamCount()];
+        for (int t = 0; t < map.length; t++) {
+            map[t] = intern(games.getTeamId(t));
+        }
+        return map;
+    }
+
+    int intern(String teamId) {
+        Integer idx = teamIndex.get(teamId);
+        if (idx == null) {
+            idx = teamIds.size();
+            teamIndex.put(teamId, idx);
+            teamIds.add(teamId);
+            if (idx >= histories.length) {
+                int capacity = Math.max(idx + 1, histories.length * 2);
+                histories = Arrays.copyOf(histories, capacity);
+                int oldLength = lastGameDay.length;
+                lastGameDay = Arrays.copyOf(lastGameDay, capacity);
+                Arrays.fill(lastGameDay, oldLength, capacity, NO_GAME);
+            }
+        }
+        return idx;
+    }
+
+    TeamHistory history(int team) {
+        TeamHistory h = histories[team];
+        if (h == null) {
+            h = new TeamHistory(windowSize, teamTracking, halfLives);
+            histories[team] = h;
+        }
+        return h;
+    }
+
+    /** Existing history for a team, or null if it has not played yet. */
+    public TeamHistory getHistory(int team) {
+        return team < teamIds.size() ? histories[team] : null;
+    }
+
+    public int getLastGameDay(int team) {
+        return lastGameDay[team];
+    }
+
+    void setHistory(int team, TeamHistory history) {
+        histories[team] = history;
+    }
+
+    void setLastGameDay(int team, int day) {
+        lastGameDay[team] = day;
+    }
+
+    void markProcessed(int day, int games) {
+        if (day > lastProcessedDay) {
+            lastProcessedDay = day;
+        }
+        gamesProcessed += games;
+    }
+
+    public void save(Path file) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            writeTo(out);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public static LeagueState load(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(file)))) {
+            return readFrom(in);
+        }
+    }
+
+    /** Writes the snapshot to a stream, e.g. inside a larger file such as a {@link FeatureSnapshot}. */
+    void writeTo(DataOutput out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(windowSize);
+        out.writeInt(teamTracking);
+        out.writeInt(halfLives.length);
+        for (double halfLife : halfLives) {
+            out.writeDouble(halfLife);
+        }
+        out.writeInt(lastProcessedDay);
+        out.writeLong(gamesProcessed);
+        out.writeInt(teamIds.size());
+        for (int t = 0; t < teamIds.size(); t++) {
+            out.writeUTF(teamIds.get(t));
+            out.writeInt(lastGameDay[t]);
+            out.writeBoolean(histories[t] != null);
+            if (histories[t] != null) {
+                histories[t].writeTo(out);
+            }
+        }
+        out.writeBoolean(headToHead != null);
+        if (headToHead != null) {
+            headToHead.writeTo(out);
+        }
+    }
+
+    static LeagueState readFrom(DataInput in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a league state snapshot");
+        }
+        int version = in.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported league state snapshot version " + version);
+        }
+        int windowSize = in.readInt();
+        int teamTracking = in.readInt();
+        double[] halfLives = new double[in.readInt()];
+        for (int d = 0; d < halfLives.length; d++) {
+            halfLives[d] = in.readDouble();
+        }
+        int lastProcessedDay = in.readInt();
+        long gamesProcessed = in.readLong();
+        int teams = in.readInt();
+        String[] ids = new String[teams];
+        int[] lastDays = new int[teams];
+        TeamHistory[] histories = new TeamHistory[teams];
+        for (int t = 0; t < teams; t++) {
+            ids[t] = in.readUTF();
+            lastDays[t] = in.readInt();
+            if (in.readBoolean()) {
+                histories[t] = TeamHistory.readFrom(in);
+            }
+        }
+        HeadToHeadTracker headToHead = in.readBoolean() ? HeadToHeadTracker.readFrom(in) : null;
+        LeagueState state = new LeagueState(windowSize, teamTracking, halfLives, headToHead);
+        for (int t = 0; t < teams; t++) {
+            state.intern(ids[t]);
+            state.histories[t] = histories[t];
+            state.lastGameDay[t] = lastDays[t];
+        }
+        state.lastProcessedDay = lastProcessedDay;
+        state.gamesProcessed = gamesProcessed;
+        return state;
+    }
+}
@@ -0,0 +1,500 @@
+package com.nba.predict;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Memory-mapped reader for game.csv that scans bytes directly into a {@link GameTable}.
+ * Only the columns {@link RawGame} binds by name are decoded; numbers are parsed straight
+ * from the mapped bytes without intermediate Strings, and team ids are materialised once
+ * per distinct id. Large files are split into line-aligned chunks parsed in parallel.
+ *
+ * Assumes fields never contain embedded newlines (true for the NBA dumps), which is what
+ * makes line-aligned splitting safe. Header matching is case-insensitive like opencsv.
+ */
+public class MappedCsvReader {
+    // Columns in the order they are decoded; names match RawGame's @CsvBindByName.
+    private static final String[] COLUMNS = {
+        "game_date", "team_id_home", "team_id_away", "pts_home", "pts_away", "wl_home",
+        "fg_pct_home", "fg_pct_away", "reb_home", "reb_away", "ast_home", "ast_away",
+        "tov_home", "tov_away", "game_id"
+    };
+    private static final int GAME_DATE = 0;
+    private static final int TEAM_ID_HOME = 1;
+    private static final int TEAM_ID_AWAY = 2;
+    private static final int PTS_HOME = 3;
+    private static final int PTS_AWAY = 4;
+    private static final int WL_HOME = 5;
+    private static final int FG_PCT_HOME = 6;
+    private static final int FG_PCT_AWAY = 7;
+    private static final int REB_HOME = 8;
+    private static final int REB_AWAY = 9;
+    private static final int AST_HOME = 10;
+    private static final int AST_AWAY = 11;
+    private static final int TOV_HOME = 12;
+    private static final int TOV_AWAY = 13;
+    private static final int GAME_ID = 14;
+
+    private static final long MIN_CHUNK_BYTES = 8L << 20;     // below this, parse on one thread
+    private static final long MAX_CHUNK_BYTES = 1L << 30;     // keep each mapping well under 2 GB
+    private static final double[] POW10 = new double[19];
+    static {
+        POW10[0] = 1.0;
+        for (int i = 1; i < POW10.length; i++) {
+            POW10[i] = POW10[i - 1] * 10.0;
+        }
+    }
+
+    private final int parallelism;
+
+    public MappedCsvReader() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public MappedCsvReader(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    public GameTable read(String filePath) throws IOException {
+        Path path = Paths.get(filePath);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (fileSize == 0) {
+                return new GameTable.Builder().build();
+            }
+
+            // Header: map just enough to find the first line.
+            long headerEnd = findLineStart(channel, 0, fileSize);
+            MappedByteBuffer headerBuf = channel.map(FileChannel.MapMode.READ_ONLY, 0, headerEnd);
+            int[] columnIndex = resolveColumns(headerBuf, (int) headerEnd);
+
+            long[] bounds = chunkBounds(channel, headerEnd, fileSize);
+            int chunks = bounds.length - 1;
+            GameTable.Builder merged;
+            try (PipelineMetrics.Phase parse = PipelineMetrics.get().phase("parse")) {
+                List<GameTable.Builder> parts = IntStream.range(0, chunks)
+                        .parallel()
+                        .mapToObj(c -> parseChunk(channel, bounds[c], bounds[c + 1], columnIndex))
+                        .collect(Collectors.toList());
+
+                merged = parts.get(0);
+                for (int c = 1; c < parts.size(); c++) {
+                    merged.appendAll(parts.get(c));
+                }
+                parse.setRows(merged.size());
+            }
+            try (PipelineMetrics.Phase sort = PipelineMetrics.get().phase("sort")) {
+                sort.setRows(merged.size());
+                return merged.build();
+            }
+        }
+    }
+
+    /**
+     * 64-bit content hash of the whole file, read through the same mappings as
+     * {@link #read}. Not cryptographic; it only has to notice that the export changed.
+     */
+    public static long fingerprint(String filePath) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            long h = fileSize * 0x9E3779B97F4A7C15L;
+            for (long start = 0; start < fileSize; start += MAX_CHUNK_BYTES) {
+                long length = Math.min(MAX_CHUNK_BYTES, fileSize - start);
+                MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+                buf.order(ByteOrder.LITTLE_ENDIAN);
+                int n = (int) length;
+                int i = 0;
+                for (; i + Long.BYTES <= n; i += Long.BYTES) {
+                    h = mix(h ^ buf.getLong(i));
+                }
+                for (; i < n; i++) {
+                    h = mix(h ^ (buf.get(i) & 0xFF));
+                }
+            }
+            return h;
+        }
+    }
+
+    private static long mix(long h) {
+        h *= 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 32);
+    }
+
+    private long[] chunkBounds(FileChannel channel, long dataStart, long fileSize) throws IOException {
+        long dataBytes = fileSize - dataStart;
+        int chunks = (int) Math.max(1, Math.min(parallelism * 4L, dataBytes / MIN_CHUNK_BYTES));
+        chunks = (int) Math.max(chunks, (dataBytes + MAX_CHUNK_BYTES - 1) / MAX_CHUNK_BYTES);
+
+        long[] bounds = new long[chunks + 1];
+        bounds[0] = dataStart;
+        int n = 1;
+        for (int c = 1; c < chunks; c++) {
+            long nominal = dataStart + dataBytes * c / chunks;
+            long aligned = findLineStart(channel, Math.max(nominal, bounds[n - 1]), fileSize);
+            if (aligned > bounds[n - 1] && aligned < fileSize) {
+                bounds[n++] = aligned;
+            }
+        }
+        bounds[n++] = fileSize;
+        return Arrays.copyOf(bounds, n);
+    }
+
+    /** Returns the offset just past the first '\n' at or after {@code from}, or fileSize. */
+    private static long findLineStart(FileChannel channel, long from, long fileSize) throws IOException {
+        ByteBuffer scratch = ByteBuffer.allocate(64 * 1024);
+        long pos = from;
+        while (pos < fileSize) {
+            scratch.clear();
+            int read = channel.read(scratch, pos);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (scratch.get(i) == '\n') {
+                    return pos + i + 1;
+                }
+            }
+            pos += read;
+        }
+        return fileSize;
+    }
+
+    private static int[] resolveColumns(ByteBuffer buf, int limit) {
+        int end = limit;
+        while (end > 0 && (buf.get(end - 1) == '\n' || buf.get(end - 1) == '\r')) {
+            end--;
+        }
+        byte[] bytes = new byte[end];
+        buf.get(0, bytes);
+        String header = new String(bytes, StandardCharsets.UTF_8);
+        if (header.startsWith("\uFEFF")) {
+            header = header.substring(1);
+        }
+        String[] names = header.split(",", -1);
+
+        int[] columnIndex = new int[COLUMNS.length];
+        Arrays.fill(columnIndex, -1); // missing columns read as empty, like an unbound bean field
+        for (int c = 0; c < COLUMNS.length; c++) {
+            for (int i = 0; i < names.length; i++) {
+                String name = names[i].trim();
+                if (name.length() >= 2 && name.charAt(0) == '"' && name.charAt(name.length() - 1) == '"') {
+                    name = name.substring(1, name.length() - 1);
+                }
+                if (name.equalsIgnoreCase(COLUMNS[c])) {
+                    columnIndex[c] = i;
+                    break;
+                }
+            }
+        }
+        return columnIndex;
+    }
+
+    private static GameTable.Builder parseChunk(FileChannel channel, long start, long end, int[] columnIndex) {
+        MappedByteBuffer buf;
+        try {
+            buf = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        int limit = (int) (end - start);
+        GameTable.Builder builder = new GameTable.Builder((int) Math.min(1 << 20, limit / 256L));
+
+        // For each physical column, the decoded slot it feeds (or -1 to skip it).
+        int maxColumn = -1;
+        for (int idx : columnIndex) {
+            maxColumn = Math.max(maxColumn, idx);
+        }
+        int[] slotOf = new int[maxColumn + 1];
+        Arrays.fill(slotOf, -1);
+        for (int c = 0; c < columnIndex.length; c++) {
+            if (columnIndex[c] >= 0) {
+                slotOf[columnIndex[c]] = c;
+            }
+        }
+        int[] fieldStart = new int[COLUMNS.length];
+        int[] fieldEnd = new int[COLUMNS.length];
+        TeamInterner teams = new TeamInterner(builder);
+
+        int pos = 0;
+        while (pos < limit) {
+            int lineEnd = pos;
+            while (lineEnd < limit && buf.get(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            int next = lineEnd + 1;
+            if (lineEnd > pos && buf.get(lineEnd - 1) == '\r') {
+                lineEnd--;
+            }
+            if (lineEnd > pos) {
+                Arrays.fill(fieldStart, 0);
+                Arrays.fill(fieldEnd, 0);
+                splitFields(buf, pos, lineEnd, slotOf, fieldStart, fieldEnd);
+                addRow(buf, builder, teams, fieldStart, fieldEnd);
+            }
+            pos = next;
+        }
+        return builder;
+    }
+
+    /** Records [start, end) of every needed field on one line, unwrapping quoted values. */
+    private static void splitFields(ByteBuffer buf, int pos, int lineEnd, int[] slotOf,
+                                    int[] fieldStart, int[] fieldEnd) {
+        int column = 0;
+        while (pos <= lineEnd && column < slotOf.length) {
+            while (pos < lineEnd && buf.get(pos) == ' ') {
+                pos++; // leading whitespace is ignored, as with withIgnoreLeadingWhiteSpace(true)
+            }
+            int start;
+            int end;
+            if (pos < lineEnd && buf.get(pos) == '"') {
+                start = pos + 1;
+                int q = start;
+                while (q < lineEnd) {
+                    if (buf.get(q) == '"') {
+                        if (q + 1 < lineEnd && buf.get(q + 1) == '"') {
+                            q += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    q++;
+                }
+                end = q;
+                pos = q + 1;
+                while (pos < lineEnd && buf.get(pos) != ',') {
+                    pos++;
+                }
+            } else {
+                start = pos;
+                while (pos < lineEnd && buf.get(pos) != ',') {
+                    pos++;
+                }
+                end = pos;
+            }
+            int slot = slotOf[column];
+            if (slot >= 0) {
+                fieldStart[slot] = start;
+                fieldEnd[slot] = end;
+            }
+            column++;
+            pos++; // skip the comma
+        }
+    }
+
+    private static void addRow(ByteBuffer buf, GameTable.Builder builder, TeamInterner teams,
+                               int[] s, int[] e) {
+        int day = parseEpochDay(buf, s[GAME_DATE], e[GAME_DATE]);
+        if (day == GameTable.NO_DATE) {
+            PipelineMetrics.get().increment(PipelineMetrics.ROWS_WITHOUT_DATE);
+            return; // invalid or missing date: drop the row
+        }
+        boolean won = e[WL_HOME] - s[WL_HOME] == 1 && buf.get(s[WL_HOME]) == 'W';
+        builder.addGame(parseGameId(buf, s[GAME_ID], e[GAME_ID]), day,
+                teams.intern(buf, s[TEAM_ID_HOME], e[TEAM_ID_HOME]),
+                teams.intern(buf, s[TEAM_ID_AWAY], e[TEAM_ID_AWAY]),
+                (int) parseDouble(buf, s[PTS_HOME], e[PTS_HOME]),
+                (int) parseDouble(buf, s[PTS_AWAY], e[PTS_AWAY]),
+                won,
+                parseDouble(buf, s[FG_PCT_HOME], e[FG_PCT_HOME]),
+                parseDouble(buf, s[FG_PCT_AWAY], e[FG_PCT_AWAY]),
+                parseDouble(buf, s[REB_HOME], e[REB_HOME]),
+                parseDouble(buf, s[REB_AWAY], e[REB_AWAY]),
+                parseDouble(buf, s[AST_HOME], e[AST_HOME]),
+                parseDouble(buf, s[AST_AWAY], e[AST_AWAY]),
+                parseDouble(buf, s[TOV_HOME], e[TOV_HOME]),
+                parseDouble(buf, s[TOV_AWAY], e[TOV_AWAY]));
+    }
+
+    /**
+     * Parses a leading "yyyy-MM-dd" (optionally followed by a space and a time) into epoch
+     * days, or returns GameTable.NO_DATE when the field is not a valid ISO date.
+     */
+    static int parseEpochDay(ByteBuffer buf, int start, int end) {
+        if (end - start < 10 || (end - start > 10 && buf.get(start + 10) != ' ')
+                || buf.get(start + 4) != '-' || buf.get(start + 7) != '-') {
+            return GameTable.NO_DATE;
+        }
+        int year = digits(buf, start, 4);
+        int month = digits(buf, start + 5, 2);
+        int dayOfMonth = digits(buf, start + 8, 2);
+        if (year < 0 || month < 1 || month > 12 || dayOfMonth < 1 || dayOfMonth > GameTable.daysInMonth(year, month)) {
+            return GameTable.NO_DATE;
+        }
+        return GameTable.epochDay(year, month, dayOfMonth);
+    }
+
+    /** As {@link GameTable#parseGameId}, straight from the bytes. */
+    static long parseGameId(ByteBuffer buf, int start, int end) {
+        if (start >= end || end - start > 18) {
+            return GameTable.NO_GAME_ID;
+        }
+        long id = 0;
+        for (int i = start; i < end; i++) {
+            int d = buf.get(i) - '0';
+            if (d < 0 || d > 9) {
+                return GameTable.NO_GAME_ID;
+            }
+            id = id * 10 + d;
+        }
+        return id;
+    }
+
+    private static int digits(ByteBuffer buf, int start, int count) {
+        int value = 0;
+        for (int i = 0; i < count; i++) {
+            int d = buf.get(start + i) - '0';
+            if (d < 0 || d > 9) {
+                return -1;
+            }
+            value = value * 10 + d;
+        }
+        return value;
+    }
+
+    /**
+     * Parses a plain decimal ("128.0", "0.457", "-3") directly from bytes. Anything outside
+     * that shape falls back to Double.parseDouble; empty or invalid values become 0.0,
+     * exactly as the RawGame getters coerce them.
+     */
+    static double parseDouble(ByteBuffer buf, int start, int end) {
+        if (start >= end) {
+            PipelineMetrics.get().increment(PipelineMetrics.MISSING_VALUES);
+            return 0.0;
+        }
+        int pos = start;
+        boolean negative = false;
+        byte first = buf.get(pos);
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            pos++;
+        }
+        long mantissa = 0;
+        int digitCount = 0;
+        int fractionDigits = 0;
+        boolean seenDot = false;
+        for (; pos < end; pos++) {
+            byte b = buf.get(pos);
+            if (b >= '0' && b <= '9') {
+                if (digitCount == 18) {
+                    return parseSlow(buf, start, end);
+                }
+                mantissa = mantissa * 10 + (b - '0');
+                if (mantissa != 0) {
+                    digitCount++;
+                }
+                if (seenDot) {
+                    fractionDigits++;
+                }
+            } else if (b == '.' && !seenDot) {
+                seenDot = true;
+            } else {
+                return parseSlow(buf, start, end);
+            }
+        }
+        int totalDigits = end - start - (seenDot ? 1 : 0) - (first == '-' || first == '+' ? 1 : 0);
+        if (totalDigits == 0 || fractionDigits >= POW10.length || mantissa > (1L << 53)) {
+            return parseSlow(buf, start, end);
+        }
+        // Both operands are exact doubles, so the division is correctly rounded and matches
+        // Double.parseDouble bit for bit.
+        double value = fractionDigits == 0 ? mantissa : mantissa / POW10[fractionDigits];
+        return negative ? -value : value;
+    }
+
+    private static double parseSlow(ByteBuffer buf, int start, int end) {
+        byte[] bytes = new byte[end - start];
+        buf.get(start, bytes);
+        try {
+            return Double.parseDouble(new String(bytes, StandardCharsets.UTF_8));
+        } catch (NumberFormatException e) {
+            PipelineMetrics.get().increment(PipelineMetrics.PARSE_FAILURES);
+            return 0.0;
+        }
+    }
+
+    /**
+     * Open-addressing dictionary from raw team-id bytes to builder team indices, so a
+     * String is created only the first time an id appears in a chunk.
+     */
+    private static final class TeamInterner {
+        private final GameTable.Builder builder;
+        private byte[][] keys = new byte[64][];
+        private int[] values = new int[64];
+        private int count;
+
+        TeamInterner(GameTable.Builder builder) {
+            this.builder = builder;
+        }
+
+        int intern(ByteBuffer buf, int start, int end) {
+            int len = end - start;
+            int hash = 1;
+            for (int i = start; i < end; i++) {
+                hash = 31 * hash + buf.get(i);
+            }
+            int mask = keys.length - 1;
+            int slot = (hash ^ (hash >>> 16)) & mask;
+            while (keys[slot] != null) {
+                byte[] key = keys[slot];
+                if (key.length == len && matches(key, buf, start)) {
+                    return values[slot];
+                }
+                slot = (slot + 1) & mask;
+            }
+            byte[] key = new byte[len];
+            buf.get(start, key);
+            int index = builder.internTeam(new String(key, StandardCharsets.UTF_8));
+            keys[slot] = key;
+            values[slot] = index;
+            if (++count * 2 > keys.length) {
+                rehash();
+            }
+            return index;
+        }
+
+        private static boolean matches(byte[] key, ByteBuffer buf, int start) {
+            for (int i = 0; i < key.length; i++) {
+                if (key[i] != buf.get(start + i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void rehash() {
+            byte[][] oldKeys = keys;
+            int[] oldValues = values;
+            keys = new byte[oldKeys.length * 2][];
+            values = new int[oldKeys.length * 2];
+            int mask = keys.length - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                byte[] key = oldKeys[i];
+                if (key == null) {
+                    continue;
+                }
+                int hash = 1;
+                for (byte b : key) {
+                    hash = 31 * hash + b;
+                }
+                int slot = (hash ^ (hash >>> 16)) & mask;
+                while (keys[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = key;
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+}
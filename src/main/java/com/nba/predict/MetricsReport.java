@@ -0,0 +1,82 @@
+package com.nba.predict;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Writes the run's metrics as JSON (phases plus counters) and as CSV (one row per phase,
+ * counters appended as rows with only a name and a value), for dashboards and diffing
+ * nightly runs.
+ */
+public class MetricsReport implements MetricsSink {
+    private final Path jsonFile;
+    private final Path csvFile;
+
+    public MetricsReport(Path jsonFile, Path csvFile) {
+        this.jsonFile = jsonFile;
+        this.csvFile = csvFile;
+    }
+
+    @Override
+    public void runCompleted(List<PipelineMetrics.PhaseMetrics> phases, Map<String, Long> counters)
+            throws IOException {
+        writeJson(phases, counters);
+        writeCsv(phases, counters);
+    }
+
+    private void writeJson(List<PipelineMetrics.PhaseMetrics> phases, Map<String, Long> counters)
+            throws IOException {
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(jsonFile))) {
+            out.println("{");
+            out.println("  \"phases\": [");
+            for (int i = 0; i < phases.size(); i++) {
+                PipelineMetrics.PhaseMetrics p = phases.get(i);
+                out.print(String.format(Locale.US,
+                        "    {\"name\": %s, \"thread\": %s, \"startOffsetMs\": %d, \"wallMs\": %.3f, "
+                                + "\"cpuMs\": %.3f, \"processCpuMs\": %.3f, \"allocatedBytes\": %d, \"rows\": %d}",
+                        quote(p.getName()), quote(p.getThread()), p.getStartOffsetMs(), millis(p.getWallNanos()),
+                        millis(p.getCpuNanos()), millis(p.getProcessCpuNanos()), p.getAllocatedBytes(), p.getRows()));
+                out.println(i + 1 < phases.size() ? "," : "");
+            }
+            out.println("  ],");
+            out.println("  \"counters\": {");
+            Iterator<Map.Entry<String, Long>> it = counters.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<String, Long> counter = it.next();
+                out.print("    " + quote(counter.getKey()) + ": " + counter.getValue());
+                out.println(it.hasNext() ? "," : "");
+            }
+            out.println("  }");
+            out.println("}");
+        }
+    }
+
+    private void writeCsv(List<PipelineMetrics.PhaseMetrics> phases, Map<String, Long> counters)
+            throws IOException {
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(csvFile))) {
+            out.println("Kind,Name,Thread,Start_Offset_ms,Wall_ms,CPU_ms,Process_CPU_ms,Allocated_Bytes,Rows,Value");
+            for (PipelineMetrics.PhaseMetrics p : phases) {
+                out.println(String.format(Locale.US, "phase,%s,%s,%d,%.3f,%.3f,%.3f,%d,%d,",
+                        p.getName(), p.getThread(), p.getStartOffsetMs(), millis(p.getWallNanos()),
+                        millis(p.getCpuNanos()), millis(p.getProcessCpuNanos()), p.getAllocatedBytes(), p.getRows()));
+            }
+            for (Map.Entry<String, Long> counter : counters.entrySet()) {
+                out.println("counter," + counter.getKey() + ",,,,,,,," + counter.getValue());
+            }
+        }
+    }
+
+    private static double millis(long nanos) {
+        return nanos < 0 ? -1.0 : nanos / 1e6;
+    }
+
+    private static String quote(String value) {
+        return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+}
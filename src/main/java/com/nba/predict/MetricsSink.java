@@ -0,0 +1,18 @@
+package com.nba.predict;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Receives {@link PipelineMetrics} as a run progresses. Phases may complete on worker
+ * threads, so implementations of {@link #phaseCompleted} must be thread-safe.
+ */
+public interface MetricsSink {
+
+    /** Called as soon as a phase closes, on the thread that ran it. */
+    default void phaseCompleted(PipelineMetrics.PhaseMetrics phase) {
+    }
+
+    /** Called once at the end of the run with every phase and the final counter totals. */
+    void runCompleted(List<PipelineMetrics.PhaseMetrics> phases, Map<String, Long> counters) throws Exception;
+}
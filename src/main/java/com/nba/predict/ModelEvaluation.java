@@ -9,6 +9,7 @@ public class ModelEvaluation {
     private final double recallLoss;
     private final double f1Loss;
     private final int[][] confusionMatrix; // [actual][predicted]
+    private ProbabilityMetrics probabilities; // null when only class predictions were scored
     
     public ModelEvaluation(double accuracy, double precisionWin, double recallWin, double f1Win,
                           double precisionLoss, double recallLoss, double f1Loss,
@@ -23,6 +24,26 @@ public class ModelEvaluation {
         this.confusionMatrix = confusionMatrix;
     }
     
+    /** Metrics of a binary confusion matrix indexed [actual][predicted], 0 = LOSS, 1 = WIN. */
+    public static ModelEvaluation fromConfusionMatrix(int[][] cm) {
+        int total = cm[0][0] + cm[0][1] + cm[1][0] + cm[1][1];
+        double precisionWin = ratio(cm[1][1], cm[0][1] + cm[1][1]);
+        double recallWin = ratio(cm[1][1], cm[1][0] + cm[1][1]);
+        double precisionLoss = ratio(cm[0][0], cm[0][0] + cm[1][0]);
+        double recallLoss = ratio(cm[0][0], cm[0][0] + cm[0][1]);
+        return new ModelEvaluation(ratio(cm[0][0] + cm[1][1], total),
+                precisionWin, recallWin, f1(precisionWin, recallWin),
+                precisionLoss, recallLoss, f1(precisionLoss, recallLoss), cm);
+    }
+
+    private static double ratio(int num, int den) {
+        return den == 0 ? 0.0 : (double) num / den;
+    }
+
+    private static double f1(double precision, double recall) {
+        return precision + recall == 0 ? 0.0 : 2 * precision * recall / (precision + recall);
+    }
+    
     public double getAccuracy() {
         return accuracy;
     }
@@ -54,6 +75,37 @@ public class ModelEvaluation {
     public int[][] getConfusionMatrix() {
         return confusionMatrix;
     }
+
+    /** Attaches the probabilistic scores of the same predictions; returns this. */
+    public ModelEvaluation withProbabilities(ProbabilityMetrics probabilities) {
+        this.probabilities = probabilities;
+        return this;
+    }
+
+    /** Log loss, AUCs and calibration of the predictions, or null if they were not recorded. */
+    public ProbabilityMetrics getProbabilities() {
+        return probabilities;
+    }
+
+    public double getLogLoss() {
+        return probabilities == null ? Double.NaN : probabilities.getLogLoss();
+    }
+
+    public double getBrierScore() {
+        return probabilities == null ? Double.NaN : probabilities.getBrierScore();
+    }
+
+    public double getRocAuc() {
+        return probabilities == null ? Double.NaN : probabilities.getRocAuc();
+    }
+
+    public double getPrAuc() {
+        return probabilities == null ? Double.NaN : probabilities.getPrAuc();
+    }
+
+    public double getExpectedCalibrationError() {
+        return probabilities == null ? Double.NaN : probabilities.getExpectedCalibrationError();
+    }
     
     @Override
     public String toString() {
@@ -8,6 +8,24 @@ import java.util.List;
 import java.util.stream.Collectors;
 
 public class ModelEvaluator {
+    /** Best first: highest CV accuracy, ties in the order the models were given. */
+    private static final Comparator<ModelResult> RANKING =
+        Comparator.comparingDouble(ModelResult::getAccuracy).reversed();
+
+    /** The top-ranked model of {@code results}, or null if none has an evaluation. */
+    public ModelResult best(List<ModelResult> results) {
+        return results.stream()
+            .filter(r -> r.getEvaluation() != null)
+            .min(RANKING)
+            .orElse(null);
+    }
+    
+    
+    /** Prints one line for a model as soon as it finishes, ahead of the full comparison. */
+    public void reportResult(ModelResult result) {
+        System.out.printf("  %-35s accuracy %.4f  (%d ms)%n",
+            result.getModelName(), result.getAccuracy(), result.getTrainingTimeMs());
+    }
     
     public void evaluateAndCompare(List<ModelResult> results) {
         System.out.println("\n" + "=".repeat(80));
@@ -19,8 +37,7 @@ public class ModelEvaluator {
             .filter(r -> r.getEvaluation() != null)
             .collect(Collectors.toList());
         
-        // Sort by accuracy
-        validResults.sort(Comparator.comparingDouble(ModelResult::getAccuracy).reversed());
+        validResults.sort(RANKING);
         
         System.out.println("\nRanking by Accuracy:\n");
         System.out.printf("%-25s | %-12s | %-15s | %-20s%n", 
@@ -71,12 +88,21 @@ public class ModelEvaluator {
             System.out.printf("  Precision (LOSS): %.4f%n", eval.getPrecisionLoss());
             System.out.printf("  Recall (LOSS): %.4f%n", eval.getRecallLoss());
             System.out.printf("  F1-Score (LOSS): %.4f%n", eval.getF1Loss());
+            if (eval.getProbabilities() != null) {
+                System.out.printf("  Log Loss: %.4f%n", eval.getLogLoss());
+                System.out.printf("  Brier Score: %.4f%n", eval.getBrierScore());
+                System.out.printf("  ROC-AUC: %.4f%n", eval.getRocAuc());
+                System.out.printf("  PR-AUC: %.4f%n", eval.getPrAuc());
+                System.out.printf("  Calibration Error: %.4f%n", eval.getExpectedCalibrationError());
+            }
         }
     }
     
     public void exportResultsToCSV(List<ModelResult> results, String filename) throws IOException {
-        try (FileWriter writer = new FileWriter(filename)) {
-            writer.append("Model_Name,Accuracy,Training_Time_ms,Precision_WIN,Recall_WIN,F1_WIN,Precision_LOSS,Recall_LOSS,F1_LOSS,CM00,CM01,CM10,CM11\n");
+        try (PipelineMetrics.Phase phase = PipelineMetrics.get().phase("export");
+             FileWriter writer = new FileWriter(filename)) {
+            phase.setRows(results.size());
+            writer.append("Model_Name,Accuracy,Training_Time_ms,Precision_WIN,Recall_WIN,F1_WIN,Precision_LOSS,Recall_LOSS,F1_LOSS,CM00,CM01,CM10,CM11,Log_Loss,Brier,ROC_AUC,PR_AUC,ECE\n");
             
             for (ModelResult result : results) {
                 if (result.getEvaluation() == null) {
@@ -90,7 +116,7 @@ public class ModelEvaluator {
                 int cm10 = cm[1][0];
                 int cm11 = cm[1][1];
 
-                writer.append(String.format(Locale.US, "%s,%.6f,%d,%.6f,%.6f,%.6f,%.6f,%.6f,%.6f,%d,%d,%d,%d%n",
+                writer.append(String.format(Locale.US, "%s,%.6f,%d,%.6f,%.6f,%.6f,%.6f,%.6f,%.6f,%d,%d,%d,%d,%.6f,%.6f,%.6f,%.6f,%.6f%n",
                     result.getModelName(),
                     result.getAccuracy(),
                     result.getTrainingTimeMs(),
@@ -100,10 +126,36 @@ public class ModelEvaluator {
                     eval.getPrecisionLoss(),
                     eval.getRecallLoss(),
                     eval.getF1Loss(),
-                    cm00, cm01, cm10, cm11
+                    cm00, cm01, cm10, cm11,
+                    eval.getLogLoss(),
+                    eval.getBrierScore(),
+                    eval.getRocAuc(),
+                    eval.getPrAuc(),
+                    eval.getExpectedCalibrationError()
                 ));
             }
         }
         System.out.println("\nResults exported to: " + filename);
     }
+
+    /** Reliability table: one line per model and probability bin with games in it. */
+    public void exportCalibrationToCSV(List<ModelResult> results, String filename) throws IOException {
+        try (FileWriter writer = new FileWriter(filename)) {
+            writer.append("Model_Name,Bin_Lower,Bin_Upper,Count,Mean_Predicted,Observed_Win_Rate\n");
+            for (ModelResult result : results) {
+                if (result.getEvaluation() == null || result.getEvaluation().getProbabilities() == null) {
+                    continue;
+                }
+                for (ProbabilityMetrics.CalibrationBin bin : result.getEvaluation().getProbabilities().getCalibration()) {
+                    if (bin.getCount() == 0) {
+                        continue;
+                    }
+                    writer.append(String.format(Locale.US, "%s,%.1f,%.1f,%d,%.6f,%.6f%n",
+                        result.getModelName(), bin.getLower(), bin.getUpper(), bin.getCount(),
+                        bin.getMeanPredicted(), bin.getObservedWinRate()));
+                }
+            }
+        }
+        System.out.println("Calibration exported to: " + filename);
+    }
 }
@@ -0,0 +1,89 @@
+package com.nba.predict;
+
+import weka.classifiers.Classifier;
+import weka.classifiers.bayes.NaiveBayes;
+import weka.classifiers.functions.Logistic;
+import weka.classifiers.meta.AdaBoostM1;
+import weka.classifiers.trees.DecisionStump;
+import weka.classifiers.trees.J48;
+import weka.classifiers.trees.RandomForest;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * The models {@link ModelTrainer} compares, in registration order. Each entry is a name,
+ * a factory for a fresh untrained Weka {@link Classifier} and a wall-clock budget for its
+ * cross-validation; add a model by registering another factory.
+ */
+public class ModelRegistry {
+    public static final Duration DEFAULT_BUDGET = Duration.ofMinutes(10);
+
+    /** One registered model. */
+    public static final class Entry {
+        private final String name;
+        private final Supplier<Classifier> factory;
+        private final Duration budget;
+
+        Entry(String name, Supplier<Classifier> factory, Duration budget) {
+            this.name = name;
+            this.factory = factory;
+            this.budget = budget;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Classifier create() {
+            return factory.get();
+        }
+
+        public Duration getBudget() {
+            return budget;
+        }
+    }
+
+    private final List<Entry> entries = new ArrayList<>();
+
+    /**
+     * Fast baselines (logistic regression, C4.5, naive Bayes, boosted stumps) followed by
+     * both random forests.
+     */
+    public static ModelRegistry defaults() {
+        ModelRegistry registry = new ModelRegistry();
+        registry.register("Weka Logistic (10-fold CV)", Logistic::new);
+        registry.register("Weka J48 (10-fold CV)", J48::new);
+        registry.register("Weka NaiveBayes (10-fold CV)", NaiveBayes::new);
+        registry.register("Weka AdaBoost Stumps (10-fold CV)", () -> {
+            AdaBoostM1 boost = new AdaBoostM1();
+            boost.setClassifier(new DecisionStump());
+            boost.setNumIterations(100);
+            return boost;
+        });
+        registry.register(WekaRandomForestEvaluator.MODEL_NAME, RandomForest::new);
+        registry.register(ModelTrainer.HISTOGRAM_RF_NAME, HistogramRandomForest::new);
+        return registry;
+    }
+
+    public ModelRegistry register(String name, Supplier<Classifier> factory) {
+        return register(name, factory, DEFAULT_BUDGET);
+    }
+
+    public ModelRegistry register(String name, Supplier<Classifier> factory, Duration budget) {
+        for (Entry entry : entries) {
+            if (entry.name.equals(name)) {
+                throw new IllegalArgumentException("Model already registered: " + name);
+            }
+        }
+        entries.add(new Entry(name, factory, budget));
+        return this;
+    }
+
+    public List<Entry> getEntries() {
+        return Collections.unmodifiableList(entries);
+    }
+}
@@ -0,0 +1,317 @@
+package com.nba.predict;
+
+import weka.classifiers.Classifier;
+import weka.core.BatchPredictor;
+import weka.core.DenseInstance;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.Utils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Directory of trained models, one numbered file per save ({@code model-00001.bin},
+ * {@code model-00002.bin}, ...); the highest number is the latest. Each file starts with a
+ * header holding the feature schema, the fingerprint of the training data and the CV
+ * metrics, followed by the Java-serialized Weka classifier, so a model can be reloaded
+ * and used for scoring without retraining. Only the newest few files are kept; older ones
+ * are deleted as new models are saved.
+ */
+public class ModelStore {
+    private static final int MAGIC = 0x4E424D44; // "NBMD"
+    private static final int VERSION = 2; // 2: probability metrics after the confusion matrix
+    private static final String PREFIX = "model-";
+    private static final String SUFFIX = ".bin";
+    private static final int IO_BUFFER_BYTES = 1 << 16;
+    /** Model files kept by default, the latest included. */
+    public static final int DEFAULT_RETAINED = 5;
+
+    private final Path directory;
+    private final int retained;
+
+    public ModelStore(Path directory) {
+        this(directory, DEFAULT_RETAINED);
+    }
+
+    /** @param retained how many of the newest model files {@link #save} keeps, at least 1 */
+    public ModelStore(Path directory, int retained) {
+        this.directory = directory;
+        this.retained = Math.max(1, retained);
+    }
+
+    /**
+     * Saves {@code result}'s classifier as the new latest model, deletes all but the newest
+     * retained files, and returns the new file.
+     */
+    public Path save(ModelResult result, String[] featureNames, long dataFingerprint) throws IOException {
+        if (!(result.getModel() instanceof Classifier)) {
+            throw new IllegalArgumentException("Not a Weka classifier: " + result.getModelName());
+        }
+        Files.createDirectories(directory);
+        Path latest = latestFile();
+        Path file = directory.resolve(String.format("%s%05d%s", PREFIX,
+                latest == null ? 1 : sequence(latest) + 1, SUFFIX));
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(tmp), IO_BUFFER_BYTES))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(FeaturePipeline.PIPELINE_VERSION);
+            out.writeLong(dataFingerprint);
+            out.writeLong(System.currentTimeMillis());
+            out.writeUTF(result.getModelName());
+            out.writeLong(result.getTrainingTimeMs());
+            out.writeInt(featureNames.length);
+            for (String name : featureNames) {
+                out.writeUTF(name);
+            }
+            writeEvaluation(out, result.getEvaluation());
+            ObjectOutputStream objects = new ObjectOutputStream(out);
+            objects.writeObject(result.getModel());
+            objects.flush();
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        prune();
+        return file;
+    }
+
+    /** Deletes model files older than the newest {@code retained}. */
+    private void prune() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+            for (Path file : stream) {
+                if (sequence(file) > 0) {
+                    files.add(file);
+                }
+            }
+        }
+        files.sort(Comparator.comparingInt(ModelStore::sequence));
+        for (int i = 0; i < files.size() - retained; i++) {
+            Files.deleteIfExists(files.get(i));
+        }
+    }
+
+    /** The most recently saved model, or null if the store is empty. */
+    public StoredModel loadLatest() throws IOException {
+        Path latest = latestFile();
+        return latest == null ? null : load(latest);
+    }
+
+    public StoredModel load(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(file), IO_BUFFER_BYTES))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a model file: " + file);
+            }
+            int version = in.readInt();
+            if (version != VERSION && version != 1) {
+                throw new IOException("Unsupported model file version " + version + ": " + file);
+            }
+            int pipelineVersion = in.readInt();
+            long dataFingerprint = in.readLong();
+            long createdAt = in.readLong();
+            String modelName = in.readUTF();
+            long trainingTimeMs = in.readLong();
+            String[] featureNames = new String[in.readInt()];
+            for (int j = 0; j < featureNames.length; j++) {
+                featureNames[j] = in.readUTF();
+            }
+            ModelEvaluation evaluation = readEvaluation(in, version);
+            Classifier classifier;
+            try {
+                classifier = (Classifier) new ObjectInputStream(in).readObject();
+            } catch (ClassNotFoundException e) {
+                throw new IOException("Model class not on the classpath: " + file, e);
+            }
+            return new StoredModel(file, pipelineVersion, dataFingerprint, createdAt,
+                    new ModelResult(modelName, classifier, evaluation, trainingTimeMs), featureNames);
+        }
+    }
+
+    private Path latestFile() throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return null;
+        }
+        Path latest = null;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+            for (Path file : files) {
+                if (sequence(file) > 0 && (latest == null || sequence(file) > sequence(latest))) {
+                    latest = file;
+                }
+            }
+        }
+        return latest;
+    }
+
+    private static int sequence(Path file) {
+        String name = file.getFileName().toString();
+        try {
+            return Integer.parseInt(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static void writeEvaluation(DataOutputStream out, ModelEvaluation e) throws IOException {
+        out.writeDouble(e.getAccuracy());
+        out.writeDouble(e.getPrecisionWin());
+        out.writeDouble(e.getRecallWin());
+        out.writeDouble(e.getF1Win());
+        out.writeDouble(e.getPrecisionLoss());
+        out.writeDouble(e.getRecallLoss());
+        out.writeDouble(e.getF1Loss());
+        int[][] cm = e.getConfusionMatrix();
+        for (int i = 0; i < 2; i++) {
+            for (int j = 0; j < 2; j++) {
+                out.writeInt(cm[i][j]);
+            }
+        }
+        out.writeBoolean(e.getProbabilities() != null);
+        if (e.getProbabilities() != null) {
+            e.getProbabilities().write(out);
+        }
+    }
+
+    private static ModelEvaluation readEvaluation(DataInputStream in, int version) throws IOException {
+        double accuracy = in.readDouble();
+        double precisionWin = in.readDouble();
+        double recallWin = in.readDouble();
+        double f1Win = in.readDouble();
+        double precisionLoss = in.readDouble();
+        double recallLoss = in.readDouble();
+        double f1Loss = in.readDouble();
+        int[][] cm = new int[2][2];
+        for (int i = 0; i < 2; i++) {
+            for (int j = 0; j < 2; j++) {
+                cm[i][j] = in.readInt();
+            }
+        }
+        ModelEvaluation evaluation = new ModelEvaluation(accuracy, precisionWin, recallWin, f1Win,
+                precisionLoss, recallLoss, f1Loss, cm);
+        if (version >= 2 && in.readBoolean()) {
+            evaluation.withProbabilities(ProbabilityMetrics.read(in));
+        }
+        return evaluation;
+    }
+
+    /** A loaded model with its metadata, ready to score feature rows. */
+    public static class StoredModel {
+        private final Path file;
+        private final int pipelineVersion;
+        private final long dataFingerprint;
+        private final long createdAt;
+        private final ModelResult result;
+        private final String[] featureNames;
+        private final Instances header;
+        private final int winIndex;
+
+        StoredModel(Path file, int pipelineVersion, long dataFingerprint, long createdAt,
+                    ModelResult result, String[] featureNames) {
+            this.file = file;
+            this.pipelineVersion = pipelineVersion;
+            this.dataFingerprint = dataFingerprint;
+            this.createdAt = createdAt;
+            this.result = result;
+            this.featureNames = featureNames;
+            this.header = FeatureInstances.header(featureNames, 0);
+            this.winIndex = header.classAttribute().indexOfValue("WIN");
+        }
+
+        public Path getFile() {
+            return file;
+        }
+
+        public int getPipelineVersion() {
+            return pipelineVersion;
+        }
+
+        public long getDataFingerprint() {
+            return dataFingerprint;
+        }
+
+        public long getCreatedAt() {
+            return createdAt;
+        }
+
+        public String getModelName() {
+            return result.getModelName();
+        }
+
+        public ModelEvaluation getEvaluation() {
+            return result.getEvaluation();
+        }
+
+        public long getTrainingTimeMs() {
+            return result.getTrainingTimeMs();
+        }
+
+        public Classifier getClassifier() {
+            return (Classifier) result.getModel();
+        }
+
+        public String[] getFeatureNames() {
+            return featureNames.clone();
+        }
+
+        /** True if rows produced by the current FeaturePipeline match this model's schema. */
+        public boolean isCompatible(String[] currentFeatureNames) {
+            return pipelineVersion == FeaturePipeline.PIPELINE_VERSION
+                    && Arrays.equals(featureNames, currentFeatureNames);
+        }
+
+        /** Probability that the home team wins, given one feature row. */
+        public double predictHomeWin(double[] features) throws Exception {
+            return getClassifier().distributionForInstance(toInstance(features, header))[winIndex];
+        }
+
+        /**
+         * Home-win probabilities for several rows, scored in a single batch call when the
+         * classifier supports it.
+         */
+        public double[] predictHomeWin(double[][] rows) throws Exception {
+            Instances batch = new Instances(header, rows.length);
+            for (double[] features : rows) {
+                batch.add(toInstance(features, batch));
+            }
+            Classifier classifier = getClassifier();
+            double[] out = new double[rows.length];
+            if (classifier instanceof BatchPredictor) {
+                double[][] dist = ((BatchPredictor) classifier).distributionsForInstances(batch);
+                for (int i = 0; i < out.length; i++) {
+                    out[i] = dist[i][winIndex];
+                }
+            } else {
+                for (int i = 0; i < out.length; i++) {
+                    out[i] = classifier.distributionForInstance(batch.instance(i))[winIndex];
+                }
+            }
+            return out;
+        }
+
+        private Instance toInstance(double[] features, Instances dataset) {
+            if (features.length != featureNames.length) {
+                throw new IllegalArgumentException("Expected " + featureNames.length
+                        + " features, got " + features.length);
+            }
+            double[] vals = Arrays.copyOf(features, features.length + 1);
+            vals[features.length] = Utils.missingValue();
+            Instance instance = new DenseInstance(1.0, vals);
+            instance.setDataset(dataset);
+            return instance;
+        }
+    }
+}
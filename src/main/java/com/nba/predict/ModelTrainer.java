@@ -1,24 +1,165 @@
 package com.nba.predict;
 
+import weka.core.Instances;
+
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 /**
- * ModelTrainer now acts as a thin wrapper around Weka's RandomForest,
- * evaluated via 10-fold cross-validation on the full feature matrix.
+ * ModelTrainer evaluates every model of a {@link ModelRegistry} with the same 10-fold
+ * cross-validation on the training rows.
+ *
+ * Models train concurrently on one pool, sharing the thread budget as in
+ * {@link ParallelCrossValidator}: models in flight times each model's CV threads never
+ * exceeds it. A model that runs past its wall-clock budget is cancelled: its result is
+ * dropped at once, its pending folds never start and its running folds are interrupted,
+ * which stops a {@link HistogramRandomForest} before its next tree. Weka's own classifiers
+ * ignore interrupts, so their running folds train to the end; the model keeps its pool slot
+ * until they return, and only then does the next queued model start. Results are handed to
+ * a listener as each model finishes.
  */
 public class ModelTrainer {
+    public static final String HISTOGRAM_RF_NAME = "Histogram RandomForest (10-fold CV)";
 
-    public List<ModelResult> trainAllModels(double[][] trainFeatures, int[] trainLabels,
-                                            double[][] testFeatures, int[] testLabels) {
-        List<ModelResult> results = new ArrayList<>();
+    private final ModelRegistry registry;
+    private final int threadBudget;
+
+    public ModelTrainer() {
+        this(ModelRegistry.defaults(), Runtime.getRuntime().availableProcessors());
+    }
+
+    public ModelTrainer(ModelRegistry registry, int threadBudget) {
+        this.registry = registry;
+        this.threadBudget = Math.max(1, threadBudget);
+    }
+
+    public List<ModelResult> trainAllModels(FeaturePipeline.FeatureData featureData) {
+        return trainAllModels(featureData, result -> { });
+    }
+
+    /**
+     * Cross-validates every registered model and returns the results of those that finished
+     * in time, in registration order. {@code listener} is called with each result as soon as
+     * its model finishes, in completion order, on the calling thread. Returns once the folds
+     * of cancelled models have stopped.
+     */
+    public List<ModelResult> trainAllModels(FeaturePipeline.FeatureData featureData,
+                                            Consumer<ModelResult> listener) {
+        // All models train on the same instances and folds, so their metrics compare directly.
+        Instances data = WekaRandomForestEvaluator.trainingInstances(featureData);
+        List<ModelRegistry.Entry> entries = registry.getEntries();
+        if (entries.isEmpty()) {
+            return new ArrayList<>();
+        }
+        int modelThreads = Math.min(entries.size(), threadBudget);
+        int threadsPerModel = Math.max(1, threadBudget / modelThreads);
+        ExecutorService pool = Executors.newFixedThreadPool(modelThreads, r -> {
+            Thread t = new Thread(r, "model");
+            t.setDaemon(true);
+            return t;
+        });
+        ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "model-budget");
+            t.setDaemon(true);
+            return t;
+        });
+        BlockingQueue<Run> finished = new LinkedBlockingQueue<>();
+        List<Run> runs = new ArrayList<>(entries.size());
         try {
-            // Single model: Weka RandomForest with 10-fold CV
-            results.add(WekaRandomForestEvaluator.runRandomForestCV(trainFeatures, trainLabels));
-        } catch (Exception e) {
-            System.err.println("Weka RandomForest CV failed: " + e.getMessage());
-            e.printStackTrace();
+            for (ModelRegistry.Entry entry : entries) {
+                Run run = new Run(entry, data, threadsPerModel, timer, finished);
+                runs.add(run);
+                pool.execute(run);
+            }
+            for (int i = 0; i < runs.size(); i++) {
+                Run run = finished.take();
+                run.result = collect(run);
+                if (run.result != null) {
+                    listener.accept(run.result);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            runs.forEach(run -> run.cancel(true));
+        } finally {
+            pool.shutdownNow();
+            timer.shutdownNow();
+            ParallelCrossValidator.awaitTermination(pool);
+        }
+
+        List<ModelResult> results = new ArrayList<>();
+        for (Run run : runs) {
+            if (run.result != null) {
+                results.add(run.result);
+            }
         }
         return results;
     }
+
+    /** The run's result, or null after reporting why it has none. */
+    private static ModelResult collect(Run run) {
+        String name = run.entry.getName();
+        try {
+            return run.get();
+        } catch (CancellationException e) {
+            System.err.println(name + " exceeded its " + run.entry.getBudget().toSeconds()
+                    + " s budget and was cancelled");
+        } catch (ExecutionException e) {
+            System.err.println(name + " CV failed: " + e.getCause().getMessage());
+            e.getCause().printStackTrace();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return null;
+    }
+
+    /**
+     * One model's CV. The budget clock starts when the run leaves the queue. Cancelling marks
+     * the run done and interrupts it, but {@link #run} returns, freeing the pool slot, only
+     * when the cross-validation has stopped its folds.
+     */
+    private static final class Run extends FutureTask<ModelResult> {
+        private final ModelRegistry.Entry entry;
+        private final ScheduledExecutorService timer;
+        private final BlockingQueue<Run> finished;
+        private ModelResult result;
+
+        Run(ModelRegistry.Entry entry, Instances data, int threads,
+            ScheduledExecutorService timer, BlockingQueue<Run> finished) {
+            super(() -> WekaRandomForestEvaluator.crossValidate(entry.getName(), entry.create(), data, threads));
+            this.entry = entry;
+            this.timer = timer;
+            this.finished = finished;
+        }
+
+        @Override
+        public void run() {
+            if (isDone()) {
+                return;
+            }
+            ScheduledFuture<?> alarm = timer.schedule(() -> cancel(true),
+                    entry.getBudget().toMillis(), TimeUnit.MILLISECONDS);
+            try {
+                super.run();
+            } finally {
+                alarm.cancel(false);
+            }
+        }
+
+        @Override
+        protected void done() {
+            finished.add(this);
+        }
+    }
 }
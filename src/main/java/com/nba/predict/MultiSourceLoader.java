@@ -0,0 +1,280 @@
+package com.nba.predict;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Loads games split across several CSV exports and SQLite files as one table. Every source
+ * is read on its own thread through {@link DataLoader#loadGames}, so ingest takes about as
+ * long as the slowest source rather than the sum of them. Each source comes back sorted by
+ * date, so the tables are combined with a k-way heap merge instead of a global re-sort, and
+ * the merged rows arrive at the builder already in order.
+ *
+ * A game present in several sources (overlapping season exports, a CSV dump of a database)
+ * is kept once, from the first source in merge order, using an open-addressing set of
+ * primitive game ids. Rows without a game id cannot be matched and are always kept.
+ */
+public class MultiSourceLoader {
+    private static final int MAX_THREADS = 16;
+
+    private final DataLoader loader;
+    private final int maxThreads;
+
+    public MultiSourceLoader(DataLoader loader) {
+        this(loader, MAX_THREADS);
+    }
+
+    public MultiSourceLoader(DataLoader loader, int maxThreads) {
+        this.loader = loader;
+        this.maxThreads = Math.max(1, maxThreads);
+    }
+
+    /** Whether {@code spec} names more than one source: a comma-separated list or a glob. */
+    public static boolean isMultiSource(String spec) {
+        return spec.indexOf(',') >= 0 || isGlob(spec);
+    }
+
+    /**
+     * The files a source spec names, in order: each comma-separated entry is a path, or a
+     * glob such as {@code exports/season-*.csv} whose matches are taken in name order.
+     */
+    public static List<String> resolve(String spec) throws IOException {
+        List<String> sources = new ArrayList<>();
+        for (String entry : spec.split(",")) {
+            String pattern = entry.trim();
+            if (pattern.isEmpty()) {
+                continue;
+            }
+            if (!isGlob(pattern)) {
+                sources.add(pattern);
+                continue;
+            }
+            Path path = Paths.get(pattern);
+            Path dir = path.getParent() == null ? Paths.get(".") : path.getParent();
+            PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + path.getFileName());
+            List<String> matches = new ArrayList<>();
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+                for (Path file : files) {
+                    if (matcher.matches(file.getFileName()) && Files.isRegularFile(file)) {
+                        matches.add(path.getParent() == null ? file.getFileName().toString() : file.toString());
+                    }
+                }
+            }
+            if (matches.isEmpty()) {
+                throw new IOException("No files match " + pattern);
+            }
+            matches.sort(null);
+            sources.addAll(matches);
+        }
+        if (sources.isEmpty()) {
+            throw new IOException("No data sources in: " + spec);
+        }
+        return sources;
+    }
+
+    private static boolean isGlob(String pattern) {
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            if (c == '*' || c == '?' || c == '[' || c == '{') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Reads every source concurrently and merges them into one chronological table. */
+    public GameTable load(List<String> sources) throws Exception {
+        try (PipelineMetrics.Phase phase = PipelineMetrics.get().phase("load.sources")) {
+            GameTable games = merge(loadAll(sources));
+            phase.setRows(games.size());
+            return games;
+        }
+    }
+
+    private GameTable[] loadAll(List<String> sources) throws Exception {
+        GameTable[] tables = new GameTable[sources.size()];
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(maxThreads, sources.size()), r -> {
+            Thread t = new Thread(r, "load-source");
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            List<Future<GameTable>> loads = new ArrayList<>(sources.size());
+            for (String source : sources) {
+                loads.add(pool.submit(() -> loader.loadGames(source)));
+            }
+            for (int s = 0; s < tables.length; s++) {
+                tables[s] = loads.get(s).get();
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof Exception ? (Exception) cause : e;
+        } finally {
+            pool.shutdownNow();
+        }
+        return tables;
+    }
+
+    /**
+     * k-way merge of date-sorted tables. Ties on the date go to the lower-numbered table,
+     * and rows of one table keep their order, so the merge is stable.
+     */
+    static GameTable merge(GameTable... tables) {
+        try (PipelineMetrics.Phase phase = PipelineMetrics.get().phase("merge")) {
+            GameTable merged = mergeSorted(tables);
+            phase.setRows(merged.size());
+            return merged;
+        }
+    }
+
+    private static GameTable mergeSorted(GameTable[] tables) {
+        int total = 0;
+        for (GameTable table : tables) {
+            total += table.size();
+        }
+        int[][] teams = new int[tables.length][];
+        GameTable.Builder builder = new GameTable.Builder(total);
+        for (int s = 0; s < tables.length; s++) {
+            teams[s] = new int[tables[s].getTeamCount()];
+            for (int t = 0; t < teams[s].length; t++) {
+                teams[s][t] = builder.internTeam(tables[s].getTeamId(t));
+            }
+        }
+
+        // Min-heap of (day << 32 | table), one entry per table with rows left.
+        long[] heap = new long[tables.length];
+        int heapSize = 0;
+        int[] next = new int[tables.length];
+        for (int s = 0; s < tables.length; s++) {
+            if (tables[s].size() > 0) {
+                heap[heapSize++] = key(tables[s].getGameDay(0), s);
+            }
+        }
+        for (int i = heapSize / 2 - 1; i >= 0; i--) {
+            siftDown(heap, heapSize, i);
+        }
+
+        LongHashSet seen = new LongHashSet(total);
+        long duplicates = 0;
+        while (heapSize > 0) {
+            int s = (int) heap[0];
+            GameTable t = tables[s];
+            int row = next[s]++;
+            long id = t.getGameId(row);
+            if (id == GameTable.NO_GAME_ID || seen.add(id)) {
+                builder.addGame(id, t.getGameDay(row), teams[s][t.getHomeTeam(row)], teams[s][t.getAwayTeam(row)],
+                        t.getPtsHome(row), t.getPtsAway(row), t.isHomeWin(row),
+                        t.getFgPctHome(row), t.getFgPctAway(row), t.getRebHome(row), t.getRebAway(row),
+                        t.getAstHome(row), t.getAstAway(row), t.getTovHome(row), t.getTovAway(row));
+            } else {
+                duplicates++;
+            }
+            if (next[s] < t.size()) {
+                heap[0] = key(t.getGameDay(next[s]), s);
+            } else {
+                heap[0] = heap[--heapSize];
+            }
+            siftDown(heap, heapSize, 0);
+        }
+        if (duplicates > 0) {
+            PipelineMetrics.get().increment(PipelineMetrics.DUPLICATE_GAMES, duplicates);
+        }
+        // Rows were appended in date order, so build() finds nothing to sort.
+        return builder.build();
+    }
+
+    private static long key(int day, int table) {
+        return ((long) day << 32) | table;
+    }
+
+    private static void siftDown(long[] heap, int size, int i) {
+        long value = heap[i];
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && heap[child + 1] < heap[child]) {
+                child++;
+            }
+            if (heap[child] >= value) {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = value;
+    }
+
+    /** Open-addressing set of non-negative longs with linear probing; -1 marks an empty slot. */
+    private static final class LongHashSet {
+        private static final long EMPTY = -1L;
+
+        private long[] slots;
+        private int size;
+
+        LongHashSet(int expected) {
+            slots = new long[tableSize(expected)];
+            Arrays.fill(slots, EMPTY);
+        }
+
+        /** Adds {@code value}; false if it was already present. */
+        boolean add(long value) {
+            if (2 * (size + 1) > slots.length) {
+                rehash();
+            }
+            int mask = slots.length - 1;
+            for (int i = mix(value) & mask; ; i = (i + 1) & mask) {
+                if (slots[i] == EMPTY) {
+                    slots[i] = value;
+                    size++;
+                    return true;
+                }
+                if (slots[i] == value) {
+                    return false;
+                }
+            }
+        }
+
+        private void rehash() {
+            long[] old = slots;
+            slots = new long[old.length * 2];
+            Arrays.fill(slots, EMPTY);
+            int mask = slots.length - 1;
+            for (long value : old) {
+                if (value != EMPTY) {
+                    int i = mix(value) & mask;
+                    while (slots[i] != EMPTY) {
+                        i = (i + 1) & mask;
+                    }
+                    slots[i] = value;
+                }
+            }
+        }
+
+        private static int tableSize(int expected) {
+            int size = 16;
+            while (size < 2 * expected) {
+                size <<= 1;
+            }
+            return size;
+        }
+
+        private static int mix(long value) {
+            long h = value * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+}
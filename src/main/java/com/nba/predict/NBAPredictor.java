@@ -1,10 +1,30 @@
 package com.nba.predict;
 
 import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
 
 public class NBAPredictor {
-    
+    private static final String FEATURE_CACHE_DIR = "feature-cache";
+    private static final String MODEL_DIR = "models";
+    private static final String SCORE_FLAG = "--score";
+    private static final String SERVE_FLAG = "--serve";
+    private static final String BACKTEST_FLAG = "--backtest";
+    private static final String TUNE_FLAG = "--tune";
+    private static final String ONLINE_FLAG = "--online";
+    private static final String IMPORTANCE_FLAG = "--importance";
+    private static final Path ONLINE_CHECKPOINT = Paths.get("online", "checkpoint.bin");
+    private static final String SEARCH_CACHE_DIR = "search-cache";
+
     public static void main(String[] args) {
         String dataPath = "nba.sqlite";
         java.io.File sqliteFile = new java.io.File(dataPath);
@@ -12,8 +32,21 @@ public class NBAPredictor {
             dataPath = "game.csv"; // fallback to CSV if sqlite not present
         }
         
-        if (args.length > 0) {
-            dataPath = args[0];
+        // --score: load the latest saved model and score games, skipping CV and the final fit.
+        // --serve [data] [port]: keep the latest model and live league state behind a local HTTP endpoint.
+        // --backtest [data] [week|month|season] [start]: walk-forward retrain-and-score from the split date.
+        // --tune [data] [weka|histogram] [N]: hyperparameter search, full grid or N random configurations.
+        // --online [data] [hoeffding|naive-bayes|bagging]: test-then-train updateable model, resumed from its checkpoint.
+        // --importance [data] [repeats]: permutation importance on the test rows, then a refit on the useful features.
+        boolean scoreOnly = args.length > 0 && SCORE_FLAG.equals(args[0]);
+        boolean serve = args.length > 0 && SERVE_FLAG.equals(args[0]);
+        boolean backtest = args.length > 0 && BACKTEST_FLAG.equals(args[0]);
+        boolean tune = args.length > 0 && TUNE_FLAG.equals(args[0]);
+        boolean online = args.length > 0 && ONLINE_FLAG.equals(args[0]);
+        boolean importance = args.length > 0 && IMPORTANCE_FLAG.equals(args[0]);
+        int dataArg = scoreOnly || serve || backtest || tune || online || importance ? 1 : 0;
+        if (args.length > dataArg) {
+            dataPath = args[dataArg];
         }
         
         System.out.println("NBA Match Prediction Engine");
@@ -21,32 +54,70 @@ public class NBAPredictor {
         System.out.println("Loading data from: " + dataPath);
         
         try {
-            // Phase 1: Load data
-            DataLoader loader = new DataLoader();
-            List<RawGame> games = loader.loadGames(dataPath);
-            System.out.println("Loaded " + games.size() + " games");
+            // Per-phase timings and data-quality counters go next to model_results.csv.
+            PipelineMetrics.get().addSink(new MetricsReport(
+                    Paths.get("pipeline_metrics.json"), Paths.get("pipeline_metrics.csv")));
+            if (scoreOnly) {
+                scoreWithLatestModel(dataPath);
+                return;
+            }
+            if (serve) {
+                int port = args.length > 2 ? Integer.parseInt(args[2]) : PredictionServer.DEFAULT_PORT;
+                serve(dataPath, port);
+                return;
+            }
+            if (backtest) {
+                WalkForwardBacktester.Cadence cadence = args.length > 2
+                        ? WalkForwardBacktester.Cadence.parse(args[2]) : WalkForwardBacktester.Cadence.MONTH;
+                LocalDate startDate = args.length > 3
+                        ? LocalDate.parse(args[3]) : FeaturePipeline.TRAIN_TEST_SPLIT_DATE;
+                backtest(dataPath, cadence, startDate);
+                return;
+            }
+            if (tune) {
+                HyperparameterSearch.Engine engine = args.length > 2
+                        ? HyperparameterSearch.Engine.parse(args[2]) : HyperparameterSearch.Engine.HISTOGRAM;
+                int samples = args.length > 3 ? Integer.parseInt(args[3]) : 0;
+                tune(dataPath, engine, samples);
+                return;
+            }
+            if (online) {
+                OnlineLearner.Kind kind = args.length > 2
+                        ? OnlineLearner.Kind.parse(args[2]) : OnlineLearner.Kind.HOEFFDING_TREE;
+                online(dataPath, kind);
+                return;
+            }
+            if (importance) {
+                int repeats = args.length > 2 ? Integer.parseInt(args[2]) : PermutationImportance.DEFAULT_REPEATS;
+                importance(dataPath, repeats);
+                return;
+            }
             
-            // Phase 2: Extract features
-            FeaturePipeline pipeline = new FeaturePipeline();
-            FeaturePipeline.FeatureData featureData = pipeline.extractFeatures(games);
-            
-            double[][] trainFeatures = featureData.getTrainFeatures();
-            int[] trainLabels = featureData.getTrainLabels();
-            double[][] testFeatures = featureData.getTestFeatures();
-            int[] testLabels = featureData.getTestLabels();
+            DataLoader loader = new DataLoader();
+            FeaturePipeline pipeline = pipelineFor(loader, dataPath);
+            long dataFingerprint = loader.fingerprint(dataPath);
+            FeaturePipeline.FeatureData featureData = loadFeatures(loader, pipeline, dataPath, dataFingerprint);
             
             // Phase 3: Train multiple models
             System.out.println("\nTraining models...");
             ModelTrainer trainer = new ModelTrainer();
-            List<ModelResult> results = trainer.trainAllModels(
-                trainFeatures, trainLabels, testFeatures, testLabels);
+            ModelEvaluator evaluator = new ModelEvaluator();
+            List<ModelResult> results = trainer.trainAllModels(featureData, evaluator::reportResult);
             
             // Phase 4: Evaluate and compare
-            ModelEvaluator evaluator = new ModelEvaluator();
             evaluator.evaluateAndCompare(results);
             
-            // Phase 5: Export results
+            // Phase 5: Export results and keep the best model for --score and --serve runs
             evaluator.exportResultsToCSV(results, "model_results.csv");
+            evaluator.exportCalibrationToCSV(results, "model_calibration.csv");
+            ModelResult best = evaluator.best(results);
+            if (best != null) {
+                Path saved = new ModelStore(Paths.get(MODEL_DIR))
+                        .save(best, featureData.getFeatureNames(), dataFingerprint);
+                System.out.println("Saved " + best.getModelName() + " to " + saved);
+            }
+            
+            PipelineMetrics.get().complete();
             
             System.out.println("\n" + "=".repeat(80));
             System.out.println("Training and evaluation complete!");
@@ -60,4 +131,399 @@ public class NBAPredictor {
             e.printStackTrace();
         }
     }
+
+    /** The standard pipeline, plus the play-by-play features when the source has play_by_play events. */
+    private static FeaturePipeline pipelineFor(DataLoader loader, String dataPath) throws Exception {
+        FeaturePipeline pipeline = new FeaturePipeline();
+        return loader.hasPlayByPlay(dataPath) ? pipeline.withPlayByPlay() : pipeline;
+    }
+
+    /** Every game of the source, with play-by-play aggregates joined in if {@code pipeline} reads them. */
+    private static GameTable loadGames(DataLoader loader, FeaturePipeline pipeline, String dataPath)
+            throws Exception {
+        GameTable games = loader.loadGames(dataPath);
+        return pipeline.usesPlayByPlay() ? loader.joinPlayByPlay(games, dataPath) : games;
+    }
+
+    /**
+     * Phases 1-2: game loading and feature extraction. Features depend only on the data and
+     * the pipeline, so they are reused from the feature cache when neither changed. When only
+     * new games were added since the last extraction, its {@link FeatureSnapshot} is resumed:
+     * only the new games are extracted and their rows are appended to the cached ones. A
+     * single SQLite source then also reads only the new rows, after its watermark.
+     */
+    private static FeaturePipeline.FeatureData loadFeatures(DataLoader loader, FeaturePipeline pipeline,
+                                                            String dataPath, long dataFingerprint)
+            throws Exception {
+        Path cacheDir = Paths.get(FEATURE_CACHE_DIR);
+        FeatureCache cache = new FeatureCache(cacheDir);
+        long pipelineKey = pipeline.getConfigurationKey();
+        long cacheKey = FeatureCache.key(dataFingerprint, pipelineKey);
+        FeaturePipeline.FeatureData featureData = cache.load(cacheKey);
+        if (featureData != null) {
+            System.out.println("Loaded " + featureData.getTrainSize() + " training and "
+                    + featureData.getTestSize() + " test rows from " + cache.pathFor(cacheKey));
+            return featureData;
+        }
+        Path snapshotFile = FeatureSnapshot.pathFor(cacheDir, dataPath, pipelineKey);
+        Path watermarkFile = FeatureSnapshot.watermarkPathFor(cacheDir, dataPath, pipelineKey);
+        FeatureSnapshot snapshot = FeatureSnapshot.load(snapshotFile, dataPath, pipelineKey);
+        boolean deltaLoad = loader.supportsDeltaLoad(dataPath);
+        
+        // Phases 1-2 for new games only, when the snapshot still describes the source
+        if (snapshot != null && deltaLoad) {
+            featureData = resumeNewGames(loader, pipeline, cache, dataPath, watermarkFile, snapshot,
+                    cacheKey, dataFingerprint);
+            if (featureData != null) {
+                snapshot.save(snapshotFile, dataPath, pipelineKey);
+                return featureData;
+            }
+            System.out.println("Snapshot " + snapshotFile + " no longer matches the data; extracting all games");
+        }
+        
+        // Phase 1: Load data
+        GameTable games;
+        if (deltaLoad) {
+            // A full read from no watermark, which records where the next delta starts.
+            Files.createDirectories(cacheDir);
+            Files.deleteIfExists(watermarkFile);
+            games = loader.loadNewGames(dataPath, watermarkFile);
+            if (pipeline.usesPlayByPlay()) {
+                games = loader.joinPlayByPlay(games, dataPath);
+            }
+        } else {
+            games = loadGames(loader, pipeline, dataPath);
+        }
+        System.out.println("Loaded " + games.size() + " games");
+        
+        // Phase 2: Extract features, from the snapshot if the games it covered are unchanged
+        if (snapshot != null && !deltaLoad) {
+            long covered = snapshot.getState().getGamesProcessed();
+            featureData = resume(pipeline, cache, games, snapshot, cacheKey, dataFingerprint);
+            if (featureData != null) {
+                System.out.println("Resumed from " + snapshotFile + ": extracted "
+                        + (games.size() - covered) + " new games");
+                snapshot.save(snapshotFile, dataPath, pipelineKey);
+                return featureData;
+            }
+            System.out.println("Snapshot " + snapshotFile + " no longer matches the data; extracting all games");
+        }
+        // Both paths produce identical rows; the team-partitioned one only pays off with spare cores.
+        LeagueState state = pipeline.newState();
+        featureData = Runtime.getRuntime().availableProcessors() > 1
+                ? pipeline.extractFeaturesParallel(games, ForkJoinPool.commonPool(), state)
+                : pipeline.extractFeatures(games, state);
+        cache.store(cacheKey, featureData);
+        SqliteGameReader.Watermark watermark = deltaLoad ? SqliteGameReader.Watermark.load(watermarkFile) : null;
+        new FeatureSnapshot(dataFingerprint, games.digest(0, 0, games.size()), state, watermark)
+                .save(snapshotFile, dataPath, pipelineKey);
+        return featureData;
+    }
+
+    /**
+     * Extracts the games after those {@code snapshot} covered and appends their rows to its
+     * cached entry, which is re-filed under {@code cacheKey}. Advances {@code snapshot} to the
+     * end of {@code games}.
+     *
+     * @return all feature rows, or null if the covered games are no longer a prefix of
+     *         {@code games} (history was edited or removed) or the cached rows are gone;
+     *         {@code snapshot} is then unusable
+     */
+    private static FeaturePipeline.FeatureData resume(FeaturePipeline pipeline, FeatureCache cache,
+                                                      GameTable games, FeatureSnapshot snapshot,
+                                                      long cacheKey, long dataFingerprint) throws IOException {
+        LeagueState state = snapshot.getState();
+        long seen = state.getGamesProcessed();
+        if (seen > games.size() || games.digest(0, 0, (int) seen) != snapshot.getGamesDigest()) {
+            return null;
+        }
+        long snapshotKey = FeatureCache.key(snapshot.getSourceFingerprint(), pipeline.getConfigurationKey());
+        FeaturePipeline.FeatureData featureData =
+                pipeline.resume(state, games.slice((int) seen), cache, snapshotKey, cacheKey);
+        if (featureData != null) {
+            snapshot.advance(dataFingerprint, games.digest(snapshot.getGamesDigest(), (int) seen, games.size()),
+                    null);
+        }
+        return featureData;
+    }
+
+    /**
+     * Delta counterpart of {@link #resume} for a single SQLite source: reads only the rows
+     * after the snapshot's watermark, so the games it covered are never loaded again.
+     *
+     * @return all feature rows, or null if the watermark file disagrees with the snapshot (a
+     *         run died between advancing one and saving the other, or the file was edited),
+     *         the rows up to the watermark no longer have the fingerprint the snapshot
+     *         recorded (history was edited or removed), or the cached rows are gone;
+     *         {@code snapshot} is then unusable
+     */
+    private static FeaturePipeline.FeatureData resumeNewGames(DataLoader loader, FeaturePipeline pipeline,
+                                                              FeatureCache cache, String dataPath,
+                                                              Path watermarkFile, FeatureSnapshot snapshot,
+                                                              long cacheKey, long dataFingerprint) throws Exception {
+        SqliteGameReader.Watermark since = snapshot.getWatermark();
+        if (since == null || !since.equals(SqliteGameReader.Watermark.load(watermarkFile))
+                || loader.fingerprint(dataPath, since) != snapshot.getSourceFingerprint()) {
+            return null;
+        }
+        GameTable newGames = loader.loadNewGames(dataPath, watermarkFile);
+        if (pipeline.usesPlayByPlay()) {
+            newGames = loader.joinNewPlayByPlay(newGames, dataPath, since);
+        }
+        System.out.println("Loaded " + newGames.size() + " games added after " + since);
+        long snapshotKey = FeatureCache.key(snapshot.getSourceFingerprint(), pipeline.getConfigurationKey());
+        FeaturePipeline.FeatureData featureData =
+                pipeline.resume(snapshot.getState(), newGames, cache, snapshotKey, cacheKey);
+        if (featureData != null) {
+            snapshot.advance(dataFingerprint, newGames.digest(snapshot.getGamesDigest(), 0, newGames.size()),
+                    SqliteGameReader.Watermark.load(watermarkFile));
+        }
+        return featureData;
+    }
+
+    /** Scores the held-out games with the latest saved model and writes predictions.csv. */
+    private static void scoreWithLatestModel(String dataPath) throws Exception {
+        long start = System.nanoTime();
+        // Deserializing the forest dominates start-up, so overlap it with feature loading.
+        CompletableFuture<ModelStore.StoredModel> loading = CompletableFuture.supplyAsync(() -> {
+            try {
+                return new ModelStore(Paths.get(MODEL_DIR)).loadLatest();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        
+        DataLoader loader = new DataLoader();
+        FeaturePipeline pipeline = pipelineFor(loader, dataPath);
+        long dataFingerprint = loader.fingerprint(dataPath);
+        FeaturePipeline.FeatureData featureData = loadFeatures(loader, pipeline, dataPath, dataFingerprint);
+        
+        ModelStore.StoredModel model;
+        try {
+            model = loading.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        }
+        if (model == null) {
+            System.err.println("No saved model in " + MODEL_DIR + "/; run without " + SCORE_FLAG + " first.");
+            return;
+        }
+        System.out.printf("Loaded %s from %s (CV accuracy %.4f)%n",
+                model.getModelName(), model.getFile(), model.getEvaluation().getAccuracy());
+        if (!model.isCompatible(featureData.getFeatureNames())) {
+            System.err.println("Saved model was trained on a different feature schema; retrain it.");
+            return;
+        }
+        if (model.getDataFingerprint() != dataFingerprint) {
+            System.out.println("Note: data has changed since the model was trained.");
+        }
+        
+        double[][] testFeatures = featureData.getTestFeatures();
+        int[] testLabels = featureData.getTestLabels();
+        int correct = 0;
+        Path out = Paths.get("predictions.csv");
+        try (PipelineMetrics.Phase phase = PipelineMetrics.get().phase("score");
+             PrintWriter writer = new PrintWriter(Files.newBufferedWriter(out))) {
+            phase.setRows(testFeatures.length);
+            writer.println("Row,P_Home_Win,Predicted,Actual");
+            for (int i = 0; i < testFeatures.length; i++) {
+                double p = model.predictHomeWin(testFeatures[i]);
+                if (i == 0) {
+                    System.out.printf("First prediction after %d ms%n", (System.nanoTime() - start) / 1_000_000);
+                }
+                String predicted = p >= 0.5 ? "WIN" : "LOSS";
+                String actual = testLabels[i] == 1 ? "WIN" : "LOSS";
+                if (predicted.equals(actual)) {
+                    correct++;
+                }
+                writer.println(String.format(Locale.US, "%d,%.4f,%s,%s", i, p, predicted, actual));
+            }
+        }
+        System.out.printf("Scored %d games (accuracy %.4f) in %d ms; predictions written to %s%n",
+                testFeatures.length, testFeatures.length == 0 ? 0.0 : (double) correct / testFeatures.length,
+                (System.nanoTime() - start) / 1_000_000, out);
+        PipelineMetrics.get().complete();
+    }
+
+    /**
+     * Retrains Weka RandomForest for every period from {@code startDate} on, scores the period
+     * and writes backtest_results.csv. Uses the same cached feature rows as training.
+     */
+    private static void backtest(String dataPath, WalkForwardBacktester.Cadence cadence, LocalDate startDate)
+            throws Exception {
+        DataLoader loader = new DataLoader();
+        FeaturePipeline pipeline = pipelineFor(loader, dataPath);
+        FeaturePipeline.FeatureData featureData =
+                loadFeatures(loader, pipeline, dataPath, loader.fingerprint(dataPath));
+        
+        System.out.println("\nWalk-forward backtest from " + startDate + ", retraining every "
+                + cadence.name().toLowerCase(Locale.ROOT) + "...");
+        WalkForwardBacktester.Result result = new WalkForwardBacktester(startDate, cadence)
+                .run(new weka.classifiers.trees.RandomForest(), featureData);
+        for (WalkForwardBacktester.PeriodResult period : result.getPeriods()) {
+            System.out.printf("  %s  train %6d  test %5d  accuracy %.4f  brier %.4f%n", period.getStart(),
+                    period.getTrainRows(), period.getTestRows(), period.getAccuracy(), period.getBrierScore());
+        }
+        System.out.printf("%d periods, %d games: accuracy %.4f, AUC %.4f, Brier %.4f (%d ms)%n",
+                result.getPeriods().size(), result.getTestRows(), result.getOverall().getAccuracy(),
+                result.getOverallAuc(), result.getOverallBrierScore(), result.getWallTimeMs());
+        result.exportToCSV("backtest_results.csv");
+        System.out.println("Backtest results exported to: backtest_results.csv");
+        PipelineMetrics.get().complete();
+    }
+
+    /**
+     * Searches forest hyperparameters on the training rows and writes tuning_results.csv.
+     * Fold results are cached per feature data and configuration, so reruns and wider
+     * sweeps only evaluate configurations and folds not seen before.
+     *
+     * @param samples number of random configurations, or 0 for the full grid
+     */
+    private static void tune(String dataPath, HyperparameterSearch.Engine engine, int samples) throws Exception {
+        DataLoader loader = new DataLoader();
+        FeaturePipeline pipeline = pipelineFor(loader, dataPath);
+        long dataFingerprint = loader.fingerprint(dataPath);
+        FeaturePipeline.FeatureData featureData = loadFeatures(loader, pipeline, dataPath, dataFingerprint);
+        long featureKey = FeatureCache.key(dataFingerprint, pipeline.getConfigurationKey());
+        
+        HyperparameterSearch.Space space = HyperparameterSearch.Space.defaults();
+        List<HyperparameterSearch.Config> configs = samples > 0 ? space.sample(samples, 42L) : space.grid();
+        System.out.println("\nTuning " + engine.name().toLowerCase(Locale.ROOT) + " forest over "
+                + configs.size() + " configurations (successive halving)...");
+        long start = System.currentTimeMillis();
+        List<HyperparameterSearch.Trial> trials =
+                new HyperparameterSearch(engine, new SearchResultCache(Paths.get(SEARCH_CACHE_DIR)), featureKey)
+                        .run(configs, WekaRandomForestEvaluator.trainingInstances(featureData));
+        
+        int cached = 0;
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(Paths.get("tuning_results.csv")))) {
+            writer.println("Rank,Trees,Features,Max_Depth,Bag_Percent,Min_Leaf,Folds,Cached_Folds,Accuracy,F1_Win,Training_Time_ms");
+            for (int i = 0; i < trials.size(); i++) {
+                HyperparameterSearch.Trial trial = trials.get(i);
+                HyperparameterSearch.Config c = trial.getConfig();
+                cached += trial.getCachedFolds();
+                writer.println(String.format(Locale.US, "%d,%d,%d,%d,%d,%d,%d,%d,%.6f,%.6f,%d", i + 1,
+                        c.getNumTrees(), c.getNumFeatures(), c.getMaxDepth(), c.getBagSizePercent(), c.getMinLeaf(),
+                        trial.getFoldsEvaluated(), trial.getCachedFolds(), trial.getAccuracy(),
+                        trial.getEvaluation().getF1Win(), trial.getTrainingTimeMs()));
+            }
+        }
+        HyperparameterSearch.Trial best = trials.get(0);
+        System.out.printf("Best: %s  accuracy %.4f over %d folds%n",
+                best.getConfig(), best.getAccuracy(), best.getFoldsEvaluated());
+        System.out.printf("%d cached folds reused; search took %d ms%n", cached, System.currentTimeMillis() - start);
+        System.out.println("Tuning results exported to: tuning_results.csv");
+        PipelineMetrics.get().complete();
+    }
+
+    /**
+     * Streams every game through an updateable classifier in date order, scoring each before
+     * learning it, and checkpoints the model. Rows go from the pipeline straight into the
+     * learner without being collected. A compatible checkpoint is resumed, so a rerun after
+     * new games arrive only extracts and learns those games, and a rerun over an unchanged
+     * source learns nothing.
+     */
+    private static void online(String dataPath, OnlineLearner.Kind kind) throws Exception {
+        DataLoader loader = new DataLoader();
+        FeaturePipeline pipeline = pipelineFor(loader, dataPath);
+        long fingerprint = loader.fingerprint(dataPath);
+        
+        OnlineLearner learner = OnlineLearner.load(ONLINE_CHECKPOINT, pipeline.getConfigurationKey());
+        if (learner != null && learner.getKind() == kind && learner.isCurrent(fingerprint)) {
+            System.out.println(kind.getOption() + " in " + ONLINE_CHECKPOINT + " has already learned all "
+                    + learner.getGamesCovered() + " games");
+        } else {
+            GameTable games = loadGames(loader, pipeline, dataPath);
+            System.out.println("Loaded " + games.size() + " games");
+            if (learner != null && learner.getKind() == kind && learner.canResume(games)) {
+                System.out.println("Resuming " + kind.getOption() + " after " + learner.getGamesCovered()
+                        + " games from " + ONLINE_CHECKPOINT);
+            } else {
+                learner = new OnlineLearner(kind, pipeline);
+            }
+            long seen = learner.getGamesSeen();
+            long start = System.currentTimeMillis();
+            learner.stream(pipeline, games, fingerprint, ONLINE_CHECKPOINT, OnlineLearner.DEFAULT_CHECKPOINT_INTERVAL);
+            System.out.printf("Learned %d new games in %d ms%n",
+                    learner.getGamesSeen() - seen, System.currentTimeMillis() - start);
+            System.out.println("Checkpoint written to " + ONLINE_CHECKPOINT);
+        }
+        PrequentialEvaluation evaluation = learner.getEvaluation();
+        System.out.println("Prequential " + kind.getOption() + ": " + evaluation);
+        System.out.println(evaluation.toModelEvaluation());
+        PipelineMetrics.get().complete();
+    }
+
+    /**
+     * Ranks the features by permutation importance of a histogram forest on the test rows and
+     * writes feature_importance.csv, then re-extracts and refits with only the features that
+     * earned their place and reports the change in extraction time, training time and accuracy.
+     */
+    private static void importance(String dataPath, int repeats) throws Exception {
+        DataLoader loader = new DataLoader();
+        FeaturePipeline pipeline = pipelineFor(loader, dataPath);
+        GameTable games = loadGames(loader, pipeline, dataPath);
+        int threads = Runtime.getRuntime().availableProcessors();
+        
+        PermutationImportance.HoldoutFit full = PermutationImportance.HoldoutFit.run(pipeline, games, threads);
+        System.out.printf("%nPermutation importance over %d test games, %d repeats per feature...%n",
+                full.getData().getTestSize(), repeats);
+        PermutationImportance.Result result = new PermutationImportance(repeats, 42L, threads)
+                .compute(full.getModel(), full.getData());
+        System.out.printf("Baseline accuracy %.4f, Brier %.4f%n", result.getBaselineAccuracy(), result.getBaselineBrier());
+        List<PermutationImportance.FeatureImportance> ranked = result.getRanked();
+        for (int i = 0; i < ranked.size(); i++) {
+            PermutationImportance.FeatureImportance f = ranked.get(i);
+            System.out.printf("  %2d. %-22s accuracy drop %+.4f (+/- %.4f)  Brier rise %+.5f%n", i + 1, f.getName(),
+                    f.getAccuracyDrop(), f.getAccuracyDropStd(), f.getBrierIncrease());
+        }
+        result.exportToCSV("feature_importance.csv");
+        System.out.println("Feature importance exported to: feature_importance.csv");
+        
+        String[] kept = result.getKeptFeatureNames(0.0);
+        if (kept.length == 0 || kept.length == full.getData().getNumFeatures()) {
+            System.out.println("No pruned subset to compare (" + kept.length + " features kept).");
+        } else {
+            PermutationImportance.HoldoutFit pruned = PermutationImportance.HoldoutFit.run(
+                    pipeline.withFeatures(pipeline.getFeatureSet().select(kept)), games, threads);
+            System.out.println("\nPruned to " + kept.length + " features: " + String.join(", ", kept));
+            System.out.printf("%-8s %8s %14s %12s %10s%n", "", "Features", "Extraction_ms", "Training_ms", "Accuracy");
+            System.out.printf("%-8s %8d %14d %12d %10.4f%n", "full", full.getData().getNumFeatures(),
+                    full.getExtractionMs(), full.getTrainingMs(), full.getAccuracy());
+            System.out.printf("%-8s %8d %14d %12d %10.4f%n", "pruned", kept.length,
+                    pruned.getExtractionMs(), pruned.getTrainingMs(), pruned.getAccuracy());
+            System.out.printf("%-8s %+8d %+14d %+12d %+10.4f%n", "delta", kept.length - full.getData().getNumFeatures(),
+                    pruned.getExtractionMs() - full.getExtractionMs(), pruned.getTrainingMs() - full.getTrainingMs(),
+                    pruned.getAccuracy() - full.getAccuracy());
+        }
+        PipelineMetrics.get().complete();
+    }
+
+    /** Replays all games into a league state and serves predictions until the JVM is stopped. */
+    private static void serve(String dataPath, int port) throws Exception {
+        ModelStore.StoredModel model = new ModelStore(Paths.get(MODEL_DIR)).loadLatest();
+        DataLoader loader = new DataLoader();
+        FeaturePipeline pipeline = pipelineFor(loader, dataPath);
+        if (model == null) {
+            System.err.println("No saved model in " + MODEL_DIR + "/; run without " + SERVE_FLAG + " first.");
+            return;
+        }
+        if (!model.isCompatible(pipeline.getFeatureNames())) {
+            System.err.println("Saved model was trained on a different feature schema; retrain it.");
+            return;
+        }
+
+        GameTable games = loadGames(loader, pipeline, dataPath);
+        LeagueState state = pipeline.newState();
+        pipeline.advance(games, state);
+        System.out.println("League state covers " + state.getGamesProcessed() + " games");
+
+        PredictionServer server = new PredictionServer(model, pipeline, state, port,
+                Math.max(4, Runtime.getRuntime().availableProcessors()));
+        Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+        server.start();
+        System.out.println("Serving " + model.getModelName() + " on http://localhost:" + server.getPort()
+                + " (GET /predict?home=&away=&date=, POST /ingest)");
+        server.awaitStop();
+    }
 }
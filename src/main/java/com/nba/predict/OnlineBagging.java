@@ -0,0 +1,119 @@
+package com.nba.predict;
+
+import weka.classifiers.AbstractClassifier;
+import weka.classifiers.Classifier;
+import weka.classifiers.UpdateableClassifier;
+import weka.classifiers.trees.HoeffdingTree;
+import weka.core.Instance;
+import weka.core.Instances;
+
+import java.util.Random;
+
+/**
+ * Online bagging (Oza and Russell): an ensemble of updateable classifiers in which each
+ * member sees every incoming instance k ~ Poisson(1) times, the streaming equivalent of a
+ * bootstrap sample. Members are copies of one updateable template (Hoeffding trees by
+ * default); the ensemble predicts their averaged class distribution.
+ *
+ * The Poisson draw becomes the instance weight, so a member is updated at most once per
+ * instance and not at all when k = 0.
+ */
+public class OnlineBagging extends AbstractClassifier implements UpdateableClassifier {
+    private static final long serialVersionUID = 1L;
+
+    private Classifier template = new HoeffdingTree();
+    private int numMembers = 10;
+    private long seed = 1L;
+
+    private Classifier[] members;
+    private Random random;
+
+    public void setTemplate(Classifier template) {
+        if (!(template instanceof UpdateableClassifier)) {
+            throw new IllegalArgumentException("Not an updateable classifier: " + template.getClass().getName());
+        }
+        this.template = template;
+    }
+
+    public Classifier getTemplate() {
+        return template;
+    }
+
+    public void setNumMembers(int numMembers) {
+        this.numMembers = numMembers;
+    }
+
+    public int getNumMembers() {
+        return numMembers;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    /** Builds every member on {@code data} (usually an empty header) with bootstrap weights. */
+    @Override
+    public void buildClassifier(Instances data) throws Exception {
+        members = AbstractClassifier.makeCopies(template, numMembers);
+        random = new Random(seed);
+        Instances empty = new Instances(data, 0);
+        for (Classifier member : members) {
+            member.buildClassifier(empty);
+        }
+        for (Instance instance : data) {
+            updateClassifier(instance);
+        }
+    }
+
+    @Override
+    public void updateClassifier(Instance instance) throws Exception {
+        double weight = instance.weight();
+        for (Classifier member : members) {
+            int k = poisson1(random);
+            if (k > 0) {
+                Instance weighted = (Instance) instance.copy();
+                weighted.setWeight(weight * k);
+                ((UpdateableClassifier) member).updateClassifier(weighted);
+            }
+        }
+    }
+
+    @Override
+    public double[] distributionForInstance(Instance instance) throws Exception {
+        double[] sum = null;
+        for (Classifier member : members) {
+            double[] dist = member.distributionForInstance(instance);
+            if (sum == null) {
+                sum = new double[dist.length];
+            }
+            for (int c = 0; c < dist.length; c++) {
+                sum[c] += dist[c];
+            }
+        }
+        for (int c = 0; c < sum.length; c++) {
+            sum[c] /= members.length;
+        }
+        return sum;
+    }
+
+    /** Knuth's method; cheap because the mean is 1. */
+    private static int poisson1(Random random) {
+        double limit = Math.exp(-1.0);
+        double product = random.nextDouble();
+        int k = 0;
+        while (product > limit) {
+            k++;
+            product *= random.nextDouble();
+        }
+        return k;
+    }
+
+    @Override
+    public String toString() {
+        return "Online bagging of " + numMembers + " x " + template.getClass().getSimpleName();
+    }
+}
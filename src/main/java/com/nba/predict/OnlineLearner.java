@@ -0,0 +1,302 @@
+package com.nba.predict;
+
+import weka.classifiers.Classifier;
+import weka.classifiers.UpdateableClassifier;
+import weka.classifiers.bayes.NaiveBayesUpdateable;
+import weka.classifiers.trees.HoeffdingTree;
+import weka.core.DenseInstance;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.Utils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+
+/**
+ * Incremental model over the feature rows of {@link FeaturePipeline}: games are streamed in
+ * date order, each one is scored first and then passed to {@code updateClassifier}, so a new
+ * night of games costs a few updates instead of a full retrain. Metrics are prequential
+ * (see {@link PrequentialEvaluation}).
+ *
+ * Rows come straight from {@link FeaturePipeline#extractRows} into one reused buffer and the
+ * learners keep sufficient statistics rather than rows, so memory does not grow with the
+ * length of the stream. The {@link LeagueState} the rows are extracted from is part of the
+ * learner: model, metrics and state are checkpointed together to one file, written
+ * atomically like {@link ModelStore}. Like a {@link FeatureSnapshot}, the checkpoint records
+ * the fingerprint of the source it has fully learned and a {@link GameTable#digest} of the
+ * games it covered; a later run over an unchanged source does nothing, and one over a source
+ * that only gained games extracts and learns just those.
+ */
+public class OnlineLearner {
+    public static final int DEFAULT_CHECKPOINT_INTERVAL = 1000;
+
+    private static final int MAGIC = 0x4E424F4C; // "NBOL"
+    private static final int VERSION = 3; // 3: keyed on the pipeline and source, carries the league state
+    private static final int IO_BUFFER_BYTES = 1 << 16;
+    private static final long NO_SOURCE = 0L;
+
+    /** The updateable classifiers the online mode can run. */
+    public enum Kind {
+        HOEFFDING_TREE("hoeffding"),
+        NAIVE_BAYES("naive-bayes"),
+        /** Oza online bagging of ten Hoeffding trees. */
+        ONLINE_BAGGING("bagging");
+
+        private final String option;
+
+        Kind(String option) {
+            this.option = option;
+        }
+
+        Classifier create() {
+            switch (this) {
+                case HOEFFDING_TREE:
+                    return new HoeffdingTree();
+                case NAIVE_BAYES:
+                    return new NaiveBayesUpdateable();
+                default:
+                    return new OnlineBagging();
+            }
+        }
+
+        public String getOption() {
+            return option;
+        }
+
+        public static Kind parse(String name) {
+            for (Kind kind : values()) {
+                if (kind.option.equalsIgnoreCase(name) || kind.name().equalsIgnoreCase(name)) {
+                    return kind;
+                }
+            }
+            throw new IllegalArgumentException("Unknown online model: " + name
+                    + " (use hoeffding, naive-bayes or bagging)");
+        }
+    }
+
+    private final Kind kind;
+    private final long pipelineKey;
+    private final String[] featureNames;
+    private final Instances header;
+    private final int winIndex;
+    private final Classifier classifier;
+    private final PrequentialEvaluation evaluation;
+    private final LeagueState state;
+    private long gamesSeen;
+    private long sourceFingerprint = NO_SOURCE; // of the source whose games were all learned
+    private long gamesDigest; // GameTable#digest of the games the state covers
+
+    /** A fresh model that has seen no games, learning the rows {@code pipeline} extracts. */
+    public OnlineLearner(Kind kind, FeaturePipeline pipeline) throws Exception {
+        this(kind, pipeline.getConfigurationKey(), pipeline.getFeatureNames(), kind.create(),
+                new PrequentialEvaluation(), pipeline.newState());
+        classifier.buildClassifier(header);
+    }
+
+    private OnlineLearner(Kind kind, long pipelineKey, String[] featureNames, Classifier classifier,
+                          PrequentialEvaluation evaluation, LeagueState state) {
+        this.kind = kind;
+        this.pipelineKey = pipelineKey;
+        this.featureNames = featureNames.clone();
+        this.header = FeatureInstances.header(featureNames, 0);
+        this.winIndex = header.classAttribute().indexOfValue("WIN");
+        this.classifier = classifier;
+        this.evaluation = evaluation;
+        this.state = state;
+    }
+
+    /**
+     * Scores one game and then learns from it. The row is only read during the call, so the
+     * caller may reuse it.
+     *
+     * @param row feature values followed by the label (1.0 = WIN), as in {@link FeaturePipeline.FeatureData}
+     * @return the home-win probability predicted before the update
+     */
+    public double learn(double[] row) throws Exception {
+        if (row.length != featureNames.length + 1) {
+            throw new IllegalArgumentException("Expected " + (featureNames.length + 1)
+                    + " values, got " + row.length);
+        }
+        // Wraps the row without copying it; the label column is the class value.
+        Instance instance = new DenseInstance(1.0, row);
+        instance.setDataset(header);
+        double p = winProbability(instance);
+        evaluation.record(p, (int) row[featureNames.length]);
+        long start = System.nanoTime();
+        ((UpdateableClassifier) classifier).updateClassifier(instance);
+        evaluation.addUpdateNanos(System.nanoTime() - start);
+        gamesSeen++;
+        return p;
+    }
+
+    /**
+     * Extracts and learns every game of {@code games} after the first {@link #getGamesCovered()},
+     * then records {@code sourceFingerprint} as fully learned. Checkpoints to {@code checkpoint}
+     * every {@code interval} games and at the end; pass a null checkpoint to keep the model in
+     * memory only.
+     *
+     * @param pipeline the pipeline this learner was created for
+     * @param games    every game of the source, of which the covered ones must be a prefix
+     *                 (see {@link #canResume})
+     */
+    public PrequentialEvaluation stream(FeaturePipeline pipeline, GameTable games, long sourceFingerprint,
+                                        Path checkpoint, int interval) throws Exception {
+        if (pipeline.getConfigurationKey() != pipelineKey) {
+            throw new IllegalArgumentException("Learner was created for another pipeline configuration");
+        }
+        try (PipelineMetrics.Phase phase = PipelineMetrics.get().phase("online")) {
+            long learned = 0;
+            for (int from = (int) getGamesCovered(); from < games.size(); from += interval) {
+                int to = (int) Math.min(games.size(), (long) from + interval);
+                learned += pipeline.extractRows(games, from, to, state, (row, gameDay) -> learn(row));
+                gamesDigest = games.digest(gamesDigest, from, to);
+                if (checkpoint != null && to < games.size()) {
+                    save(checkpoint);
+                }
+            }
+            phase.setRows(learned);
+            this.sourceFingerprint = sourceFingerprint;
+            if (checkpoint != null) {
+                save(checkpoint);
+            }
+        }
+        return evaluation;
+    }
+
+    /** Home-win probability for one feature row, without learning from it. */
+    public double predictHomeWin(double[] features) throws Exception {
+        if (features.length != featureNames.length) {
+            throw new IllegalArgumentException("Expected " + featureNames.length
+                    + " features, got " + features.length);
+        }
+        double[] vals = Arrays.copyOf(features, features.length + 1);
+        vals[features.length] = Utils.missingValue();
+        Instance instance = new DenseInstance(1.0, vals);
+        instance.setDataset(header);
+        return winProbability(instance);
+    }
+
+    private double winProbability(Instance instance) throws Exception {
+        double[] dist = classifier.distributionForInstance(instance);
+        double sum = dist[0] + dist[1];
+        // An untrained Hoeffding tree has no class counts yet.
+        return sum > 0 ? dist[winIndex] / sum : 0.5;
+    }
+
+    /** True if this model has learned every game of the source with {@code sourceFingerprint}. */
+    public boolean isCurrent(long sourceFingerprint) {
+        return this.sourceFingerprint != NO_SOURCE && this.sourceFingerprint == sourceFingerprint;
+    }
+
+    /**
+     * True if the games this model has covered are still the first {@link #getGamesCovered()}
+     * of {@code games}, unchanged; if history was edited or removed it must start over.
+     */
+    public boolean canResume(GameTable games) {
+        long covered = getGamesCovered();
+        return covered <= games.size() && games.digest(0, 0, (int) covered) == gamesDigest;
+    }
+
+    /** Writes the model, metrics and stream position to {@code file}, replacing it atomically. */
+    public void save(Path file) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(tmp), IO_BUFFER_BYTES))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(pipelineKey);
+            out.writeUTF(kind.name());
+            out.writeInt(featureNames.length);
+            for (String name : featureNames) {
+                out.writeUTF(name);
+            }
+            out.writeLong(gamesSeen);
+            out.writeLong(sourceFingerprint);
+            out.writeLong(gamesDigest);
+            state.writeTo(out);
+            ObjectOutputStream objects = new ObjectOutputStream(out);
+            objects.writeObject(classifier);
+            objects.writeObject(evaluation);
+            objects.flush();
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Restores a checkpoint, or returns null if there is none or it was written for another
+     * pipeline configuration or in an older checkpoint format, so the stream is learned again.
+     */
+    public static OnlineLearner load(Path file, long pipelineKey) throws IOException {
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(file), IO_BUFFER_BYTES))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not an online checkpoint: " + file);
+            }
+            int version = in.readInt();
+            if (version < VERSION) {
+                return null;
+            }
+            if (version != VERSION) {
+                throw new IOException("Unsupported online checkpoint version " + version + ": " + file);
+            }
+            if (in.readLong() != pipelineKey) {
+                return null;
+            }
+            Kind kind = Kind.valueOf(in.readUTF());
+            String[] featureNames = new String[in.readInt()];
+            for (int j = 0; j < featureNames.length; j++) {
+                featureNames[j] = in.readUTF();
+            }
+            long gamesSeen = in.readLong();
+            long sourceFingerprint = in.readLong();
+            long gamesDigest = in.readLong();
+            LeagueState state = LeagueState.readFrom(in);
+            ObjectInputStream objects = new ObjectInputStream(in);
+            OnlineLearner learner;
+            try {
+                learner = new OnlineLearner(kind, pipelineKey, featureNames, (Classifier) objects.readObject(),
+                        (PrequentialEvaluation) objects.readObject(), state);
+            } catch (ClassNotFoundException e) {
+                throw new IOException("Model class not on the classpath: " + file, e);
+            }
+            learner.gamesSeen = gamesSeen;
+            learner.sourceFingerprint = sourceFingerprint;
+            learner.gamesDigest = gamesDigest;
+            return learner;
+        }
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    /** Feature rows learned; games skipped for lack of history are not counted. */
+    public long getGamesSeen() {
+        return gamesSeen;
+    }
+
+    /** Games folded into the league state, whether or not they produced a row. */
+    public long getGamesCovered() {
+        return state.getGamesProcessed();
+    }
+
+    public PrequentialEvaluation getEvaluation() {
+        return evaluation;
+    }
+}
@@ -0,0 +1,226 @@
+package com.nba.predict;
+
+import weka.classifiers.AbstractClassifier;
+import weka.classifiers.AggregateableEvaluation;
+import weka.classifiers.Classifier;
+import weka.classifiers.Evaluation;
+import weka.classifiers.ParallelIteratedSingleClassifierEnhancer;
+import weka.core.BatchPredictor;
+import weka.core.Instance;
+import weka.core.Instances;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * k-fold cross-validation that trains folds concurrently. The data is shuffled and
+ * stratified once, the way {@link Evaluation#crossValidateModel} does it, and each fold
+ * then trains its own copy of the classifier on a bounded pool. Per-fold evaluations are
+ * merged in fold order, so the result is the same as a serial run.
+ *
+ * The thread budget is split between folds and, for ensembles such as RandomForest, the
+ * classifier's own execution slots: foldThreads * slotsPerFold never exceeds the budget.
+ * Every fold draws its training-set shuffle from a seed taken up front from the CV seed,
+ * so results for a fixed seed do not depend on the budget or on scheduling.
+ *
+ * If the run fails or is interrupted, pending folds are dropped and running ones are
+ * interrupted, and the call returns only once they have, so abandoned folds never train on
+ * past it. Weka's own classifiers ignore interrupts and finish the fold they are building.
+ *
+ * Each test instance is predicted once; the same distribution feeds the Weka evaluation
+ * and, when asked for, a per-fold {@link ProbabilityMetrics} partial merged the same way.
+ */
+public class ParallelCrossValidator {
+    private final int numFolds;
+    private final long seed;
+    private final int foldThreads;
+    private final int slotsPerFold;
+
+    public ParallelCrossValidator(int numFolds, long seed) {
+        this(numFolds, seed, Runtime.getRuntime().availableProcessors());
+    }
+
+    public ParallelCrossValidator(int numFolds, long seed, int threadBudget) {
+        if (numFolds < 2) {
+            throw new IllegalArgumentException("numFolds must be at least 2: " + numFolds);
+        }
+        this.numFolds = numFolds;
+        this.seed = seed;
+        int budget = Math.max(1, threadBudget);
+        this.foldThreads = Math.min(numFolds, budget);
+        this.slotsPerFold = Math.max(1, budget / foldThreads);
+    }
+
+    public int getFoldThreads() {
+        return foldThreads;
+    }
+
+    public int getSlotsPerFold() {
+        return slotsPerFold;
+    }
+
+    public int getNumFolds() {
+        return numFolds;
+    }
+
+    public Evaluation crossValidate(Classifier template, Instances data) throws Exception {
+        return crossValidate(template, data, null);
+    }
+
+    /**
+     * Cross-validates as {@link #crossValidate(Classifier, Instances)} and also adds every
+     * test prediction to {@code into}, unless it is null.
+     */
+    public Evaluation crossValidate(Classifier template, Instances data, ProbabilityMetrics into)
+            throws Exception {
+        Folds folds = prepare(data);
+        ProbabilityMetrics[] partials = new ProbabilityMetrics[numFolds];
+        ExecutorService pool = Executors.newFixedThreadPool(foldThreads, r -> {
+            Thread t = new Thread(r, "cv-fold");
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            List<Future<Evaluation>> results = new ArrayList<>(numFolds);
+            for (int i = 0; i < numFolds; i++) {
+                int fold = i;
+                partials[i] = into == null ? null : into.emptyCopy();
+                results.add(pool.submit(() -> folds.evaluate(template, fold, slotsPerFold, partials[fold])));
+            }
+            AggregateableEvaluation merged = new AggregateableEvaluation(data);
+            for (int i = 0; i < numFolds; i++) {
+                merged.aggregate(results.get(i).get());
+                if (into != null) {
+                    into.merge(partials[i]);
+                }
+            }
+            return merged;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof Exception ? (Exception) cause : e;
+        } finally {
+            pool.shutdownNow();
+            awaitTermination(pool);
+        }
+    }
+
+    /**
+     * Waits until every task of a shut-down {@code pool} has returned, even when interrupted,
+     * so its threads are free again when the caller returns; the interrupt status is kept.
+     */
+    static void awaitTermination(ExecutorService pool) {
+        boolean interrupted = false;
+        while (!pool.isTerminated()) {
+            try {
+                pool.awaitTermination(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Shuffles and stratifies {@code data} and fixes every fold's seed, exactly as
+     * {@link #crossValidate} does, so folds can also be evaluated one at a time.
+     */
+    public Folds prepare(Instances data) {
+        Random random = new Random(seed);
+        Instances shuffled = new Instances(data);
+        shuffled.randomize(random);
+        if (shuffled.classAttribute().isNominal()) {
+            shuffled.stratify(numFolds);
+        }
+        long[] foldSeeds = new long[numFolds];
+        for (int i = 0; i < numFolds; i++) {
+            foldSeeds[i] = random.nextLong();
+        }
+        return new Folds(shuffled, foldSeeds);
+    }
+
+    /** Data split into folds for one seed; safe to evaluate different folds concurrently. */
+    public final class Folds {
+        private final Instances data;
+        private final long[] foldSeeds;
+
+        private Folds(Instances data, long[] foldSeeds) {
+            this.data = data;
+            this.foldSeeds = foldSeeds;
+        }
+
+        /** Trains a copy of {@code template} on all folds but {@code fold} and scores {@code fold}. */
+        public Evaluation evaluate(Classifier template, int fold, int slots) throws Exception {
+            return evaluate(template, fold, slots, null);
+        }
+
+        /** As {@link #evaluate(Classifier, int, int)}, also adding the fold's predictions to {@code into}. */
+        public Evaluation evaluate(Classifier template, int fold, int slots, ProbabilityMetrics into)
+                throws Exception {
+            try (PipelineMetrics.Phase phase = PipelineMetrics.get().phase("cv.fold." + fold)) {
+                Instances train = data.trainCV(numFolds, fold, new Random(foldSeeds[fold]));
+                Instances test = data.testCV(numFolds, fold);
+                Classifier model = AbstractClassifier.makeCopy(template);
+                configureSlots(model, slots);
+                model.buildClassifier(train);
+                Evaluation eval = new Evaluation(train);
+                score(model, test, eval, into);
+                phase.setRows(train.numInstances());
+                return eval;
+            }
+        }
+    }
+
+    /**
+     * Scores {@code test} into {@code eval}, as {@link Evaluation#evaluateModel} does, and
+     * adds each home-win probability to {@code into} from the same prediction. With a null
+     * {@code into} this is just {@code evaluateModel}.
+     */
+    static void score(Classifier model, Instances test, Evaluation eval, ProbabilityMetrics into)
+            throws Exception {
+        if (into == null) {
+            eval.evaluateModel(model, test);
+            return;
+        }
+        int winIndex = test.classAttribute().indexOfValue("WIN");
+        int n = test.numInstances();
+        double[][] dists;
+        if (model instanceof BatchPredictor && ((BatchPredictor) model).implementsMoreEfficientBatchPrediction()) {
+            Instances unlabeled = new Instances(test, n);
+            for (int i = 0; i < n; i++) {
+                Instance copy = (Instance) test.instance(i).copy();
+                copy.setClassMissing();
+                unlabeled.add(copy);
+            }
+            dists = ((BatchPredictor) model).distributionsForInstances(unlabeled);
+        } else {
+            dists = new double[n][];
+            for (int i = 0; i < n; i++) {
+                Instance copy = (Instance) test.instance(i).copy();
+                copy.setClassMissing();
+                dists[i] = model.distributionForInstance(copy);
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            Instance instance = test.instance(i);
+            eval.evaluateModelOnceAndRecordPrediction(dists[i], instance);
+            into.add((int) instance.classValue() == winIndex, dists[i][winIndex]);
+        }
+    }
+
+    /** Lets ensembles build their members on {@code slots} threads; other classifiers are left alone. */
+    static void configureSlots(Classifier model, int slots) {
+        if (model instanceof ParallelIteratedSingleClassifierEnhancer) {
+            ((ParallelIteratedSingleClassifierEnhancer) model).setNumExecutionSlots(slots);
+        } else if (model instanceof HistogramRandomForest) {
+            ((HistogramRandomForest) model).setNumThreads(slots);
+        }
+    }
+}
@@ -0,0 +1,369 @@
+package com.nba.predict;
+
+import weka.classifiers.AbstractClassifier;
+import weka.classifiers.Classifier;
+import weka.core.DenseInstance;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.Utils;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.DoubleBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Permutation importance of every feature on the held-out test rows: how much a trained
+ * model's accuracy and Brier score degrade when one feature column is shuffled across rows,
+ * breaking its link to the outcome while keeping its distribution.
+ *
+ * Each (feature, repeat) pair is one task on a single pool. A task never copies the test
+ * matrix: it draws a row permutation and scores each row from the shared read-only buffer,
+ * taking the shuffled column's value from the permuted row. Every task's random stream is
+ * split from the seed up front, so results do not depend on the thread count.
+ *
+ * {@link HistogramRandomForest} is scored straight from the feature array and shared by
+ * every task, since scoring only reads its trees. Any other Weka classifier goes through an
+ * {@link Instance} per row, and as Weka classifiers are not thread-safe (many keep filters
+ * or scratch buffers they update on every call), each pool thread scores with its own copy.
+ */
+public class PermutationImportance {
+    public static final int DEFAULT_REPEATS = 5;
+
+    private final int repeats;
+    private final long seed;
+    private final int threadBudget;
+
+    public PermutationImportance() {
+        this(DEFAULT_REPEATS, 42L, Runtime.getRuntime().availableProcessors());
+    }
+
+    public PermutationImportance(int repeats, long seed, int threadBudget) {
+        if (repeats < 1) {
+            throw new IllegalArgumentException("repeats must be at least 1: " + repeats);
+        }
+        this.repeats = repeats;
+        this.seed = seed;
+        this.threadBudget = Math.max(1, threadBudget);
+    }
+
+    /** Scores {@code model}, already trained on {@code data}'s training rows, on its test rows. */
+    public Result compute(Classifier model, FeaturePipeline.FeatureData data) throws Exception {
+        int d = data.getNumFeatures();
+        int n = data.getTestSize();
+        if (n == 0) {
+            throw new IllegalArgumentException("No test rows to permute");
+        }
+        Scorer scorer = new Scorer(model, data.getFeatureNames());
+        DoubleBuffer test = data.getTestMatrix();
+        Score baseline = score(scorer, test, d, -1, null);
+
+        SplittableRandom master = new SplittableRandom(seed);
+        SplittableRandom[] randoms = new SplittableRandom[d * repeats];
+        for (int t = 0; t < randoms.length; t++) {
+            randoms[t] = master.split();
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(threadBudget, randoms.length), r -> {
+            Thread t = new Thread(r, "importance");
+            t.setDaemon(true);
+            return t;
+        });
+        ThreadLocal<Scorer> threadScorers = ThreadLocal.withInitial(scorer::forThread);
+        try (PipelineMetrics.Phase phase = PipelineMetrics.get().phase("importance")) {
+            phase.setRows((long) n * randoms.length);
+            List<Future<Score>> scores = new ArrayList<>(randoms.length);
+            for (int t = 0; t < randoms.length; t++) {
+                int feature = t / repeats;
+                SplittableRandom random = randoms[t];
+                scores.add(pool.submit(() -> score(threadScorers.get(), test, d, feature, permutation(n, random))));
+            }
+            List<FeatureImportance> features = new ArrayList<>(d);
+            String[] names = data.getFeatureNames();
+            for (int j = 0; j < d; j++) {
+                double[] accuracyDrops = new double[repeats];
+                double brierIncrease = 0;
+                for (int r = 0; r < repeats; r++) {
+                    Score s = scores.get(j * repeats + r).get();
+                    accuracyDrops[r] = baseline.accuracy - s.accuracy;
+                    brierIncrease += s.brier - baseline.brier;
+                }
+                features.add(new FeatureImportance(names[j], j, Utils.mean(accuracyDrops),
+                        repeats > 1 ? Math.sqrt(Utils.variance(accuracyDrops)) : 0.0, brierIncrease / repeats));
+            }
+            return new Result(features, baseline.accuracy, baseline.brier, n);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof Exception ? (Exception) cause : e;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /** Fisher-Yates shuffle of the row indices. */
+    private static int[] permutation(int n, SplittableRandom random) {
+        int[] perm = new int[n];
+        for (int i = 0; i < n; i++) {
+            perm[i] = i;
+        }
+        for (int i = n - 1; i > 0; i--) {
+            int k = random.nextInt(i + 1);
+            int tmp = perm[i];
+            perm[i] = perm[k];
+            perm[k] = tmp;
+        }
+        return perm;
+    }
+
+    /**
+     * Accuracy and Brier score over the rows of {@code test}, with column {@code feature}
+     * read from row {@code perm[i]} instead of row i (no substitution if feature is -1).
+     */
+    private static Score score(Scorer scorer, DoubleBuffer test, int d, int feature, int[] perm)
+            throws Exception {
+        int width = d + 1;
+        int n = test.limit() / width;
+        double[] row = new double[d];
+        int correct = 0;
+        double brier = 0;
+        for (int i = 0; i < n; i++) {
+            int off = i * width;
+            test.get(off, row);
+            if (feature >= 0) {
+                row[feature] = test.get(perm[i] * width + feature);
+            }
+            double actual = test.get(off + d);
+            double p = scorer.pWin(row);
+            if ((p >= 0.5 ? 1.0 : 0.0) == actual) {
+                correct++;
+            }
+            brier += (p - actual) * (p - actual);
+        }
+        return new Score((double) correct / n, brier / n);
+    }
+
+    private static final class Score {
+        final double accuracy;
+        final double brier;
+
+        Score(double accuracy, double brier) {
+            this.accuracy = accuracy;
+            this.brier = brier;
+        }
+    }
+
+    /**
+     * Home-win probability of a feature row. Confined to one thread unless the model is a
+     * {@link HistogramRandomForest}; see {@link #forThread}.
+     */
+    private static final class Scorer {
+        private final Classifier model;
+        private final Instances header;
+        private final int winIndex;
+
+        Scorer(Classifier model, String[] featureNames) {
+            this(model, FeatureInstances.header(featureNames, 0));
+        }
+
+        private Scorer(Classifier model, Instances header) {
+            this.model = model;
+            this.header = header;
+            this.winIndex = header.classAttribute().indexOfValue("WIN");
+        }
+
+        /** A scorer another thread can use alongside this one: itself for a histogram forest, else a copy. */
+        Scorer forThread() {
+            if (model instanceof HistogramRandomForest) {
+                return this;
+            }
+            try {
+                return new Scorer(AbstractClassifier.makeCopy(model), new Instances(header, 0));
+            } catch (Exception e) {
+                throw new IllegalStateException("Could not copy " + model.getClass().getSimpleName(), e);
+            }
+        }
+
+        double pWin(double[] features) throws Exception {
+            if (model instanceof HistogramRandomForest) {
+                return ((HistogramRandomForest) model).predictHomeWin(features);
+            }
+            double[] vals = Arrays.copyOf(features, features.length + 1);
+            vals[features.length] = Utils.missingValue();
+            Instance instance = new DenseInstance(1.0, vals);
+            instance.setDataset(header);
+            return model.distributionForInstance(instance)[winIndex];
+        }
+    }
+
+    /** Importance of one feature, averaged over the repeats. */
+    public static final class FeatureImportance {
+        private final String name;
+        private final int index;
+        private final double accuracyDrop;
+        private final double accuracyDropStd;
+        private final double brierIncrease;
+
+        FeatureImportance(String name, int index, double accuracyDrop, double accuracyDropStd,
+                          double brierIncrease) {
+            this.name = name;
+            this.index = index;
+            this.accuracyDrop = accuracyDrop;
+            this.accuracyDropStd = accuracyDropStd;
+            this.brierIncrease = brierIncrease;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /** Column of the feature in the scored data. */
+        public int getIndex() {
+            return index;
+        }
+
+        /** Mean loss of test accuracy when the feature is shuffled; the importance. */
+        public double getAccuracyDrop() {
+            return accuracyDrop;
+        }
+
+        public double getAccuracyDropStd() {
+            return accuracyDropStd;
+        }
+
+        /** Mean rise of the Brier score when the feature is shuffled; finer-grained than accuracy. */
+        public double getBrierIncrease() {
+            return brierIncrease;
+        }
+    }
+
+    /**
+     * A {@link HistogramRandomForest} fitted on the training rows of one pipeline's features
+     * and scored on the test rows, with extraction and training timed separately; fitting a
+     * pruned pipeline the same way shows what the dropped features cost.
+     */
+    public static final class HoldoutFit {
+        private final FeaturePipeline.FeatureData data;
+        private final HistogramRandomForest model;
+        private final long extractionMs;
+        private final long trainingMs;
+        private final double accuracy;
+
+        private HoldoutFit(FeaturePipeline.FeatureData data, HistogramRandomForest model,
+                           long extractionMs, long trainingMs, double accuracy) {
+            this.data = data;
+            this.model = model;
+            this.extractionMs = extractionMs;
+            this.trainingMs = trainingMs;
+            this.accuracy = accuracy;
+        }
+
+        public static HoldoutFit run(FeaturePipeline pipeline, GameTable games, int threads) throws Exception {
+            long start = System.nanoTime();
+            FeaturePipeline.FeatureData data = pipeline.extractFeatures(games);
+            long extractionMs = (System.nanoTime() - start) / 1_000_000;
+            HistogramRandomForest model = new HistogramRandomForest();
+            model.setNumThreads(Math.max(1, threads));
+            start = System.nanoTime();
+            model.fit(data.getTrainMatrix(), data.getNumFeatures());
+            long trainingMs = (System.nanoTime() - start) / 1_000_000;
+            double accuracy = data.getTestSize() == 0 ? 0.0
+                    : score(new Scorer(model, data.getFeatureNames()), data.getTestMatrix(),
+                            data.getNumFeatures(), -1, null).accuracy;
+            return new HoldoutFit(data, model, extractionMs, trainingMs, accuracy);
+        }
+
+        public FeaturePipeline.FeatureData getData() {
+            return data;
+        }
+
+        public HistogramRandomForest getModel() {
+            return model;
+        }
+
+        public long getExtractionMs() {
+            return extractionMs;
+        }
+
+        public long getTrainingMs() {
+            return trainingMs;
+        }
+
+        /** Accuracy on the test rows. */
+        public double getAccuracy() {
+            return accuracy;
+        }
+    }
+
+    /** Every feature's importance plus the unpermuted baseline. */
+    public static final class Result {
+        private final List<FeatureImportance> features; // column order
+        private final List<FeatureImportance> ranked;
+        private final double baselineAccuracy;
+        private final double baselineBrier;
+        private final int testRows;
+
+        Result(List<FeatureImportance> features, double baselineAccuracy, double baselineBrier, int testRows) {
+            this.features = Collections.unmodifiableList(features);
+            List<FeatureImportance> sorted = new ArrayList<>(features);
+            sorted.sort(Comparator.comparingDouble(FeatureImportance::getAccuracyDrop)
+                    .thenComparingDouble(FeatureImportance::getBrierIncrease).reversed());
+            this.ranked = Collections.unmodifiableList(sorted);
+            this.baselineAccuracy = baselineAccuracy;
+            this.baselineBrier = baselineBrier;
+            this.testRows = testRows;
+        }
+
+        /** Features from most to least important. */
+        public List<FeatureImportance> getRanked() {
+            return ranked;
+        }
+
+        public double getBaselineAccuracy() {
+            return baselineAccuracy;
+        }
+
+        public double getBaselineBrier() {
+            return baselineBrier;
+        }
+
+        public int getTestRows() {
+            return testRows;
+        }
+
+        /**
+         * Names of the features whose shuffling costs more than {@code minAccuracyDrop} of
+         * accuracy, or failing that raises the Brier score, in column order; the rest are
+         * noise to the model and candidates for pruning.
+         */
+        public String[] getKeptFeatureNames(double minAccuracyDrop) {
+            List<String> kept = new ArrayList<>();
+            for (FeatureImportance f : features) {
+                if (f.accuracyDrop > minAccuracyDrop || (f.accuracyDrop == minAccuracyDrop && f.brierIncrease > 0)) {
+                    kept.add(f.name);
+                }
+            }
+            return kept.toArray(new String[0]);
+        }
+
+        /** One line per feature, most important first. */
+        public void exportToCSV(String filename) throws IOException {
+            try (FileWriter writer = new FileWriter(filename)) {
+                writer.append("Rank,Feature,Accuracy_Drop,Accuracy_Drop_Std,Brier_Increase\n");
+                for (int i = 0; i < ranked.size(); i++) {
+                    FeatureImportance f = ranked.get(i);
+                    writer.append(String.format(Locale.US, "%d,%s,%.6f,%.6f,%.6f%n",
+                            i + 1, f.name, f.accuracyDrop, f.accuracyDropStd, f.brierIncrease));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package com.nba.predict;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Process-wide record of where a run spends its time. Each pipeline phase is measured
+ * with try-with-resources around {@link #phase(String)}; counters track data-quality
+ * events such as values that failed to parse. Completed phases are pushed to every
+ * registered {@link MetricsSink} as they finish, and {@link #complete()} hands sinks the
+ * whole run.
+ *
+ * CPU time and allocated bytes come from ThreadMXBean and cover the thread that opened
+ * the phase; work it fans out to pools shows up in the process-wide CPU time instead.
+ */
+public final class PipelineMetrics {
+    /** Numeric fields that were present but unparseable, and were read as 0. */
+    public static final String PARSE_FAILURES = "parse.failures";
+    /** Numeric fields that were empty or NULL, and were read as 0. */
+    public static final String MISSING_VALUES = "parse.missing_values";
+    /** Rows dropped because the game date was missing or invalid. */
+    public static final String ROWS_WITHOUT_DATE = "parse.rows_without_date";
+    public static final String SKIPPED_GAMES = "features.skipped_games";
+    public static final String FEATURE_ROWS = "features.rows";
+    /** Games with play-by-play events but no row in the game table. */
+    public static final String PLAY_BY_PLAY_UNMATCHED = "play_by_play.unmatched_games";
+    /** Games dropped from a multi-source load because an earlier source had the same game_id. */
+    public static final String DUPLICATE_GAMES = "load.duplicate_games";
+    /** Predictions skipped by the probability metrics because the probability was NaN or infinite. */
+    public static final String INVALID_PROBABILITIES = "eval.invalid_probabilities";
+
+    private static final PipelineMetrics GLOBAL = new PipelineMetrics();
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    private static final OperatingSystemMXBean OS = ManagementFactory.getOperatingSystemMXBean();
+
+    private final long createdNanos = System.nanoTime();
+    private final List<PhaseMetrics> phases = new CopyOnWriteArrayList<>();
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final List<MetricsSink> sinks = new CopyOnWriteArrayList<>();
+
+    public static PipelineMetrics get() {
+        return GLOBAL;
+    }
+
+    public void addSink(MetricsSink sink) {
+        sinks.add(sink);
+    }
+
+    /** Starts timing {@code name} on the current thread; close the phase to record it. */
+    public Phase phase(String name) {
+        return new Phase(name);
+    }
+
+    public void increment(String counter) {
+        increment(counter, 1);
+    }
+
+    public void increment(String counter, long delta) {
+        counters.computeIfAbsent(counter, k -> new LongAdder()).add(delta);
+    }
+
+    public List<PhaseMetrics> getPhases() {
+        return Collections.unmodifiableList(new ArrayList<>(phases));
+    }
+
+    /** Counter totals so far, sorted by name. */
+    public Map<String, Long> getCounters() {
+        Map<String, Long> snapshot = new TreeMap<>();
+        counters.forEach((name, value) -> snapshot.put(name, value.sum()));
+        return snapshot;
+    }
+
+    /** Marks the end of the run and passes the full record to every sink. */
+    public void complete() throws Exception {
+        List<PhaseMetrics> allPhases = getPhases();
+        Map<String, Long> allCounters = getCounters();
+        for (MetricsSink sink : sinks) {
+            sink.runCompleted(allPhases, allCounters);
+        }
+    }
+
+    private void record(PhaseMetrics phase) {
+        phases.add(phase);
+        for (MetricsSink sink : sinks) {
+            sink.phaseCompleted(phase);
+        }
+    }
+
+    private static long threadCpuNanos() {
+        return THREADS.isCurrentThreadCpuTimeSupported() ? THREADS.getCurrentThreadCpuTime() : -1;
+    }
+
+    private static long threadAllocatedBytes() {
+        if (THREADS instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) THREADS;
+            if (threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled()) {
+                return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+
+    private static long processCpuNanos() {
+        if (OS instanceof com.sun.management.OperatingSystemMXBean) {
+            return ((com.sun.management.OperatingSystemMXBean) OS).getProcessCpuTime();
+        }
+        return -1;
+    }
+
+    private static long delta(long start, long end) {
+        return start < 0 || end < 0 ? -1 : end - start;
+    }
+
+    /** An open measurement. Not thread-safe: open and close it on the same thread. */
+    public final class Phase implements AutoCloseable {
+        private final String name;
+        private final long startNanos;
+        private final long startCpu;
+        private final long startAllocated;
+        private final long startProcessCpu;
+        private long rows = -1;
+
+        private Phase(String name) {
+            this.name = name;
+            this.startNanos = System.nanoTime();
+            this.startCpu = threadCpuNanos();
+            this.startAllocated = threadAllocatedBytes();
+            this.startProcessCpu = processCpuNanos();
+        }
+
+        /** Number of rows the phase produced or consumed, reported alongside the timings. */
+        public void setRows(long rows) {
+            this.rows = rows;
+        }
+
+        @Override
+        public void close() {
+            long end = System.nanoTime();
+            record(new PhaseMetrics(name, Thread.currentThread().getName(),
+                    (startNanos - createdNanos) / 1_000_000, end - startNanos,
+                    delta(startCpu, threadCpuNanos()),
+                    delta(startAllocated, threadAllocatedBytes()),
+                    delta(startProcessCpu, processCpuNanos()), rows));
+        }
+    }
+
+    /** Measurements of one completed phase; -1 marks a value the JVM could not provide. */
+    public static final class PhaseMetrics {
+        private final String name;
+        private final String thread;
+        private final long startOffsetMs;
+        private final long wallNanos;
+        private final long cpuNanos;
+        private final long allocatedBytes;
+        private final long processCpuNanos;
+        private final long rows;
+
+        PhaseMetrics(String name, String thread, long startOffsetMs, long wallNanos, long cpuNanos,
+                     long allocatedBytes, long processCpuNanos, long rows) {
+            this.name = name;
+            this.thread = thread;
+            this.startOffsetMs = startOffsetMs;
+            this.wallNanos = wallNanos;
+            this.cpuNanos = cpuNanos;
+            this.allocatedBytes = allocatedBytes;
+            this.processCpuNanos = processCpuNanos;
+            this.rows = rows;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getThread() {
+            return thread;
+        }
+
+        /** Milliseconds from the start of the run to the start of this phase. */
+        public long getStartOffsetMs() {
+            return startOffsetMs;
+        }
+
+        public long getWallNanos() {
+            return wallNanos;
+        }
+
+        /** CPU time of the thread that ran the phase. */
+        public long getCpuNanos() {
+            return cpuNanos;
+        }
+
+        /** Bytes allocated by the thread that ran the phase. */
+        public long getAllocatedBytes() {
+            return allocatedBytes;
+        }
+
+        /** CPU time of the whole process during the phase, including worker pools. */
+        public long getProcessCpuNanos() {
+            return processCpuNanos;
+        }
+
+        public long getRows() {
+            return rows;
+        }
+    }
+}
@@ -0,0 +1,297 @@
+package com.nba.predict;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Streams the {@code play_by_play} table through a forward-only cursor, ordered by game and
+ * event number, and folds each game's events into a handful of counters as they go by. A
+ * game's aggregates are written to its {@link GameTable} row when the next game starts, so
+ * memory is constant per game however many events the table holds; no event is ever kept.
+ *
+ * Scores come from the score and margin columns of scoring events. Only the total of
+ * "a - b" and the home-perspective margin are used, which fixes each side's points without
+ * relying on the order of the two numbers.
+ */
+public class PlayByPlayReader {
+    private static final int FETCH_SIZE = 4096;
+
+    private static final String COLUMNS = "SELECT game_id, eventmsgtype, period, pctimestring, score, scoremargin "
+            + "FROM play_by_play";
+    private static final String ORDER = " ORDER BY game_id, CAST(eventnum AS INTEGER)";
+    private static final String SELECT = COLUMNS + ORDER;
+    // Events are tied to game rows by numeric id, as parseGameId reads both sides.
+    private static final String OF_GAMES = " WHERE CAST(game_id AS INTEGER) IN (SELECT CAST(game_id AS INTEGER) FROM game";
+    private static final String SELECT_SINCE = COLUMNS + OF_GAMES
+            + " WHERE game_date > ? OR (game_date = ? AND game_id > ?))" + ORDER;
+    // Cheap digest of the events of games in the game table, over the columns aggregated.
+    private static final String FINGERPRINT = "SELECT COUNT(*), MAX(game_id), TOTAL(CAST(eventnum AS INTEGER)), "
+            + "TOTAL(eventmsgtype), TOTAL(period), TOTAL(CAST(REPLACE(pctimestring, ':', '') AS INTEGER)), "
+            + "TOTAL(LENGTH(score)), TOTAL(CAST(score AS INTEGER)), TOTAL(CAST(scoremargin AS INTEGER)), "
+            + "TOTAL(CAST(eventnum AS INTEGER) % 9973 * eventmsgtype) FROM play_by_play" + OF_GAMES;
+    private static final String FINGERPRINT_ALL = FINGERPRINT + ")";
+    private static final String FINGERPRINT_THROUGH = FINGERPRINT
+            + " WHERE game_date IS NULL OR game_date < ? OR (game_date = ? AND game_id <= ?))";
+    private static final String HAS_TABLE =
+            "SELECT 1 FROM sqlite_master WHERE type = 'table' AND name = 'play_by_play'";
+
+    // eventmsgtype codes of the NBA stats feed
+    private static final int MADE_SHOT = 1;
+    private static final int MISSED_SHOT = 2;
+    private static final int FREE_THROW = 3;
+    private static final int TURNOVER = 5;
+
+    private static final int CLUTCH_SECONDS = 5 * 60;
+    private static final int CLUTCH_MARGIN = 5;
+    private static final double FREE_THROW_POSSESSIONS = 0.44;
+
+    private final String url;
+
+    public PlayByPlayReader(String filePath) {
+        this.url = "jdbc:sqlite:" + filePath;
+    }
+
+    /** Whether the database has a play_by_play table at all. */
+    public boolean hasTable() throws SQLException {
+        try (Connection conn = DriverManager.getConnection(url);
+             PreparedStatement ps = conn.prepareStatement(HAS_TABLE);
+             ResultSet rs = ps.executeQuery()) {
+            return rs.next();
+        }
+    }
+
+    /**
+     * Digest of the events of every game in the game table, computed inside SQLite. Part of
+     * the source fingerprint, so feature rows built from the aggregates are rebuilt when
+     * events are added or edited.
+     */
+    public long fingerprint() throws SQLException {
+        try (Connection conn = DriverManager.getConnection(url);
+             PreparedStatement ps = conn.prepareStatement(FINGERPRINT_ALL)) {
+            return SqliteGameReader.digest(ps);
+        }
+    }
+
+    /**
+     * As {@link #fingerprint()}, over only the games up to and including {@code through}
+     * (see {@link SqliteGameReader#fingerprint(SqliteGameReader.Watermark)}).
+     */
+    public long fingerprint(SqliteGameReader.Watermark through) throws SQLException {
+        try (Connection conn = DriverManager.getConnection(url);
+             PreparedStatement ps = conn.prepareStatement(FINGERPRINT_THROUGH)) {
+            ps.setString(1, through.getGameDate());
+            ps.setString(2, through.getGameDate());
+            ps.setString(3, through.getGameId());
+            return SqliteGameReader.digest(ps);
+        }
+    }
+
+    /**
+     * Aggregates every game's events in one pass and aligns the results to {@code games} by
+     * game id. Games without events stay uncovered; games missing from the table are counted
+     * in {@link PipelineMetrics#PLAY_BY_PLAY_UNMATCHED}.
+     */
+    public PlayByPlayStats aggregate(GameTable games) throws SQLException {
+        return aggregate(games, new PlayByPlayStats(games.size()));
+    }
+
+    /**
+     * As {@link #aggregate(GameTable)}, filling in {@code stats}; games it already covers, e.g.
+     * from an earlier database of a multi-source load, are left as they are.
+     */
+    PlayByPlayStats aggregate(GameTable games, PlayByPlayStats stats) throws SQLException {
+        return aggregate(games, stats, null);
+    }
+
+    /**
+     * As {@link #aggregate(GameTable)} for a delta load: streams only the events of games
+     * after {@code since} in the game table, which {@code games} should hold, so the cost
+     * follows the new games rather than the whole table.
+     */
+    public PlayByPlayStats aggregateSince(GameTable games, SqliteGameReader.Watermark since) throws SQLException {
+        return aggregate(games, new PlayByPlayStats(games.size()), since);
+    }
+
+    private PlayByPlayStats aggregate(GameTable games, PlayByPlayStats stats, SqliteGameReader.Watermark since)
+            throws SQLException {
+        // game id -> first row, then a chain through rows sharing the id
+        Map<Long, Integer> firstRow = new HashMap<>(games.size() * 2);
+        int[] nextRow = new int[games.size()];
+        Arrays.fill(nextRow, -1);
+        for (int row = games.size() - 1; row >= 0; row--) {
+            long id = games.getGameId(row);
+            if (id != GameTable.NO_GAME_ID) {
+                Integer first = firstRow.put(id, row);
+                nextRow[row] = first == null ? -1 : first;
+            }
+        }
+
+        GameAccumulator game = new GameAccumulator();
+        long events = 0;
+        try (PipelineMetrics.Phase phase = PipelineMetrics.get().phase("play_by_play");
+             Connection conn = DriverManager.getConnection(url);
+             PreparedStatement ps = conn.prepareStatement(since == null ? SELECT : SELECT_SINCE,
+                     ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            if (since != null) {
+                ps.setString(1, since.getGameDate());
+                ps.setString(2, since.getGameDate());
+                ps.setString(3, since.getGameId());
+            }
+            ps.setFetchSize(FETCH_SIZE);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    long id = GameTable.parseGameId(rs.getString(1));
+                    if (id != game.gameId) {
+                        flush(game, firstRow, nextRow, stats);
+                        game.start(id);
+                    }
+                    game.add(rs.getInt(2), rs.getInt(3), rs.getString(4), rs.getString(5), rs.getString(6));
+                    events++;
+                }
+            }
+            flush(game, firstRow, nextRow, stats);
+            phase.setRows(events);
+        }
+        return stats;
+    }
+
+    private static void flush(GameAccumulator game, Map<Long, Integer> firstRow, int[] nextRow,
+                              PlayByPlayStats stats) {
+        if (game.gameId == GameTable.NO_GAME_ID) {
+            return;
+        }
+        Integer first = firstRow.get(game.gameId);
+        if (first == null) {
+            PipelineMetrics.get().increment(PipelineMetrics.PLAY_BY_PLAY_UNMATCHED);
+            return;
+        }
+        for (int row = first; row >= 0; row = nextRow[row]) {
+            if (!stats.has(row)) {
+                stats.set(row, game.pace(), game.clutchHome, game.clutchAway, game.leadChanges,
+                        game.largestLeadHome, game.largestLeadAway);
+            }
+        }
+    }
+
+    /** Running totals for the game currently streaming past. */
+    private static final class GameAccumulator {
+        private long gameId = GameTable.NO_GAME_ID;
+        private int lastPeriod;
+        private int fieldGoalAttempts;
+        private int freeThrows;
+        private int turnovers;
+        private int home;
+        private int away;
+        private int leader; // sign of the last non-zero margin, home positive
+        private int leadChanges;
+        private int largestLeadHome;
+        private int largestLeadAway;
+        private int clutchHome;
+        private int clutchAway;
+
+        void start(long id) {
+            gameId = id;
+            lastPeriod = 0;
+            fieldGoalAttempts = 0;
+            freeThrows = 0;
+            turnovers = 0;
+            home = 0;
+            away = 0;
+            leader = 0;
+            leadChanges = 0;
+            largestLeadHome = 0;
+            largestLeadAway = 0;
+            clutchHome = 0;
+            clutchAway = 0;
+        }
+
+        void add(int type, int period, String clock, String score, String margin) {
+            lastPeriod = Math.max(lastPeriod, period);
+            if (type == MADE_SHOT || type == MISSED_SHOT) {
+                fieldGoalAttempts++;
+            } else if (type == FREE_THROW) {
+                freeThrows++;
+            } else if (type == TURNOVER) {
+                turnovers++;
+            }
+            if (score == null || margin == null) {
+                return; // not a scoring event
+            }
+            int total = parseTotal(score);
+            int diff = "TIE".equals(margin) ? 0 : parseInt(margin.trim());
+            if (total < 0 || diff == Integer.MIN_VALUE || ((total + diff) & 1) != 0) {
+                return;
+            }
+            int newHome = (total + diff) / 2;
+            int newAway = (total - diff) / 2;
+            // Clutch: judged on the margin before this score.
+            if (period >= 4 && secondsLeft(clock) <= CLUTCH_SECONDS && Math.abs(home - away) <= CLUTCH_MARGIN) {
+                clutchHome += Math.max(0, newHome - home);
+                clutchAway += Math.max(0, newAway - away);
+            }
+            home = newHome;
+            away = newAway;
+            int sign = Integer.signum(diff);
+            if (sign != 0) {
+                if (leader != 0 && sign != leader) {
+                    leadChanges++;
+                }
+                leader = sign;
+            }
+            largestLeadHome = Math.max(largestLeadHome, diff);
+            largestLeadAway = Math.max(largestLeadAway, -diff);
+        }
+
+        /** Estimated possessions per team, scaled to 48 minutes (5 per overtime period). */
+        double pace() {
+            int periods = Math.max(4, lastPeriod);
+            double minutes = 48.0 + 5.0 * (periods - 4);
+            double possessions = (fieldGoalAttempts + FREE_THROW_POSSESSIONS * freeThrows + turnovers) / 2.0;
+            return possessions * 48.0 / minutes;
+        }
+    }
+
+    /** Sum of the two numbers in "a - b", or -1 if it is not that shape. */
+    static int parseTotal(String score) {
+        int dash = score.indexOf('-');
+        if (dash < 0) {
+            return -1;
+        }
+        int a = parseInt(score.substring(0, dash).trim());
+        int b = parseInt(score.substring(dash + 1).trim());
+        return a < 0 || b < 0 ? -1 : a + b;
+    }
+
+    /** Seconds left in the period for a "M:SS" game clock, or MAX_VALUE if unreadable. */
+    static int secondsLeft(String clock) {
+        if (clock == null) {
+            return Integer.MAX_VALUE;
+        }
+        int colon = clock.indexOf(':');
+        if (colon < 0) {
+            return Integer.MAX_VALUE;
+        }
+        int minutes = parseInt(clock.substring(0, colon).trim());
+        int end = colon + 1;
+        while (end < clock.length() && Character.isDigit(clock.charAt(end))) {
+            end++;
+        }
+        int seconds = parseInt(clock.substring(colon + 1, end));
+        return minutes < 0 || seconds < 0 ? Integer.MAX_VALUE : minutes * 60 + seconds;
+    }
+
+    /** Optionally signed decimal integer, or MIN_VALUE if it is not one. */
+    private static int parseInt(String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return Integer.MIN_VALUE;
+        }
+    }
+}
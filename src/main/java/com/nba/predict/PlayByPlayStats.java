@@ -0,0 +1,99 @@
+package com.nba.predict;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Per-game aggregates of the play_by_play table, one column per statistic and aligned to
+ * the rows of a {@link GameTable}. Built by {@link PlayByPlayReader}; games the table has
+ * no events for read as NaN (and -1 lead changes), which Weka treats as missing.
+ *
+ * Clutch time follows the league definition: the last five minutes of the fourth quarter
+ * or overtime with the margin at five points or fewer.
+ */
+public class PlayByPlayStats {
+    private final int size;
+    private final BitSet covered;
+    private final float[] pace;              // estimated possessions per team per 48 minutes
+    private final short[] clutchPointsHome;
+    private final short[] clutchPointsAway;
+    private final short[] leadChanges;
+    private final short[] largestLeadHome;
+    private final short[] largestLeadAway;
+
+    PlayByPlayStats(int size) {
+        this.size = size;
+        this.covered = new BitSet(size);
+        this.pace = new float[size];
+        this.clutchPointsHome = new short[size];
+        this.clutchPointsAway = new short[size];
+        this.leadChanges = new short[size];
+        this.largestLeadHome = new short[size];
+        this.largestLeadAway = new short[size];
+        Arrays.fill(pace, Float.NaN);
+    }
+
+    void set(int row, double pace, int clutchHome, int clutchAway, int leadChanges,
+             int largestLeadHome, int largestLeadAway) {
+        covered.set(row);
+        this.pace[row] = (float) pace;
+        this.clutchPointsHome[row] = (short) clutchHome;
+        this.clutchPointsAway[row] = (short) clutchAway;
+        this.leadChanges[row] = (short) leadChanges;
+        this.largestLeadHome[row] = (short) largestLeadHome;
+        this.largestLeadAway[row] = (short) largestLeadAway;
+    }
+
+    /** Rows {@code from} (inclusive) to {@code to}, aligned to the matching slice of the game table. */
+    PlayByPlayStats slice(int from, int to) {
+        PlayByPlayStats out = new PlayByPlayStats(to - from);
+        for (int row = covered.nextSetBit(from); row >= 0 && row < to; row = covered.nextSetBit(row + 1)) {
+            out.set(row - from, pace[row], clutchPointsHome[row], clutchPointsAway[row], leadChanges[row],
+                    largestLeadHome[row], largestLeadAway[row]);
+        }
+        return out;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /** Whether the play_by_play table had events for this row's game. */
+    public boolean has(int row) {
+        return covered.get(row);
+    }
+
+    /** Number of rows with play-by-play data. */
+    public int getCoveredGames() {
+        return covered.cardinality();
+    }
+
+    /**
+     * Pace proxy: (field goal attempts + 0.44 free throw attempts + turnovers) of both teams,
+     * halved and scaled to 48 minutes. Offensive rebounds are not subtracted, since events do
+     * not say which team a rebound went to reliably enough.
+     */
+    public double getPace(int row) {
+        return pace[row];
+    }
+
+    public double getClutchPointsHome(int row) {
+        return covered.get(row) ? clutchPointsHome[row] : Double.NaN;
+    }
+
+    public double getClutchPointsAway(int row) {
+        return covered.get(row) ? clutchPointsAway[row] : Double.NaN;
+    }
+
+    public int getLeadChanges(int row) {
+        return covered.get(row) ? leadChanges[row] : -1;
+    }
+
+    public double getLargestLeadHome(int row) {
+        return covered.get(row) ? largestLeadHome[row] : Double.NaN;
+    }
+
+    public double getLargestLeadAway(int row) {
+        return covered.get(row) ? largestLeadAway[row] : Double.NaN;
+    }
+}
@@ -0,0 +1,315 @@
+package com.nba.predict;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Local HTTP front end for a trained model and a live {@link LeagueState}.
+ *
+ * <ul>
+ *   <li>{@code GET /predict?home=ID&away=ID&date=YYYY-MM-DD} returns the home-win
+ *       probability for an upcoming game.</li>
+ *   <li>{@code POST /ingest} with {@code home, away, date, pts_home, pts_away} and the
+ *       per-side {@code fg_pct, reb, ast, tov} stats (query string or form body) folds a
+ *       final score into the state.</li>
+ * </ul>
+ *
+ * Requests run on a fixed pool. Feature rows are built on the request thread from the
+ * currently published state; scoring goes through one batcher thread that drains whatever
+ * requests are waiting and scores them in a single classifier call, so throughput rises
+ * with load instead of queueing one forest walk per request. Ingest is serialized on its
+ * own thread, which advances a private copy of the state and then publishes it, so
+ * readers never wait for a writer. The copy shares everything the new games do not
+ * touch with the published state (see {@link LeagueState#copyFor}).
+ *
+ * A full queue or a request that is not scored in time answers 503; the caller may retry.
+ */
+public class PredictionServer {
+    public static final int DEFAULT_PORT = 8080;
+
+    private static final int MAX_BATCH = 256;
+    private static final int QUEUE_CAPACITY = 4096;
+    private static final long REQUEST_TIMEOUT_MS = 2_000;
+
+    private final ModelStore.StoredModel model;
+    private final FeaturePipeline pipeline;
+    private final HttpServer http;
+    private final ExecutorService requestPool;
+    private final ExecutorService ingestThread;
+    private final Thread batcher;
+    private final BlockingQueue<PendingPrediction> pending = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final CountDownLatch stopped = new CountDownLatch(1);
+    private volatile LeagueState state;
+    private volatile boolean running;
+
+    public PredictionServer(ModelStore.StoredModel model, FeaturePipeline pipeline, LeagueState state,
+                            int port, int threads) throws IOException {
+        this.model = model;
+        this.pipeline = pipeline;
+        this.state = state;
+        this.http = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        this.requestPool = Executors.newFixedThreadPool(Math.max(1, threads), daemon("predict-http"));
+        this.ingestThread = Executors.newSingleThreadExecutor(daemon("predict-ingest"));
+        this.batcher = daemon("predict-batcher").newThread(this::runBatcher);
+        http.setExecutor(requestPool);
+        http.createContext("/predict", exchange -> handle(exchange, this::handlePredict));
+        http.createContext("/ingest", exchange -> handle(exchange, this::handleIngest));
+    }
+
+    public void start() {
+        running = true;
+        batcher.start();
+        http.start();
+    }
+
+    public void stop() {
+        running = false;
+        http.stop(0);
+        batcher.interrupt();
+        requestPool.shutdownNow();
+        ingestThread.shutdownNow();
+        List<PendingPrediction> abandoned = new ArrayList<>();
+        pending.drainTo(abandoned);
+        for (PendingPrediction request : abandoned) {
+            request.result.completeExceptionally(new IllegalStateException("Server stopped"));
+        }
+        stopped.countDown();
+    }
+
+    /** Blocks until {@link #stop()} is called. */
+    public void awaitStop() throws InterruptedException {
+        stopped.await();
+    }
+
+    public int getPort() {
+        return http.getAddress().getPort();
+    }
+
+    /** The state predictions are currently computed from. */
+    public LeagueState getState() {
+        return state;
+    }
+
+    /**
+     * Home-win probability for an upcoming game, scored through the shared batcher.
+     *
+     * @throws QueueFullException if too many requests are already waiting
+     * @throws TimeoutException   if the request was not scored in time; it is withdrawn
+     */
+    public double predict(String homeId, String awayId, int gameDay) throws Exception {
+        double[] features = pipeline.featuresFor(state, homeId, awayId, gameDay);
+        PendingPrediction request = new PendingPrediction(features);
+        if (!pending.offer(request)) {
+            throw new QueueFullException();
+        }
+        try {
+            return request.result.get(REQUEST_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // Withdraw it so the batcher does not score a row nobody is waiting for.
+            pending.remove(request);
+            request.result.cancel(false);
+            throw e;
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        }
+    }
+
+    /** Applies final scores on the ingest thread and publishes the advanced state. */
+    public void ingest(GameTable games) throws Exception {
+        try {
+            ingestThread.submit(() -> {
+                LeagueState next = state.copyFor(games);
+                pipeline.advance(games, next);
+                state = next;
+                return null;
+            }).get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        }
+    }
+
+    private void runBatcher() {
+        List<PendingPrediction> batch = new ArrayList<>(MAX_BATCH);
+        while (running) {
+            try {
+                batch.add(pending.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            pending.drainTo(batch, MAX_BATCH - 1);
+            batch.removeIf(request -> request.result.isDone()); // timed out and cancelled
+            if (batch.isEmpty()) {
+                continue;
+            }
+            double[][] rows = new double[batch.size()][];
+            for (int i = 0; i < rows.length; i++) {
+                rows[i] = batch.get(i).features;
+            }
+            try {
+                double[] probabilities = model.predictHomeWin(rows);
+                for (int i = 0; i < rows.length; i++) {
+                    batch.get(i).result.complete(probabilities[i]);
+                }
+            } catch (Exception e) {
+                for (PendingPrediction request : batch) {
+                    request.result.completeExceptionally(e);
+                }
+            }
+            batch.clear();
+        }
+    }
+
+    private String handlePredict(HttpExchange exchange) throws Exception {
+        if (!"GET".equals(exchange.getRequestMethod())) {
+            throw new IllegalArgumentException("Use GET for /predict");
+        }
+        Map<String, String> params = parameters(exchange);
+        String home = required(params, "home");
+        String away = required(params, "away");
+        String date = required(params, "date");
+        double p = predict(home, away, parseDay(date));
+        return String.format(Locale.US, "{\"home\":%s,\"away\":%s,\"date\":%s,\"homeWinProbability\":%.6f}",
+                quote(home), quote(away), quote(date), p);
+    }
+
+    private String handleIngest(HttpExchange exchange) throws Exception {
+        if (!"POST".equals(exchange.getRequestMethod())) {
+            throw new IllegalArgumentException("Use POST for /ingest");
+        }
+        Map<String, String> params = parameters(exchange);
+        int ptsHome = Integer.parseInt(required(params, "pts_home"));
+        int ptsAway = Integer.parseInt(required(params, "pts_away"));
+        GameTable.Builder builder = new GameTable.Builder(1);
+        builder.addGame(parseDay(required(params, "date")),
+                required(params, "home"), required(params, "away"),
+                ptsHome, ptsAway, ptsHome > ptsAway,
+                number(params, "fg_pct_home"), number(params, "fg_pct_away"),
+                number(params, "reb_home"), number(params, "reb_away"),
+                number(params, "ast_home"), number(params, "ast_away"),
+                number(params, "tov_home"), number(params, "tov_away"));
+        ingest(builder.build());
+        return String.format(Locale.US, "{\"gamesProcessed\":%d}", state.getGamesProcessed());
+    }
+
+    private interface Handler {
+        String respond(HttpExchange exchange) throws Exception;
+    }
+
+    private static void handle(HttpExchange exchange, Handler handler) throws IOException {
+        int status = 200;
+        String body;
+        try {
+            body = handler.respond(exchange);
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            status = 400;
+            body = error(String.valueOf(e.getMessage()));
+        } catch (TimeoutException | QueueFullException e) {
+            status = 503;
+            body = error("Overloaded, try again");
+        } catch (Exception e) {
+            status = 500;
+            body = error(String.valueOf(e.getMessage()));
+        }
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static String error(String message) {
+        return "{\"error\":" + quote(message) + "}";
+    }
+
+    private static String quote(String value) {
+        return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+
+    private static Map<String, String> parameters(HttpExchange exchange) throws IOException {
+        Map<String, String> params = new HashMap<>();
+        parseQuery(exchange.getRequestURI().getRawQuery(), params);
+        try (InputStream in = exchange.getRequestBody()) {
+            parseQuery(new String(in.readAllBytes(), StandardCharsets.UTF_8), params);
+        }
+        return params;
+    }
+
+    private static void parseQuery(String query, Map<String, String> params) {
+        if (query == null || query.isEmpty()) {
+            return;
+        }
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                params.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(eq + 1).trim(), StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    private static String required(Map<String, String> params, String name) {
+        String value = params.get(name);
+        if (value == null || value.isEmpty()) {
+            throw new IllegalArgumentException("Missing parameter: " + name);
+        }
+        return value;
+    }
+
+    private static double number(Map<String, String> params, String name) {
+        return Double.parseDouble(required(params, name));
+    }
+
+    private static int parseDay(String date) {
+        return (int) LocalDate.parse(date).toEpochDay();
+    }
+
+    private static ThreadFactory daemon(String name) {
+        return r -> {
+            Thread t = new Thread(r, name);
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    /** Thrown by {@link #predict} when the scoring queue has no room for another request. */
+    public static final class QueueFullException extends Exception {
+        QueueFullException() {
+            super("Prediction queue full");
+        }
+    }
+
+    private static final class PendingPrediction {
+        final double[] features;
+        final CompletableFuture<Double> result = new CompletableFuture<>();
+
+        PendingPrediction(double[] features) {
+            this.features = features;
+        }
+    }
+}
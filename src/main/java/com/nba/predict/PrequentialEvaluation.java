@@ -0,0 +1,109 @@
+package com.nba.predict;
+
+import java.io.Serializable;
+
+/**
+ * Test-then-train metrics of an online model: every game is scored before the model learns
+ * from it, so each prediction is out-of-sample without a held-out split. Log loss, Brier
+ * score, AUCs and calibration come from a histogram {@link ProbabilityMetrics}, so state stays
+ * the same size whatever the length of the stream, and is checkpointed with the model.
+ *
+ * Besides the cumulative figures, a fading-factor accuracy weights recent games more
+ * heavily (Gama et al.), which shows drift that the all-time average smooths away.
+ */
+public class PrequentialEvaluation implements Serializable {
+    private static final long serialVersionUID = 2L;
+
+    /** Weight kept per game; 0.999 gives an effective memory of about a thousand games. */
+    public static final double DEFAULT_FADING_FACTOR = 0.999;
+
+    private final double fadingFactor;
+    private final int[][] confusionMatrix = new int[2][2]; // [actual][predicted]
+    private final ProbabilityMetrics probabilities = new ProbabilityMetrics();
+    private long games;
+    private double fadedCorrect;
+    private double fadedGames;
+    private long updateNanos;
+
+    public PrequentialEvaluation() {
+        this(DEFAULT_FADING_FACTOR);
+    }
+
+    public PrequentialEvaluation(double fadingFactor) {
+        if (fadingFactor <= 0 || fadingFactor > 1) {
+            throw new IllegalArgumentException("Fading factor must be in (0, 1]: " + fadingFactor);
+        }
+        this.fadingFactor = fadingFactor;
+    }
+
+    /**
+     * Records the prediction made for a game before training on it. A non-finite probability
+     * is counted by {@link ProbabilityMetrics#add} and otherwise ignored.
+     */
+    void record(double pWin, int actual) {
+        probabilities.add(actual == 1, pWin);
+        if (!Double.isFinite(pWin)) {
+            return;
+        }
+        int predicted = pWin >= 0.5 ? 1 : 0;
+        confusionMatrix[actual][predicted]++;
+        games++;
+        fadedCorrect = fadingFactor * fadedCorrect + (predicted == actual ? 1 : 0);
+        fadedGames = fadingFactor * fadedGames + 1;
+    }
+
+    void addUpdateNanos(long nanos) {
+        updateNanos += nanos;
+    }
+
+    public long getGames() {
+        return games;
+    }
+
+    public double getAccuracy() {
+        return games == 0 ? Double.NaN : (double) (confusionMatrix[0][0] + confusionMatrix[1][1]) / games;
+    }
+
+    /** Accuracy with each older game discounted by the fading factor. */
+    public double getFadedAccuracy() {
+        return fadedGames == 0 ? Double.NaN : fadedCorrect / fadedGames;
+    }
+
+    public double getLogLoss() {
+        return probabilities.getLogLoss();
+    }
+
+    public double getBrierScore() {
+        return probabilities.getBrierScore();
+    }
+
+    public double getRocAuc() {
+        return probabilities.getRocAuc();
+    }
+
+    /** Log loss, Brier score, AUCs and calibration of every prediction so far. */
+    public ProbabilityMetrics getProbabilities() {
+        return probabilities;
+    }
+
+    /** Mean time of one updateClassifier call, in microseconds. */
+    public double getMicrosPerUpdate() {
+        return games == 0 ? Double.NaN : updateNanos / 1000.0 / games;
+    }
+
+    public ModelEvaluation toModelEvaluation() {
+        int[][] cm = new int[2][2];
+        for (int i = 0; i < 2; i++) {
+            System.arraycopy(confusionMatrix[i], 0, cm[i], 0, 2);
+        }
+        return ModelEvaluation.fromConfusionMatrix(cm).withProbabilities(probabilities);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d games: accuracy %.4f (faded %.4f), log loss %.4f, Brier %.4f, AUC %.4f,"
+                        + " calibration error %.4f, %.1f us/update",
+                games, getAccuracy(), getFadedAccuracy(), getLogLoss(), getBrierScore(), getRocAuc(),
+                probabilities.getExpectedCalibrationError(), getMicrosPerUpdate());
+    }
+}
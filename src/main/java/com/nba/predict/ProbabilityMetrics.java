@@ -0,0 +1,396 @@
+package com.nba.predict;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Probabilistic scores of home-win predictions, accumulated from (label, probability) pairs
+ * in a single pass: log loss, Brier score, ROC-AUC, PR-AUC (average precision) and
+ * calibration bins.
+ *
+ * An accumulator is not thread-safe. Give every fold, period or thread its own
+ * {@link #emptyCopy()} and {@link #merge} the partials at the end; no locking is needed and
+ * the result does not depend on how the pairs were split.
+ *
+ * By default the AUCs come from fixed-width histograms of the WIN and LOSS probabilities,
+ * so state is constant-size and a merge is an array sum; scores closer than one bin width
+ * count as tied, which also keeps a serialized histogram accumulator (e.g. in an online
+ * checkpoint) the same size however many pairs it has seen. Exact mode keeps every pair
+ * and sorts them when an AUC is asked for.
+ */
+public class ProbabilityMetrics implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public static final int DEFAULT_BINS = 1000;
+    public static final int CALIBRATION_BINS = 10;
+
+    private static final int MAGIC = 0x4E425052; // "NBPR"
+    private static final double MIN_PROBABILITY = 1e-15;
+
+    private final int bins;
+    private final boolean exact;
+    private long count;
+    private long wins;
+    private double logLossSum;
+    private double brierSum;
+    private final long[] winBins;
+    private final long[] lossBins;
+    private final long[] calibrationCount = new long[CALIBRATION_BINS];
+    private final long[] calibrationWins = new long[CALIBRATION_BINS];
+    private final double[] calibrationSum = new double[CALIBRATION_BINS];
+    // exact mode only: every probability, with its label
+    private double[] probabilities;
+    private boolean[] labels;
+
+    /** Histogram AUCs with {@link #DEFAULT_BINS} bins. */
+    public ProbabilityMetrics() {
+        this(DEFAULT_BINS, false);
+    }
+
+    /**
+     * @param bins  histogram bins over [0, 1] for the AUCs
+     * @param exact keep every pair and compute exact AUCs instead of using the histograms
+     */
+    public ProbabilityMetrics(int bins, boolean exact) {
+        if (bins < 1) {
+            throw new IllegalArgumentException("bins must be positive: " + bins);
+        }
+        this.bins = bins;
+        this.exact = exact;
+        this.winBins = exact ? null : new long[bins];
+        this.lossBins = exact ? null : new long[bins];
+        this.probabilities = exact ? new double[16] : null;
+        this.labels = exact ? new boolean[16] : null;
+    }
+
+    /** Exact AUCs, keeping every pair. */
+    public static ProbabilityMetrics exact() {
+        return new ProbabilityMetrics(DEFAULT_BINS, true);
+    }
+
+    /** A new, empty accumulator with the same settings, e.g. for one fold or thread. */
+    public ProbabilityMetrics emptyCopy() {
+        return new ProbabilityMetrics(bins, exact);
+    }
+
+    /**
+     * Records one prediction: the probability given to a home win and whether it happened.
+     * A NaN or infinite probability is not recorded; it is counted under
+     * {@link PipelineMetrics#INVALID_PROBABILITIES} instead.
+     */
+    public void add(boolean win, double pWin) {
+        if (!Double.isFinite(pWin)) {
+            PipelineMetrics.get().increment(PipelineMetrics.INVALID_PROBABILITIES);
+            return;
+        }
+        double p = Math.min(1.0, Math.max(0.0, pWin));
+        count++;
+        double clipped = Math.min(1 - MIN_PROBABILITY, Math.max(MIN_PROBABILITY, win ? p : 1 - p));
+        logLossSum -= Math.log(clipped);
+        double error = p - (win ? 1 : 0);
+        brierSum += error * error;
+        int c = bin(p, CALIBRATION_BINS);
+        calibrationCount[c]++;
+        calibrationSum[c] += p;
+        if (win) {
+            wins++;
+            calibrationWins[c]++;
+        }
+        if (exact) {
+            int i = (int) count - 1;
+            if (i == probabilities.length) {
+                probabilities = Arrays.copyOf(probabilities, i * 2);
+                labels = Arrays.copyOf(labels, i * 2);
+            }
+            probabilities[i] = p;
+            labels[i] = win;
+        } else if (win) {
+            winBins[bin(p, bins)]++;
+        } else {
+            lossBins[bin(p, bins)]++;
+        }
+    }
+
+    /** Adds the pairs recorded by {@code other}, which must have the same settings. */
+    public void merge(ProbabilityMetrics other) {
+        if (other.bins != bins || other.exact != exact) {
+            throw new IllegalArgumentException("Cannot merge metrics with different binning");
+        }
+        if (exact) {
+            int n = (int) (count + other.count);
+            if (n > probabilities.length) {
+                probabilities = Arrays.copyOf(probabilities, n);
+                labels = Arrays.copyOf(labels, n);
+            }
+            System.arraycopy(other.probabilities, 0, probabilities, (int) count, (int) other.count);
+            System.arraycopy(other.labels, 0, labels, (int) count, (int) other.count);
+        } else {
+            for (int b = 0; b < bins; b++) {
+                winBins[b] += other.winBins[b];
+                lossBins[b] += other.lossBins[b];
+            }
+        }
+        count += other.count;
+        wins += other.wins;
+        logLossSum += other.logLossSum;
+        brierSum += other.brierSum;
+        for (int c = 0; c < CALIBRATION_BINS; c++) {
+            calibrationCount[c] += other.calibrationCount[c];
+            calibrationWins[c] += other.calibrationWins[c];
+            calibrationSum[c] += other.calibrationSum[c];
+        }
+    }
+
+    private static int bin(double p, int bins) {
+        return Math.min(bins - 1, (int) (p * bins));
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public boolean isExact() {
+        return exact;
+    }
+
+    /** Mean negative log-likelihood of the outcomes, probabilities clipped to [1e-15, 1 - 1e-15]. */
+    public double getLogLoss() {
+        return count == 0 ? Double.NaN : logLossSum / count;
+    }
+
+    /** Mean squared error of the home-win probability. */
+    public double getBrierScore() {
+        return count == 0 ? Double.NaN : brierSum / count;
+    }
+
+    /** Area under the ROC curve, ties counted as half; NaN unless both outcomes occur. */
+    public double getRocAuc() {
+        long[][] steps = steps();
+        long[] pos = steps[0];
+        long[] neg = steps[1];
+        long losses = count - wins;
+        if (wins == 0 || losses == 0) {
+            return Double.NaN;
+        }
+        double area = 0;
+        long above = 0;
+        for (int g = 0; g < pos.length; g++) {
+            area += neg[g] * (above + 0.5 * pos[g]);
+            above += pos[g];
+        }
+        return area / ((double) wins * losses);
+    }
+
+    /**
+     * Area under the precision-recall curve for WIN, as average precision: the precision at
+     * each threshold weighted by the recall it adds. NaN if there are no wins.
+     */
+    public double getPrAuc() {
+        if (wins == 0) {
+            return Double.NaN;
+        }
+        long[][] steps = steps();
+        long[] pos = steps[0];
+        long[] neg = steps[1];
+        double area = 0;
+        long tp = 0;
+        long fp = 0;
+        for (int g = 0; g < pos.length; g++) {
+            tp += pos[g];
+            fp += neg[g];
+            if (pos[g] > 0) {
+                area += (double) pos[g] / wins * tp / (tp + fp);
+            }
+        }
+        return area;
+    }
+
+    /**
+     * WIN and LOSS counts per distinct score (per bin in histogram mode), highest score
+     * first; the thresholds the ROC and PR curves step through.
+     */
+    private long[][] steps() {
+        if (!exact) {
+            long[] pos = new long[bins];
+            long[] neg = new long[bins];
+            int g = 0;
+            for (int b = bins - 1; b >= 0; b--) {
+                if (winBins[b] + lossBins[b] > 0) {
+                    pos[g] = winBins[b];
+                    neg[g] = lossBins[b];
+                    g++;
+                }
+            }
+            return new long[][] {Arrays.copyOf(pos, g), Arrays.copyOf(neg, g)};
+        }
+        int n = (int) count;
+        double[] winScores = new double[(int) wins];
+        double[] lossScores = new double[n - (int) wins];
+        for (int i = 0, w = 0, l = 0; i < n; i++) {
+            if (labels[i]) {
+                winScores[w++] = probabilities[i];
+            } else {
+                lossScores[l++] = probabilities[i];
+            }
+        }
+        Arrays.sort(winScores);
+        Arrays.sort(lossScores);
+        long[] pos = new long[n];
+        long[] neg = new long[n];
+        int g = 0;
+        int w = winScores.length - 1;
+        int l = lossScores.length - 1;
+        while (w >= 0 || l >= 0) {
+            double score = Math.max(w >= 0 ? winScores[w] : Double.NEGATIVE_INFINITY,
+                    l >= 0 ? lossScores[l] : Double.NEGATIVE_INFINITY);
+            while (w >= 0 && winScores[w] == score) {
+                pos[g]++;
+                w--;
+            }
+            while (l >= 0 && lossScores[l] == score) {
+                neg[g]++;
+                l--;
+            }
+            g++;
+        }
+        return new long[][] {Arrays.copyOf(pos, g), Arrays.copyOf(neg, g)};
+    }
+
+    /** The {@link #CALIBRATION_BINS} equal-width probability bins, empty ones included. */
+    public List<CalibrationBin> getCalibration() {
+        List<CalibrationBin> out = new ArrayList<>(CALIBRATION_BINS);
+        for (int c = 0; c < CALIBRATION_BINS; c++) {
+            out.add(new CalibrationBin((double) c / CALIBRATION_BINS, (double) (c + 1) / CALIBRATION_BINS,
+                    calibrationCount[c], calibrationSum[c], calibrationWins[c]));
+        }
+        return out;
+    }
+
+    /** Count-weighted mean gap between predicted and observed win rate over the calibration bins. */
+    public double getExpectedCalibrationError() {
+        if (count == 0) {
+            return Double.NaN;
+        }
+        double error = 0;
+        for (int c = 0; c < CALIBRATION_BINS; c++) {
+            if (calibrationCount[c] > 0) {
+                error += Math.abs(calibrationSum[c] - calibrationWins[c]);
+            }
+        }
+        return error / count;
+    }
+
+    /** Writes the state, sparsely in histogram mode, for {@link #read}. */
+    public void write(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(bins);
+        out.writeBoolean(exact);
+        out.writeLong(count);
+        out.writeLong(wins);
+        out.writeDouble(logLossSum);
+        out.writeDouble(brierSum);
+        for (int c = 0; c < CALIBRATION_BINS; c++) {
+            out.writeLong(calibrationCount[c]);
+            out.writeLong(calibrationWins[c]);
+            out.writeDouble(calibrationSum[c]);
+        }
+        if (exact) {
+            for (int i = 0; i < count; i++) {
+                out.writeDouble(probabilities[i]);
+                out.writeBoolean(labels[i]);
+            }
+            return;
+        }
+        int used = 0;
+        for (int b = 0; b < bins; b++) {
+            if (winBins[b] + lossBins[b] > 0) {
+                used++;
+            }
+        }
+        out.writeInt(used);
+        for (int b = 0; b < bins; b++) {
+            if (winBins[b] + lossBins[b] > 0) {
+                out.writeInt(b);
+                out.writeLong(winBins[b]);
+                out.writeLong(lossBins[b]);
+            }
+        }
+    }
+
+    public static ProbabilityMetrics read(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not probability metrics");
+        }
+        ProbabilityMetrics m = new ProbabilityMetrics(in.readInt(), in.readBoolean());
+        m.count = in.readLong();
+        m.wins = in.readLong();
+        m.logLossSum = in.readDouble();
+        m.brierSum = in.readDouble();
+        for (int c = 0; c < CALIBRATION_BINS; c++) {
+            m.calibrationCount[c] = in.readLong();
+            m.calibrationWins[c] = in.readLong();
+            m.calibrationSum[c] = in.readDouble();
+        }
+        if (m.exact) {
+            int n = (int) m.count;
+            m.probabilities = new double[Math.max(16, n)];
+            m.labels = new boolean[Math.max(16, n)];
+            for (int i = 0; i < n; i++) {
+                m.probabilities[i] = in.readDouble();
+                m.labels[i] = in.readBoolean();
+            }
+            return m;
+        }
+        int used = in.readInt();
+        for (int i = 0; i < used; i++) {
+            int b = in.readInt();
+            m.winBins[b] = in.readLong();
+            m.lossBins[b] = in.readLong();
+        }
+        return m;
+    }
+
+    /** Predictions whose home-win probability fell in [lower, upper). */
+    public static final class CalibrationBin {
+        private final double lower;
+        private final double upper;
+        private final long count;
+        private final double probabilitySum;
+        private final long wins;
+
+        CalibrationBin(double lower, double upper, long count, double probabilitySum, long wins) {
+            this.lower = lower;
+            this.upper = upper;
+            this.count = count;
+            this.probabilitySum = probabilitySum;
+            this.wins = wins;
+        }
+
+        public double getLower() {
+            return lower;
+        }
+
+        public double getUpper() {
+            return upper;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        /** Mean predicted home-win probability, NaN for an empty bin. */
+        public double getMeanPredicted() {
+            return count == 0 ? Double.NaN : probabilitySum / count;
+        }
+
+        /** Fraction of the bin's games the home team won, NaN for an empty bin. */
+        public double getObservedWinRate() {
+            return count == 0 ? Double.NaN : (double) wins / count;
+        }
+    }
+}
@@ -5,6 +5,9 @@ import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 
 public class RawGame {
+    @CsvBindByName(column = "game_id")
+    private String gameIdStr;
+
     @CsvBindByName(column = "game_date")
     private String gameDateStr;
 
@@ -60,6 +63,11 @@ public class RawGame {
         }
     }
 
+    /** Numeric game id, or GameTable.NO_GAME_ID if the column is missing or not numeric. */
+    public long getGameId() {
+        return GameTable.parseGameId(gameIdStr);
+    }
+
     public String getTeamIdHome() {
         return teamIdHome;
     }
@@ -69,19 +77,11 @@ public class RawGame {
     }
 
     public int getPtsHome() {
-        try {
-            return ptsHomeStr != null && !ptsHomeStr.isEmpty() ? (int) Double.parseDouble(ptsHomeStr) : 0;
-        } catch (Exception e) {
-            return 0;
-        }
+        return (int) parseNumber(ptsHomeStr);
     }
 
     public int getPtsAway() {
-        try {
-            return ptsAwayStr != null && !ptsAwayStr.isEmpty() ? (int) Double.parseDouble(ptsAwayStr) : 0;
-        } catch (Exception e) {
-            return 0;
-        }
+        return (int) parseNumber(ptsAwayStr);
     }
 
     public boolean isHomeWin() {
@@ -93,65 +93,47 @@ public class RawGame {
     }
 
     public double getFgPctHome() {
-        try {
-            return fgPctHomeStr != null && !fgPctHomeStr.isEmpty() ? Double.parseDouble(fgPctHomeStr) : 0.0;
-        } catch (Exception e) {
-            return 0.0;
-        }
+        return parseNumber(fgPctHomeStr);
     }
 
     public double getFgPctAway() {
-        try {
-            return fgPctAwayStr != null && !fgPctAwayStr.isEmpty() ? Double.parseDouble(fgPctAwayStr) : 0.0;
-        } catch (Exception e) {
-            return 0.0;
-        }
+        return parseNumber(fgPctAwayStr);
     }
 
     public double getRebHome() {
-        try {
-            return rebHomeStr != null && !rebHomeStr.isEmpty() ? Double.parseDouble(rebHomeStr) : 0.0;
-        } catch (Exception e) {
-            return 0.0;
-        }
+        return parseNumber(rebHomeStr);
     }
 
     public double getRebAway() {
-        try {
-            return rebAwayStr != null && !rebAwayStr.isEmpty() ? Double.parseDouble(rebAwayStr) : 0.0;
-        } catch (Exception e) {
-            return 0.0;
-        }
+        return parseNumber(rebAwayStr);
     }
 
     public double getAstHome() {
-        try {
-            return astHomeStr != null && !astHomeStr.isEmpty() ? Double.parseDouble(astHomeStr) : 0.0;
-        } catch (Exception e) {
-            return 0.0;
-        }
+        return parseNumber(astHomeStr);
     }
 
     public double getAstAway() {
-        try {
-            return astAwayStr != null && !astAwayStr.isEmpty() ? Double.parseDouble(astAwayStr) : 0.0;
-        } catch (Exception e) {
-            return 0.0;
-        }
+        return parseNumber(astAwayStr);
     }
 
     public double getTovHome() {
-        try {
-            return tovHomeStr != null && !tovHomeStr.isEmpty() ? Double.parseDouble(tovHomeStr) : 0.0;
-        } catch (Exception e) {
-            return 0.0;
-        }
+        return parseNumber(tovHomeStr);
     }
 
     public double getTovAway() {
+        return parseNumber(tovAwayStr);
+    }
+
+    /** Empty and unparseable values read as 0, as before, but are counted in PipelineMetrics. */
+    private static double parseNumber(String value) {
+        if (value == null || value.isEmpty()) {
+            PipelineMetrics.get().increment(PipelineMetrics.MISSING_VALUES);
+            return 0.0;
+        }
         try {
-            return tovAwayStr != null && !tovAwayStr.isEmpty() ? Double.parseDouble(tovAwayStr) : 0.0;
-        } catch (Exception e) {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            PipelineMetrics.get().increment(PipelineMetrics.PARSE_FAILURES);
             return 0.0;
         }
     }
@@ -0,0 +1,127 @@
+package com.nba.predict;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * On-disk results of hyperparameter search trials, one file per trial. A trial is
+ * identified by the feature data it ran on (the {@link FeatureCache} key) plus a
+ * description of the engine, parameters and CV protocol, so a stored fold result is only
+ * ever reused for the same model on the same rows and folds.
+ *
+ * File layout: magic, format version, feature key, description, fold count, then one
+ * entry per evaluated fold (fold index, the 2x2 confusion matrix, training milliseconds).
+ */
+public class SearchResultCache {
+    private static final int MAGIC = 0x4E425354; // "NBST"
+    private static final int VERSION = 1;
+
+    private final Path directory;
+
+    public SearchResultCache(Path directory) {
+        this.directory = directory;
+    }
+
+    public Path pathFor(long featureKey, String description) {
+        return directory.resolve(String.format("trial-%016x.bin", key(featureKey, description)));
+    }
+
+    /**
+     * Fold results stored for this trial, indexed by fold and null where a fold has not
+     * been evaluated; all null if nothing usable is stored.
+     */
+    public FoldResult[] load(long featureKey, String description, int numFolds) throws IOException {
+        FoldResult[] results = new FoldResult[numFolds];
+        Path file = pathFor(featureKey, description);
+        if (!Files.exists(file)) {
+            return results;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || in.readLong() != featureKey
+                    || !in.readUTF().equals(description) || in.readInt() != numFolds) {
+                return results; // older format or a hash collision: evaluate again
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                int fold = in.readInt();
+                int[][] cm = new int[2][2];
+                for (int a = 0; a < 2; a++) {
+                    for (int p = 0; p < 2; p++) {
+                        cm[a][p] = in.readInt();
+                    }
+                }
+                results[fold] = new FoldResult(cm, in.readLong());
+            }
+        }
+        return results;
+    }
+
+    public void store(long featureKey, String description, FoldResult[] results) throws IOException {
+        Files.createDirectories(directory);
+        Path file = pathFor(featureKey, description);
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        int count = 0;
+        for (FoldResult result : results) {
+            if (result != null) {
+                count++;
+            }
+        }
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(featureKey);
+            out.writeUTF(description);
+            out.writeInt(results.length);
+            out.writeInt(count);
+            for (int fold = 0; fold < results.length; fold++) {
+                if (results[fold] == null) {
+                    continue;
+                }
+                out.writeInt(fold);
+                for (int a = 0; a < 2; a++) {
+                    for (int p = 0; p < 2; p++) {
+                        out.writeInt(results[fold].confusionMatrix[a][p]);
+                    }
+                }
+                out.writeLong(results[fold].trainingTimeMs);
+            }
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /** 64-bit FNV-1a of the description, mixed with the feature key. */
+    private static long key(long featureKey, String description) {
+        long h = 0xCBF29CE484222325L;
+        for (byte b : description.getBytes(StandardCharsets.UTF_8)) {
+            h = (h ^ (b & 0xFF)) * 0x100000001B3L;
+        }
+        h = h * 0x9E3779B97F4A7C15L + featureKey;
+        return h ^ (h >>> 31);
+    }
+
+    /** Outcome of one CV fold: the confusion matrix [actual][predicted] and fit time. */
+    public static final class FoldResult {
+        private final int[][] confusionMatrix;
+        private final long trainingTimeMs;
+
+        public FoldResult(int[][] confusionMatrix, long trainingTimeMs) {
+            this.confusionMatrix = confusionMatrix;
+            this.trainingTimeMs = trainingTimeMs;
+        }
+
+        public int[][] getConfusionMatrix() {
+            return confusionMatrix;
+        }
+
+        public long getTrainingTimeMs() {
+            return trainingTimeMs;
+        }
+    }
+}
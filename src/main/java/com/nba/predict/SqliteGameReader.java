@@ -0,0 +1,236 @@
+package com.nba.predict;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Objects;
+import java.util.Properties;
+
+/**
+ * Typed JDBC reader for the {@code game} table. Values go straight from the ResultSet
+ * into GameTable columns (no String round trip), rows stream with a fixed fetch size,
+ * and since the query is ordered by (game_date, game_id) GameTable skips its own sort.
+ *
+ * In delta mode only rows after a persisted (game_date, game_id) watermark are fetched,
+ * so a nightly run reads just the games added since the previous one. Rows edited at or
+ * before the watermark are not re-read; {@link #fingerprint(Watermark)} detects them.
+ */
+public class SqliteGameReader {
+    private static final int FETCH_SIZE = 4096;
+
+    private static final String COLUMNS = "game_date, game_id, team_id_home, team_id_away, pts_home, pts_away, "
+            + "wl_home, fg_pct_home, fg_pct_away, reb_home, reb_away, ast_home, ast_away, tov_home, tov_away";
+    private static final String ORDER = " ORDER BY game_date ASC, game_id ASC";
+    private static final String SELECT_ALL = "SELECT " + COLUMNS + " FROM game" + ORDER;
+    // Cheap content digest over exactly the columns the reader consumes. The cross terms tie
+    // teams and dates to scores, so edits that only move values between rows still show up.
+    private static final String FINGERPRINT = "SELECT COUNT(*), MIN(game_date), MAX(game_date), MAX(game_id), "
+            + "TOTAL(pts_home), TOTAL(pts_away), SUM(wl_home = 'W'), TOTAL(fg_pct_home), TOTAL(fg_pct_away), "
+            + "TOTAL(reb_home), TOTAL(reb_away), TOTAL(ast_home), TOTAL(ast_away), TOTAL(tov_home), "
+            + "TOTAL(tov_away), TOTAL(CAST(team_id_home AS INTEGER) % 9973 * pts_home), "
+            + "TOTAL(CAST(team_id_away AS INTEGER) % 9973 * pts_away), "
+            + "TOTAL(julianday(substr(game_date, 1, 10)) % 9973 * (pts_home - pts_away)) FROM game";
+    // NULL dates sort first, so they precede every watermark.
+    private static final String FINGERPRINT_THROUGH = FINGERPRINT
+            + " WHERE game_date IS NULL OR game_date < ? OR (game_date = ? AND game_id <= ?)";
+    private static final String SELECT_SINCE = "SELECT " + COLUMNS + " FROM game "
+            + "WHERE game_date > ? OR (game_date = ? AND game_id > ?)" + ORDER;
+
+    private final String url;
+    private Watermark lastWatermark;
+
+    public SqliteGameReader(String filePath) {
+        this.url = "jdbc:sqlite:" + filePath;
+    }
+
+    public GameTable readAll() throws SQLException {
+        try (Connection conn = DriverManager.getConnection(url);
+             PreparedStatement ps = conn.prepareStatement(SELECT_ALL)) {
+            return read(ps, null);
+        }
+    }
+
+    /** Reads only rows strictly after {@code since}; a null watermark reads everything. */
+    public GameTable readSince(Watermark since) throws SQLException {
+        if (since == null) {
+            return readAll();
+        }
+        try (Connection conn = DriverManager.getConnection(url);
+             PreparedStatement ps = conn.prepareStatement(SELECT_SINCE)) {
+            ps.setString(1, since.getGameDate());
+            ps.setString(2, since.getGameDate());
+            ps.setString(3, since.getGameId());
+            return read(ps, since);
+        }
+    }
+
+    /**
+     * Digest of the {@code game} table's contents, computed inside SQLite from a single
+     * aggregate query rather than by streaming every row back. Any change to the loaded
+     * columns alters it in practice; it is meant for cache invalidation, not integrity.
+     */
+    public long fingerprint() throws SQLException {
+        try (Connection conn = DriverManager.getConnection(url);
+             PreparedStatement ps = conn.prepareStatement(FINGERPRINT)) {
+            return digest(ps);
+        }
+    }
+
+    /**
+     * {@link #fingerprint()} of only the rows up to and including {@code through}. While
+     * rows are only ever added after it, this equals the fingerprint the table had when
+     * {@code through} was its last row; a difference means earlier rows were edited.
+     */
+    public long fingerprint(Watermark through) throws SQLException {
+        try (Connection conn = DriverManager.getConnection(url);
+             PreparedStatement ps = conn.prepareStatement(FINGERPRINT_THROUGH)) {
+            ps.setString(1, through.getGameDate());
+            ps.setString(2, through.getGameDate());
+            ps.setString(3, through.getGameId());
+            return digest(ps);
+        }
+    }
+
+    /** Folds the single row of an aggregate query into a hash. */
+    static long digest(PreparedStatement ps) throws SQLException {
+        try (ResultSet rs = ps.executeQuery()) {
+            long h = 1;
+            if (rs.next()) {
+                int columns = rs.getMetaData().getColumnCount();
+                for (int c = 1; c <= columns; c++) {
+                    h = h * 1_000_003L + String.valueOf(rs.getString(c)).hashCode();
+                }
+            }
+            return h;
+        }
+    }
+
+    /** Watermark of the last row seen by the most recent read (unchanged if it read nothing). */
+    public Watermark getLastWatermark() {
+        return lastWatermark;
+    }
+
+    private GameTable read(PreparedStatement ps, Watermark start) throws SQLException {
+        ps.setFetchSize(FETCH_SIZE);
+        GameTable.Builder builder = new GameTable.Builder(start == null ? 1 << 16 : 1024);
+        String lastDate = start == null ? null : start.getGameDate();
+        String lastId = start == null ? null : start.getGameId();
+
+        try (PipelineMetrics.Phase parse = PipelineMetrics.get().phase("parse");
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                String gameDate = rs.getString(1);
+                lastDate = gameDate;
+                lastId = rs.getString(2);
+                int day = GameTable.parseEpochDay(gameDate);
+                if (day == GameTable.NO_DATE) {
+                    PipelineMetrics.get().increment(PipelineMetrics.ROWS_WITHOUT_DATE);
+                    continue;
+                }
+                builder.addGame(GameTable.parseGameId(lastId), day,
+                        builder.internTeam(rs.getString(3)),
+                        builder.internTeam(rs.getString(4)),
+                        (int) number(rs, 5),
+                        (int) number(rs, 6),
+                        "W".equals(rs.getString(7)),
+                        number(rs, 8), number(rs, 9),
+                        number(rs, 10), number(rs, 11),
+                        number(rs, 12), number(rs, 13),
+                        number(rs, 14), number(rs, 15));
+            }
+            parse.setRows(builder.size());
+        }
+
+        lastWatermark = lastDate == null ? start : new Watermark(lastDate, lastId);
+        try (PipelineMetrics.Phase sort = PipelineMetrics.get().phase("sort")) {
+            sort.setRows(builder.size());
+            return builder.build();
+        }
+    }
+
+    // getDouble yields 0.0 for NULL, the same default the String path used; count it.
+    private static double number(ResultSet rs, int column) throws SQLException {
+        double value = rs.getDouble(column);
+        if (value == 0.0 && rs.wasNull()) {
+            PipelineMetrics.get().increment(PipelineMetrics.MISSING_VALUES);
+        }
+        return value;
+    }
+
+    /**
+     * Position of the last loaded row, compared as (game_date, game_id) exactly as
+     * SQLite orders the raw column values.
+     */
+    public static class Watermark {
+        private static final String GAME_DATE_KEY = "game_date";
+        private static final String GAME_ID_KEY = "game_id";
+
+        private final String gameDate;
+        private final String gameId;
+
+        public Watermark(String gameDate, String gameId) {
+            this.gameDate = gameDate;
+            this.gameId = gameId;
+        }
+
+        public String getGameDate() {
+            return gameDate;
+        }
+
+        public String getGameId() {
+            return gameId;
+        }
+
+        /** Returns the stored watermark, or null if none has been saved yet. */
+        public static Watermark load(Path file) throws IOException {
+            if (!Files.exists(file)) {
+                return null;
+            }
+            Properties props = new Properties();
+            try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                props.load(reader);
+            }
+            String gameDate = props.getProperty(GAME_DATE_KEY);
+            return gameDate == null ? null : new Watermark(gameDate, props.getProperty(GAME_ID_KEY, ""));
+        }
+
+        public void save(Path file) throws IOException {
+            Properties props = new Properties();
+            props.setProperty(GAME_DATE_KEY, gameDate);
+            props.setProperty(GAME_ID_KEY, gameId == null ? "" : gameId);
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (Writer writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                props.store(writer, "Last game loaded from the game table");
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Watermark)) {
+                return false;
+            }
+            Watermark other = (Watermark) o;
+            return gameDate.equals(other.gameDate) && Objects.equals(gameId, other.gameId);
+        }
+
+        @Override
+        public int hashCode() {
+            return gameDate.hashCode() * 31 + Objects.hashCode(gameId);
+        }
+
+        @Override
+        public String toString() {
+            return gameDate + " / " + gameId;
+        }
+    }
+}
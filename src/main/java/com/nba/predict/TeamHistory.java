@@ -1,18 +1,82 @@
 package com.nba.predict;
 
-import java.util.ArrayDeque;
-import java.util.Deque;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
 
+/**
+ * Rolling per-team state backed by fixed-size primitive ring buffers. Running window sums
+ * are maintained on every update, so each getter is O(1) and allocation-free.
+ *
+ * Groups of statistics can be left untracked (see the TRACK_ flags): their buffers are
+ * never allocated or updated and their getters return 0.0 (NaN for the play-by-play
+ * averages). The game count, and so {@link #isReady()}, is always maintained.
+ *
+ * Play-by-play averages have a window of their own, advanced only by games the
+ * play_by_play table covers, so a game without events neither counts as zero nor pushes
+ * covered games out of the window.
+ *
+ * For windows other than the fixed one, the history can also keep prefix sums of every
+ * windowed series over all games the team has played, so the average over the last n games
+ * is one subtraction for any n, and exponentially decayed averages for a set of half-lives.
+ */
 public class TeamHistory {
-    private static final int WINDOW_SIZE = 5;
-    
-    private final Deque<Integer> recentPoints;
-    private final Deque<Integer> recentPointDiff;
-    private final Deque<Boolean> recentWins;
-    private final Deque<Double> recentFgPct;
-    private final Deque<Double> recentReb;
-    private final Deque<Double> recentAst;
-    private final Deque<Double> recentTov;
+    public static final int DEFAULT_WINDOW_SIZE = 5;
+
+    /** Window of points, point differential and wins. */
+    public static final int TRACK_SCORING = 1;
+    /** Window of FG%, rebounds, assists and turnovers. */
+    public static final int TRACK_BOX_SCORE = 1 << 1;
+    /** Season-to-date record and point differential, and the current win streak. */
+    public static final int TRACK_SEASON = 1 << 2;
+    /** Prefix sums of every series over the team's whole history, for windows of any length. */
+    public static final int TRACK_PREFIX_SUMS = 1 << 3;
+    /** Window of pace, clutch points, lead changes and largest lead over covered games. */
+    public static final int TRACK_PLAY_BY_PLAY = 1 << 4;
+    /** The fixed-window and season statistics, which the standard features read. */
+    public static final int TRACK_STANDARD = TRACK_SCORING | TRACK_BOX_SCORE | TRACK_SEASON;
+    public static final int TRACK_ALL = TRACK_STANDARD | TRACK_PREFIX_SUMS | TRACK_PLAY_BY_PLAY;
+
+    // Per-game series behind the windowed statistics, for getWindowAverage and getDecayedAverage.
+    public static final int POINTS = 0;
+    public static final int POINT_DIFF = 1;
+    public static final int WINS = 2;
+    public static final int FG_PCT = 3;
+    public static final int REB = 4;
+    public static final int AST = 5;
+    public static final int TOV = 6;
+    public static final int NUM_SERIES = 7;
+
+    private static final double[] NO_HALF_LIVES = new double[0];
+
+    private final int windowSize;
+    private final int tracked;
+    private final boolean scoring;
+    private final boolean boxScore;
+    private final boolean season;
+    private final boolean prefixSums;
+    private final boolean playByPlay;
+
+    // Ring buffers over the last windowSize games; head is the next slot to overwrite.
+    private final int[] recentPoints;
+    private final int[] recentPointDiff;
+    private final boolean[] recentWins;
+    private final double[] recentFgPct;
+    private final double[] recentReb;
+    private final double[] recentAst;
+    private final double[] recentTov;
+    private int head;
+    private int count;
+
+    // Running sums over the current window
+    private long sumPoints;
+    private long sumPointDiff;
+    private int sumWins;
+    private double sumFgPct;
+    private double sumReb;
+    private double sumAst;
+    private double sumTov;
 
     // Season-to-date aggregates (up to current game, not windowed)
     private int seasonGames;
@@ -20,37 +84,185 @@ public class TeamHistory {
     private int seasonPointsFor;
     private int seasonPointsAgainst;
     private int currentWinStreak;
-    
+
+    // Ring buffers over the last windowSize covered games, with their own head, count and sums.
+    private final double[] recentPace;
+    private final double[] recentClutchPoints;
+    private final double[] recentLeadChanges;
+    private final double[] recentLargestLead;
+    private int playByPlayHead;
+    private int playByPlayCount;
+    private double sumPace;
+    private double sumClutchPoints;
+    private double sumLeadChanges;
+    private double sumLargestLead;
+
+    // Every game played: prefix[g * NUM_SERIES + s] is the sum of series s over the first g
+    // games. Grown by doubling.
+    private int gamesPlayed;
+    private double[] prefix;
+
+    // Exponentially decayed average of each series per half-life, at [d * NUM_SERIES + s].
+    private final double[] halfLives;
+    private final double[] decayAlpha;
+    private final double[] decayed;
+
     public TeamHistory() {
-        this.recentPoints = new ArrayDeque<>();
-        this.recentPointDiff = new ArrayDeque<>();
-        this.recentWins = new ArrayDeque<>();
-        this.recentFgPct = new ArrayDeque<>();
-        this.recentReb = new ArrayDeque<>();
-        this.recentAst = new ArrayDeque<>();
-        this.recentTov = new ArrayDeque<>();
-    }
-    
+        this(DEFAULT_WINDOW_SIZE);
+    }
+
+    public TeamHistory(int windowSize) {
+        this(windowSize, TRACK_STANDARD);
+    }
+
+    /** @param tracked TRACK_ flags of the statistics to maintain */
+    public TeamHistory(int windowSize, int tracked) {
+        this(windowSize, tracked, NO_HALF_LIVES);
+    }
+
+    /**
+     * @param tracked   TRACK_ flags of the statistics to maintain
+     * @param halfLives half-lives, in games, of the decayed averages to maintain
+     */
+    public TeamHistory(int windowSize, int tracked, double[] halfLives) {
+        if (windowSize <= 0) {
+            throw new IllegalArgumentException("windowSize must be positive: " + windowSize);
+        }
+        this.windowSize = windowSize;
+        this.tracked = tracked & TRACK_ALL;
+        this.scoring = (tracked & TRACK_SCORING) != 0;
+        this.boxScore = (tracked & TRACK_BOX_SCORE) != 0;
+        this.season = (tracked & TRACK_SEASON) != 0;
+        this.prefixSums = (tracked & TRACK_PREFIX_SUMS) != 0;
+        this.playByPlay = (tracked & TRACK_PLAY_BY_PLAY) != 0;
+        int scoringSlots = scoring ? windowSize : 0;
+        int boxSlots = boxScore ? windowSize : 0;
+        this.recentPoints = new int[scoringSlots];
+        this.recentPointDiff = new int[scoringSlots];
+        this.recentWins = new boolean[scoringSlots];
+        this.recentFgPct = new double[boxSlots];
+        this.recentReb = new double[boxSlots];
+        this.recentAst = new double[boxSlots];
+        this.recentTov = new double[boxSlots];
+        int playByPlaySlots = playByPlay ? windowSize : 0;
+        this.recentPace = new double[playByPlaySlots];
+        this.recentClutchPoints = new double[playByPlaySlots];
+        this.recentLeadChanges = new double[playByPlaySlots];
+        this.recentLargestLead = new double[playByPlaySlots];
+        this.prefix = new double[prefixSums ? (windowSize + 1) * NUM_SERIES : 0];
+        this.halfLives = halfLives.clone();
+        this.decayAlpha = new double[halfLives.length];
+        for (int d = 0; d < halfLives.length; d++) {
+            if (!(halfLives[d] > 0.0) || Double.isInfinite(halfLives[d])) {
+                throw new IllegalArgumentException("Half-life must be positive: " + halfLives[d]);
+            }
+            // Weight of the newest game, so a game's weight halves every halfLives[d] games.
+            decayAlpha[d] = 1.0 - Math.pow(0.5, 1.0 / halfLives[d]);
+        }
+        this.decayed = new double[halfLives.length * NUM_SERIES];
+    }
+
+    /** Independent copy of {@code other}, including its running sums. */
+    public TeamHistory(TeamHistory other) {
+        this.windowSize = other.windowSize;
+        this.tracked = other.tracked;
+        this.scoring = other.scoring;
+        this.boxScore = other.boxScore;
+        this.season = other.season;
+        this.prefixSums = other.prefixSums;
+        this.playByPlay = other.playByPlay;
+        this.recentPoints = other.recentPoints.clone();
+        this.recentPointDiff = other.recentPointDiff.clone();
+        this.recentWins = other.recentWins.clone();
+        this.recentFgPct = other.recentFgPct.clone();
+        this.recentReb = other.recentReb.clone();
+        this.recentAst = other.recentAst.clone();
+        this.recentTov = other.recentTov.clone();
+        this.head = other.head;
+        this.count = other.count;
+        this.sumPoints = other.sumPoints;
+        this.sumPointDiff = other.sumPointDiff;
+        this.sumWins = other.sumWins;
+        this.sumFgPct = other.sumFgPct;
+        this.sumReb = other.sumReb;
+        this.sumAst = other.sumAst;
+        this.sumTov = other.sumTov;
+        this.seasonGames = other.seasonGames;
+        this.seasonWins = other.seasonWins;
+        this.seasonPointsFor = other.seasonPointsFor;
+        this.seasonPointsAgainst = other.seasonPointsAgainst;
+        this.currentWinStreak = other.currentWinStreak;
+        this.recentPace = other.recentPace.clone();
+        this.recentClutchPoints = other.recentClutchPoints.clone();
+        this.recentLeadChanges = other.recentLeadChanges.clone();
+        this.recentLargestLead = other.recentLargestLead.clone();
+        this.playByPlayHead = other.playByPlayHead;
+        this.playByPlayCount = other.playByPlayCount;
+        this.sumPace = other.sumPace;
+        this.sumClutchPoints = other.sumClutchPoints;
+        this.sumLeadChanges = other.sumLeadChanges;
+        this.sumLargestLead = other.sumLargestLead;
+        this.gamesPlayed = other.gamesPlayed;
+        this.prefix = Arrays.copyOf(other.prefix, prefixSums ? (other.gamesPlayed + 1) * NUM_SERIES : 0);
+        this.halfLives = other.halfLives;
+        this.decayAlpha = other.decayAlpha;
+        this.decayed = other.decayed.clone();
+    }
+
     public void recordMatch(int pointsScored, int pointsAllowed, boolean won,
                             double fgPct, double reb, double ast, double tov) {
-        recentPoints.addLast(pointsScored);
-        recentPointDiff.addLast(pointsScored - pointsAllowed);
-        recentWins.addLast(won);
-        recentFgPct.addLast(fgPct);
-        recentReb.addLast(reb);
-        recentAst.addLast(ast);
-        recentTov.addLast(tov);
-        
-        if (recentPoints.size() > WINDOW_SIZE) {
-            recentPoints.removeFirst();
-            recentPointDiff.removeFirst();
-            recentWins.removeFirst();
-            recentFgPct.removeFirst();
-            recentReb.removeFirst();
-            recentAst.removeFirst();
-            recentTov.removeFirst();
+        boolean full = count == windowSize;
+        if (!full) {
+            count++;
+        }
+        if (prefixSums || decayed.length > 0) {
+            recordSeries(pointsScored, pointsScored - pointsAllowed, won ? 1.0 : 0.0, fgPct, reb, ast, tov);
+        }
+        gamesPlayed++;
+        if (scoring) {
+            int pointDiff = pointsScored - pointsAllowed;
+            if (full) {
+                // Evict the oldest game, which sits in the slot about to be overwritten.
+                sumPoints -= recentPoints[head];
+                sumPointDiff -= recentPointDiff[head];
+                sumWins -= recentWins[head] ? 1 : 0;
+            }
+            recentPoints[head] = pointsScored;
+            recentPointDiff[head] = pointDiff;
+            recentWins[head] = won;
+            sumPoints += pointsScored;
+            sumPointDiff += pointDiff;
+            sumWins += won ? 1 : 0;
+        }
+        if (boxScore) {
+            if (full) {
+                sumFgPct -= recentFgPct[head];
+                sumReb -= recentReb[head];
+                sumAst -= recentAst[head];
+                sumTov -= recentTov[head];
+            }
+            recentFgPct[head] = fgPct;
+            recentReb[head] = reb;
+            recentAst[head] = ast;
+            recentTov[head] = tov;
+            sumFgPct += fgPct;
+            sumReb += reb;
+            sumAst += ast;
+            sumTov += tov;
         }
 
+        if (++head == windowSize) {
+            head = 0;
+            // Once per lap, re-sum the floating-point windows so add/subtract rounding
+            // error cannot drift over thousands of games.
+            if (boxScore) {
+                resyncDoubleSums();
+            }
+        }
+
+        if (!season) {
+            return;
+        }
         // Update season aggregates
         seasonGames++;
         if (won) {
@@ -62,63 +274,204 @@ public class TeamHistory {
         seasonPointsFor += pointsScored;
         seasonPointsAgainst += pointsAllowed;
     }
-    
-    public double getAvgPoints() {
-        if (recentPoints.isEmpty()) {
-            return 0.0;
+
+    /**
+     * Adds the play-by-play aggregates of a game the team just played, from its side:
+     * {@code clutchPoints} and {@code largestLead} are its own. Call it only for games the
+     * play_by_play table covers; it does nothing unless TRACK_PLAY_BY_PLAY is set.
+     */
+    public void recordPlayByPlay(double pace, double clutchPoints, double leadChanges, double largestLead) {
+        if (!playByPlay) {
+            return;
+        }
+        if (playByPlayCount == windowSize) {
+            sumPace -= recentPace[playByPlayHead];
+            sumClutchPoints -= recentClutchPoints[playByPlayHead];
+            sumLeadChanges -= recentLeadChanges[playByPlayHead];
+            sumLargestLead -= recentLargestLead[playByPlayHead];
+        } else {
+            playByPlayCount++;
+        }
+        recentPace[playByPlayHead] = pace;
+        recentClutchPoints[playByPlayHead] = clutchPoints;
+        recentLeadChanges[playByPlayHead] = leadChanges;
+        recentLargestLead[playByPlayHead] = largestLead;
+        sumPace += pace;
+        sumClutchPoints += clutchPoints;
+        sumLeadChanges += leadChanges;
+        sumLargestLead += largestLead;
+        if (++playByPlayHead == windowSize) {
+            playByPlayHead = 0;
+            resyncPlayByPlaySums();
         }
-        return recentPoints.stream().mapToInt(Integer::intValue).average().orElse(0.0);
     }
-    
-    public double getWinRate() {
-        if (recentWins.isEmpty()) {
-            return 0.0;
+
+    private void recordSeries(double points, double pointDiff, double win,
+                              double fgPct, double reb, double ast, double tov) {
+        if (prefixSums) {
+            int at = gamesPlayed * NUM_SERIES;
+            if (at + 2 * NUM_SERIES > prefix.length) {
+                prefix = Arrays.copyOf(prefix, Math.max(prefix.length * 2, at + 2 * NUM_SERIES));
+            }
+            int next = at + NUM_SERIES;
+            prefix[next + POINTS] = prefix[at + POINTS] + points;
+            prefix[next + POINT_DIFF] = prefix[at + POINT_DIFF] + pointDiff;
+            prefix[next + WINS] = prefix[at + WINS] + win;
+            prefix[next + FG_PCT] = prefix[at + FG_PCT] + fgPct;
+            prefix[next + REB] = prefix[at + REB] + reb;
+            prefix[next + AST] = prefix[at + AST] + ast;
+            prefix[next + TOV] = prefix[at + TOV] + tov;
+        }
+        for (int d = 0, at = 0; d < decayAlpha.length; d++, at += NUM_SERIES) {
+            if (gamesPlayed == 0) {
+                // The first game is the whole average.
+                decayed[at + POINTS] = points;
+                decayed[at + POINT_DIFF] = pointDiff;
+                decayed[at + WINS] = win;
+                decayed[at + FG_PCT] = fgPct;
+                decayed[at + REB] = reb;
+                decayed[at + AST] = ast;
+                decayed[at + TOV] = tov;
+                continue;
+            }
+            double a = decayAlpha[d];
+            decayed[at + POINTS] += a * (points - decayed[at + POINTS]);
+            decayed[at + POINT_DIFF] += a * (pointDiff - decayed[at + POINT_DIFF]);
+            decayed[at + WINS] += a * (win - decayed[at + WINS]);
+            decayed[at + FG_PCT] += a * (fgPct - decayed[at + FG_PCT]);
+            decayed[at + REB] += a * (reb - decayed[at + REB]);
+            decayed[at + AST] += a * (ast - decayed[at + AST]);
+            decayed[at + TOV] += a * (tov - decayed[at + TOV]);
         }
-        long wins = recentWins.stream().mapToLong(w -> w ? 1 : 0).sum();
-        return (double) wins / recentWins.size();
     }
 
-    public double getAvgPointDiffWindow() {
-        if (recentPointDiff.isEmpty()) {
-            return 0.0;
+    private void resyncDoubleSums() {
+        double fg = 0.0;
+        double rb = 0.0;
+        double as = 0.0;
+        double tv = 0.0;
+        for (int i = 0; i < count; i++) {
+            fg += recentFgPct[i];
+            rb += recentReb[i];
+            as += recentAst[i];
+            tv += recentTov[i];
         }
-        return recentPointDiff.stream().mapToInt(Integer::intValue).average().orElse(0.0);
+        sumFgPct = fg;
+        sumReb = rb;
+        sumAst = as;
+        sumTov = tv;
     }
-    
-    public double getAvgFgPct() {
-        if (recentFgPct.isEmpty()) {
-            return 0.0;
+
+    private void resyncPlayByPlaySums() {
+        double pc = 0.0;
+        double cl = 0.0;
+        double lc = 0.0;
+        double ll = 0.0;
+        for (int i = 0; i < playByPlayCount; i++) {
+            pc += recentPace[i];
+            cl += recentClutchPoints[i];
+            lc += recentLeadChanges[i];
+            ll += recentLargestLead[i];
         }
-        return recentFgPct.stream().mapToDouble(Double::doubleValue).average().orElse(0.0);
+        sumPace = pc;
+        sumClutchPoints = cl;
+        sumLeadChanges = lc;
+        sumLargestLead = ll;
+    }
+
+    public double getAvgPoints() {
+        return count == 0 ? 0.0 : (double) sumPoints / count;
+    }
+
+    public double getWinRate() {
+        return count == 0 ? 0.0 : (double) sumWins / count;
     }
-    
+
+    public double getAvgPointDiffWindow() {
+        return count == 0 ? 0.0 : (double) sumPointDiff / count;
+    }
+
+    public double getAvgFgPct() {
+        return count == 0 ? 0.0 : sumFgPct / count;
+    }
+
     public double getAvgReb() {
-        if (recentReb.isEmpty()) {
-            return 0.0;
-        }
-        return recentReb.stream().mapToDouble(Double::doubleValue).average().orElse(0.0);
+        return count == 0 ? 0.0 : sumReb / count;
     }
-    
+
     public double getAvgAst() {
-        if (recentAst.isEmpty()) {
-            return 0.0;
-        }
-        return recentAst.stream().mapToDouble(Double::doubleValue).average().orElse(0.0);
+        return count == 0 ? 0.0 : sumAst / count;
     }
-    
+
     public double getAvgTov() {
-        if (recentTov.isEmpty()) {
+        return count == 0 ? 0.0 : sumTov / count;
+    }
+
+    /**
+     * Average pace over the team's last covered games (up to the window), or NaN before its
+     * first covered game. The play-by-play averages below read the same window.
+     */
+    public double getAvgPace() {
+        return playByPlayCount == 0 ? Double.NaN : sumPace / playByPlayCount;
+    }
+
+    public double getAvgClutchPoints() {
+        return playByPlayCount == 0 ? Double.NaN : sumClutchPoints / playByPlayCount;
+    }
+
+    public double getAvgLeadChanges() {
+        return playByPlayCount == 0 ? Double.NaN : sumLeadChanges / playByPlayCount;
+    }
+
+    public double getAvgLargestLead() {
+        return playByPlayCount == 0 ? Double.NaN : sumLargestLead / playByPlayCount;
+    }
+
+    /**
+     * Average of {@code series} over the team's last {@code games} games, or over all its
+     * games if it has played fewer; 0.0 before its first game. Needs TRACK_PREFIX_SUMS.
+     */
+    public double getWindowAverage(int series, int games) {
+        int n = Math.min(games, gamesPlayed);
+        if (n <= 0) {
             return 0.0;
         }
-        return recentTov.stream().mapToDouble(Double::doubleValue).average().orElse(0.0);
+        return (prefix[gamesPlayed * NUM_SERIES + series] - prefix[(gamesPlayed - n) * NUM_SERIES + series]) / n;
+    }
+
+    /**
+     * Exponentially decayed average of {@code series} for the {@code decay}-th half-life
+     * this history was created with; 0.0 before the team's first game.
+     */
+    public double getDecayedAverage(int series, int decay) {
+        return decayed[decay * NUM_SERIES + series];
     }
-    
+
     public boolean isReady() {
-        return recentPoints.size() >= WINDOW_SIZE;
+        return count >= windowSize;
     }
-    
+
     public int getGameCount() {
-        return recentPoints.size();
+        return count;
+    }
+
+    /** Games recorded over the team's whole history, not capped at the window. */
+    public int getGamesPlayed() {
+        return gamesPlayed;
+    }
+
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    /** TRACK_ flags of the statistics this history maintains. */
+    public int getTracked() {
+        return tracked;
+    }
+
+    /** Half-lives, in games, of the decayed averages this history maintains. */
+    public double[] getHalfLives() {
+        return halfLives.clone();
     }
 
     public double getSeasonWinRate() {
@@ -138,5 +491,118 @@ public class TeamHistory {
     public int getCurrentWinStreak() {
         return currentWinStreak;
     }
-}
 
+    void writeTo(DataOutput out) throws IOException {
+        out.writeInt(windowSize);
+        out.writeInt(tracked);
+        out.writeInt(halfLives.length);
+        for (double halfLife : halfLives) {
+            out.writeDouble(halfLife);
+        }
+        out.writeInt(head);
+        out.writeInt(count);
+        for (int i = 0; i < recentPoints.length; i++) {
+            out.writeInt(recentPoints[i]);
+            out.writeInt(recentPointDiff[i]);
+            out.writeBoolean(recentWins[i]);
+        }
+        for (int i = 0; i < recentFgPct.length; i++) {
+            out.writeDouble(recentFgPct[i]);
+            out.writeDouble(recentReb[i]);
+            out.writeDouble(recentAst[i]);
+            out.writeDouble(recentTov[i]);
+        }
+        // Sums are stored rather than recomputed so a restored history continues bit for bit.
+        out.writeLong(sumPoints);
+        out.writeLong(sumPointDiff);
+        out.writeInt(sumWins);
+        out.writeDouble(sumFgPct);
+        out.writeDouble(sumReb);
+        out.writeDouble(sumAst);
+        out.writeDouble(sumTov);
+        out.writeInt(seasonGames);
+        out.writeInt(seasonWins);
+        out.writeInt(seasonPointsFor);
+        out.writeInt(seasonPointsAgainst);
+        out.writeInt(currentWinStreak);
+        out.writeInt(gamesPlayed);
+        if (prefixSums) {
+            for (int i = NUM_SERIES; i < (gamesPlayed + 1) * NUM_SERIES; i++) {
+                out.writeDouble(prefix[i]);
+            }
+        }
+        for (double value : decayed) {
+            out.writeDouble(value);
+        }
+        out.writeInt(playByPlayHead);
+        out.writeInt(playByPlayCount);
+        for (int i = 0; i < recentPace.length; i++) {
+            out.writeDouble(recentPace[i]);
+            out.writeDouble(recentClutchPoints[i]);
+            out.writeDouble(recentLeadChanges[i]);
+            out.writeDouble(recentLargestLead[i]);
+        }
+        out.writeDouble(sumPace);
+        out.writeDouble(sumClutchPoints);
+        out.writeDouble(sumLeadChanges);
+        out.writeDouble(sumLargestLead);
+    }
+
+    static TeamHistory readFrom(DataInput in) throws IOException {
+        int windowSize = in.readInt();
+        int tracked = in.readInt();
+        double[] halfLives = new double[in.readInt()];
+        for (int d = 0; d < halfLives.length; d++) {
+            halfLives[d] = in.readDouble();
+        }
+        TeamHistory h = new TeamHistory(windowSize, tracked, halfLives);
+        h.head = in.readInt();
+        h.count = in.readInt();
+        for (int i = 0; i < h.recentPoints.length; i++) {
+            h.recentPoints[i] = in.readInt();
+            h.recentPointDiff[i] = in.readInt();
+            h.recentWins[i] = in.readBoolean();
+        }
+        for (int i = 0; i < h.recentFgPct.length; i++) {
+            h.recentFgPct[i] = in.readDouble();
+            h.recentReb[i] = in.readDouble();
+            h.recentAst[i] = in.readDouble();
+            h.recentTov[i] = in.readDouble();
+        }
+        h.sumPoints = in.readLong();
+        h.sumPointDiff = in.readLong();
+        h.sumWins = in.readInt();
+        h.sumFgPct = in.readDouble();
+        h.sumReb = in.readDouble();
+        h.sumAst = in.readDouble();
+        h.sumTov = in.readDouble();
+        h.seasonGames = in.readInt();
+        h.seasonWins = in.readInt();
+        h.seasonPointsFor = in.readInt();
+        h.seasonPointsAgainst = in.readInt();
+        h.currentWinStreak = in.readInt();
+        h.gamesPlayed = in.readInt();
+        if (h.prefixSums) {
+            h.prefix = new double[(h.gamesPlayed + 2) * NUM_SERIES];
+            for (int i = NUM_SERIES; i < (h.gamesPlayed + 1) * NUM_SERIES; i++) {
+                h.prefix[i] = in.readDouble();
+            }
+        }
+        for (int i = 0; i < h.decayed.length; i++) {
+            h.decayed[i] = in.readDouble();
+        }
+        h.playByPlayHead = in.readInt();
+        h.playByPlayCount = in.readInt();
+        for (int i = 0; i < h.recentPace.length; i++) {
+            h.recentPace[i] = in.readDouble();
+            h.recentClutchPoints[i] = in.readDouble();
+            h.recentLeadChanges[i] = in.readDouble();
+            h.recentLargestLead[i] = in.readDouble();
+        }
+        h.sumPace = in.readDouble();
+        h.sumClutchPoints = in.readDouble();
+        h.sumLeadChanges = in.readDouble();
+        h.sumLargestLead = in.readDouble();
+        return h;
+    }
+}
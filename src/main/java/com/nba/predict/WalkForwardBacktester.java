@@ -0,0 +1,320 @@
+package com.nba.predict;
+
+import weka.classifiers.AbstractClassifier;
+import weka.classifiers.AggregateableEvaluation;
+import weka.classifiers.Classifier;
+import weka.classifiers.Evaluation;
+import weka.core.Instances;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.Period;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Walk-forward evaluation over the pipeline's feature rows. From a start date on, time is
+ * cut into consecutive test periods of one {@link Cadence}; for each period a fresh copy
+ * of the classifier is trained on the rows before the period, either all of them
+ * (expanding window) or only a trailing {@link Period} (sliding window), and then scores
+ * the period's games. Nothing on or after a period's first day is seen in its training.
+ *
+ * Feature rows are reused as extracted: they are copied once into a shared Weka dataset
+ * and every period's train and test sets are views of contiguous row ranges, so the cost
+ * is the retrains themselves. Periods are independent and run concurrently; as in
+ * {@link ParallelCrossValidator}, periods in flight times each forest's execution slots
+ * never exceeds the thread budget. Results are merged in date order.
+ *
+ * AUC, Brier score and log loss come from an exact {@link ProbabilityMetrics} per period,
+ * filled from the same predictions as the Weka evaluation and merged for the pooled line,
+ * rather than from Weka's threshold curve over its stored predictions.
+ */
+public class WalkForwardBacktester {
+
+    /** Length of each test period, i.e. how often the model is retrained. */
+    public enum Cadence {
+        WEEK, MONTH,
+        /** One year, so start the backtest at a season boundary to align periods with seasons. */
+        SEASON;
+
+        LocalDate next(LocalDate start) {
+            switch (this) {
+                case WEEK:
+                    return start.plusWeeks(1);
+                case MONTH:
+                    return start.plusMonths(1);
+                default:
+                    return start.plusYears(1);
+            }
+        }
+
+        public static Cadence parse(String name) {
+            try {
+                return valueOf(name.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown cadence: " + name + " (use week, month or season)");
+            }
+        }
+    }
+
+    private final LocalDate startDate;
+    private final Cadence cadence;
+    private final Period trainingWindow;
+    private final int threadBudget;
+
+    /** Expanding-window backtest using all cores. */
+    public WalkForwardBacktester(LocalDate startDate, Cadence cadence) {
+        this(startDate, cadence, null, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param trainingWindow how far back each period's training data reaches, or null to
+     *                       train on everything before the period
+     */
+    public WalkForwardBacktester(LocalDate startDate, Cadence cadence, Period trainingWindow, int threadBudget) {
+        this.startDate = startDate;
+        this.cadence = cadence;
+        this.trainingWindow = trainingWindow;
+        this.threadBudget = Math.max(1, threadBudget);
+    }
+
+    public Result run(Classifier template, FeaturePipeline.FeatureData features) throws Exception {
+        long start = System.currentTimeMillis();
+        int[] days = features.getGameDays();
+        List<Window> windows = plan(days);
+        if (windows.isEmpty()) {
+            throw new IllegalArgumentException("No games on or after " + startDate + " to backtest");
+        }
+
+        Instances all;
+        try (PipelineMetrics.Phase phase = PipelineMetrics.get().phase("instances")) {
+            all = FeatureInstances.all(features);
+            phase.setRows(all.numInstances());
+        }
+
+        int periodThreads = Math.min(windows.size(), threadBudget);
+        int slotsPerPeriod = Math.max(1, threadBudget / periodThreads);
+        ExecutorService pool = Executors.newFixedThreadPool(periodThreads, r -> {
+            Thread t = new Thread(r, "backtest");
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            List<Future<PeriodResult>> futures = new ArrayList<>(windows.size());
+            for (Window window : windows) {
+                futures.add(pool.submit(() -> runPeriod(template, all, window, slotsPerPeriod)));
+            }
+            List<PeriodResult> periods = new ArrayList<>(windows.size());
+            AggregateableEvaluation overall = new AggregateableEvaluation(all);
+            ProbabilityMetrics overallProbabilities = ProbabilityMetrics.exact();
+            for (Future<PeriodResult> future : futures) {
+                PeriodResult period = future.get();
+                periods.add(period);
+                overall.aggregate(period.evaluation);
+                overallProbabilities.merge(period.probabilities);
+            }
+            return new Result(periods, overall, overallProbabilities, all, System.currentTimeMillis() - start);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof Exception ? (Exception) cause : e;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /** Row ranges of every period with at least one training and one test row. */
+    private List<Window> plan(int[] days) {
+        List<Window> windows = new ArrayList<>();
+        if (days.length == 0) {
+            return windows;
+        }
+        LocalDate last = LocalDate.ofEpochDay(days[days.length - 1]);
+        for (LocalDate from = startDate; !from.isAfter(last); from = cadence.next(from)) {
+            LocalDate to = cadence.next(from);
+            int testFrom = firstOnOrAfter(days, from);
+            int testTo = firstOnOrAfter(days, to);
+            int trainFrom = trainingWindow == null ? 0 : firstOnOrAfter(days, from.minus(trainingWindow));
+            if (testTo > testFrom && testFrom > trainFrom) {
+                windows.add(new Window(from, to, trainFrom, testFrom, testTo));
+            }
+        }
+        return windows;
+    }
+
+    /** Index of the first row dated on or after {@code date}; rows are in date order. */
+    private static int firstOnOrAfter(int[] days, LocalDate date) {
+        long target = date.toEpochDay();
+        int lo = 0;
+        int hi = days.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (days[mid] < target) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private static PeriodResult runPeriod(Classifier template, Instances all, Window window, int slots)
+            throws Exception {
+        try (PipelineMetrics.Phase phase = PipelineMetrics.get().phase("backtest." + window.from)) {
+            // Range views share the instances of the full dataset; rows are not copied again.
+            Instances train = new Instances(all, window.trainFrom, window.testFrom - window.trainFrom);
+            Instances test = new Instances(all, window.testFrom, window.testTo - window.testFrom);
+            phase.setRows(train.numInstances());
+            Classifier model = AbstractClassifier.makeCopy(template);
+            ParallelCrossValidator.configureSlots(model, slots);
+            model.buildClassifier(train);
+            Evaluation eval = new Evaluation(train);
+            ProbabilityMetrics probabilities = ProbabilityMetrics.exact();
+            ParallelCrossValidator.score(model, test, eval, probabilities);
+            return new PeriodResult(window.from, window.to, train.numInstances(), test.numInstances(),
+                    eval, probabilities);
+        }
+    }
+
+    private static final class Window {
+        final LocalDate from;
+        final LocalDate to;
+        final int trainFrom;
+        final int testFrom;
+        final int testTo;
+
+        Window(LocalDate from, LocalDate to, int trainFrom, int testFrom, int testTo) {
+            this.from = from;
+            this.to = to;
+            this.trainFrom = trainFrom;
+            this.testFrom = testFrom;
+            this.testTo = testTo;
+        }
+    }
+
+    /** Scores of one test period. */
+    public static final class PeriodResult {
+        private final LocalDate start;
+        private final LocalDate end;
+        private final int trainRows;
+        private final int testRows;
+        private final Evaluation evaluation;
+        private final ProbabilityMetrics probabilities;
+
+        PeriodResult(LocalDate start, LocalDate end, int trainRows, int testRows, Evaluation evaluation,
+                     ProbabilityMetrics probabilities) {
+            this.start = start;
+            this.end = end;
+            this.trainRows = trainRows;
+            this.testRows = testRows;
+            this.evaluation = evaluation;
+            this.probabilities = probabilities;
+        }
+
+        /** First day of the period. */
+        public LocalDate getStart() {
+            return start;
+        }
+
+        /** Day after the period's last day. */
+        public LocalDate getEnd() {
+            return end;
+        }
+
+        public int getTrainRows() {
+            return trainRows;
+        }
+
+        public int getTestRows() {
+            return testRows;
+        }
+
+        public double getAccuracy() {
+            return evaluation.pctCorrect() / 100.0;
+        }
+
+        public double getAuc() {
+            return probabilities.getRocAuc();
+        }
+
+        public double getPrAuc() {
+            return probabilities.getPrAuc();
+        }
+
+        public double getBrierScore() {
+            return probabilities.getBrierScore();
+        }
+
+        public double getLogLoss() {
+            return probabilities.getLogLoss();
+        }
+    }
+
+    /** All periods plus their pooled scores. */
+    public static final class Result {
+        private final List<PeriodResult> periods;
+        private final Evaluation overall;
+        private final ProbabilityMetrics overallProbabilities;
+        private final Instances header;
+        private final long wallTimeMs;
+
+        Result(List<PeriodResult> periods, Evaluation overall, ProbabilityMetrics overallProbabilities,
+               Instances header, long wallTimeMs) {
+            this.periods = Collections.unmodifiableList(periods);
+            this.overall = overall;
+            this.overallProbabilities = overallProbabilities;
+            this.header = header;
+            this.wallTimeMs = wallTimeMs;
+        }
+
+        public List<PeriodResult> getPeriods() {
+            return periods;
+        }
+
+        /** Metrics over every scored game of every period. */
+        public ModelEvaluation getOverall() {
+            return WekaRandomForestEvaluator.summarize(overall, header).withProbabilities(overallProbabilities);
+        }
+
+        public double getOverallAuc() {
+            return overallProbabilities.getRocAuc();
+        }
+
+        public double getOverallBrierScore() {
+            return overallProbabilities.getBrierScore();
+        }
+
+        public int getTestRows() {
+            int rows = 0;
+            for (PeriodResult period : periods) {
+                rows += period.testRows;
+            }
+            return rows;
+        }
+
+        public long getWallTimeMs() {
+            return wallTimeMs;
+        }
+
+        /** One line per period, then an ALL line with the pooled scores. */
+        public void exportToCSV(String filename) throws IOException {
+            try (FileWriter writer = new FileWriter(filename)) {
+                writer.append("Period_Start,Period_End,Train_Rows,Test_Rows,Accuracy,AUC,Brier,PR_AUC,Log_Loss\n");
+                for (PeriodResult p : periods) {
+                    writer.append(String.format(Locale.US, "%s,%s,%d,%d,%.6f,%.6f,%.6f,%.6f,%.6f%n",
+                        p.start, p.end, p.trainRows, p.testRows, p.getAccuracy(), p.getAuc(), p.getBrierScore(),
+                        p.getPrAuc(), p.getLogLoss()));
+                }
+                writer.append(String.format(Locale.US, "ALL,,,%d,%.6f,%.6f,%.6f,%.6f,%.6f%n",
+                    getTestRows(), getOverall().getAccuracy(), getOverallAuc(), getOverallBrierScore(),
+                    overallProbabilities.getPrAuc(), overallProbabilities.getLogLoss()));
+            }
+        }
+    }
+}
@@ -1,44 +1,92 @@
 package com.nba.predict;
 
+import weka.classifiers.Classifier;
 import weka.classifiers.Evaluation;
 import weka.classifiers.trees.RandomForest;
-import weka.core.Attribute;
-import weka.core.DenseInstance;
 import weka.core.Instances;
 
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
-import java.util.Random;
-
 /**
  * Uses Weka's RandomForest with 10-fold cross-validation on the full dataset.
  * Produces a ModelResult using our ModelEvaluation wrapper so it can be compared
- * alongside the Smile-based models.
+ * alongside the Smile-based models. {@link #crossValidate} runs the same protocol for any
+ * other Weka classifier, e.g. {@link HistogramRandomForest}.
  */
 public class WekaRandomForestEvaluator {
+    public static final String MODEL_NAME = "Weka RandomForest (10-fold CV)";
 
     public static ModelResult runRandomForestCV(double[][] features, int[] labels) throws Exception {
+        return runRandomForestCV(features, labels, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Same as {@link #runRandomForestCV(double[][], int[])} with at most {@code threadBudget}
+     * threads, shared between concurrent folds and each fold's forest.
+     */
+    public static ModelResult runRandomForestCV(double[][] features, int[] labels, int threadBudget)
+            throws Exception {
         long start = System.currentTimeMillis();
+        Instances data;
+        try (PipelineMetrics.Phase phase = PipelineMetrics.get().phase("instances")) {
+            data = FeatureInstances.fromRows(features, labels);
+            phase.setRows(data.numInstances());
+        }
+        return crossValidate(MODEL_NAME, new RandomForest(), data, threadBudget, start);
+    }
 
-        // Build Weka Instances from our feature matrix.
-        Instances data = buildInstances(features, labels);
+    /** CV on the training rows of {@code features}, copied once into Weka instances. */
+    public static ModelResult runRandomForestCV(FeaturePipeline.FeatureData features) throws Exception {
+        return runRandomForestCV(features, Runtime.getRuntime().availableProcessors());
+    }
 
-        // Configure RandomForest (number of trees etc.)
-        RandomForest rf = new RandomForest();
+    public static ModelResult runRandomForestCV(FeaturePipeline.FeatureData features, int threadBudget)
+            throws Exception {
+        long start = System.currentTimeMillis();
+        Instances data = trainingInstances(features);
         // RandomForest extends Bagging; configure via options or use defaults.
         // We rely on Weka's default numIterations (trees) here.
+        return crossValidate(MODEL_NAME, new RandomForest(), data, threadBudget, start);
+    }
 
-        // 10-fold cross-validation
-        Evaluation eval = new Evaluation(data);
-        eval.crossValidateModel(rf, data, 10, new Random(42));
+    /** Weka Instances built straight from the flat training matrix. */
+    public static Instances trainingInstances(FeaturePipeline.FeatureData features) {
+        try (PipelineMetrics.Phase phase = PipelineMetrics.get().phase("instances")) {
+            Instances data = FeatureInstances.train(features);
+            phase.setRows(data.numInstances());
+            return data;
+        }
+    }
+
+    /**
+     * 10-fold CV of {@code classifier} on {@code data} (seed 42, the same folds for every
+     * classifier), followed by a fit on all of {@code data}.
+     */
+    public static ModelResult crossValidate(String modelName, Classifier classifier, Instances data,
+                                            int threadBudget) throws Exception {
+        return crossValidate(modelName, classifier, data, threadBudget, System.currentTimeMillis());
+    }
+
+    private static ModelResult crossValidate(String modelName, Classifier classifier, Instances data,
+                                             int threadBudget, long start) throws Exception {
+        // 10-fold cross-validation, folds trained concurrently
+        ParallelCrossValidator cv = new ParallelCrossValidator(10, 42L, threadBudget);
+        ProbabilityMetrics probabilities = new ProbabilityMetrics();
+        Evaluation eval = cv.crossValidate(classifier, data, probabilities);
 
         long trainingTimeMs = System.currentTimeMillis() - start;
 
         // Build final model on full data (optional, for later prediction if desired).
-        rf.buildClassifier(data);
+        try (PipelineMetrics.Phase phase = PipelineMetrics.get().phase("final_fit")) {
+            phase.setRows(data.numInstances());
+            ParallelCrossValidator.configureSlots(classifier, threadBudget);
+            classifier.buildClassifier(data);
+        }
 
-        // Extract metrics
+        return new ModelResult(modelName, classifier, summarize(eval, data).withProbabilities(probabilities),
+                trainingTimeMs);
+    }
+
+    /** Our ModelEvaluation view of a Weka evaluation over LOSS/WIN instances. */
+    static ModelEvaluation summarize(Evaluation eval, Instances data) {
         int lossIndex = data.classAttribute().indexOfValue("LOSS");
         int winIndex = data.classAttribute().indexOfValue("WIN");
 
@@ -61,41 +109,11 @@ public class WekaRandomForestEvaluator {
             }
         }
 
-        ModelEvaluation modelEval = new ModelEvaluation(
+        return new ModelEvaluation(
                 accuracy,
                 precisionWin, recallWin, f1Win,
                 precisionLoss, recallLoss, f1Loss,
                 confusionMatrix
         );
-
-        return new ModelResult("Weka RandomForest (10-fold CV)", rf, modelEval, trainingTimeMs);
-    }
-
-    private static Instances buildInstances(double[][] features, int[] labels) {
-        int n = features.length;
-        int d = features[0].length;
-
-        ArrayList<Attribute> attrs = new ArrayList<>(d + 1);
-        for (int j = 0; j < d; j++) {
-            attrs.add(new Attribute("f" + j));
-        }
-
-        ArrayList<String> classValues = new ArrayList<>(Arrays.asList("LOSS", "WIN"));
-        Attribute classAttr = new Attribute("class", classValues);
-        attrs.add(classAttr);
-
-        Instances data = new Instances("NBA_GAMES", attrs, n);
-        data.setClassIndex(d);
-
-        for (int i = 0; i < n; i++) {
-            double[] vals = new double[d + 1];
-            System.arraycopy(features[i], 0, vals, 0, d);
-            vals[d] = labels[i] == 1 ? classAttr.indexOfValue("WIN") : classAttr.indexOfValue("LOSS");
-            data.add(new DenseInstance(1.0, vals));
-        }
-
-        return data;
     }
 }
-
-